@@ -0,0 +1,172 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.cutlass.line.BinaryDecimalUtils;
+import io.questdb.client.std.Decimal128;
+import io.questdb.client.std.Decimal256;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.NumericException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arithmetic and text parsing of 64, 128 and 256-bit decimals, and conversion of
+ * {@link BigDecimal} and scaled double values to them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecimalBenchmark {
+    private static final BigDecimal BIG_DECIMAL = new BigDecimal("123456789.123456");
+    private static final double DOUBLE = 123456789.123456;
+    private static final String TEXT = "123456789.123456";
+    private final Decimal128 a128 = Decimal128.fromLong(123_456_789_123L, 3);
+    private final Decimal256 a256 = Decimal256.fromLong(123_456_789_123L, 3);
+    private final Decimal64 a64 = new Decimal64(123_456_789L, 3);
+    private final Decimal128 b128 = Decimal128.fromLong(987_654_321L, 2);
+    private final Decimal256 b256 = Decimal256.fromLong(987_654_321L, 2);
+    private final Decimal64 b64 = new Decimal64(98_765L, 2);
+    private final Decimal128 sink128 = new Decimal128();
+    private final Decimal256 sink256 = new Decimal256();
+    private final Decimal64 sink64 = new Decimal64();
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DecimalBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public Decimal128 add128() {
+        Decimal128.add(a128, b128, sink128);
+        return sink128;
+    }
+
+    @Benchmark
+    public Decimal256 add256() {
+        Decimal256.add(a256, b256, sink256);
+        return sink256;
+    }
+
+    @Benchmark
+    public Decimal64 add64() {
+        Decimal64.add(a64, b64, sink64);
+        return sink64;
+    }
+
+    @Benchmark
+    public Decimal256 bigDecimalFrom() {
+        return Decimal256.fromBigDecimal(BIG_DECIMAL);
+    }
+
+    @Benchmark
+    public Decimal256 bigDecimalInPlace() {
+        BinaryDecimalUtils.ofBigDecimal(sink256, BIG_DECIMAL);
+        return sink256;
+    }
+
+    @Benchmark
+    public Decimal128 divide128() {
+        Decimal128.divide(a128, b128, sink128, 6, RoundingMode.HALF_UP);
+        return sink128;
+    }
+
+    @Benchmark
+    public Decimal256 divide256() {
+        Decimal256.divide(a256, b256, sink256, 6, RoundingMode.HALF_UP);
+        return sink256;
+    }
+
+    @Benchmark
+    public Decimal64 divide64() {
+        Decimal64.divide(a64, b64, sink64, 6, RoundingMode.HALF_UP);
+        return sink64;
+    }
+
+    @Benchmark
+    public Decimal256 doubleFrom() {
+        return Decimal256.fromDouble(DOUBLE, 6);
+    }
+
+    @Benchmark
+    public Decimal256 doubleInPlace() {
+        BinaryDecimalUtils.ofDouble(sink256, DOUBLE, 6);
+        return sink256;
+    }
+
+    @Benchmark
+    public Decimal128 multiply128() {
+        Decimal128.multiply(a128, b128, sink128);
+        return sink128;
+    }
+
+    @Benchmark
+    public Decimal256 multiply256() {
+        Decimal256.multiply(a256, b256, sink256);
+        return sink256;
+    }
+
+    @Benchmark
+    public Decimal64 multiply64() {
+        Decimal64.multiply(a64, b64, sink64);
+        return sink64;
+    }
+
+    @Benchmark
+    public long parse128() throws NumericException {
+        return sink128.ofString(TEXT, 0, TEXT.length(), -1, 6, false, false);
+    }
+
+    @Benchmark
+    public long parse256() throws NumericException {
+        return sink256.ofString(TEXT, 0, TEXT.length(), -1, 6, false, false);
+    }
+
+    @Benchmark
+    public long parse64() throws NumericException {
+        return sink64.ofString(TEXT, 0, TEXT.length(), -1, 6, false, false);
+    }
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.line.array.ArrayBufferAppender;
+import io.questdb.client.cutlass.line.array.DoubleArray;
+import io.questdb.client.cutlass.line.array.ExternalArrayView;
+import io.questdb.client.cutlass.line.array.FlattenArrayUtils;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Unsafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening of Java arrays, and of arrays already held in native memory, into the
+ * binary array format sent by protocol V2 and later.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlattenArrayBenchmark {
+    @Param({"16", "1024", "10000"})
+    public int size;
+    private NativeAppender appender;
+    private double[] array1d;
+    private double[][] array2d;
+    private DoubleArray doubleArray;
+    private ExternalArrayView externalView;
+    private long[] longArray1d;
+    private long nativeArray;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FlattenArrayBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public long double1d() {
+        appender.clear();
+        FlattenArrayUtils.putShapeToBuf(appender, array1d);
+        FlattenArrayUtils.putDataToBuf(appender, array1d);
+        return appender.ptr;
+    }
+
+    @Benchmark
+    public long double2d() {
+        appender.clear();
+        FlattenArrayUtils.putShapeToBuf(appender, array2d);
+        FlattenArrayUtils.putDataToBuf(appender, array2d);
+        return appender.ptr;
+    }
+
+    /**
+     * Baseline for data held in native memory: fill a {@link DoubleArray} and send it.
+     */
+    @Benchmark
+    public long doubleArrayFromNative() {
+        appender.clear();
+        for (int i = 0; i < size; i++) {
+            doubleArray.append(Unsafe.getUnsafe().getDouble(nativeArray + (long) i * Double.BYTES));
+        }
+        doubleArray.appendToBufPtr(appender);
+        return appender.ptr;
+    }
+
+    @Benchmark
+    public long externalView1d() {
+        appender.clear();
+        externalView.of(nativeArray, ColumnType.DOUBLE, size);
+        FlattenArrayUtils.putShapeToBuf(appender, externalView);
+        FlattenArrayUtils.putDataToBuf(appender, externalView);
+        return appender.ptr;
+    }
+
+    @Benchmark
+    public long externalViewSliced() {
+        // every row of a matrix, minus its first column
+        appender.clear();
+        final int rows = array2d.length;
+        final int cols = size / rows;
+        externalView.of(nativeArray + Double.BYTES, ColumnType.DOUBLE, new int[]{rows, cols - 1}, new int[]{cols, 1});
+        FlattenArrayUtils.putShapeToBuf(appender, externalView);
+        FlattenArrayUtils.putDataToBuf(appender, externalView);
+        return appender.ptr;
+    }
+
+    @Benchmark
+    public long long1d() {
+        appender.clear();
+        FlattenArrayUtils.putShapeToBuf(appender, longArray1d);
+        FlattenArrayUtils.putDataToBuf(appender, longArray1d);
+        return appender.ptr;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        array1d = new double[size];
+        longArray1d = new long[size];
+        for (int i = 0; i < size; i++) {
+            array1d[i] = i * 0.5;
+            longArray1d[i] = i;
+        }
+        final int rows = (int) Math.sqrt(size);
+        array2d = new double[rows][size / rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < size / rows; j++) {
+                array2d[i][j] = i + j * 0.5;
+            }
+        }
+        appender = new NativeAppender(64 + size * 8L);
+        nativeArray = Unsafe.malloc(size * 8L, MemoryTag.NATIVE_DEFAULT);
+        for (int i = 0; i < size; i++) {
+            Unsafe.getUnsafe().putDouble(nativeArray + i * 8L, i * 0.5);
+        }
+        doubleArray = new DoubleArray(size);
+        externalView = new ExternalArrayView();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        appender.close();
+        doubleArray.close();
+        Unsafe.free(nativeArray, size * 8L, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    private static class NativeAppender implements ArrayBufferAppender {
+        private final long capacity;
+        private final long lo;
+        private long ptr;
+
+        private NativeAppender(long capacity) {
+            this.capacity = capacity;
+            this.lo = this.ptr = Unsafe.malloc(capacity, MemoryTag.NATIVE_DEFAULT);
+        }
+
+        @Override
+        public void putBlockOfBytes(long from, long len) {
+            Unsafe.getUnsafe().copyMemory(from, ptr, len);
+            ptr += len;
+        }
+
+        @Override
+        public void putBlockOfBytes(Object array, long offset, long len) {
+            Unsafe.getUnsafe().copyMemory(array, offset, null, ptr, len);
+            ptr += len;
+        }
+
+        @Override
+        public void putByte(byte b) {
+            Unsafe.getUnsafe().putByte(ptr++, b);
+        }
+
+        @Override
+        public void putDouble(double value) {
+            Unsafe.getUnsafe().putDouble(ptr, value);
+            ptr += Double.BYTES;
+        }
+
+        @Override
+        public void putInt(int value) {
+            Unsafe.getUnsafe().putInt(ptr, value);
+            ptr += Integer.BYTES;
+        }
+
+        @Override
+        public void putLong(long value) {
+            Unsafe.getUnsafe().putLong(ptr, value);
+            ptr += Long.BYTES;
+        }
+
+        void clear() {
+            ptr = lo;
+        }
+
+        void close() {
+            Unsafe.free(lo, capacity, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.cutlass.http.HttpHeaderParser;
+import io.questdb.client.cutlass.http.client.AbstractChunkedResponse;
+import io.questdb.client.cutlass.http.client.Fragment;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.ObjectPool;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.Vect;
+import io.questdb.client.std.str.DirectUtf8String;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of HTTP response headers, both eagerly and with headers indexed on demand, and decoding of a chunked response body, received in MSS-sized slices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpResponseParsingBenchmark {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CHUNK_SIZE = 4000;
+    private static final int CHUNK_COUNT = 16;
+    private static final String HEADER = "HTTP/1.1 200 OK\r\n" +
+            "Server: questDB/1.0\r\n" +
+            "Date: Thu, 1 Jan 1970 00:00:00 GMT\r\n" +
+            "Transfer-Encoding: chunked\r\n" +
+            "Content-Type: application/json; charset=utf-8\r\n" +
+            "Keep-Alive: timeout=5, max=10000\r\n" +
+            "\r\n";
+    private static final int SEGMENT_SIZE = 1460;
+    private final ObjectPool<DirectUtf8String> csPool = new ObjectPool<>(DirectUtf8String.FACTORY, 64);
+    private long body;
+    private long bodyLen;
+    private long buf;
+    private ChunkedResponse chunkedResponse;
+    private long header;
+    private long headerLen;
+    private HttpHeaderParser headerParser;
+    private HttpHeaderParser onDemandHeaderParser;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HttpResponseParsingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public long decodeChunkedBody() {
+        chunkedResponse.offset = 0;
+        chunkedResponse.begin(buf, buf);
+        long total = 0;
+        Fragment fragment;
+        while ((fragment = chunkedResponse.recv()) != null) {
+            total += fragment.hi() - fragment.lo();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long parseHeader() {
+        headerParser.clear();
+        csPool.clear();
+        return headerParser.parse(header, header + headerLen, false, true);
+    }
+
+    @Benchmark
+    public long parseHeaderOnDemand() {
+        onDemandHeaderParser.clear();
+        csPool.clear();
+        return onDemandHeaderParser.parse(header, header + headerLen, false, true);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        headerParser = new HttpHeaderParser(4096, csPool);
+        onDemandHeaderParser = new HttpHeaderParser(4096, csPool, true);
+        byte[] headerBytes = HEADER.getBytes(StandardCharsets.US_ASCII);
+        headerLen = headerBytes.length;
+        header = copyToNative(headerBytes);
+
+        StringBuilder sb = new StringBuilder();
+        String hexSize = Integer.toHexString(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            sb.append(hexSize).append("\r\n");
+            for (int j = 0; j < CHUNK_SIZE; j++) {
+                sb.append((char) ('a' + j % 26));
+            }
+            sb.append("\r\n");
+        }
+        sb.append("0\r\n\r\n");
+        byte[] bodyBytes = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        bodyLen = bodyBytes.length;
+        body = copyToNative(bodyBytes);
+
+        buf = Unsafe.malloc(BUFFER_SIZE, MemoryTag.NATIVE_DEFAULT);
+        chunkedResponse = new ChunkedResponse(buf, buf + BUFFER_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        headerParser.close();
+        onDemandHeaderParser.close();
+        Unsafe.free(header, headerLen, MemoryTag.NATIVE_DEFAULT);
+        Unsafe.free(body, bodyLen, MemoryTag.NATIVE_DEFAULT);
+        Unsafe.free(buf, BUFFER_SIZE, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    private static long copyToNative(byte[] bytes) {
+        long ptr = Unsafe.malloc(bytes.length, MemoryTag.NATIVE_DEFAULT);
+        for (int i = 0; i < bytes.length; i++) {
+            Unsafe.getUnsafe().putByte(ptr + i, bytes[i]);
+        }
+        return ptr;
+    }
+
+    private class ChunkedResponse extends AbstractChunkedResponse {
+        private long offset;
+
+        private ChunkedResponse(long bufLo, long bufHi) {
+            super(bufLo, bufHi, 1000);
+        }
+
+        @Override
+        protected int recvOrDie(long bufLo, long bufHi, int timeout) {
+            final int len = (int) Math.min(Math.min(SEGMENT_SIZE, bufHi - bufLo), bodyLen - offset);
+            if (len <= 0) {
+                throw new IllegalStateException("unexpected end of body");
+            }
+            Vect.memcpy(bufLo, body + offset, len);
+            offset += len;
+            return len;
+        }
+    }
+}
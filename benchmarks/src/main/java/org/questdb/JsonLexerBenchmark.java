@@ -0,0 +1,131 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.cutlass.json.JsonException;
+import io.questdb.client.cutlass.json.JsonLexer;
+import io.questdb.client.cutlass.json.JsonParser;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Unsafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing of the JSON documents the client receives: ILP error responses, the /settings response
+ * and a query result of the /exec endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonLexerBenchmark implements JsonParser {
+    private static final String ERROR = "{\"code\":\"invalid\",\"message\":\"failed to parse line protocol:errors encountered on line(s):" +
+            "\\nerror in line 1: table: trades, column: price; cast error from protocol type: STRING to column type: DOUBLE\"," +
+            "\"line\":1,\"errorId\":\"9a4d2b8b7e1c-25\"}";
+    private static final String SETTINGS = "{\"config\":{\"release.type\":\"OSS\",\"release.version\":\"9.3.1\"," +
+            "\"http.settings.readonly\":false,\"line.proto.support.versions\":[1,2,3],\"ilp.proto.transports\":[\"tcp\",\"http\"]," +
+            "\"posthog.enabled\":false,\"posthog.api.key\":null,\"cairo.max.file.name.length\":127}," +
+            "\"preferences.version\":0,\"preferences\":{}}";
+    private static final String RESULT;
+    private final JsonLexer lexer = new JsonLexer(1024, 1024);
+    @Param({"error", "settings", "result"})
+    public String document;
+    private int events;
+    private long hi;
+    private long lo;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(JsonLexerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Override
+    public void onEvent(int code, CharSequence tag, int position) {
+        events++;
+    }
+
+    @Benchmark
+    public int parse() throws JsonException {
+        events = 0;
+        lexer.clear();
+        lexer.parse(lo, hi, this);
+        lexer.parseLast();
+        return events;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] bytes = ("error".equals(document) ? ERROR : "settings".equals(document) ? SETTINGS : RESULT).getBytes(StandardCharsets.UTF_8);
+        lo = Unsafe.malloc(bytes.length, MemoryTag.NATIVE_DEFAULT);
+        hi = lo + bytes.length;
+        for (int i = 0; i < bytes.length; i++) {
+            Unsafe.getUnsafe().putByte(lo + i, bytes[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Unsafe.free(lo, hi - lo, MemoryTag.NATIVE_DEFAULT);
+        lexer.close();
+    }
+
+    static {
+        StringBuilder sb = new StringBuilder("{\"query\":\"trades\",\"columns\":[{\"name\":\"symbol\",\"type\":\"SYMBOL\"}," +
+                "{\"name\":\"side\",\"type\":\"SYMBOL\"},{\"name\":\"price\",\"type\":\"DOUBLE\"}," +
+                "{\"name\":\"amount\",\"type\":\"DOUBLE\"},{\"name\":\"timestamp\",\"type\":\"TIMESTAMP\"}]," +
+                "\"timestamp\":4,\"dataset\":[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("[\"ETH-USD\",\"sell\",").append(2615.54 + i).append(',').append(0.00044 * i)
+                    .append(",\"2024-08-27T11:22:").append(10 + i % 50).append(".123456Z\"]");
+        }
+        RESULT = sb.append("],\"count\":1000}").toString();
+    }
+}
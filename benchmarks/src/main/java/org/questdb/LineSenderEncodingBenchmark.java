@@ -0,0 +1,249 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cairo.GeoHashes;
+import io.questdb.client.cutlass.line.LineTcpSenderV1;
+import io.questdb.client.cutlass.line.LineTcpSenderV2;
+import io.questdb.client.cutlass.line.LineTcpSenderV3;
+import io.questdb.client.cutlass.line.LineTcpSenderV4;
+import io.questdb.client.std.Decimal256;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.str.StringSink;
+import io.questdb.client.std.str.Utf8String;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row encoding cost of the HTTP and TCP senders, for each protocol version.
+ * <p>
+ * HTTP senders are never flushed, their buffer is reset instead. TCP senders write to
+ * a {@link NullLineChannel}. Neither touches the network, so the benchmark measures
+ * the row encoding only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineSenderEncodingBenchmark {
+    private static final int BUFFER_CAPACITY = 1024 * 1024;
+    // the same row as rowWithText(), pre-encoded
+    private static final Utf8String EVENTS = new Utf8String("events");
+    private static final Utf8String LEVEL = new Utf8String("level");
+    private static final Utf8String LEVEL_VALUE = new Utf8String("warning");
+    private static final Utf8String MESSAGE = new Utf8String("message");
+    private static final Utf8String MESSAGE_VALUE = new Utf8String("connection to upstream 10.0.4.17:5432 reset by peer, retrying in 250ms (attempt 3 of 5)");
+    private static final int ROWS_PER_RESET = 10_000;
+    private static final Utf8String SOURCE = new Utf8String("source");
+    private static final Utf8String SOURCE_VALUE = new Utf8String("eu-west-1/ingest-gateway-03");
+    private static final Utf8String USER_AGENT = new Utf8String("user_agent");
+    private static final Utf8String USER_AGENT_VALUE = new Utf8String("Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36");
+    private final double[] array = new double[16];
+    private final Decimal256 bid = Decimal256.fromLong(261_554, 2);
+    private final Decimal64 decimal = new Decimal64(123_456, 2);
+    private final StringSink formatSink = new StringSink();
+    @Param({"1", "2", "3", "4"})
+    public int protocolVersion;
+    @Param({"http", "tcp"})
+    public String transport;
+    private long rows;
+    private Sender sender;
+    private long timestamp = 1_700_000_000_000_000L;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(LineSenderEncodingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public void rowWithDecimals() {
+        sender.table("quotes").symbol("symbol", "ETH-USD");
+        if (protocolVersion >= Sender.PROTOCOL_VERSION_V3) {
+            sender.decimalColumn("bid", bid)
+                    .decimalColumn("ask", "2615.55");
+        }
+        sender.at(timestamp++, ChronoUnit.NANOS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithIdentifiers() {
+        final long id = rows * 0x9E3779B97F4A7C15L;
+        sender.table("sessions");
+        if (protocolVersion >= Sender.PROTOCOL_VERSION_V4) {
+            sender.uuidColumn("session_id", id, ~id)
+                    .long256Column("tx_hash", id, ~id, id >>> 1, rows)
+                    .ipv4Column("client_ip", (int) id)
+                    .geoHashColumn("location", 30, id & 0x3fffffff);
+        } else {
+            // older versions send these as strings that the server parses back
+            formatSink.clear();
+            Numbers.appendUuid(id, ~id, formatSink);
+            sender.stringColumn("session_id", formatSink);
+            formatSink.clear();
+            Numbers.appendLong256(id, ~id, id >>> 1, rows, formatSink);
+            sender.stringColumn("tx_hash", formatSink);
+            formatSink.clear();
+            Numbers.intToIPv4Sink(formatSink, (int) id);
+            sender.stringColumn("client_ip", formatSink);
+            formatSink.clear();
+            GeoHashes.append(id & 0x3fffffff, 30, formatSink);
+            sender.stringColumn("location", formatSink);
+        }
+        sender.at(timestamp++, ChronoUnit.MICROS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithIntegers() {
+        sender.table("fills")
+                .longColumn("order_id", 1_000_000_007L * rows)
+                .longColumn("qty", rows & 0xfff)
+                .longColumn("venue_seq", -rows)
+                .timestampColumn("exchange_ts", 1_732_000_000_000_000_000L + rows, ChronoUnit.NANOS)
+                .timestampColumn("gateway_ts", 1_732_000_000_000_000L + rows, ChronoUnit.MICROS)
+                .at(1_732_000_000_000_000_000L + timestamp++, ChronoUnit.NANOS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithScalars() {
+        sender.table("trades")
+                .symbol("symbol", "ETH-USD")
+                .symbol("side", "sell")
+                .doubleColumn("price", 2615.54)
+                .doubleColumn("amount", 0.00044)
+                .longColumn("count", rows)
+                .stringColumn("venue", "coinbase")
+                .at(timestamp++, ChronoUnit.MICROS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithText() {
+        sender.table("events")
+                .symbol("source", "eu-west-1/ingest-gateway-03")
+                .symbol("level", "warning")
+                .stringColumn("message", "connection to upstream 10.0.4.17:5432 reset by peer, retrying in 250ms (attempt 3 of 5)")
+                .stringColumn("user_agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36")
+                .at(timestamp++, ChronoUnit.MICROS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithTypedColumns() {
+        sender.table("quotes").symbol("symbol", "ETH-USD");
+        if (protocolVersion >= Sender.PROTOCOL_VERSION_V2) {
+            sender.doubleArray("bids", array);
+        }
+        if (protocolVersion >= Sender.PROTOCOL_VERSION_V3) {
+            sender.decimalColumn("mid", decimal);
+        }
+        sender.at(timestamp++, ChronoUnit.NANOS);
+        rowAdded();
+    }
+
+    @Benchmark
+    public void rowWithUtf8Text() {
+        sender.tableUtf8(EVENTS)
+                .symbolUtf8(SOURCE, SOURCE_VALUE)
+                .symbolUtf8(LEVEL, LEVEL_VALUE)
+                .stringColumnUtf8(MESSAGE, MESSAGE_VALUE)
+                .stringColumnUtf8(USER_AGENT, USER_AGENT_VALUE)
+                .at(timestamp++, ChronoUnit.MICROS);
+        rowAdded();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * 1.5;
+        }
+        if ("http".equals(transport)) {
+            // the address is never connected to, rows are discarded by reset()
+            sender = Sender.builder(Sender.Transport.HTTP)
+                    .address("localhost:9000")
+                    .protocolVersion(protocolVersion)
+                    .disableAutoFlush()
+                    .bufferCapacity(BUFFER_CAPACITY)
+                    .build();
+        } else {
+            NullLineChannel channel = new NullLineChannel();
+            switch (protocolVersion) {
+                case Sender.PROTOCOL_VERSION_V1:
+                    sender = new LineTcpSenderV1(channel, BUFFER_CAPACITY, 127);
+                    break;
+                case Sender.PROTOCOL_VERSION_V2:
+                    sender = new LineTcpSenderV2(channel, BUFFER_CAPACITY, 127);
+                    break;
+                case Sender.PROTOCOL_VERSION_V3:
+                    sender = new LineTcpSenderV3(channel, BUFFER_CAPACITY, 127);
+                    break;
+                default:
+                    sender = new LineTcpSenderV4(channel, BUFFER_CAPACITY, 127);
+                    break;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if ("http".equals(transport)) {
+            sender.reset();
+        }
+        sender.close();
+    }
+
+    private void rowAdded() {
+        if (++rows % ROWS_PER_RESET == 0 && "http".equals(transport)) {
+            sender.reset();
+        }
+    }
+}
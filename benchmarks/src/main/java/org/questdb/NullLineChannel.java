@@ -0,0 +1,59 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.cutlass.line.LineChannel;
+
+/**
+ * Line channel that discards everything it is asked to send, so that benchmarks
+ * measure encoding rather than networking.
+ */
+public class NullLineChannel implements LineChannel {
+    private long bytesSent;
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public int errno() {
+        return 0;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public int receive(long ptr, int len) {
+        return 0;
+    }
+
+    @Override
+    public void send(long ptr, int len) {
+        bytesSent += len;
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.std.DoubleFormatter;
+import io.questdb.client.std.LongFormatter;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.StringSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NumbersAppendBenchmark {
+    private static final int VALUE_COUNT = 1024;
+    private final double[] doubles = new double[VALUE_COUNT];
+    private final long[] longs = new long[VALUE_COUNT];
+    private final StringSink utf16Sink = new StringSink();
+    private long buf;
+    private int index;
+    private DirectUtf8Sink utf8Sink;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(NumbersAppendBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public int appendDoubleUtf16() {
+        utf16Sink.clear();
+        Numbers.append(utf16Sink, doubles[next()]);
+        return utf16Sink.length();
+    }
+
+    @Benchmark
+    public long appendDoubleShortestNative() {
+        return DoubleFormatter.append(buf, doubles[next()]) - buf;
+    }
+
+    @Benchmark
+    public long appendDoubleUtf8() {
+        utf8Sink.clear();
+        Numbers.append(utf8Sink, doubles[next()]);
+        return utf8Sink.size();
+    }
+
+    @Benchmark
+    public long appendLongUtf8() {
+        utf8Sink.clear();
+        Numbers.append(utf8Sink, longs[next()]);
+        return utf8Sink.size();
+    }
+
+    @Benchmark
+    public long appendLongNative() {
+        return LongFormatter.append(buf, longs[next()]) - buf;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Rnd rnd = new Rnd();
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            // mix of prices, small fractions and large magnitudes
+            switch (i % 3) {
+                case 0:
+                    doubles[i] = rnd.nextInt(100_000) / 100.0;
+                    break;
+                case 1:
+                    doubles[i] = rnd.nextDouble() / 1000;
+                    break;
+                default:
+                    doubles[i] = rnd.nextDouble() * 1e15;
+                    break;
+            }
+            longs[i] = rnd.nextLong() >> rnd.nextInt(63);
+        }
+        utf8Sink = new DirectUtf8Sink(64);
+        buf = Unsafe.malloc(64, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        utf8Sink.close();
+        Unsafe.free(buf, 64, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    private int next() {
+        return index = (index + 1) & (VALUE_COUNT - 1);
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb;
+
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.StringSink;
+import io.questdb.client.std.str.Utf8s;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UTF-16 to UTF-8 encoding and back, for pure ASCII and for mixed text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Utf8sBenchmark {
+    private final StringSink utf16Sink = new StringSink();
+    @Param({"ascii", "mixed"})
+    public String text;
+    @Param({"16", "256"})
+    public int length;
+    private String value;
+    private DirectUtf8Sink utf8Sink;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(Utf8sBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public int decodeUtf8() {
+        utf16Sink.clear();
+        Utf8s.utf8ToUtf16(utf8Sink, utf16Sink);
+        return utf16Sink.length();
+    }
+
+    @Benchmark
+    public long encodeUtf16() {
+        utf8Sink.clear();
+        utf8Sink.put(value);
+        return utf8Sink.size();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String alphabet = "ascii".equals(text) ? "abcdefghijklmnopqrstuvwxyz0123456789" : "abcdefghéüøжф中文€";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(i % alphabet.length()));
+        }
+        value = sb.toString();
+        utf8Sink = new DirectUtf8Sink(length * 4L);
+        utf8Sink.put(value);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        utf8Sink.close();
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb.load;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.LineSenderMetrics;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.LongHistogram;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.test.tools.IlpSinkServer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives generated rows through {@link Sender}s at a target rate and reports throughput and flush latency.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar org.questdb.load.LoadGenerator [--option=value]...}
+ * <ul>
+ *     <li>{@code --conf} - Sender configuration string, e.g. {@code http::addr=localhost:9000;}.
+ *     When omitted, rows are sent to an in-process sink on localhost, see {@code --sink}</li>
+ *     <li>{@code --sink} - {@code http} or {@code tcp}, transport of the in-process sink, default {@code http}</li>
+ *     <li>{@code --sink-options} - extra configuration appended to the in-process sink's configuration string,
+ *     e.g. {@code protocol_version=2;auto_flush_rows=10000;}</li>
+ *     <li>{@code --threads} - number of threads, each with its own Sender, default 1</li>
+ *     <li>{@code --rate} - target total rows per second, 0 for unlimited, default 0</li>
+ *     <li>{@code --duration} - run time in seconds, default 10</li>
+ *     <li>{@code --rows} - total number of rows to send, overrides duration when positive</li>
+ *     <li>{@code --schema} - row shape, see {@link LoadSchema}, default {@value LoadSchema#DEFAULT_SPEC}</li>
+ *     <li>{@code --table} - table name, default {@code load}</li>
+ *     <li>{@code --symbol-cardinality} - number of distinct symbol values, default 100</li>
+ *     <li>{@code --array-length} - length of double array columns, default 16</li>
+ *     <li>{@code --seed} - random seed, threads derive their seeds from it, default 42</li>
+ * </ul>
+ * Throughput, flush counts and flush latency percentiles are reported every second for that second,
+ * and once more at the end for the whole run.
+ */
+public class LoadGenerator {
+    // how often workers move flush statistics from their Sender's metrics into what is reported
+    private static final long COLLECT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private final long durationNanos;
+    private final long rateNanosPerRow;
+    // flush statistics merged from all workers by the reporting thread
+    private final LongHistogram reportLatency = new LongHistogram();
+    private final LoadSchema schema;
+    private final long seed;
+    private final String senderConf;
+    private final int threadCount;
+    private final long totalRows;
+    private long reportBytes;
+    private long reportFailedFlushes;
+    private Worker[] workers;
+
+    public LoadGenerator(String senderConf, LoadSchema schema, int threadCount, long rate, long durationNanos, long totalRows, long seed) {
+        this.senderConf = senderConf;
+        this.schema = schema;
+        this.threadCount = threadCount;
+        this.rateNanosPerRow = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * threadCount / rate : 0;
+        this.durationNanos = durationNanos;
+        this.totalRows = totalRows;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        LoadSchema schema = new LoadSchema(
+                options.getOrDefault("table", "load"),
+                options.getOrDefault("schema", LoadSchema.DEFAULT_SPEC),
+                Integer.parseInt(options.getOrDefault("symbol-cardinality", "100")),
+                Integer.parseInt(options.getOrDefault("array-length", "16"))
+        );
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        long rate = Long.parseLong(options.getOrDefault("rate", "0"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "10")));
+        long rows = Long.parseLong(options.getOrDefault("rows", "0"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        String conf = options.get("conf");
+        IlpSinkServer sink = null;
+        try {
+            if (conf == null) {
+                String transport = options.getOrDefault("sink", "http");
+                sink = new IlpSinkServer().start();
+                int port = "tcp".equals(transport) ? sink.getTcpPort() : sink.getHttpPort();
+                conf = transport + "::addr=localhost:" + port + ";" + options.getOrDefault("sink-options", "");
+                System.out.println("in-process sink: " + conf);
+            }
+            new LoadGenerator(conf, schema, threads, rate, durationNanos, rows, seed).run();
+            if (sink != null) {
+                System.out.printf("sink received: rows=%d, bytes=%d, requests=%d, connections=%d, errors=%d%n",
+                        sink.getRowCount(), sink.getByteCount(), sink.getRequestCount(), sink.getConnectionCount(), sink.getErrorCount());
+            }
+        } finally {
+            if (sink != null) {
+                sink.close();
+            }
+        }
+    }
+
+    public void run() throws InterruptedException {
+        workers = new Worker[threadCount];
+        CountDownLatch done = new CountDownLatch(threadCount);
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < threadCount; i++) {
+            long rowsPerThread = totalRows > 0 ? totalRows / threadCount + (i < totalRows % threadCount ? 1 : 0) : 0;
+            workers[i] = new Worker(i, rowsPerThread, startNanos, done);
+            workers[i].start();
+        }
+
+        long lastRows = 0;
+        long lastNanos = startNanos;
+        while (!done.await(1, TimeUnit.SECONDS)) {
+            long now = System.nanoTime();
+            long rows = sumRows();
+            report("interval", now - lastNanos, rows - lastRows, false);
+            lastRows = rows;
+            lastNanos = now;
+        }
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.error != null) {
+                System.out.println("worker " + worker.index + " failed: " + worker.error);
+            }
+        }
+        report("total", System.nanoTime() - startNanos, sumRows(), true);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("expected --option=value [arg=" + arg + ']');
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private void report(String label, long elapsedNanos, long rows, boolean cumulative) {
+        reportLatency.clear();
+        reportBytes = 0;
+        reportFailedFlushes = 0;
+        for (Worker worker : workers) {
+            worker.drain(cumulative);
+        }
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf(
+                "%s: rows/s=%.0f, MB/s=%.2f, flushes=%d, failed=%d, flush p50=%dus, p99=%dus, p999=%dus, max=%dus%n",
+                label,
+                rows / seconds,
+                reportBytes / seconds / (1024 * 1024),
+                reportLatency.getCount(),
+                reportFailedFlushes,
+                TimeUnit.NANOSECONDS.toMicros(reportLatency.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(reportLatency.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(reportLatency.getValueAtPercentile(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(reportLatency.getMax())
+        );
+    }
+
+    private long sumRows() {
+        long rows = 0;
+        for (Worker worker : workers) {
+            rows += worker.rows;
+        }
+        return rows;
+    }
+
+    private class Worker extends Thread {
+        private final CountDownLatch done;
+        private final int index;
+        // flush statistics of the current interval and of the whole run, guarded by this worker
+        private final LongHistogram intervalLatency = new LongHistogram();
+        private final LongHistogram latency = new LongHistogram();
+        private final long rowLimit;
+        private final long startNanos;
+        private final LongHistogram totalLatency = new LongHistogram();
+        private volatile Throwable error;
+        private long intervalBytes;
+        private long intervalFailedFlushes;
+        private long lastBytes;
+        private long lastFailedFlushes;
+        private volatile long rows;
+        private long totalBytes;
+        private long totalFailedFlushes;
+
+        private Worker(int index, long rowLimit, long startNanos, CountDownLatch done) {
+            super("load-" + index);
+            this.index = index;
+            this.rowLimit = rowLimit;
+            this.startNanos = startNanos;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            final Rnd rnd = new Rnd(seed + index, seed * 31 + index);
+            final double[] array = schema.newArray();
+            final Decimal64 decimal = new Decimal64();
+            LineSenderMetrics metrics = null;
+            try (Sender sender = Sender.fromConfig(senderConf)) {
+                metrics = (LineSenderMetrics) sender.metrics();
+                long deadline = startNanos;
+                long nextCollectNanos = startNanos + COLLECT_INTERVAL_NANOS;
+                long n = 0;
+                while (rowLimit > 0 ? n < rowLimit : System.nanoTime() - startNanos < durationNanos) {
+                    if (rateNanosPerRow > 0) {
+                        deadline += rateNanosPerRow;
+                        pace(deadline);
+                    }
+                    schema.writeRow(sender, rnd, array, decimal, System.currentTimeMillis() * 1000);
+                    rows = ++n;
+                    if (System.nanoTime() >= nextCollectNanos) {
+                        collect(metrics);
+                        nextCollectNanos += COLLECT_INTERVAL_NANOS;
+                    }
+                }
+            } catch (Throwable th) {
+                error = th;
+            } finally {
+                if (metrics != null) {
+                    // closing the Sender flushes the remaining rows
+                    collect(metrics);
+                }
+                done.countDown();
+            }
+        }
+
+        // called by the worker thread, the Sender's histogram is only ever recorded and reset by it
+        private synchronized void collect(LineSenderMetrics metrics) {
+            metrics.getFlushLatencyHistogram().snapshotAndReset(latency);
+            intervalLatency.add(latency);
+            totalLatency.add(latency);
+            final long bytes = metrics.getBytesSent();
+            intervalBytes += bytes - lastBytes;
+            totalBytes += bytes - lastBytes;
+            lastBytes = bytes;
+            final long failedFlushes = metrics.getFailedFlushCount();
+            intervalFailedFlushes += failedFlushes - lastFailedFlushes;
+            totalFailedFlushes += failedFlushes - lastFailedFlushes;
+            lastFailedFlushes = failedFlushes;
+        }
+
+        // called by the reporting thread, merges this worker's statistics into the report
+        private synchronized void drain(boolean cumulative) {
+            if (cumulative) {
+                reportLatency.add(totalLatency);
+                reportBytes += totalBytes;
+                reportFailedFlushes += totalFailedFlushes;
+            } else {
+                reportLatency.add(intervalLatency);
+                reportBytes += intervalBytes;
+                reportFailedFlushes += intervalFailedFlushes;
+            }
+            intervalLatency.clear();
+            intervalBytes = 0;
+            intervalFailedFlushes = 0;
+        }
+
+        private void pace(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                if (remaining > 100_000) {
+                    LockSupport.parkNanos(remaining - 50_000);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+}
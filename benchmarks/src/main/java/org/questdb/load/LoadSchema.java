@@ -0,0 +1,150 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.questdb.load;
+
+import io.questdb.client.Sender;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.Rnd;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Row shape of the load: how many columns of each type a row has, and how their values are generated.
+ * <p>
+ * The spec is a comma-separated list of {@code type:count} pairs, e.g.
+ * {@code symbols:2,doubles:4,longs:1,strings:1,arrays:1,decimals:1,timestamps:1}.
+ * Types missing from the spec have no columns.
+ */
+public class LoadSchema {
+    public static final String DEFAULT_SPEC = "symbols:2,doubles:4,longs:1,timestamps:1";
+    private final int arrayLength;
+    private final String[] arrayNames;
+    private final String[] decimalNames;
+    private final String[] doubleNames;
+    private final String[] longNames;
+    private final String[] stringNames;
+    private final String[] stringValues;
+    private final String[] symbolNames;
+    private final String[] symbolValues;
+    private final String table;
+    private final String[] timestampNames;
+
+    public LoadSchema(String table, String spec, int symbolCardinality, int arrayLength) {
+        int symbols = 0, doubles = 0, longs = 0, strings = 0, arrays = 0, decimals = 0, timestamps = 0;
+        for (String pair : spec.split(",")) {
+            String[] kv = pair.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("invalid schema entry, expected type:count [entry=" + pair + ']');
+            }
+            int count = Integer.parseInt(kv[1].trim());
+            switch (kv[0].trim()) {
+                case "symbols":
+                    symbols = count;
+                    break;
+                case "doubles":
+                    doubles = count;
+                    break;
+                case "longs":
+                    longs = count;
+                    break;
+                case "strings":
+                    strings = count;
+                    break;
+                case "arrays":
+                    arrays = count;
+                    break;
+                case "decimals":
+                    decimals = count;
+                    break;
+                case "timestamps":
+                    timestamps = count;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown column type [type=" + kv[0] + ']');
+            }
+        }
+        this.table = table;
+        this.arrayLength = arrayLength;
+        this.symbolNames = names("sym", symbols);
+        this.doubleNames = names("d", doubles);
+        this.longNames = names("l", longs);
+        this.stringNames = names("str", strings);
+        this.arrayNames = names("arr", arrays);
+        this.decimalNames = names("dec", decimals);
+        this.timestampNames = names("ts", timestamps);
+        this.symbolValues = names("s", Math.max(1, symbolCardinality));
+        this.stringValues = new String[64];
+        for (int i = 0; i < stringValues.length; i++) {
+            stringValues[i] = "value-" + i + "-" + Integer.toHexString(i * 0x9E3779B9);
+        }
+    }
+
+    public double[] newArray() {
+        return new double[arrayLength];
+    }
+
+    /**
+     * Writes one row with random values. The array and the decimal are scratch values owned by
+     * the calling thread, they are reused between rows.
+     */
+    public void writeRow(Sender sender, Rnd rnd, double[] array, Decimal64 decimal, long timestampMicros) {
+        sender.table(table);
+        for (int i = 0; i < symbolNames.length; i++) {
+            sender.symbol(symbolNames[i], symbolValues[rnd.nextInt(symbolValues.length)]);
+        }
+        for (int i = 0; i < doubleNames.length; i++) {
+            sender.doubleColumn(doubleNames[i], rnd.nextDouble() * 1000);
+        }
+        for (int i = 0; i < longNames.length; i++) {
+            sender.longColumn(longNames[i], rnd.nextLong());
+        }
+        for (int i = 0; i < stringNames.length; i++) {
+            sender.stringColumn(stringNames[i], stringValues[rnd.nextInt(stringValues.length)]);
+        }
+        for (int i = 0; i < arrayNames.length; i++) {
+            for (int j = 0; j < array.length; j++) {
+                array[j] = rnd.nextDouble();
+            }
+            sender.doubleArray(arrayNames[i], array);
+        }
+        for (int i = 0; i < decimalNames.length; i++) {
+            decimal.of(rnd.nextLong() % 100_000_000L, 2);
+            sender.decimalColumn(decimalNames[i], decimal);
+        }
+        for (int i = 0; i < timestampNames.length; i++) {
+            sender.timestampColumn(timestampNames[i], timestampMicros - rnd.nextInt(1_000_000), ChronoUnit.MICROS);
+        }
+        sender.at(timestampMicros, ChronoUnit.MICROS);
+    }
+
+    private static String[] names(String prefix, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = prefix + i;
+        }
+        return names;
+    }
+}
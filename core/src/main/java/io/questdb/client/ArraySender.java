@@ -24,11 +24,44 @@
 
 package io.questdb.client;
 
+import io.questdb.client.cairo.arr.ArrayView;
+import io.questdb.client.cutlass.line.LineSenderException;
 import io.questdb.client.cutlass.line.array.DoubleArray;
 import io.questdb.client.cutlass.line.array.LongArray;
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8s;
 import org.jetbrains.annotations.NotNull;
 
 public interface ArraySender<T> {
+    /**
+     * Adds a column containing an array whose elements are read in place from an
+     * {@link ArrayView}, such as an {@link io.questdb.client.cutlass.line.array.ExternalArrayView}
+     * over caller-owned native memory. The element type, {@code double} or {@code long},
+     * is taken from the view. Contiguous elements are copied straight into the send
+     * buffer, without an intermediate copy.
+     *
+     * @param name  the column name
+     * @param array the array view; the column is skipped if it is null
+     * @return this instance, to support method chaining
+     */
+    default T arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        throw new LineSenderException("current protocol version does not support arrays");
+    }
+
+    /**
+     * Adds a column containing an array read in place from an {@link ArrayView}, with the
+     * name given as UTF-8 bytes. The default implementation decodes the name and delegates
+     * to the {@code CharSequence} overload.
+     *
+     * @param name  the column name
+     * @param array the array view; the column is skipped if it is null
+     * @return this instance, to support method chaining
+     * @see #arrayColumn(CharSequence, ArrayView)
+     */
+    default T arrayColumnUtf8(@NotNull Utf8Sequence name, ArrayView array) {
+        return arrayColumn(Utf8s.toString(name), array);
+    }
+
     /**
      * Convenience method to insert a 1D double array. Same semantics as
      * {@link #doubleArray(CharSequence, DoubleArray)} with a 1D {@code DoubleArray}.
@@ -59,6 +92,20 @@ public interface ArraySender<T> {
      */
     T doubleArray(@NotNull CharSequence name, double[][][] values);
 
+    /**
+     * Inserts a double array of any dimensionality from 2D up to 32D, given as a nested
+     * Java array such as {@code double[][][][]}. Same semantics as
+     * {@link #doubleArray(CharSequence, DoubleArray)}. The array must be regular: every
+     * sub-array must have the same length as the other sub-arrays at its depth.
+     *
+     * @param name   the column name
+     * @param values the nested double array values
+     * @return this instance, to support method chaining
+     */
+    default T doubleArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support double-array");
+    }
+
     /**
      * Adds a column containing a multidimensional array of {@code double} values.
      *
@@ -68,6 +115,20 @@ public interface ArraySender<T> {
      */
     T doubleArray(CharSequence name, DoubleArray array);
 
+    /**
+     * Adds a column containing a multidimensional array of {@code double} values, with the
+     * name given as UTF-8 bytes. The default implementation decodes the name and delegates
+     * to the {@code CharSequence} overload.
+     *
+     * @param name  Column name identifier (non-null)
+     * @param array N-dimensional array to be added. Supported dimensionality: 1D to 32D
+     * @return this instance, to support method chaining
+     * @see #doubleArray(CharSequence, DoubleArray)
+     */
+    default T doubleArrayUtf8(@NotNull Utf8Sequence name, DoubleArray array) {
+        return doubleArray(Utf8s.toString(name), array);
+    }
+
     /**
      * Convenience method to insert a 1D {@code long} array. Same semantics as
      * {@link #longArray(CharSequence, LongArray)} with a 1D {@code LongArray}.
@@ -98,6 +159,20 @@ public interface ArraySender<T> {
      */
     T longArray(@NotNull CharSequence name, long[][][] values);
 
+    /**
+     * Inserts a {@code long} array of any dimensionality from 2D up to 32D, given as a nested
+     * Java array such as {@code long[][][][]}. Same semantics as
+     * {@link #longArray(CharSequence, LongArray)}. The array must be regular: every
+     * sub-array must have the same length as the other sub-arrays at its depth.
+     *
+     * @param name   the column name
+     * @param values the nested long array values
+     * @return this instance, to support method chaining
+     */
+    default T longArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support long-array");
+    }
+
     /**
      * Adds a column containing a multidimensional array of {@code long} values.
      *
@@ -106,4 +181,18 @@ public interface ArraySender<T> {
      * @return this instance, to support method chaining
      */
     T longArray(@NotNull CharSequence name, LongArray values);
+
+    /**
+     * Adds a column containing a multidimensional array of {@code long} values, with the
+     * name given as UTF-8 bytes. The default implementation decodes the name and delegates
+     * to the {@code CharSequence} overload.
+     *
+     * @param name   Column name identifier (non-null)
+     * @param values N-dimensional array to be added. Supported dimensionality: 1D to 32D
+     * @return this instance, to support method chaining
+     * @see #longArray(CharSequence, LongArray)
+     */
+    default T longArrayUtf8(@NotNull Utf8Sequence name, LongArray values) {
+        return longArray(Utf8s.toString(name), values);
+    }
 }
\ No newline at end of file
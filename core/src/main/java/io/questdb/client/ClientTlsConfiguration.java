@@ -24,6 +24,9 @@
 
 package io.questdb.client;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 public class ClientTlsConfiguration {
     public static final int TLS_VALIDATION_MODE_FULL = 0;
     public static final ClientTlsConfiguration DEFAULT = new ClientTlsConfiguration(null, null, TLS_VALIDATION_MODE_FULL);
@@ -39,6 +42,25 @@ public class ClientTlsConfiguration {
         this.tlsValidationMode = tlsValidationMode;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ClientTlsConfiguration that = (ClientTlsConfiguration) o;
+        return tlsValidationMode == that.tlsValidationMode
+                && Objects.equals(trustStorePath, that.trustStorePath)
+                && Arrays.equals(trustStorePassword, that.trustStorePassword);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(trustStorePath) + tlsValidationMode;
+    }
+
     public int tlsValidationMode() {
         return tlsValidationMode;
     }
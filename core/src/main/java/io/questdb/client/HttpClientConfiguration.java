@@ -24,6 +24,7 @@
 
 package io.questdb.client;
 
+import io.questdb.client.cutlass.http.client.HttpConnectionPool;
 import io.questdb.client.network.EpollFacade;
 import io.questdb.client.network.EpollFacadeImpl;
 import io.questdb.client.network.KqueueFacade;
@@ -38,10 +39,27 @@ public interface HttpClientConfiguration {
         return true;
     }
 
+    /**
+     * Pool that the client parks its kept-alive connection in when it is closed, and takes an idle connection
+     * from instead of connecting, when there is one to the same endpoint. Null disables pooling, the client
+     * then closes its connection when it is closed.
+     */
+    default HttpConnectionPool getConnectionPool() {
+        return null;
+    }
+
     default EpollFacade getEpollFacade() {
         return EpollFacadeImpl.INSTANCE;
     }
 
+    /**
+     * HTTP version ILP requests are sent with: 1 for HTTP/1.1, 2 for HTTP/2, which multiplexes concurrent
+     * requests over a single connection.
+     */
+    default int getHttpVersion() {
+        return 1;
+    }
+
     default int getInitialRequestBufferSize() {
         return Math.min(64 * 1024, getMaximumRequestBufferSize());
     }
@@ -58,6 +76,32 @@ public interface HttpClientConfiguration {
         return NetworkFacadeImpl.INSTANCE;
     }
 
+    /**
+     * Maximum number of auto-flushed ILP requests that are sent on a connection before their responses arrive.
+     * Sending the next request while the server is still processing the previous one hides the network
+     * round trip. An explicit flush always waits for all responses. One disables pipelining.
+     */
+    default int getPipelineDepth() {
+        return 1;
+    }
+
+    /**
+     * Size of the content window after which an ILP request is streamed to the server as an HTTP chunk,
+     * instead of being buffered in full until flush. Zero disables chunked streaming.
+     */
+    default int getRequestChunkSize() {
+        return 0;
+    }
+
+    /**
+     * Size of native pages that request content spills over to once it outgrows the initial request
+     * buffer. Pages are drawn from a process-wide pool and returned to it when the request is done.
+     * Zero disables paging, the request buffer is then grown by reallocation.
+     */
+    default int getRequestPageSize() {
+        return 0;
+    }
+
     default int getResponseBufferSize() {
         return 64 * 1024;
     }
@@ -25,12 +25,14 @@
 package io.questdb.client;
 
 import io.questdb.client.cutlass.auth.AuthUtils;
+import io.questdb.client.cutlass.http.client.HttpConnectionPool;
 import io.questdb.client.cutlass.line.AbstractLineTcpSender;
 import io.questdb.client.cutlass.line.LineChannel;
 import io.questdb.client.cutlass.line.LineSenderException;
 import io.questdb.client.cutlass.line.LineTcpSenderV1;
 import io.questdb.client.cutlass.line.LineTcpSenderV2;
 import io.questdb.client.cutlass.line.LineTcpSenderV3;
+import io.questdb.client.cutlass.line.LineTcpSenderV4;
 import io.questdb.client.cutlass.line.http.AbstractLineHttpSender;
 import io.questdb.client.cutlass.line.tcp.DelegatingTlsChannel;
 import io.questdb.client.cutlass.line.tcp.PlainTcpLineChannel;
@@ -42,15 +44,19 @@ import io.questdb.client.std.Decimal128;
 import io.questdb.client.std.Decimal256;
 import io.questdb.client.std.Decimal64;
 import io.questdb.client.std.IntList;
+import io.questdb.client.std.NativePagePool;
 import io.questdb.client.std.Numbers;
 import io.questdb.client.std.NumericException;
 import io.questdb.client.std.ObjList;
 import io.questdb.client.std.bytes.DirectByteSlice;
 import io.questdb.client.std.str.StringSink;
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8s;
 import org.jetbrains.annotations.NotNull;
 
 import javax.security.auth.DestroyFailedException;
 import java.io.Closeable;
+import java.math.BigDecimal;
 import java.security.PrivateKey;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -104,6 +110,7 @@ public interface Sender extends Closeable, ArraySender<Sender> {
     int PROTOCOL_VERSION_V1 = 1;
     int PROTOCOL_VERSION_V2 = 2;
     int PROTOCOL_VERSION_V3 = 3;
+    int PROTOCOL_VERSION_V4 = 4;
 
     /**
      * Create a Sender builder instance from a configuration string.
@@ -239,6 +246,19 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender boolColumn(CharSequence name, boolean value);
 
+    /**
+     * Add a column with a boolean value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #boolColumn(CharSequence, boolean)
+     */
+    default Sender boolColumnUtf8(Utf8Sequence name, boolean value) {
+        return boolColumn(Utf8s.toString(name), value);
+    }
+
     /**
      * Returns a direct view of the current sender's internal not flush data.
      * <p>
@@ -306,6 +326,51 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         throw new LineSenderException("current protocol version does not support decimal");
     }
 
+    /**
+     * Add a column with a {@link BigDecimal} value serialized using the binary format.
+     * Converting the value allocates, as its unscaled value can only be read as a
+     * {@link java.math.BigInteger}; use {@link #decimalColumn(CharSequence, long, int)}
+     * or {@link #decimalColumn(CharSequence, double, int)} where allocation matters.
+     * A negative scale is applied to the unscaled value, which is then sent with scale 0.
+     *
+     * @param name  name of the column
+     * @param value value to add; the column is skipped if it is null
+     * @return this instance for method chaining
+     */
+    default Sender decimalColumn(CharSequence name, BigDecimal value) {
+        throw new LineSenderException("current protocol version does not support decimal");
+    }
+
+    /**
+     * Add a column with a decimal value given as its unscaled value and scale, e.g.
+     * {@code decimalColumn("price", 261554, 2)} adds 2615.54. The value is serialized
+     * using the binary format.
+     *
+     * @param name          name of the column
+     * @param unscaledValue the value multiplied by 10^scale
+     * @param scale         the number of decimal places, 0 to 76
+     * @return this instance for method chaining
+     */
+    default Sender decimalColumn(CharSequence name, long unscaledValue, int scale) {
+        throw new LineSenderException("current protocol version does not support decimal");
+    }
+
+    /**
+     * Add a column with a decimal value converted from a double, serialized using the
+     * binary format. The exact value of the double is rounded half-up to the given
+     * scale, as {@code new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP)} would,
+     * but without allocating. NaN and infinities are sent as a NULL decimal, i.e. the
+     * column is skipped.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @param scale the number of decimal places, 0 to 76
+     * @return this instance for method chaining
+     */
+    default Sender decimalColumn(CharSequence name, double value, int scale) {
+        throw new LineSenderException("current protocol version does not support decimal");
+    }
+
     /**
      * Add a column with a Decimal value serialized using the text format.
      *
@@ -317,6 +382,45 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         throw new LineSenderException("current protocol version does not support decimal");
     }
 
+    /**
+     * Add a column with a Decimal256 value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #decimalColumn(CharSequence, Decimal256)
+     */
+    default Sender decimalColumnUtf8(Utf8Sequence name, Decimal256 value) {
+        return decimalColumn(Utf8s.toString(name), value);
+    }
+
+    /**
+     * Add a column with a Decimal128 value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #decimalColumn(CharSequence, Decimal128)
+     */
+    default Sender decimalColumnUtf8(Utf8Sequence name, Decimal128 value) {
+        return decimalColumn(Utf8s.toString(name), value);
+    }
+
+    /**
+     * Add a column with a Decimal64 value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #decimalColumn(CharSequence, Decimal64)
+     */
+    default Sender decimalColumnUtf8(Utf8Sequence name, Decimal64 value) {
+        return decimalColumn(Utf8s.toString(name), value);
+    }
+
     /**
      * Add a column with a floating point value.
      *
@@ -326,6 +430,30 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender doubleColumn(CharSequence name, double value);
 
+    /**
+     * Add a column with a floating point value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #doubleColumn(CharSequence, double)
+     */
+    default Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        return doubleColumn(Utf8s.toString(name), value);
+    }
+
+    /**
+     * Add a column with a float value serialized using the binary format.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     */
+    default Sender floatColumn(CharSequence name, float value) {
+        throw new LineSenderException("current protocol version does not support float");
+    }
+
     /**
      * Force flushing internal buffers to a server.
      * <br>
@@ -343,6 +471,55 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     void flush();
 
+    /**
+     * Add a column with a geohash value serialized using the binary format, in the
+     * narrowest storage that holds the given precision.
+     *
+     * @param name  name of the column
+     * @param bits  precision of the geohash in bits, from 1 to 60
+     * @param value geohash bits, or {@link io.questdb.client.cairo.GeoHashes#NULL}
+     * @return this instance for method chaining
+     */
+    default Sender geoHashColumn(CharSequence name, int bits, long value) {
+        throw new LineSenderException("current protocol version does not support geohash");
+    }
+
+    /**
+     * Add a column with an int value serialized using the binary format.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     */
+    default Sender intColumn(CharSequence name, int value) {
+        throw new LineSenderException("current protocol version does not support int");
+    }
+
+    /**
+     * Add a column with an IPv4 address serialized using the binary format.
+     *
+     * @param name    name of the column
+     * @param address address as an int, e.g. as returned by {@link Numbers#parseIPv4(CharSequence)}
+     * @return this instance for method chaining
+     */
+    default Sender ipv4Column(CharSequence name, int address) {
+        throw new LineSenderException("current protocol version does not support ipv4");
+    }
+
+    /**
+     * Add a column with a 256-bit value serialized using the binary format.
+     *
+     * @param name name of the column
+     * @param l0   least significant 64 bits
+     * @param l1   next 64 bits
+     * @param l2   next 64 bits
+     * @param l3   most significant 64 bits
+     * @return this instance for method chaining
+     */
+    default Sender long256Column(CharSequence name, long l0, long l1, long l2, long l3) {
+        throw new LineSenderException("current protocol version does not support long256");
+    }
+
     /**
      * Add a column with an integer value.
      *
@@ -352,6 +529,33 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender longColumn(CharSequence name, long value);
 
+    /**
+     * Add a column with an integer value, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #longColumn(CharSequence, long)
+     */
+    default Sender longColumnUtf8(Utf8Sequence name, long value) {
+        return longColumn(Utf8s.toString(name), value);
+    }
+
+    /**
+     * Returns operational metrics of this Sender: rows and bytes sent, flush latencies,
+     * retries, reconnects and buffer usage.
+     * <br>
+     * The returned instance is live and is updated as the Sender is used. Use
+     * {@link SenderMetricsRegistry#register(SenderMetrics, String)} to publish it via JMX.
+     * <br>
+     * Senders that do not record metrics return {@link SenderMetrics#NONE}.
+     *
+     * @return metrics of this Sender
+     */
+    default SenderMetrics metrics() {
+        return SenderMetrics.NONE;
+    }
 
     /**
      * Clear the internal buffers, discarding any unsent data.
@@ -380,6 +584,34 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender stringColumn(CharSequence name, CharSequence value);
 
+    /**
+     * Add a column with a string value, both given as UTF-8 bytes. The bytes are escaped
+     * and copied into the buffer as they are, without decoding and re-encoding them.
+     * The default implementation decodes them and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #stringColumn(CharSequence, CharSequence)
+     */
+    default Sender stringColumnUtf8(Utf8Sequence name, Utf8Sequence value) {
+        return stringColumn(Utf8s.toString(name), Utf8s.toString(value));
+    }
+
+    /**
+     * Add a column with a string value, both given as UTF-8 encoded byte arrays.
+     * The arrays are not retained after the call returns. The default implementation
+     * decodes them and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #stringColumnUtf8(Utf8Sequence, Utf8Sequence)
+     */
+    default Sender stringColumnUtf8(byte[] name, byte[] value) {
+        return stringColumn(Utf8s.toString(name), Utf8s.toString(value));
+    }
+
     /**
      * Add a column with a symbol value. You must call add symbols before adding any other column types.
      *
@@ -389,6 +621,34 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender symbol(CharSequence name, CharSequence value);
 
+    /**
+     * Add a column with a symbol value, both given as UTF-8 bytes. The bytes are escaped
+     * and copied into the buffer as they are, without decoding and re-encoding them.
+     * The default implementation decodes them and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #symbol(CharSequence, CharSequence)
+     */
+    default Sender symbolUtf8(Utf8Sequence name, Utf8Sequence value) {
+        return symbol(Utf8s.toString(name), Utf8s.toString(value));
+    }
+
+    /**
+     * Add a column with a symbol value, both given as UTF-8 encoded byte arrays.
+     * The arrays are not retained after the call returns. The default implementation
+     * decodes them and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value value to add
+     * @return this instance for method chaining
+     * @see #symbolUtf8(Utf8Sequence, Utf8Sequence)
+     */
+    default Sender symbolUtf8(byte[] name, byte[] value) {
+        return symbol(Utf8s.toString(name), Utf8s.toString(value));
+    }
+
     /**
      * Select the table for a new row. This is always the first method to start an error. It's an error to call other
      * methods without calling this method first.
@@ -403,6 +663,31 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender table(CharSequence table);
 
+    /**
+     * Select the table for a new row, with the name given as UTF-8 bytes. The default
+     * implementation decodes the name and delegates to {@link #table(CharSequence)}.
+     *
+     * @param table name of the table
+     * @return this instance for method chaining
+     * @see #table(CharSequence)
+     */
+    default Sender tableUtf8(Utf8Sequence table) {
+        return table(Utf8s.toString(table));
+    }
+
+    /**
+     * Select the table for a new row, with the name given as a UTF-8 encoded byte array.
+     * The array is not retained after the call returns. The default implementation
+     * decodes the name and delegates to {@link #table(CharSequence)}.
+     *
+     * @param table name of the table
+     * @return this instance for method chaining
+     * @see #table(CharSequence)
+     */
+    default Sender tableUtf8(byte[] table) {
+        return table(Utf8s.toString(table));
+    }
+
     /**
      * Add a column with a non-designated timestamp value.
      *
@@ -422,6 +707,45 @@ public interface Sender extends Closeable, ArraySender<Sender> {
      */
     Sender timestampColumn(CharSequence name, Instant value);
 
+    /**
+     * Add a column with a non-designated timestamp value, with the name given as UTF-8 bytes.
+     * The default implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value timestamp value since epoch
+     * @param unit  timestamp value unit
+     * @return this instance for method chaining
+     * @see #timestampColumn(CharSequence, long, ChronoUnit)
+     */
+    default Sender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        return timestampColumn(Utf8s.toString(name), value, unit);
+    }
+
+    /**
+     * Add a column with a non-designated timestamp value, with the name given as UTF-8 bytes.
+     * The default implementation decodes the name and delegates to the {@code CharSequence} overload.
+     *
+     * @param name  name of the column
+     * @param value timestamp value
+     * @return this instance for method chaining
+     * @see #timestampColumn(CharSequence, Instant)
+     */
+    default Sender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        return timestampColumn(Utf8s.toString(name), value);
+    }
+
+    /**
+     * Add a column with a UUID value serialized using the binary format.
+     *
+     * @param name name of the column
+     * @param lo   least significant 64 bits
+     * @param hi   most significant 64 bits
+     * @return this instance for method chaining
+     */
+    default Sender uuidColumn(CharSequence name, long lo, long hi) {
+        throw new LineSenderException("current protocol version does not support uuid");
+    }
+
     /**
      * Configure TLS mode.
      * Most users should not need to use anything but the default mode.
@@ -507,6 +831,7 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         private static final int DEFAULT_AUTO_FLUSH_ROWS = 75_000;
         private static final int DEFAULT_BUFFER_CAPACITY = 64 * 1024;
         private static final int DEFAULT_HTTP_PORT = 9000;
+        private static final int DEFAULT_HTTP2_PIPELINE_DEPTH = 8;
         private static final int DEFAULT_HTTP_TIMEOUT = 30_000;
         private static final int DEFAULT_MAXIMUM_BUFFER_CAPACITY = 100 * 1024 * 1024;
         private static final int DEFAULT_MAX_BACKOFF_MILLIS = 1_000;
@@ -527,15 +852,27 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         private int autoFlushIntervalMillis = PARAMETER_NOT_SET_EXPLICITLY;
         private int autoFlushRows = PARAMETER_NOT_SET_EXPLICITLY;
         private int bufferCapacity = PARAMETER_NOT_SET_EXPLICITLY;
+        private int connectionPool = PARAMETER_NOT_SET_EXPLICITLY;
         private String httpPath;
         private String httpSettingsPath;
         private int httpTimeout = PARAMETER_NOT_SET_EXPLICITLY;
         private String httpToken;
+        private int httpVersion = PARAMETER_NOT_SET_EXPLICITLY;
         private String keyId;
         private int maxBackoffMillis = PARAMETER_NOT_SET_EXPLICITLY;
         private int maxNameLength = PARAMETER_NOT_SET_EXPLICITLY;
         private int maximumBufferCapacity = PARAMETER_NOT_SET_EXPLICITLY;
         private final HttpClientConfiguration httpClientConfiguration = new DefaultHttpClientConfiguration() {
+            @Override
+            public HttpConnectionPool getConnectionPool() {
+                return connectionPool == 1 ? HttpConnectionPool.getInstance() : null;
+            }
+
+            @Override
+            public int getHttpVersion() {
+                return httpVersion == PARAMETER_NOT_SET_EXPLICITLY ? super.getHttpVersion() : httpVersion;
+            }
+
             @Override
             public int getInitialRequestBufferSize() {
                 return bufferCapacity == PARAMETER_NOT_SET_EXPLICITLY ? DEFAULT_BUFFER_CAPACITY : bufferCapacity;
@@ -546,6 +883,25 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                 return maximumBufferCapacity == PARAMETER_NOT_SET_EXPLICITLY ? DEFAULT_MAXIMUM_BUFFER_CAPACITY : maximumBufferCapacity;
             }
 
+            @Override
+            public int getPipelineDepth() {
+                if (pipelineDepth != PARAMETER_NOT_SET_EXPLICITLY) {
+                    return pipelineDepth;
+                }
+                // streams do not block one another, keeping several in flight costs nothing
+                return getHttpVersion() == 2 ? DEFAULT_HTTP2_PIPELINE_DEPTH : super.getPipelineDepth();
+            }
+
+            @Override
+            public int getRequestChunkSize() {
+                return requestChunkSize == PARAMETER_NOT_SET_EXPLICITLY ? super.getRequestChunkSize() : requestChunkSize;
+            }
+
+            @Override
+            public int getRequestPageSize() {
+                return requestPageSize == PARAMETER_NOT_SET_EXPLICITLY ? super.getRequestPageSize() : requestPageSize;
+            }
+
             @Override
             public String getSettingsPath() {
                 return httpSettingsPath == null ? super.getSettingsPath() : httpSettingsPath;
@@ -558,9 +914,12 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         };
         private long minRequestThroughput = PARAMETER_NOT_SET_EXPLICITLY;
         private String password;
+        private int pipelineDepth = PARAMETER_NOT_SET_EXPLICITLY;
         private PrivateKey privateKey;
         private int protocol = PARAMETER_NOT_SET_EXPLICITLY;
         private int protocolVersion = PARAMETER_NOT_SET_EXPLICITLY;
+        private int requestChunkSize = PARAMETER_NOT_SET_EXPLICITLY;
+        private int requestPageSize = PARAMETER_NOT_SET_EXPLICITLY;
         private int retryTimeoutMillis = PARAMETER_NOT_SET_EXPLICITLY;
         private boolean shouldDestroyPrivKey;
         private boolean tlsEnabled;
@@ -820,6 +1179,9 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                     case PROTOCOL_VERSION_V3:
                         sender = new LineTcpSenderV3(channel, bufferCapacity, maxNameLength);
                         break;
+                    case PROTOCOL_VERSION_V4:
+                        sender = new LineTcpSenderV4(channel, bufferCapacity, maxNameLength);
+                        break;
                     default:
                         throw new LineSenderException("unknown protocol version [version=").put(protocolVersion).put("]");
                 }
@@ -846,6 +1208,36 @@ public interface Sender extends Closeable, ArraySender<Sender> {
             return sender;
         }
 
+        /**
+         * Makes the Sender share kept-alive connections with other Senders in the JVM. When the Sender is closed,
+         * its connection is parked in a process-wide pool rather than closed, and a new Sender takes an idle
+         * connection to the same server from the pool, if there is one, instead of connecting. This saves the TCP
+         * and TLS handshakes of applications that create many short-lived Senders.
+         * <br>
+         * The pool keeps up to {@value HttpConnectionPool#DEFAULT_MAX_IDLE_PER_HOST} idle connections per server
+         * and closes connections that have been idle for {@value HttpConnectionPool#DEFAULT_IDLE_TIMEOUT_MILLIS}
+         * milliseconds.
+         * <p>
+         * This is only used when communicating over HTTP transport, and it's illegal to call this method when
+         * communicating over TCP transport.
+         * <p>
+         * Default value: false, i.e. each Sender closes its connection when it's closed.
+         *
+         * @param enabled whether to use the shared connection pool
+         * @return this instance for method chaining
+         */
+        public LineSenderBuilder connectionPool(boolean enabled) {
+            if (this.connectionPool != PARAMETER_NOT_SET_EXPLICITLY) {
+                throw new LineSenderException("connection pool was already configured ")
+                        .put("[connectionPool=").put(this.connectionPool == 1 ? "on" : "off").put("]");
+            }
+            if (protocol == PROTOCOL_TCP) {
+                throw new LineSenderException("connection pool is not supported for TCP protocol");
+            }
+            this.connectionPool = enabled ? 1 : 0;
+            return this;
+        }
+
         /**
          * Disables automatic flushing of buffered data.
          * <p>
@@ -1018,6 +1410,45 @@ public interface Sender extends Closeable, ArraySender<Sender> {
             return this;
         }
 
+        /**
+         * Sets the HTTP version the Sender speaks. With version 2, batches are sent as concurrent streams
+         * multiplexed over a single connection: a slow batch does not hold up the batches behind it, and many
+         * batches share one TLS handshake. Over TLS, HTTP/2 is negotiated via ALPN and the Sender fails to
+         * connect to servers that do not support it. Over plain TCP, the server must accept HTTP/2 without
+         * negotiation ("prior knowledge").
+         * <br>
+         * Headers that repeat across batches, such as authorization, are compressed with HPACK and cost a
+         * single byte each after the first batch. Each stream carries a single batch, see
+         * {@link #pipelineDepth(int)} for the number of batches in flight, which defaults to
+         * {@value #DEFAULT_HTTP2_PIPELINE_DEPTH} with HTTP/2.
+         * <p>
+         * HTTP/2 cannot be combined with {@link #requestChunkSize(int)} or {@link #connectionPool(boolean)}.
+         * The protocol version detection, unless it is skipped with {@link #protocolVersion(int)}, still
+         * uses HTTP/1.1.
+         * This is only used when communicating over HTTP transport, and it's illegal to call this method when
+         * communicating over TCP transport.
+         * <p>
+         * Default value: 1, i.e. HTTP/1.1.
+         *
+         * @param httpVersion 1 or 2
+         * @return this instance for method chaining
+         */
+        public LineSenderBuilder httpVersion(int httpVersion) {
+            if (this.httpVersion != PARAMETER_NOT_SET_EXPLICITLY) {
+                throw new LineSenderException("HTTP version was already configured ")
+                        .put("[httpVersion=").put(this.httpVersion).put("]");
+            }
+            if (httpVersion != 1 && httpVersion != 2) {
+                throw new LineSenderException("unsupported HTTP version ")
+                        .put("[httpVersion=").put(httpVersion).put(", supported-versions=[1, 2]]");
+            }
+            if (protocol == PROTOCOL_TCP) {
+                throw new LineSenderException("HTTP version is not supported for TCP protocol");
+            }
+            this.httpVersion = httpVersion;
+            return this;
+        }
+
         /**
          * Use username and password for authentication when communicating over HTTP protocol.
          * <br>
@@ -1161,6 +1592,44 @@ public interface Sender extends Closeable, ArraySender<Sender> {
             return this;
         }
 
+        /**
+         * Sets how many auto-flushed batches the Sender may send over HTTP before the server acknowledges them.
+         * With a depth greater than 1, an auto-flush sends the buffered rows and returns without waiting for
+         * the response, the next batch is sent on the same connection while the server is still processing
+         * the previous one (HTTP/1.1 pipelining). The server responds in order, an auto-flush only waits when
+         * the pipeline is full. An explicit {@link Sender#flush()} waits for all batches to be acknowledged.
+         * <br>
+         * Batches in flight are kept in memory until acknowledged. When a batch fails with a retryable error,
+         * it is sent again along with all batches behind it, in the original order, and respecting
+         * {@link #retryTimeoutMillis(int)}. Errors are reported by the flush that reads the failed response,
+         * which may be a later auto-flush than the one that sent the batch.
+         * <p>
+         * Pipelining cannot be combined with {@link #requestChunkSize(int)}.
+         * This is only used when communicating over HTTP transport, and it's illegal to call this method when
+         * communicating over TCP transport.
+         * <p>
+         * Default value: 1, i.e. every flush waits for its response; {@value #DEFAULT_HTTP2_PIPELINE_DEPTH} with
+         * {@link #httpVersion(int) HTTP/2}, where batches in flight are sent as concurrent streams.
+         *
+         * @param pipelineDepth maximum number of batches awaiting response
+         * @return this instance for method chaining
+         */
+        public LineSenderBuilder pipelineDepth(int pipelineDepth) {
+            if (this.pipelineDepth != PARAMETER_NOT_SET_EXPLICITLY) {
+                throw new LineSenderException("pipeline depth was already configured ")
+                        .put("[pipelineDepth=").put(this.pipelineDepth).put("]");
+            }
+            if (pipelineDepth < 1) {
+                throw new LineSenderException("pipeline depth must be positive ")
+                        .put("[pipelineDepth=").put(pipelineDepth).put("]");
+            }
+            if (protocol == PROTOCOL_TCP) {
+                throw new LineSenderException("pipeline depth is not supported for TCP protocol");
+            }
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
         /**
          * Set port where a QuestDB server is listening on.
          *
@@ -1178,10 +1647,13 @@ public interface Sender extends Closeable, ArraySender<Sender> {
         /**
          * Sets the protocol version used by the client to connect to the server.
          * <p>
-         * The client currently supports {@link #PROTOCOL_VERSION_V1}, {@link #PROTOCOL_VERSION_V2} and
-         * {@link #PROTOCOL_VERSION_V3} (default).
+         * The client currently supports {@link #PROTOCOL_VERSION_V1}, {@link #PROTOCOL_VERSION_V2},
+         * {@link #PROTOCOL_VERSION_V3} (default) and {@link #PROTOCOL_VERSION_V4}.
          * <p>
          * In most cases, this method should not be called. Set {@link #PROTOCOL_VERSION_V1} only when connecting to a legacy server.
+         * {@link #PROTOCOL_VERSION_V4} sends longs and timestamps in binary format, adds binary int, float, UUID, long256,
+         * IPv4 and geohash columns, and requires a server that supports it;
+         * over HTTP, it is picked automatically when the server advertises it.
          * <p>
          *
          * @param protocolVersion The desired protocol version.
@@ -1192,14 +1664,88 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                 throw new LineSenderException("protocol version was already configured ")
                         .put("[protocolVersion=").put(this.protocolVersion).put("]");
             }
-            if (protocolVersion < PROTOCOL_VERSION_V1 || protocolVersion > PROTOCOL_VERSION_V3) {
+            if (protocolVersion < PROTOCOL_VERSION_V1 || protocolVersion > PROTOCOL_VERSION_V4) {
                 throw new LineSenderException("current client only supports protocol version 1(text format for all datatypes), " +
-                        "2(binary format for part datatypes), 3(decimal datatype) or explicitly unset");
+                        "2(binary format for part datatypes), 3(decimal datatype), 4(binary integers, timestamps and typed columns) or explicitly unset");
             }
             this.protocolVersion = protocolVersion;
             return this;
         }
 
+        /**
+         * Enables streaming of large requests using HTTP chunked transfer encoding. Once the buffered rows
+         * reach the configured size, they are sent to the server as a chunk of the request that is still in
+         * progress, and the buffer is reused for the following rows. The server commits the whole request
+         * as a single transaction on flush, but the client no longer needs to buffer the entire transaction
+         * in memory.
+         * <br>
+         * Chunks are only sent at row boundaries, a single row must still fit into the buffer.
+         * <p>
+         * <b>Warning:</b> Once a chunk has been streamed, the request cannot be retried. Should the connection
+         * fail or the server reject the request after that, the Sender aborts the whole transaction,
+         * resets its buffer and throws a non-retryable error. Should the first chunk fail to be sent, the rows
+         * stay in the buffer and no error is thrown while adding rows; the chunk is attempted again after a
+         * backoff, and flush retries as usual.
+         * <p>
+         * This is only used when communicating over HTTP transport, and it's illegal to call this method when
+         * communicating over TCP transport.
+         * <p>
+         * Default value: 0, i.e. streaming is disabled and requests are sent in full on flush.
+         *
+         * @param requestChunkSize buffer size in bytes that triggers sending a chunk, or 0 to disable streaming
+         * @return this instance for method chaining
+         */
+        public LineSenderBuilder requestChunkSize(int requestChunkSize) {
+            if (this.requestChunkSize != PARAMETER_NOT_SET_EXPLICITLY) {
+                throw new LineSenderException("request chunk size was already configured ")
+                        .put("[requestChunkSize=").put(this.requestChunkSize).put("]");
+            }
+            if (requestChunkSize < 0) {
+                throw new LineSenderException("request chunk size cannot be negative ")
+                        .put("[requestChunkSize=").put(requestChunkSize).put("]");
+            }
+            if (protocol == PROTOCOL_TCP) {
+                throw new LineSenderException("request chunk size is not supported for TCP protocol");
+            }
+            this.requestChunkSize = requestChunkSize;
+            return this;
+        }
+
+        /**
+         * Makes the Sender keep buffered rows in fixed-size native pages once they outgrow the initial buffer
+         * capacity, instead of growing a single buffer. Growing the buffer by reallocation copies all rows
+         * buffered so far, while adding a page is a constant-time operation. Pages are taken from a pool shared
+         * by all Senders in the JVM and are returned to it after each flush, so that the memory is reused
+         * rather than reallocated.
+         * <br>
+         * The page size must be a power of 2 between 4 KiB and 16 MiB. The maximum buffer capacity still
+         * limits the total size of buffered rows.
+         * <p>
+         * This is only used when communicating over HTTP transport, and it's illegal to call this method when
+         * communicating over TCP transport.
+         * <p>
+         * Default value: 0, i.e. the buffer is grown by reallocation.
+         *
+         * @param requestPageSize page size in bytes, or 0 to disable paging
+         * @return this instance for method chaining
+         */
+        public LineSenderBuilder requestPageSize(int requestPageSize) {
+            if (this.requestPageSize != PARAMETER_NOT_SET_EXPLICITLY) {
+                throw new LineSenderException("request page size was already configured ")
+                        .put("[requestPageSize=").put(this.requestPageSize).put("]");
+            }
+            if (requestPageSize != 0 && !NativePagePool.isValidPageSize(requestPageSize)) {
+                throw new LineSenderException("request page size must be a power of 2 between ")
+                        .put(NativePagePool.MIN_PAGE_SIZE).put(" and ").put(NativePagePool.MAX_PAGE_SIZE)
+                        .put(" [requestPageSize=").put(requestPageSize).put("]");
+            }
+            if (protocol == PROTOCOL_TCP) {
+                throw new LineSenderException("request page size is not supported for TCP protocol");
+            }
+            this.requestPageSize = requestPageSize;
+            return this;
+        }
+
         /**
          * Configures the maximum time the Sender will spend retrying upon receiving a recoverable error from the server.
          * <br>
@@ -1497,6 +2043,31 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                     pos = getValue(configurationString, pos, sink, "request_min_throughput");
                     int requestMinThroughput = parseIntValue(sink, "request_min_throughput");
                     minRequestThroughput(requestMinThroughput);
+                } else if (Chars.equals("request_chunk_size", sink)) {
+                    pos = getValue(configurationString, pos, sink, "request_chunk_size");
+                    int requestChunkSize = parseIntValue(sink, "request_chunk_size");
+                    requestChunkSize(requestChunkSize);
+                } else if (Chars.equals("request_page_size", sink)) {
+                    pos = getValue(configurationString, pos, sink, "request_page_size");
+                    int requestPageSize = parseIntValue(sink, "request_page_size");
+                    requestPageSize(requestPageSize);
+                } else if (Chars.equals("pipeline_depth", sink)) {
+                    pos = getValue(configurationString, pos, sink, "pipeline_depth");
+                    int pipelineDepth = parseIntValue(sink, "pipeline_depth");
+                    pipelineDepth(pipelineDepth);
+                } else if (Chars.equals("http_version", sink)) {
+                    pos = getValue(configurationString, pos, sink, "http_version");
+                    int httpVersion = parseIntValue(sink, "http_version");
+                    httpVersion(httpVersion);
+                } else if (Chars.equals("connection_pool", sink)) {
+                    pos = getValue(configurationString, pos, sink, "connection_pool");
+                    if (Chars.equalsIgnoreCase("on", sink)) {
+                        connectionPool(true);
+                    } else if (Chars.equalsIgnoreCase("off", sink)) {
+                        connectionPool(false);
+                    } else {
+                        throw new LineSenderException("invalid connection_pool [value=").put(sink).put(", allowed-values=[on, off]]");
+                    }
                 } else if (Chars.equals("protocol_version", sink)) {
                     pos = getValue(configurationString, pos, sink, "protocol_version");
                     if (!Chars.equalsIgnoreCase("auto", sink)) {
@@ -1587,6 +2158,28 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                 if (privateKey != null) {
                     throw new LineSenderException("plain old token authentication is not supported for HTTP protocol. Did you mean to use HTTP token authentication?");
                 }
+                if (httpClientConfiguration.getRequestChunkSize() > httpClientConfiguration.getMaximumRequestBufferSize()) {
+                    throw new LineSenderException("request chunk size cannot be greater than maximum buffer capacity ")
+                            .put("[requestChunkSize=").put(httpClientConfiguration.getRequestChunkSize())
+                            .put(", maximumBufferCapacity=").put(httpClientConfiguration.getMaximumRequestBufferSize())
+                            .put("]");
+                }
+                if (httpClientConfiguration.getHttpVersion() == 2) {
+                    if (httpClientConfiguration.getRequestChunkSize() > 0) {
+                        throw new LineSenderException("HTTP/2 cannot be combined with request chunk streaming ")
+                                .put("[requestChunkSize=").put(httpClientConfiguration.getRequestChunkSize())
+                                .put("]");
+                    }
+                    if (connectionPool == 1) {
+                        throw new LineSenderException("HTTP/2 cannot be combined with the connection pool");
+                    }
+                }
+                if (httpClientConfiguration.getPipelineDepth() > 1 && httpClientConfiguration.getRequestChunkSize() > 0) {
+                    throw new LineSenderException("pipelining cannot be combined with request chunk streaming ")
+                            .put("[pipelineDepth=").put(httpClientConfiguration.getPipelineDepth())
+                            .put(", requestChunkSize=").put(httpClientConfiguration.getRequestChunkSize())
+                            .put("]");
+                }
             } else if (protocol == PROTOCOL_TCP) {
                 if (username != null || password != null) {
                     throw new LineSenderException("username/password authentication is not supported for TCP protocol");
@@ -1608,6 +2201,21 @@ public interface Sender extends Closeable, ArraySender<Sender> {
                 if (minRequestThroughput != PARAMETER_NOT_SET_EXPLICITLY) {
                     throw new LineSenderException("minimum request throughput is not supported for TCP protocol");
                 }
+                if (requestChunkSize != PARAMETER_NOT_SET_EXPLICITLY) {
+                    throw new LineSenderException("request chunk size is not supported for TCP protocol");
+                }
+                if (requestPageSize != PARAMETER_NOT_SET_EXPLICITLY) {
+                    throw new LineSenderException("request page size is not supported for TCP protocol");
+                }
+                if (connectionPool != PARAMETER_NOT_SET_EXPLICITLY) {
+                    throw new LineSenderException("connection pool is not supported for TCP protocol");
+                }
+                if (pipelineDepth != PARAMETER_NOT_SET_EXPLICITLY) {
+                    throw new LineSenderException("pipeline depth is not supported for TCP protocol");
+                }
+                if (httpVersion != PARAMETER_NOT_SET_EXPLICITLY) {
+                    throw new LineSenderException("HTTP version is not supported for TCP protocol");
+                }
                 if (maximumBufferCapacity != bufferCapacity) {
                     throw new LineSenderException("maximum buffer capacity must be the same as initial buffer capacity for TCP protocol")
                             .put("[maximumBufferCapacity=").put(maximumBufferCapacity)
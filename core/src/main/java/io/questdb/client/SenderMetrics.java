@@ -0,0 +1,224 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client;
+
+/**
+ * Operational metrics of a {@link Sender}, obtained via {@link Sender#metrics()}.
+ * <p>
+ * Metrics are recorded by the thread that uses the Sender, without synchronization and without
+ * allocating. They can be read from any thread, e.g. via JMX, but the values observed by other
+ * threads may lag behind and are not mutually consistent.
+ * <p>
+ * Counters are cumulative since the Sender was created, except for the gauges describing
+ * the data that is currently buffered. Latencies are in nanoseconds and only cover flushes
+ * that reached the server:
+ * <ul>
+ *     <li>send - time to write the request to the socket, including connecting</li>
+ *     <li>wait - time spent waiting for the server response, zero for TCP</li>
+ *     <li>flush - total flush time, including retries and backoff</li>
+ * </ul>
+ * Flush latency percentiles are computed from a histogram with about 3% relative precision.
+ * Use {@link SenderMetricsRegistry} to publish metrics via JMX.
+ */
+public interface SenderMetrics {
+    /**
+     * Metrics that are always zero, for Senders that do not record any.
+     */
+    SenderMetrics NONE = new SenderMetrics() {
+        @Override
+        public long getAddressRotationCount() {
+            return 0;
+        }
+
+        @Override
+        public long getBackoffNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getBufferHighWaterMark() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesBuffered() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesSent() {
+            return 0;
+        }
+
+        @Override
+        public long getFailedFlushCount() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushCount() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushMaxNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushP50Nanos() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushP99Nanos() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushP999Nanos() {
+            return 0;
+        }
+
+        @Override
+        public long getFlushTotalNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getReconnectCount() {
+            return 0;
+        }
+
+        @Override
+        public long getRetryCount() {
+            return 0;
+        }
+
+        @Override
+        public long getRowsBuffered() {
+            return 0;
+        }
+
+        @Override
+        public long getRowsSent() {
+            return 0;
+        }
+
+        @Override
+        public long getSendMaxNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getSendTotalNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getTlsHandshakeCount() {
+            return 0;
+        }
+
+        @Override
+        public long getWaitMaxNanos() {
+            return 0;
+        }
+
+        @Override
+        public long getWaitTotalNanos() {
+            return 0;
+        }
+    };
+
+    /**
+     * @return number of times the Sender switched to the next configured server address
+     */
+    long getAddressRotationCount();
+
+    /**
+     * @return total time spent sleeping between flush retries
+     */
+    long getBackoffNanos();
+
+    /**
+     * @return the largest number of bytes buffered at once
+     */
+    long getBufferHighWaterMark();
+
+    /**
+     * @return number of bytes currently buffered and not yet sent
+     */
+    long getBytesBuffered();
+
+    long getBytesSent();
+
+    long getFailedFlushCount();
+
+    long getFlushCount();
+
+    long getFlushMaxNanos();
+
+    /**
+     * @return median flush latency, in nanoseconds
+     */
+    long getFlushP50Nanos();
+
+    /**
+     * @return 99th percentile of flush latency, in nanoseconds
+     */
+    long getFlushP99Nanos();
+
+    /**
+     * @return 99.9th percentile of flush latency, in nanoseconds
+     */
+    long getFlushP999Nanos();
+
+    long getFlushTotalNanos();
+
+    /**
+     * @return number of times a connection had to be re-established after the initial connect
+     */
+    long getReconnectCount();
+
+    long getRetryCount();
+
+    /**
+     * @return number of rows currently buffered and not yet sent
+     */
+    long getRowsBuffered();
+
+    long getRowsSent();
+
+    long getSendMaxNanos();
+
+    long getSendTotalNanos();
+
+    long getTlsHandshakeCount();
+
+    long getWaitMaxNanos();
+
+    long getWaitTotalNanos();
+}
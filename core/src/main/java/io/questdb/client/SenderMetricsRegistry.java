@@ -0,0 +1,70 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client;
+
+import io.questdb.client.cutlass.line.LineSenderException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Publishes {@link SenderMetrics} on the platform MBean server as MXBeans named
+ * {@code io.questdb.client:type=Sender,name=<name>}.
+ */
+public final class SenderMetricsRegistry {
+    public static final String JMX_DOMAIN = "io.questdb.client";
+
+    private SenderMetricsRegistry() {
+    }
+
+    /**
+     * Registers Sender metrics as a platform MXBean. The caller is responsible for
+     * unregistering it via {@link #unregister(ObjectName)} once the Sender is closed.
+     *
+     * @param metrics metrics to publish
+     * @param name    unique name of the Sender
+     * @return name of the registered MXBean
+     */
+    public static ObjectName register(SenderMetrics metrics, String name) {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Sender,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(metrics, SenderMetrics.class, true), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new LineSenderException("could not register sender metrics MXBean [name=" + name + ']', e);
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new LineSenderException("could not unregister sender metrics MXBean [name=" + objectName + ']', e);
+        }
+    }
+}
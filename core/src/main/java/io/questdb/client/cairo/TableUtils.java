@@ -24,6 +24,9 @@
 
 package io.questdb.client.cairo;
 
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8s;
+
 public final class TableUtils {
     public static boolean isValidColumnName(CharSequence columnName, int fsFileNameLimit) {
         final int length = columnName.length();
@@ -33,49 +36,32 @@ public final class TableUtils {
         }
 
         for (int i = 0; i < length; i++) {
-            char c = columnName.charAt(i);
-            switch (c) {
-                case '?':
-                case '.':
-                case ',':
-                case '\'':
-                case '\"':
-                case '\\':
-                case '/':
-                case ':':
-                case ')':
-                case '(':
-                case '+':
-                case '-':
-                case '*':
-                case '%':
-                case '~':
-                case '\u0000': // Control characters
-                case '\u0001':
-                case '\u0002':
-                case '\u0003':
-                case '\u0004':
-                case '\u0005':
-                case '\u0006':
-                case '\u0007':
-                case '\u0008':
-                case '	':
-                case '\u000B':
-                case '\u000c':
-                case '\n':
-                case '\r':
-                case '\u000e':
-                case '\u000f':
-                case '\u007f':
-                case 0xfeff: // UTF-8 BOM (Byte Order Mark) can appear at the beginning of a character stream
-                    return false;
-                default:
-                    break;
+            if (isIllegalColumnNameChar(columnName.charAt(i))) {
+                return false;
             }
         }
         return length > 0;
     }
 
+    /**
+     * Same rules as {@link #isValidColumnName(CharSequence, int)}, applied to UTF-8 bytes without
+     * decoding them. The limit is still counted in UTF-16 chars.
+     */
+    public static boolean isValidColumnName(Utf8Sequence columnName, int fsFileNameLimit) {
+        if (Utf8s.utf16Length(columnName) > fsFileNameLimit) {
+            return false;
+        }
+
+        final int size = columnName.size();
+        for (int i = 0; i < size; i++) {
+            final byte b = columnName.byteAt(i);
+            if (b >= 0 ? isIllegalColumnNameChar((char) b) : isBom(columnName, i)) {
+                return false;
+            }
+        }
+        return size > 0;
+    }
+
     public static boolean isValidTableName(CharSequence tableName, int fsFileNameLimit) {
         final int length = tableName.length();
         if (length > fsFileNameLimit) {
@@ -85,52 +71,132 @@ public final class TableUtils {
 
         for (int i = 0; i < length; i++) {
             char c = tableName.charAt(i);
-            switch (c) {
-                case '.':
-                    if (i == 0 || i == length - 1 || tableName.charAt(i - 1) == '.') {
-                        // Single dot in the middle is allowed only
-                        // Starting from . hides directory in Linux
-                        // Ending . can be trimmed by some Windows versions / file systems
-                        // Double, triple dot look suspicious
-                        // Single dot allowed as compatibility,
-                        // when someone uploads 'file_name.csv' the file name used as the table name
-                        return false;
-                    }
-                    break;
-                case '?':
-                case ',':
-                case '\'':
-                case '\"':
-                case '\\':
-                case '/':
-                case ':':
-                case ')':
-                case '(':
-                case '+':
-                case '*':
-                case '%':
-                case '~':
-                case '\u0000':  // Control characters
-                case '\u0001':
-                case '\u0002':
-                case '\u0003':
-                case '\u0004':
-                case '\u0005':
-                case '\u0006':
-                case '\u0007':
-                case '\u0008':
-                case '	':
-                case '\u000B':
-                case '\u000c':
-                case '\r':
-                case '\n':
-                case '\u000e':
-                case '\u000f':
-                case '\u007f':
-                case 0xfeff: // UTF-8 BOM (Byte Order Mark) can appear at the beginning of a character stream
+            if (c == '.') {
+                if (i == 0 || i == length - 1 || tableName.charAt(i - 1) == '.') {
+                    // Single dot in the middle is allowed only
+                    // Starting from . hides directory in Linux
+                    // Ending . can be trimmed by some Windows versions / file systems
+                    // Double, triple dot look suspicious
+                    // Single dot allowed as compatibility,
+                    // when someone uploads 'file_name.csv' the file name used as the table name
                     return false;
+                }
+            } else if (isIllegalTableNameChar(c)) {
+                return false;
             }
         }
         return length > 0 && tableName.charAt(0) != ' ' && tableName.charAt(length - 1) != ' ';
     }
-}
\ No newline at end of file
+
+    /**
+     * Same rules as {@link #isValidTableName(CharSequence, int)}, applied to UTF-8 bytes without
+     * decoding them. The limit is still counted in UTF-16 chars.
+     */
+    public static boolean isValidTableName(Utf8Sequence tableName, int fsFileNameLimit) {
+        if (Utf8s.utf16Length(tableName) > fsFileNameLimit) {
+            return false;
+        }
+
+        final int size = tableName.size();
+        for (int i = 0; i < size; i++) {
+            final byte b = tableName.byteAt(i);
+            if (b == '.') {
+                // bytes of multibyte chars are never ASCII, so byte neighbours are char neighbours
+                if (i == 0 || i == size - 1 || tableName.byteAt(i - 1) == '.') {
+                    return false;
+                }
+            } else if (b >= 0 ? isIllegalTableNameChar((char) b) : isBom(tableName, i)) {
+                return false;
+            }
+        }
+        return size > 0 && tableName.byteAt(0) != ' ' && tableName.byteAt(size - 1) != ' ';
+    }
+
+    private static boolean isBom(Utf8Sequence seq, int i) {
+        // U+FEFF is encoded as EF BB BF
+        return seq.byteAt(i) == (byte) 0xef
+                && i + 2 < seq.size()
+                && seq.byteAt(i + 1) == (byte) 0xbb
+                && seq.byteAt(i + 2) == (byte) 0xbf;
+    }
+
+    private static boolean isIllegalColumnNameChar(char c) {
+        switch (c) {
+            case '?':
+            case '.':
+            case ',':
+            case '\'':
+            case '\"':
+            case '\\':
+            case '/':
+            case ':':
+            case ')':
+            case '(':
+            case '+':
+            case '-':
+            case '*':
+            case '%':
+            case '~':
+            case '\u0000': // Control characters
+            case '\u0001':
+            case '\u0002':
+            case '\u0003':
+            case '\u0004':
+            case '\u0005':
+            case '\u0006':
+            case '\u0007':
+            case '\u0008':
+            case '	':
+            case '\u000B':
+            case '\u000c':
+            case '\n':
+            case '\r':
+            case '\u000e':
+            case '\u000f':
+            case '\u007f':
+            case 0xfeff: // UTF-8 BOM (Byte Order Mark) can appear at the beginning of a character stream
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIllegalTableNameChar(char c) {
+        switch (c) {
+            case '?':
+            case ',':
+            case '\'':
+            case '\"':
+            case '\\':
+            case '/':
+            case ':':
+            case ')':
+            case '(':
+            case '+':
+            case '*':
+            case '%':
+            case '~':
+            case '\u0000':  // Control characters
+            case '\u0001':
+            case '\u0002':
+            case '\u0003':
+            case '\u0004':
+            case '\u0005':
+            case '\u0006':
+            case '\u0007':
+            case '\u0008':
+            case '	':
+            case '\u000B':
+            case '\u000c':
+            case '\r':
+            case '\n':
+            case '\u000e':
+            case '\u000f':
+            case '\u007f':
+            case 0xfeff: // UTF-8 BOM (Byte Order Mark) can appear at the beginning of a character stream
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -230,4 +230,12 @@ public abstract class ArrayView implements QuietCloseable {
         return ColumnType.isNull(type);
     }
 
+    /**
+     * Tells whether the elements of this array are laid out contiguously in row-major
+     * order, so that the backing flat view can be read from start to end as-is.
+     */
+    public final boolean isVanilla() {
+        return isVanilla;
+    }
+
 }
\ No newline at end of file
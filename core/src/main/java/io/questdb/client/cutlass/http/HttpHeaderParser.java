@@ -25,6 +25,7 @@
 package io.questdb.client.cutlass.http;
 
 import io.questdb.client.cairo.Reopenable;
+import io.questdb.client.std.LongList;
 import io.questdb.client.std.LowerCaseUtf8SequenceObjHashMap;
 import io.questdb.client.std.MemoryTag;
 import io.questdb.client.std.Mutable;
@@ -43,13 +44,38 @@ import io.questdb.client.std.str.Utf8String;
 import io.questdb.client.std.str.Utf8s;
 import org.jetbrains.annotations.Nullable;
 
+import static io.questdb.client.cutlass.http.HttpConstants.HEADER_CONNECTION;
 import static io.questdb.client.cutlass.http.HttpConstants.HEADER_CONTENT_LENGTH;
 import static io.questdb.client.cutlass.http.HttpConstants.HEADER_CONTENT_TYPE;
-
+import static io.questdb.client.cutlass.http.HttpConstants.HEADER_TRANSFER_ENCODING;
+
+/**
+ * Parses the request or status line and the header block of an HTTP message, possibly delivered in fragments.
+ * <p>
+ * When constructed with {@code indexHeadersOnDemand}, which is how responses are parsed by the client, the
+ * header block is split into lines by scanning for LF eight bytes at a time. Only the headers that drive
+ * response processing, i.e. Connection, Content-Length, Content-Type and Transfer-Encoding, are extracted
+ * as they arrive. The bounds of all other headers are merely recorded, and they are put into the header
+ * map the first time one of them is looked up, so responses whose extra headers are never read cost
+ * neither the per-byte copy loop nor the map inserts.
+ */
 public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHeader {
+    private static final Utf8String[] EAGER_HEADERS = {
+            HEADER_CONNECTION,
+            HEADER_CONTENT_LENGTH,
+            HEADER_CONTENT_TYPE,
+            HEADER_TRANSFER_ENCODING
+    };
+    private static final long SWAR_HIGH_BITS = 0x8080808080808080L;
+    private static final long SWAR_LINE_FEEDS = 0x0a0a0a0a0a0a0a0aL;
+    private static final long SWAR_LOW_BITS = 0x0101010101010101L;
     private final BoundaryAugmenter boundaryAugmenter = new BoundaryAugmenter();
     private final ObjectPool<DirectUtf8String> csPool;
+    private final DirectUtf8String[] eagerHeaders = new DirectUtf8String[EAGER_HEADERS.length];
+    // name lo, name hi, value lo and value hi of the headers that are not extracted eagerly
+    private final LongList headerBounds = new LongList();
     private final LowerCaseUtf8SequenceObjHashMap<DirectUtf8String> headers = new LowerCaseUtf8SequenceObjHashMap<>();
+    private final boolean indexHeadersOnDemand;
     private final DirectUtf8Sink sink = new DirectUtf8Sink(0);
     private final DirectUtf8String temp = new DirectUtf8String();
     private final Utf8SequenceObjHashMap<DirectUtf8String> urlParams = new Utf8SequenceObjHashMap<>();
@@ -59,6 +85,8 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
     private long _wptr;
     private long contentLength;
     private DirectUtf8String contentType;
+    private int eagerHeaderMask;
+    private int headerBoundsIndexed;
     private DirectUtf8String headerName;
     private long headerPtr;
     private long hi;
@@ -77,9 +105,17 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
     private DirectUtf8String statusCode;
 
     public HttpHeaderParser(int bufferSize, ObjectPool<DirectUtf8String> csPool) {
+        this(bufferSize, csPool, false);
+    }
+
+    public HttpHeaderParser(int bufferSize, ObjectPool<DirectUtf8String> csPool, boolean indexHeadersOnDemand) {
         this.headerPtr = this._wptr = Unsafe.malloc(bufferSize, MemoryTag.NATIVE_HTTP_CONN);
         this.hi = headerPtr + bufferSize;
         this.csPool = csPool;
+        this.indexHeadersOnDemand = indexHeadersOnDemand;
+        for (int i = 0, n = eagerHeaders.length; i < n; i++) {
+            eagerHeaders[i] = new DirectUtf8String();
+        }
         clear();
     }
 
@@ -105,6 +141,9 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
         this.isStatusText = true;
         this.needProtocol = true;
         this.contentLength = -1;
+        this.eagerHeaderMask = 0;
+        this.headerBounds.clear();
+        this.headerBoundsIndexed = 0;
         // do not clear the pool
         // this.pool.clear();
     }
@@ -132,6 +171,13 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
 
     @Override
     public DirectUtf8Sequence getHeader(Utf8Sequence name) {
+        if (indexHeadersOnDemand) {
+            final int index = eagerHeaderIndex(name);
+            if (index > -1) {
+                return (eagerHeaderMask & (1 << index)) != 0 ? eagerHeaders[index] : null;
+            }
+            indexHeaders();
+        }
         return headers.get(name);
     }
 
@@ -172,6 +218,10 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
             p = ptr;
         }
 
+        if (indexHeadersOnDemand) {
+            return parseLines(p, hi);
+        }
+
         while (p < hi) {
             if (_wptr == this.hi) {
                 throw HttpException.instance("header is too large");
@@ -209,6 +259,78 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
         return p;
     }
 
+    private static int eagerHeaderIndex(Utf8Sequence name) {
+        // header names differ in length, hence at most one of them is compared byte by byte
+        for (int i = 0, n = EAGER_HEADERS.length; i < n; i++) {
+            if (name.size() == EAGER_HEADERS[i].size() && Utf8s.equalsIgnoreCaseAscii(name, EAGER_HEADERS[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the address of the first LF in {@code [lo, hi)}, or {@code hi} if there is none. Eight bytes
+     * are tested at a time; the lowest flagged byte of a word is always an exact match.
+     */
+    private static long indexOfLineFeed(long lo, long hi) {
+        long p = lo;
+        for (; p + Long.BYTES <= hi; p += Long.BYTES) {
+            final long word = Unsafe.getUnsafe().getLong(p) ^ SWAR_LINE_FEEDS;
+            final long zeroBytes = (word - SWAR_LOW_BITS) & ~word & SWAR_HIGH_BITS;
+            if (zeroBytes != 0) {
+                return p + (Long.numberOfTrailingZeros(zeroBytes) >>> 3);
+            }
+        }
+        for (; p < hi; p++) {
+            if (Unsafe.getUnsafe().getByte(p) == '\n') {
+                return p;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * Records the header line in {@code [lo, lf)}, where {@code lf} is the address of the terminating LF.
+     *
+     * @return false when the line ends the header block
+     */
+    private boolean addHeaderLine(long lo, long lf) {
+        long hi = lf;
+        if (hi > lo && Unsafe.getUnsafe().getByte(hi - 1) == '\r') {
+            hi--;
+        }
+        long colon = lo;
+        while (colon < hi && Unsafe.getUnsafe().getByte(colon) != ':') {
+            colon++;
+        }
+        if (colon == hi) {
+            // an empty line or, as in the eager mode, a line without a name
+            return false;
+        }
+        final long valueLo = HttpSemantics.swallowOWS(colon + 1, hi);
+        final int index = eagerHeaderIndex(temp.of(lo, colon));
+        if (index > -1) {
+            eagerHeaders[index].of(valueLo, hi);
+            eagerHeaderMask |= 1 << index;
+        } else {
+            headerBounds.add(lo);
+            headerBounds.add(colon);
+            headerBounds.add(valueLo);
+            headerBounds.add(hi);
+        }
+        return true;
+    }
+
+    private void indexHeaders() {
+        for (int n = headerBounds.size(); headerBoundsIndexed < n; headerBoundsIndexed += 4) {
+            headers.putImmutable(
+                    csPool.next().of(headerBounds.getQuick(headerBoundsIndexed), headerBounds.getQuick(headerBoundsIndexed + 1)),
+                    csPool.next().of(headerBounds.getQuick(headerBoundsIndexed + 2), headerBounds.getQuick(headerBoundsIndexed + 3))
+            );
+        }
+    }
+
     private void parseContentLength() {
         contentLength = -1;
         DirectUtf8Sequence seq = getHeader(HEADER_CONTENT_LENGTH);
@@ -242,6 +364,30 @@ public class HttpHeaderParser implements Mutable, QuietCloseable, HttpRequestHea
         parseContentLength();
     }
 
+    private long parseLines(long p, long hi) {
+        while (p < hi) {
+            final long lf = indexOfLineFeed(p, hi);
+            final long len = lf < hi ? lf + 1 - p : hi - p;
+            if (_wptr + len > this.hi) {
+                throw HttpException.instance("header is too large");
+            }
+            Vect.memcpy(_wptr, p, len);
+            _wptr += len;
+            p += len;
+            if (lf == hi) {
+                // the rest of the line comes with the next fragment
+                break;
+            }
+            if (!addHeaderLine(_lo, _wptr - 1)) {
+                incomplete = false;
+                parseKnownHeaders();
+                return p;
+            }
+            _lo = _wptr;
+        }
+        return p;
+    }
+
     private long parseMediaType(long lo, long hi) {
         // media-type format is: type "/" subtype
         // type and subtype are tokens
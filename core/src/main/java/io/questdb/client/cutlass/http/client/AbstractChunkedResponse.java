@@ -213,6 +213,20 @@ public abstract class AbstractChunkedResponse implements Response, Fragment {
         return recv(defaultTimeout);
     }
 
+    /**
+     * Returns the end of the received bytes that follow the last chunk, valid once {@link #recv()} returned null.
+     */
+    long getUnconsumedHi() {
+        return dataHi;
+    }
+
+    /**
+     * Returns the start of the received bytes that follow the last chunk, valid once {@link #recv()} returned null.
+     */
+    long getUnconsumedLo() {
+        return dataLo;
+    }
+
     private void compactBuffer() {
         // move unprocessed data to the front of the buffer
         // to maximise
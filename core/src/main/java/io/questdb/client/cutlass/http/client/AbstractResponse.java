@@ -33,6 +33,8 @@ public abstract class AbstractResponse implements Response, Fragment {
     private long dataHi;
     private long dataLo;
     private boolean receive = true;
+    // end of the received bytes, which may extend past the end of the body
+    private long receivedHi;
 
     public AbstractResponse(long bufLo, long bufHi, int defaultTimeout) {
         this.bufLo = bufLo;
@@ -42,7 +44,8 @@ public abstract class AbstractResponse implements Response, Fragment {
 
     public void begin(long lo, long hi, long contentLength) {
         this.dataLo = lo;
-        this.dataHi = hi;
+        this.dataHi = contentLength > -1 ? Math.min(hi, lo + contentLength) : hi;
+        this.receivedHi = hi;
         this.contentLength = contentLength;
         this.bytesReceived = 0;
         this.receive = (lo == hi);
@@ -70,6 +73,9 @@ public abstract class AbstractResponse implements Response, Fragment {
                 len = recvOrDie(dataHi, bufHi, timeout);
             }
             dataHi += len;
+            receivedHi = dataHi;
+            // bytes past the end of the body belong to the next response
+            dataHi = Math.min(dataHi, dataLo + contentLength - bytesReceived);
         }
         bytesReceived += dataHi - dataLo;
         receive = true;
@@ -81,5 +87,19 @@ public abstract class AbstractResponse implements Response, Fragment {
         return recv(defaultTimeout);
     }
 
+    /**
+     * Returns the end of the received bytes that follow the body, valid once the body has been read in full.
+     */
+    long getUnconsumedHi() {
+        return receivedHi;
+    }
+
+    /**
+     * Returns the start of the received bytes that follow the body, valid once the body has been read in full.
+     */
+    long getUnconsumedLo() {
+        return dataHi;
+    }
+
     protected abstract int recvOrDie(long bufLo, long bufHi, int timeout);
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.LongList;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.Utf8SequenceIntHashMap;
+import io.questdb.client.std.str.Utf8Sequence;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A batch of rows stored column by column in off-heap vectors, filled by {@link CsvBatchParser}.
+ * <p>
+ * Each column is stored in one of three ways, depending on its {@link ColumnType}:
+ * <ul>
+ *     <li>BOOLEAN, BYTE, SHORT, INT, LONG, DATE and TIMESTAMP columns as 8-byte longs, nulls
+ *     are {@link Numbers#LONG_NULL}. Dates are epoch milliseconds, timestamps are epoch micros,
+ *     or nanos for {@link ColumnType#TIMESTAMP_NANO}.</li>
+ *     <li>FLOAT and DOUBLE columns as 8-byte doubles, nulls are NaN.</li>
+ *     <li>all other columns, such as SYMBOL and VARCHAR, as 4-byte dictionary keys, nulls are -1.
+ *     The dictionary of a column is shared by all batches of the same export, so keys are stable
+ *     across batches.</li>
+ * </ul>
+ * The vectors can be read in bulk from {@link #getColumnAddress(int)}. A batch is only valid
+ * while it is being handed to the {@link ColumnBatchListener}, it is overwritten by the next one.
+ */
+public class ColumnBatch implements QuietCloseable {
+    public static final int STORAGE_DOUBLE = 1;
+    public static final int STORAGE_LONG = 0;
+    public static final int STORAGE_STR = 2;
+    private final LongList addresses = new LongList();
+    private final int capacity;
+    private final ObjList<String> columnNames = new ObjList<>();
+    private final IntList columnTypes = new IntList();
+    private final ObjList<Utf8SequenceIntHashMap> dictionaries = new ObjList<>();
+    private final IntList storage = new IntList();
+    private int rowCount;
+
+    /**
+     * @param capacity number of rows in a full batch
+     */
+    public ColumnBatch(int capacity) {
+        assert capacity > 0;
+        this.capacity = capacity;
+    }
+
+    public static int storageOf(int columnType) {
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+            case ColumnType.BYTE:
+            case ColumnType.SHORT:
+            case ColumnType.INT:
+            case ColumnType.LONG:
+            case ColumnType.DATE:
+            case ColumnType.TIMESTAMP:
+                return STORAGE_LONG;
+            case ColumnType.FLOAT:
+            case ColumnType.DOUBLE:
+                return STORAGE_DOUBLE;
+            default:
+                return STORAGE_STR;
+        }
+    }
+
+    @Override
+    public void close() {
+        freeColumns();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return address of the column vector: {@link #getRowCount()} longs, doubles or int
+     * dictionary keys, depending on {@link #getColumnStorage(int)}
+     */
+    public long getColumnAddress(int col) {
+        return addresses.getQuick(col);
+    }
+
+    public int getColumnCount() {
+        return columnTypes.size();
+    }
+
+    public CharSequence getColumnName(int col) {
+        return columnNames.getQuick(col);
+    }
+
+    /**
+     * @return one of {@link #STORAGE_LONG}, {@link #STORAGE_DOUBLE} or {@link #STORAGE_STR}
+     */
+    public int getColumnStorage(int col) {
+        return storage.getQuick(col);
+    }
+
+    public int getColumnType(int col) {
+        return columnTypes.getQuick(col);
+    }
+
+    /**
+     * @return number of distinct values of a dictionary-encoded column seen so far
+     */
+    public int getDictionarySize(int col) {
+        return dictionaries.getQuick(col).size();
+    }
+
+    public Utf8Sequence getDictionaryValue(int col, int key) {
+        return dictionaries.getQuick(col).keys().getQuick(key);
+    }
+
+    public double getDouble(int col, int row) {
+        assert storage.getQuick(col) == STORAGE_DOUBLE && row < rowCount;
+        return Unsafe.getUnsafe().getDouble(addresses.getQuick(col) + ((long) row << 3));
+    }
+
+    public long getLong(int col, int row) {
+        assert storage.getQuick(col) == STORAGE_LONG && row < rowCount;
+        return Unsafe.getUnsafe().getLong(addresses.getQuick(col) + ((long) row << 3));
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the value of a dictionary-encoded column, or null
+     */
+    @Nullable
+    public Utf8Sequence getStr(int col, int row) {
+        final int key = getStrKey(col, row);
+        return key < 0 ? null : getDictionaryValue(col, key);
+    }
+
+    /**
+     * @return dictionary key of the value, or -1 for nulls
+     */
+    public int getStrKey(int col, int row) {
+        assert storage.getQuick(col) == STORAGE_STR && row < rowCount;
+        return Unsafe.getUnsafe().getInt(addresses.getQuick(col) + ((long) row << 2));
+    }
+
+    public boolean isNull(int col, int row) {
+        switch (storage.getQuick(col)) {
+            case STORAGE_LONG:
+                return getLong(col, row) == Numbers.LONG_NULL;
+            case STORAGE_DOUBLE:
+                return Double.isNaN(getDouble(col, row));
+            default:
+                return getStrKey(col, row) < 0;
+        }
+    }
+
+    private static long sizeOf(int storage, int capacity) {
+        return storage == STORAGE_STR ? (long) capacity << 2 : (long) capacity << 3;
+    }
+
+    private void freeColumns() {
+        for (int i = 0, n = addresses.size(); i < n; i++) {
+            Unsafe.free(addresses.getQuick(i), sizeOf(storage.getQuick(i), capacity), MemoryTag.NATIVE_TEXT_PARSER_RSS);
+        }
+        addresses.clear();
+        storage.clear();
+        columnTypes.clear();
+        columnNames.clear();
+        rowCount = 0;
+    }
+
+    void clearRows() {
+        rowCount = 0;
+    }
+
+    boolean isFull() {
+        return rowCount == capacity;
+    }
+
+    void nextRow() {
+        rowCount++;
+    }
+
+    void of(IntList columnTypes) {
+        freeColumns();
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            final int type = columnTypes.getQuick(i);
+            final int storage = storageOf(type);
+            this.columnTypes.add(type);
+            this.storage.add(storage);
+            addresses.add(Unsafe.malloc(sizeOf(storage, capacity), MemoryTag.NATIVE_TEXT_PARSER_RSS));
+            if (storage == STORAGE_STR) {
+                Utf8SequenceIntHashMap dictionary = i < dictionaries.size() ? dictionaries.getQuick(i) : null;
+                if (dictionary == null) {
+                    dictionary = new Utf8SequenceIntHashMap();
+                    dictionaries.extendAndSet(i, dictionary);
+                }
+                dictionary.clear();
+            }
+        }
+    }
+
+    void putDouble(int col, double value) {
+        Unsafe.getUnsafe().putDouble(addresses.getQuick(col) + ((long) rowCount << 3), value);
+    }
+
+    void putLong(int col, long value) {
+        Unsafe.getUnsafe().putLong(addresses.getQuick(col) + ((long) rowCount << 3), value);
+    }
+
+    void putStr(int col, @Nullable Utf8Sequence value) {
+        int key = -1;
+        if (value != null) {
+            final Utf8SequenceIntHashMap dictionary = dictionaries.getQuick(col);
+            final int index = dictionary.keyIndex(value);
+            if (index < 0) {
+                key = dictionary.valueAtQuick(index);
+            } else {
+                key = dictionary.size();
+                dictionary.putAt(index, value, key);
+            }
+        }
+        Unsafe.getUnsafe().putInt(addresses.getQuick(col) + ((long) rowCount << 2), key);
+    }
+
+    void setColumnName(int col, String name) {
+        columnNames.extendAndSet(col, name);
+    }
+}
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.Mutable;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.NumericException;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.datetime.microtime.Micros;
+import io.questdb.client.std.datetime.nanotime.Nanos;
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.DirectUtf8String;
+import io.questdb.client.std.str.Utf8s;
+
+/**
+ * Incremental parser of the CSV produced by the {@code /exp} endpoint. The input is fed
+ * fragment by fragment as it is received, the first line is the header with column names,
+ * and values are decoded straight from the UTF-8 bytes of the fragment into the column
+ * vectors of a {@link ColumnBatch}. Only values that straddle two fragments, or contain
+ * escaped quotes, are copied before they are decoded.
+ * <p>
+ * Empty unquoted values are nulls, while {@code ""} is an empty string.
+ */
+public class CsvBatchParser implements Mutable, QuietCloseable {
+    private static final int CONV_BOOLEAN = 1;
+    private static final int CONV_DATE = 2;
+    private static final int CONV_DOUBLE = 3;
+    private static final int CONV_LONG = 0;
+    private static final int CONV_STR = 4;
+    private static final int CONV_TIMESTAMP = 5;
+    private static final int CONV_TIMESTAMP_NANO = 6;
+    private static final int S_CR = 4;
+    private static final int S_FIELD_START = 0;
+    private static final int S_QUOTE = 3;
+    private static final int S_QUOTED = 2;
+    private static final int S_UNQUOTED = 1;
+    private final ColumnBatch batch;
+    private final IntList conversions = new IntList();
+    private final DirectUtf8Sink stash = new DirectUtf8Sink(256);
+    private final DirectUtf8String value = new DirectUtf8String();
+    private int col;
+    private boolean header;
+    private ColumnBatchListener listener;
+    private long rowCount;
+    private int state;
+    private boolean useStash;
+
+    public CsvBatchParser(ColumnBatch batch) {
+        this.batch = batch;
+    }
+
+    @Override
+    public void clear() {
+        state = S_FIELD_START;
+        col = 0;
+        header = true;
+        rowCount = 0;
+        useStash = false;
+        stash.clear();
+    }
+
+    @Override
+    public void close() {
+        stash.close();
+    }
+
+    /**
+     * @return number of rows parsed since {@link #of(IntList, ColumnBatchListener)}
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Prepares the parser for a new CSV input.
+     *
+     * @param columnTypes {@link ColumnType} of each column, the header must have as many columns
+     * @param listener    receives the batches as they fill up
+     */
+    public void of(IntList columnTypes, ColumnBatchListener listener) {
+        clear();
+        this.listener = listener;
+        batch.of(columnTypes);
+        conversions.clear();
+        for (int i = 0, n = columnTypes.size(); i < n; i++) {
+            conversions.add(conversionOf(columnTypes.getQuick(i)));
+        }
+    }
+
+    /**
+     * Parses a fragment of the input, handing full batches to the listener.
+     *
+     * @throws HttpClientException if the input does not match the columns
+     */
+    public void parse(long lo, long hi) {
+        long p = lo;
+        long fieldLo = lo;
+        long quotePos = lo;
+        int state = this.state;
+        while (p < hi) {
+            final byte b = Unsafe.getUnsafe().getByte(p++);
+            switch (state) {
+                case S_FIELD_START:
+                    switch (b) {
+                        case '"':
+                            fieldLo = p;
+                            state = S_QUOTED;
+                            break;
+                        case ',':
+                            onField(p, p, false);
+                            col++;
+                            break;
+                        case '\r':
+                            onField(p, p, false);
+                            state = S_CR;
+                            break;
+                        case '\n':
+                            // a blank line is a null when there is a single column
+                            onField(p, p, false);
+                            onRowEnd();
+                            break;
+                        default:
+                            fieldLo = p - 1;
+                            state = S_UNQUOTED;
+                            break;
+                    }
+                    break;
+                case S_UNQUOTED:
+                    switch (b) {
+                        case ',':
+                            onField(fieldLo, p - 1, false);
+                            col++;
+                            state = S_FIELD_START;
+                            break;
+                        case '\r':
+                            onField(fieldLo, p - 1, false);
+                            state = S_CR;
+                            break;
+                        case '\n':
+                            onField(fieldLo, p - 1, false);
+                            onRowEnd();
+                            state = S_FIELD_START;
+                            break;
+                        default:
+                            break;
+                    }
+                    break;
+                case S_QUOTED:
+                    if (b == '"') {
+                        quotePos = p - 1;
+                        state = S_QUOTE;
+                    }
+                    break;
+                case S_QUOTE:
+                    switch (b) {
+                        case '"':
+                            // escaped quote, keep one of the two
+                            stash.putNonAscii(fieldLo, quotePos + 1);
+                            useStash = true;
+                            fieldLo = p;
+                            state = S_QUOTED;
+                            break;
+                        case ',':
+                            onField(fieldLo, quotePos, true);
+                            col++;
+                            state = S_FIELD_START;
+                            break;
+                        case '\r':
+                            onField(fieldLo, quotePos, true);
+                            state = S_CR;
+                            break;
+                        case '\n':
+                            onField(fieldLo, quotePos, true);
+                            onRowEnd();
+                            state = S_FIELD_START;
+                            break;
+                        default:
+                            throw new HttpClientException("unexpected character after quoted value [row=")
+                                    .put(rowCount).put(", column=").put(col).put(']');
+                    }
+                    break;
+                default:
+                    // S_CR
+                    if (b != '\n') {
+                        throw new HttpClientException("expected line feed after carriage return [row=")
+                                .put(rowCount).put(']');
+                    }
+                    onRowEnd();
+                    state = S_FIELD_START;
+                    break;
+            }
+        }
+
+        // the value continues in the next fragment
+        if (state == S_UNQUOTED || state == S_QUOTED) {
+            stash.putNonAscii(fieldLo, hi);
+            useStash = true;
+        } else if (state == S_QUOTE) {
+            stash.putNonAscii(fieldLo, quotePos);
+            useStash = true;
+        }
+        this.state = state;
+    }
+
+    /**
+     * Completes the input, handing the last, partially filled, batch to the listener.
+     */
+    public void parseLast() {
+        switch (state) {
+            case S_QUOTED:
+                throw new HttpClientException("unterminated quoted value [row=").put(rowCount).put(']');
+            case S_UNQUOTED:
+                onField(0, 0, false);
+                onRowEnd();
+                break;
+            case S_QUOTE:
+                onField(0, 0, true);
+                onRowEnd();
+                break;
+            case S_CR:
+                onRowEnd();
+                break;
+            default:
+                if (col > 0) {
+                    onField(0, 0, false);
+                    onRowEnd();
+                }
+                break;
+        }
+        state = S_FIELD_START;
+        if (batch.getRowCount() > 0) {
+            listener.onBatch(batch);
+            batch.clearRows();
+        }
+    }
+
+    private static int conversionOf(int columnType) {
+        if (columnType == ColumnType.TIMESTAMP_NANO) {
+            return CONV_TIMESTAMP_NANO;
+        }
+        switch (ColumnType.tagOf(columnType)) {
+            case ColumnType.BOOLEAN:
+                return CONV_BOOLEAN;
+            case ColumnType.DATE:
+                return CONV_DATE;
+            case ColumnType.TIMESTAMP:
+                return CONV_TIMESTAMP;
+            default:
+                switch (ColumnBatch.storageOf(columnType)) {
+                    case ColumnBatch.STORAGE_LONG:
+                        return CONV_LONG;
+                    case ColumnBatch.STORAGE_DOUBLE:
+                        return CONV_DOUBLE;
+                    default:
+                        return CONV_STR;
+                }
+        }
+    }
+
+    private void onField(long lo, long hi, boolean quoted) {
+        if (useStash) {
+            stash.putNonAscii(lo, hi);
+            value.of(stash.ptr(), stash.ptr() + stash.size());
+        } else {
+            value.of(lo, hi);
+        }
+        if (header) {
+            if (col < batch.getColumnCount()) {
+                batch.setColumnName(col, Utf8s.stringFromUtf8Bytes(value));
+            }
+        } else {
+            if (col >= batch.getColumnCount()) {
+                throw new HttpClientException("too many values in row [row=").put(rowCount)
+                        .put(", columnCount=").put(batch.getColumnCount()).put(']');
+            }
+            putValue(quoted);
+        }
+        useStash = false;
+        stash.clear();
+    }
+
+    private void onRowEnd() {
+        final int valueCount = col + 1;
+        col = 0;
+        if (valueCount != batch.getColumnCount()) {
+            throw new HttpClientException(header ? "header does not match the columns [columnCount=" : "row does not match the columns [columnCount=")
+                    .put(batch.getColumnCount()).put(", valueCount=").put(valueCount)
+                    .put(", row=").put(rowCount).put(']');
+        }
+        if (header) {
+            header = false;
+            return;
+        }
+        rowCount++;
+        batch.nextRow();
+        if (batch.isFull()) {
+            listener.onBatch(batch);
+            batch.clearRows();
+        }
+    }
+
+    private void putValue(boolean quoted) {
+        final int conversion = conversions.getQuick(col);
+        final int size = value.size();
+        if (size == 0 && !quoted) {
+            switch (ColumnBatch.storageOf(batch.getColumnType(col))) {
+                case ColumnBatch.STORAGE_LONG:
+                    batch.putLong(col, Numbers.LONG_NULL);
+                    break;
+                case ColumnBatch.STORAGE_DOUBLE:
+                    batch.putDouble(col, Double.NaN);
+                    break;
+                default:
+                    batch.putStr(col, null);
+                    break;
+            }
+            return;
+        }
+        try {
+            switch (conversion) {
+                case CONV_LONG:
+                    batch.putLong(col, Numbers.parseLong(value));
+                    break;
+                case CONV_DOUBLE:
+                    batch.putDouble(col, Numbers.parseDouble(value.asAsciiCharSequence()));
+                    break;
+                case CONV_BOOLEAN:
+                    if (Utf8s.equalsAscii("true", value)) {
+                        batch.putLong(col, 1);
+                    } else if (Utf8s.equalsAscii("false", value)) {
+                        batch.putLong(col, 0);
+                    } else {
+                        throw NumericException.instance();
+                    }
+                    break;
+                case CONV_TIMESTAMP:
+                    batch.putLong(col, Micros.INSTANCE.parseFloor(value, 0, size));
+                    break;
+                case CONV_TIMESTAMP_NANO:
+                    batch.putLong(col, Nanos.INSTANCE.parseFloor(value, 0, size));
+                    break;
+                case CONV_DATE:
+                    batch.putLong(col, Micros.INSTANCE.parseFloor(value, 0, size) / Micros.MILLI_MICROS);
+                    break;
+                default:
+                    batch.putStr(col, value);
+                    break;
+            }
+        } catch (NumericException e) {
+            throw new HttpClientException("could not parse value [row=").put(rowCount)
+                    .put(", column=").put(batch.getColumnName(col))
+                    .put(", type=").put(ColumnType.nameOf(batch.getColumnType(col)))
+                    .put(", value=").put(value.toString()).put(']');
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.ClientTlsConfiguration;
+import io.questdb.client.HttpClientConfiguration;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.Misc;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.str.DirectUtf8Sequence;
+import io.questdb.client.std.str.StringSink;
+import io.questdb.client.std.str.Utf8s;
+
+/**
+ * Bulk reader of query results through the CSV {@code /exp} endpoint, decoded into off-heap
+ * column vectors.
+ * <p>
+ * The response is parsed as each fragment is received, so decoding overlaps with the
+ * network receive into the socket buffer, and rows are handed to the caller in
+ * {@link ColumnBatch}es of a fixed number of rows. Memory use is bounded by the batch size
+ * and the distinct values of the dictionary-encoded columns. Not thread-safe.
+ * <pre>
+ * try (CsvExportClient client = CsvExportClient.newPlainTextInstance("localhost", 9000)) {
+ *     client.export(
+ *             "select ts, sym, price from trades",
+ *             batch -&gt; train(batch),
+ *             ColumnType.TIMESTAMP, ColumnType.SYMBOL, ColumnType.DOUBLE
+ *     );
+ * }
+ * </pre>
+ */
+public class CsvExportClient implements QuietCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private final ColumnBatch batch;
+    private final HttpClient client;
+    private final IntList columnTypes = new IntList();
+    private final StringSink error = new StringSink();
+    private final String host;
+    private final CsvBatchParser parser;
+    private final int port;
+    private String authPassword;
+    private String authToken;
+    private String authUsername;
+
+    /**
+     * @param client    HTTP client to export with, the export client takes ownership of it
+     * @param batchSize number of rows in a {@link ColumnBatch}
+     */
+    public CsvExportClient(HttpClient client, String host, int port, int batchSize) {
+        this.client = client;
+        this.host = host;
+        this.port = port;
+        this.batch = new ColumnBatch(batchSize);
+        this.parser = new CsvBatchParser(batch);
+    }
+
+    public static CsvExportClient newPlainTextInstance(String host, int port) {
+        return new CsvExportClient(HttpClientFactory.newPlainTextInstance(), host, port, DEFAULT_BATCH_SIZE);
+    }
+
+    public static CsvExportClient newTlsInstance(
+            HttpClientConfiguration configuration,
+            ClientTlsConfiguration tlsConfig,
+            String host,
+            int port,
+            int batchSize
+    ) {
+        return new CsvExportClient(HttpClientFactory.newTlsInstance(configuration, tlsConfig), host, port, batchSize);
+    }
+
+    public CsvExportClient authBasic(String username, String password) {
+        this.authUsername = username;
+        this.authPassword = password;
+        this.authToken = null;
+        return this;
+    }
+
+    public CsvExportClient authToken(String token) {
+        this.authToken = token;
+        this.authUsername = null;
+        this.authPassword = null;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(parser);
+        Misc.free(batch);
+        Misc.free(client);
+    }
+
+    /**
+     * Runs the query and streams its result set to the listener in batches.
+     *
+     * @param columnTypes {@link io.questdb.client.cairo.ColumnType} of each column of the result
+     *                    set, in order; they decide how the values are decoded and stored
+     * @return total number of rows
+     * @throws HttpClientException if the export fails, or the result set does not match the types
+     */
+    public long export(CharSequence sql, ColumnBatchListener listener, int... columnTypes) {
+        this.columnTypes.clear();
+        for (int type : columnTypes) {
+            this.columnTypes.add(type);
+        }
+        parser.of(this.columnTypes, listener);
+
+        final HttpClient.Request request = client.newRequest(host, port)
+                .GET()
+                .url("/exp")
+                .query("query", sql);
+        if (authToken != null) {
+            request.authToken(authToken);
+        } else if (authUsername != null) {
+            request.authBasic(authUsername, authPassword);
+        }
+        final HttpClient.ResponseHeaders responseHeaders = request.send();
+        responseHeaders.await();
+        final Response response = responseHeaders.getResponse();
+
+        final DirectUtf8Sequence statusCode = responseHeaders.getStatusCode();
+        if (statusCode == null || statusCode.size() != 3 || statusCode.byteAt(0) != '2') {
+            throw exportError(response, statusCode);
+        }
+        boolean done = false;
+        try {
+            Fragment fragment;
+            while ((fragment = response.recv()) != null) {
+                parser.parse(fragment.lo(), fragment.hi());
+            }
+            parser.parseLast();
+            done = true;
+        } finally {
+            if (!done) {
+                // the rest of the response is not worth draining
+                client.disconnect();
+            }
+        }
+        return parser.getRowCount();
+    }
+
+    private HttpClientException exportError(Response response, DirectUtf8Sequence statusCode) {
+        error.clear();
+        try {
+            Fragment fragment;
+            while ((fragment = response.recv()) != null) {
+                if (error.length() < MAX_ERROR_LENGTH) {
+                    Utf8s.utf8ToUtf16(fragment.lo(), fragment.hi(), error);
+                }
+            }
+        } catch (HttpClientException ignore) {
+            // report the status alone
+        }
+        client.disconnect();
+        final HttpClientException e = new HttpClientException("export failed");
+        if (statusCode != null) {
+            e.put(" [status=").put(statusCode.asAsciiCharSequence()).put(']');
+        }
+        if (error.length() > 0) {
+            e.put(": ").put(error.length() > MAX_ERROR_LENGTH ? error.subSequence(0, MAX_ERROR_LENGTH) : error);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8Sink;
+import io.questdb.client.std.str.Utf8String;
+import io.questdb.client.std.str.Utf8s;
+
+/**
+ * Tables shared by {@link HpackEncoder} and {@link HpackDecoder}: the static header table and the Huffman
+ * code of HPACK, the header compression format of HTTP/2 (RFC 7541).
+ * <p>
+ * The Huffman code is canonical, codes of equal length are consecutive and ordered by symbol value. It is
+ * therefore fully described by the length of each symbol's code, the codes themselves are derived from
+ * the lengths when the class loads.
+ */
+final class Hpack {
+    // dynamic table size both peers start with, until SETTINGS_HEADER_TABLE_SIZE says otherwise
+    static final int DEFAULT_TABLE_SIZE = 4096;
+    // every entry of the dynamic table costs the length of its name and value plus this overhead
+    static final int ENTRY_OVERHEAD = 32;
+    static final int STATIC_TABLE_SIZE = 61;
+    private static final int EOS = 256;
+    // code lengths of symbols 0-255 and of EOS, RFC 7541 Appendix B
+    private static final byte[] HUFFMAN_CODE_LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+    private static final int HUFFMAN_MAX_CODE_LENGTH = 30;
+    private static final int[] HUFFMAN_CODE_COUNT = new int[HUFFMAN_MAX_CODE_LENGTH + 1];
+    private static final int[] HUFFMAN_FIRST_CODE = new int[HUFFMAN_MAX_CODE_LENGTH + 1];
+    private static final int[] HUFFMAN_FIRST_INDEX = new int[HUFFMAN_MAX_CODE_LENGTH + 1];
+    // symbols ordered by code length, then by value, i.e. in the order of their codes
+    private static final int[] HUFFMAN_SYMBOLS = new int[EOS + 1];
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""},
+    };
+    private static final Utf8String[] STATIC_NAMES = new Utf8String[STATIC_TABLE_SIZE + 1];
+    private static final Utf8String[] STATIC_VALUES = new Utf8String[STATIC_TABLE_SIZE + 1];
+
+    private Hpack() {
+    }
+
+    /**
+     * Decodes a Huffman-encoded string.
+     *
+     * @param lo   address of the first encoded byte
+     * @param hi   address of the byte following the last encoded byte
+     * @param sink receives decoded bytes
+     * @throws HttpClientException if the string is not a valid Huffman encoding
+     */
+    static void huffmanDecode(long lo, long hi, Utf8Sink sink) {
+        int code = 0;
+        int len = 0;
+        for (long p = lo; p < hi; p++) {
+            final int b = Unsafe.getUnsafe().getByte(p) & 0xff;
+            for (int bit = 7; bit > -1; bit--) {
+                code = (code << 1) | ((b >>> bit) & 1);
+                len++;
+                // a canonical code of a given length is never below the first code of that length
+                final int index = code - HUFFMAN_FIRST_CODE[len];
+                if (index < HUFFMAN_CODE_COUNT[len]) {
+                    final int symbol = HUFFMAN_SYMBOLS[HUFFMAN_FIRST_INDEX[len] + index];
+                    if (symbol == EOS) {
+                        throw new HttpClientException("invalid HPACK Huffman string, it contains EOS");
+                    }
+                    sink.putAny((byte) symbol);
+                    code = 0;
+                    len = 0;
+                }
+            }
+        }
+        // the string is padded with the most significant bits of EOS, which are all ones
+        if (len > 7 || code != (1 << len) - 1) {
+            throw new HttpClientException("invalid HPACK Huffman string padding");
+        }
+    }
+
+    /**
+     * @param index static table index, 1-based
+     * @return header name of the static table entry
+     */
+    static Utf8String staticName(int index) {
+        return STATIC_NAMES[index];
+    }
+
+    /**
+     * @param index static table index, 1-based
+     * @return header value of the static table entry, empty for entries that carry only a name
+     */
+    static Utf8String staticValue(int index) {
+        return STATIC_VALUES[index];
+    }
+
+    static {
+        for (int i = 0; i < STATIC_TABLE_SIZE; i++) {
+            STATIC_NAMES[i + 1] = new Utf8String(STATIC_TABLE[i][0]);
+            STATIC_VALUES[i + 1] = new Utf8String(STATIC_TABLE[i][1]);
+        }
+
+        for (int symbol = 0; symbol <= EOS; symbol++) {
+            HUFFMAN_CODE_COUNT[HUFFMAN_CODE_LENGTHS[symbol]]++;
+        }
+        int code = 0;
+        int index = 0;
+        for (int len = 1; len <= HUFFMAN_MAX_CODE_LENGTH; len++) {
+            code = (code + HUFFMAN_CODE_COUNT[len - 1]) << 1;
+            HUFFMAN_FIRST_CODE[len] = code;
+            HUFFMAN_FIRST_INDEX[len] = index;
+            index += HUFFMAN_CODE_COUNT[len];
+        }
+        final int[] next = new int[HUFFMAN_MAX_CODE_LENGTH + 1];
+        for (int symbol = 0; symbol <= EOS; symbol++) {
+            final int len = HUFFMAN_CODE_LENGTHS[symbol];
+            HUFFMAN_SYMBOLS[HUFFMAN_FIRST_INDEX[len] + next[len]++] = symbol;
+        }
+    }
+
+    /**
+     * The dynamic header table of one direction of an HTTP/2 connection. Entries are addressed from 1,
+     * which is the most recently added one.
+     */
+    static final class DynamicTable {
+        // oldest entry first
+        private final ObjList<Utf8String> names = new ObjList<>();
+        private final ObjList<Utf8String> values = new ObjList<>();
+        private int maxSize;
+        private int size;
+
+        DynamicTable(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        void add(Utf8Sequence name, Utf8Sequence value) {
+            final int entrySize = name.size() + value.size() + ENTRY_OVERHEAD;
+            // an entry larger than the whole table empties it and is not added
+            evict(maxSize - Math.min(entrySize, maxSize));
+            if (entrySize <= maxSize) {
+                names.add(Utf8String.newInstance(name));
+                values.add(Utf8String.newInstance(value));
+                size += entrySize;
+            }
+        }
+
+        void clear() {
+            names.clear();
+            values.clear();
+            size = 0;
+        }
+
+        int getEntryCount() {
+            return names.size();
+        }
+
+        int getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * @return index of the entry with the given name and value, or 0 when there is none
+         */
+        int indexOf(Utf8Sequence name, Utf8Sequence value) {
+            for (int i = names.size() - 1; i > -1; i--) {
+                if (Utf8s.equals(values.getQuick(i), value) && Utf8s.equals(names.getQuick(i), name)) {
+                    return names.size() - i;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return index of the most recent entry with the given name, or 0 when there is none
+         */
+        int indexOfName(Utf8Sequence name) {
+            for (int i = names.size() - 1; i > -1; i--) {
+                if (Utf8s.equals(names.getQuick(i), name)) {
+                    return names.size() - i;
+                }
+            }
+            return 0;
+        }
+
+        Utf8String name(int index) {
+            return names.getQuick(names.size() - index);
+        }
+
+        void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            evict(maxSize);
+        }
+
+        Utf8String value(int index) {
+            return values.getQuick(values.size() - index);
+        }
+
+        private void evict(int targetSize) {
+            int evicted = 0;
+            while (size > targetSize) {
+                size -= names.getQuick(evicted).size() + values.getQuick(evicted).size() + ENTRY_OVERHEAD;
+                evicted++;
+            }
+            if (evicted > 0) {
+                names.remove(0, evicted - 1);
+                values.remove(0, evicted - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.std.Misc;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.str.DirectUtf8Sequence;
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.Utf8Sequence;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541) received on an HTTP/2 connection. The decoder holds the dynamic
+ * table the peer encodes against, so there is one decoder per connection and header blocks must be decoded
+ * in the order they arrive, including blocks of streams the receiver is no longer interested in.
+ */
+public class HpackDecoder implements QuietCloseable {
+    private final DirectUtf8Sink name = new DirectUtf8Sink(64);
+    private final Hpack.DynamicTable table;
+    private final int tableSizeLimit;
+    private final DirectUtf8Sink value = new DirectUtf8Sink(256);
+    private long hi;
+    private long p;
+
+    /**
+     * @param tableSizeLimit the largest dynamic table the peer may use, as advertised to it with
+     *                       SETTINGS_HEADER_TABLE_SIZE
+     */
+    public HpackDecoder(int tableSizeLimit) {
+        this.tableSizeLimit = tableSizeLimit;
+        this.table = new Hpack.DynamicTable(tableSizeLimit);
+    }
+
+    @Override
+    public void close() {
+        Misc.free(name);
+        Misc.free(value);
+    }
+
+    /**
+     * Decodes a complete header block, reporting header fields in the order they were encoded.
+     *
+     * @param lo       address of the first byte of the block
+     * @param hi       address of the byte following the last byte of the block
+     * @param listener receives header fields; name and value are only valid for the duration of the call
+     * @throws HttpClientException if the block is malformed, which is fatal for the connection
+     */
+    public void decode(long lo, long hi, HeaderListener listener) {
+        this.p = lo;
+        this.hi = hi;
+        boolean fieldSeen = false;
+        while (p < hi) {
+            final int b = Unsafe.getUnsafe().getByte(p) & 0xff;
+            if ((b & 0x80) != 0) {
+                // indexed header field
+                lookup(readInt(7), true);
+            } else if ((b & 0x40) != 0) {
+                // literal header field with incremental indexing
+                readLiteral(6);
+                table.add(name, value);
+            } else if ((b & 0x20) != 0) {
+                // dynamic table size update, allowed only at the start of a block
+                final int size = readInt(5);
+                if (fieldSeen || size > tableSizeLimit) {
+                    throw new HttpClientException("invalid HPACK dynamic table size update [size=").put(size)
+                            .put(", limit=").put(tableSizeLimit).put(']');
+                }
+                table.setMaxSize(size);
+                continue;
+            } else {
+                // literal header field without indexing, or never indexed
+                readLiteral(4);
+            }
+            fieldSeen = true;
+            listener.onHeader(name, value);
+        }
+    }
+
+    /**
+     * Forgets the dynamic table, e.g. when the connection is re-established.
+     */
+    public void reset() {
+        table.clear();
+        table.setMaxSize(tableSizeLimit);
+    }
+
+    private void lookup(int index, boolean withValue) {
+        name.clear();
+        value.clear();
+        final Utf8Sequence n;
+        final Utf8Sequence v;
+        if (index > 0 && index <= Hpack.STATIC_TABLE_SIZE) {
+            n = Hpack.staticName(index);
+            v = Hpack.staticValue(index);
+        } else if (index > Hpack.STATIC_TABLE_SIZE && index - Hpack.STATIC_TABLE_SIZE <= table.getEntryCount()) {
+            n = table.name(index - Hpack.STATIC_TABLE_SIZE);
+            v = table.value(index - Hpack.STATIC_TABLE_SIZE);
+        } else {
+            throw new HttpClientException("invalid HPACK table index [index=").put(index)
+                    .put(", dynamicEntries=").put(table.getEntryCount()).put(']');
+        }
+        name.put(n);
+        if (withValue) {
+            value.put(v);
+        }
+    }
+
+    private int readInt(int prefixBits) {
+        final int mask = (1 << prefixBits) - 1;
+        int result = Unsafe.getUnsafe().getByte(p++) & mask;
+        if (result < mask) {
+            return result;
+        }
+        for (int shift = 0; shift < 28; shift += 7) {
+            if (p == hi) {
+                throw truncated();
+            }
+            final int b = Unsafe.getUnsafe().getByte(p++) & 0xff;
+            result += (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (result < 0) {
+                    break;
+                }
+                return result;
+            }
+        }
+        throw new HttpClientException("HPACK integer is too large");
+    }
+
+    private void readLiteral(int prefixBits) {
+        final int index = readInt(prefixBits);
+        if (index == 0) {
+            readString(name);
+        } else {
+            lookup(index, false);
+        }
+        readString(value);
+    }
+
+    private void readString(DirectUtf8Sink sink) {
+        sink.clear();
+        if (p == hi) {
+            throw truncated();
+        }
+        final boolean huffman = (Unsafe.getUnsafe().getByte(p) & 0x80) != 0;
+        final int len = readInt(7);
+        if (len > hi - p) {
+            throw truncated();
+        }
+        final long lim = p + len;
+        if (huffman) {
+            Hpack.huffmanDecode(p, lim, sink);
+        } else {
+            for (long q = p; q < lim; q++) {
+                sink.putAny(Unsafe.getUnsafe().getByte(q));
+            }
+        }
+        p = lim;
+    }
+
+    private static HttpClientException truncated() {
+        return new HttpClientException("truncated HPACK header block");
+    }
+
+    @FunctionalInterface
+    public interface HeaderListener {
+        void onHeader(DirectUtf8Sequence name, DirectUtf8Sequence value);
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8s;
+
+/**
+ * Encodes header blocks of HTTP/2 requests with HPACK (RFC 7541). Header fields sent with indexing are
+ * added to the dynamic table, which the peer mirrors, so that repeating them in later requests on the same
+ * connection costs a single byte each.
+ * <p>
+ * Strings are always sent as literals, not Huffman-encoded: repeated headers are indexed anyway and the
+ * remaining ones are short.
+ */
+public class HpackEncoder {
+    private final Hpack.DynamicTable table;
+    private final int tableSizeLimit;
+    private int minTableSizeUpdate = -1;
+    private DirectUtf8Sink sink;
+
+    /**
+     * @param tableSizeLimit the largest dynamic table the encoder uses, regardless of what the peer allows
+     */
+    public HpackEncoder(int tableSizeLimit) {
+        this.tableSizeLimit = tableSizeLimit;
+        // peers start with the default table size until they say otherwise in SETTINGS
+        this.table = new Hpack.DynamicTable(Math.min(tableSizeLimit, Hpack.DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * Starts a header block, emitting the dynamic table size updates the peer has not been told about yet.
+     *
+     * @param sink receives the encoded block
+     */
+    public void beginBlock(DirectUtf8Sink sink) {
+        this.sink = sink;
+        if (minTableSizeUpdate > -1) {
+            // the smallest size the table has had since the last block must be signalled, so that the
+            // peer evicts the same entries
+            if (minTableSizeUpdate < table.getMaxSize()) {
+                putInt(0x20, 5, minTableSizeUpdate);
+            }
+            putInt(0x20, 5, table.getMaxSize());
+            minTableSizeUpdate = -1;
+        }
+    }
+
+    /**
+     * Encodes a header field, referencing the static and dynamic tables where possible.
+     *
+     * @param name     lowercase header name
+     * @param value    header value
+     * @param indexing true to add the field to the dynamic table, for fields that repeat across requests
+     */
+    public void header(Utf8Sequence name, Utf8Sequence value, boolean indexing) {
+        int index = table.indexOf(name, value);
+        if (index > 0) {
+            putInt(0x80, 7, Hpack.STATIC_TABLE_SIZE + index);
+            return;
+        }
+        index = staticIndexOf(name, value);
+        if (index > 0) {
+            putInt(0x80, 7, index);
+            return;
+        }
+        index = staticIndexOfName(name);
+        if (index == 0) {
+            index = table.indexOfName(name);
+            if (index > 0) {
+                index += Hpack.STATIC_TABLE_SIZE;
+            }
+        }
+        if (indexing) {
+            putInt(0x40, 6, index);
+        } else {
+            putInt(0, 4, index);
+        }
+        if (index == 0) {
+            putString(name);
+        }
+        putString(value);
+        if (indexing) {
+            table.add(name, value);
+        }
+    }
+
+    /**
+     * Forgets the dynamic table, e.g. when the connection is re-established.
+     */
+    public void reset() {
+        table.clear();
+        table.setMaxSize(Math.min(tableSizeLimit, Hpack.DEFAULT_TABLE_SIZE));
+        minTableSizeUpdate = -1;
+    }
+
+    /**
+     * Applies the peer's SETTINGS_HEADER_TABLE_SIZE.
+     *
+     * @param peerTableSize the largest dynamic table the peer is prepared to hold
+     */
+    public void setPeerTableSize(int peerTableSize) {
+        final int size = Math.min(peerTableSize, tableSizeLimit);
+        if (size != table.getMaxSize()) {
+            table.setMaxSize(size);
+            minTableSizeUpdate = minTableSizeUpdate == -1 ? size : Math.min(minTableSizeUpdate, size);
+        }
+    }
+
+    private static int staticIndexOf(Utf8Sequence name, Utf8Sequence value) {
+        for (int i = 1; i <= Hpack.STATIC_TABLE_SIZE; i++) {
+            if (Utf8s.equals(Hpack.staticValue(i), value) && Utf8s.equals(Hpack.staticName(i), name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int staticIndexOfName(Utf8Sequence name) {
+        for (int i = 1; i <= Hpack.STATIC_TABLE_SIZE; i++) {
+            if (Utf8s.equals(Hpack.staticName(i), name)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private void putInt(int flags, int prefixBits, int value) {
+        final int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            sink.putAny((byte) (flags | value));
+            return;
+        }
+        sink.putAny((byte) (flags | mask));
+        value -= mask;
+        while (value > 0x7f) {
+            sink.putAny((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        sink.putAny((byte) value);
+    }
+
+    private void putString(Utf8Sequence value) {
+        putInt(0, 7, value.size());
+        sink.put(value);
+    }
+}
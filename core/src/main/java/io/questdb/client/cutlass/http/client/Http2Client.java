@@ -0,0 +1,878 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.std.Chars;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Misc;
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.Vect;
+import io.questdb.client.std.str.DirectUtf8Sequence;
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.DirectUtf8String;
+import io.questdb.client.std.str.Utf8Sequence;
+import io.questdb.client.std.str.Utf8String;
+import io.questdb.client.std.str.Utf8StringSink;
+import io.questdb.client.std.str.Utf8s;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * HTTP/2 client (RFC 9113) that multiplexes concurrent requests, one stream each, over the connection of
+ * an {@link HttpClient}. TLS connections negotiate "h2" via ALPN, plaintext connections assume the server
+ * speaks HTTP/2 without negotiation ("prior knowledge").
+ * <p>
+ * Requests are started with {@link #submit(CharSequence, int, CharSequence, long, long, int)} and their
+ * responses collected with {@link #await(int, int)}, in any order, so that a slow response does not hold
+ * up the others. Request bodies are sent as the peer's flow-control windows allow, what does not fit is
+ * sent whenever the client processes incoming frames later on. Body memory must therefore stay intact until
+ * the response is awaited. Response bodies are buffered in full, they are expected to be short.
+ * <p>
+ * Header fields shared by all requests, such as authorization, are set once with
+ * {@link #header(CharSequence, CharSequence)}. They are indexed in the HPACK dynamic table, so that from
+ * the second request on each of them costs a single byte.
+ * <p>
+ * Failures of the connection are reported as {@link HttpClientException}. The connection must then be
+ * discarded with {@link #disconnect()}, responses to all outstanding streams are lost. Refused streams, and
+ * streams the server did not process before sending GOAWAY, are not connection failures: the connection
+ * stays usable for the remaining streams, and is re-established by the first submit after they are awaited.
+ */
+public class Http2Client implements QuietCloseable {
+    public static final String ALPN_PROTOCOL = "h2";
+    private static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+    private static final int DEFAULT_WINDOW_SIZE = 65_535;
+    private static final int ERROR_FLOW_CONTROL = 0x3;
+    private static final int ERROR_FRAME_SIZE = 0x6;
+    private static final int ERROR_NO_ERROR = 0x0;
+    private static final int ERROR_PROTOCOL = 0x1;
+    private static final int ERROR_REFUSED_STREAM = 0x7;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+    private static final int FRAME_CONTINUATION = 0x9;
+    private static final int FRAME_DATA = 0x0;
+    private static final int FRAME_GOAWAY = 0x7;
+    private static final int FRAME_HEADERS = 0x1;
+    private static final int FRAME_HEADER_SIZE = 9;
+    private static final int FRAME_PING = 0x6;
+    private static final int FRAME_PUSH_PROMISE = 0x5;
+    private static final int FRAME_RST_STREAM = 0x3;
+    private static final int FRAME_SETTINGS = 0x4;
+    private static final int FRAME_WINDOW_UPDATE = 0x8;
+    private static final int HPACK_TABLE_SIZE = 4096;
+    private static final Utf8String NAME_AUTHORITY = new Utf8String(":authority");
+    private static final Utf8String NAME_CONTENT_LENGTH = new Utf8String("content-length");
+    private static final Utf8String NAME_CONTENT_TYPE = new Utf8String("content-type");
+    private static final Utf8String NAME_METHOD = new Utf8String(":method");
+    private static final Utf8String NAME_PATH = new Utf8String(":path");
+    private static final Utf8String NAME_SCHEME = new Utf8String(":scheme");
+    private static final Utf8String NAME_STATUS = new Utf8String(":status");
+    private static final String PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+    // the receive buffer holds at least two frames of the size the client accepts, so that a partially
+    // received frame can always be moved to the start of the buffer and completed
+    private static final int RECV_BUFFER_SIZE = 4 * (FRAME_HEADER_SIZE + DEFAULT_MAX_FRAME_SIZE);
+    // the window the client grants the peer; responses are small, it is never exhausted in practice
+    private static final int RECV_WINDOW_SIZE = 1 << 20;
+    // response body bytes beyond this limit are discarded
+    private static final int RESPONSE_BODY_LIMIT = 64 * 1024;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final Utf8String VALUE_HTTP = new Utf8String("http");
+    private static final Utf8String VALUE_HTTPS = new Utf8String("https");
+    private static final Utf8String VALUE_POST = new Utf8String("POST");
+    // frames are coalesced in the write buffer, it is flushed once it grows past this size
+    private static final int WRITE_FLUSH_THRESHOLD = 64 * 1024;
+    private final Utf8StringSink authority = new Utf8StringSink();
+    private final HttpClient connection;
+    private final Utf8StringSink contentLength = new Utf8StringSink();
+    private final HpackDecoder decoder = new HpackDecoder(HPACK_TABLE_SIZE);
+    private final HpackEncoder encoder = new HpackEncoder(HPACK_TABLE_SIZE);
+    private final DirectUtf8Sink headerBlock = new DirectUtf8Sink(256);
+    private final HpackDecoder.HeaderListener headerListener = this::onHeader;
+    private final ObjList<Utf8String> headerNames = new ObjList<>();
+    private final ObjList<Utf8String> headerValues = new ObjList<>();
+    private final DirectUtf8Sink inboundHeaderBlock = new DirectUtf8Sink(256);
+    private final DirectUtf8Sink out = new DirectUtf8Sink(WRITE_FLUSH_THRESHOLD);
+    private final Utf8StringSink path = new Utf8StringSink();
+    private final ObjList<Stream> spareStreams = new ObjList<>();
+    private final ObjList<Stream> streams = new ObjList<>();
+    private final boolean tls;
+    private Stream awaitedStream;
+    private long connectCount = -1;
+    private long connectionSendWindow;
+    private int continuationStreamId;
+    private Stream decodingStream;
+    private boolean goAway;
+    private int goAwayErrorCode;
+    private boolean headerBlockEndsStream;
+    private int headerBlockStreamId;
+    private CharSequence host;
+    private int nextStreamId;
+    private int openStreamCount;
+    private int peerInitialWindowSize;
+    private int peerMaxConcurrentStreams;
+    private int peerMaxFrameSize;
+    private int port;
+    private long recvBuf;
+    private long recvHi;
+    private long recvLo;
+
+    /**
+     * @param connection client whose connection the streams are multiplexed over; it stays owned by the caller
+     * @param tls        true if the connection is encrypted, which is when ALPN is used
+     */
+    public Http2Client(HttpClient connection, boolean tls) {
+        this.connection = connection;
+        this.tls = tls;
+        connection.setApplicationProtocols(ALPN_PROTOCOL);
+        this.recvBuf = Unsafe.malloc(RECV_BUFFER_SIZE, MemoryTag.NATIVE_DEFAULT);
+        resetSession();
+    }
+
+    /**
+     * Waits for the response of the given stream.
+     *
+     * @param streamId id returned by {@link #submit(CharSequence, int, CharSequence, long, long, int)}
+     * @param timeout  timeout in milliseconds
+     * @return response headers and body, valid until the next call to this method
+     * @throws HttpClientException if the stream was reset or refused by the server, or the connection failed;
+     *                             a refused stream, including one the server left unprocessed when it sent
+     *                             GOAWAY, is reported as {@link HttpClientException#isUnprocessed() unprocessed}
+     */
+    public HttpResponseHeaders await(int streamId, int timeout) {
+        releaseAwaitedStream();
+        final Stream stream = findStream(streamId);
+        if (stream == null) {
+            throw new HttpClientException("unknown HTTP/2 stream [id=").put(streamId).put(']');
+        }
+        final long startTimeNanos = System.nanoTime();
+        while (!stream.complete) {
+            receiveFrames(remainingTime(timeout, startTimeNanos));
+        }
+        streams.remove(stream);
+        awaitedStream = stream;
+        if (stream.errorCode == ERROR_REFUSED_STREAM) {
+            throw new HttpClientException("HTTP/2 stream was refused by the server [id=").put(streamId)
+                    .put(']').unprocessed();
+        }
+        if (stream.errorCode != -1) {
+            throw new HttpClientException("HTTP/2 stream was reset by the server [id=").put(streamId)
+                    .put(", error=").put(stream.errorCode).put(']');
+        }
+        return stream;
+    }
+
+    @Override
+    public void close() {
+        resetSession();
+        for (int i = 0, n = spareStreams.size(); i < n; i++) {
+            spareStreams.getQuick(i).close();
+        }
+        spareStreams.clear();
+        Misc.free(decoder);
+        Misc.free(headerBlock);
+        Misc.free(inboundHeaderBlock);
+        Misc.free(out);
+        if (recvBuf != 0) {
+            Unsafe.free(recvBuf, RECV_BUFFER_SIZE, MemoryTag.NATIVE_DEFAULT);
+            recvBuf = 0;
+        }
+    }
+
+    /**
+     * Closes the connection, forgetting all outstanding streams.
+     */
+    public void disconnect() {
+        connection.disconnect();
+        resetSession();
+    }
+
+    /**
+     * Adds a header field sent with every request.
+     *
+     * @param name  lowercase header name, as HTTP/2 requires
+     * @param value header value
+     */
+    public void header(CharSequence name, CharSequence value) {
+        headerNames.add(new Utf8String(name));
+        headerValues.add(new Utf8String(value));
+    }
+
+    /**
+     * @return true if the response of the given stream has been received in full, and it can be
+     * awaited without further I/O
+     */
+    public boolean isCompleted(int streamId) {
+        final Stream stream = findStream(streamId);
+        return stream != null && stream.complete;
+    }
+
+    /**
+     * Starts a POST request on a new stream, opening the connection first if needed. The headers and as much
+     * of the body as flow control allows are sent right away. Blocks while the server's limit of
+     * concurrent streams is reached.
+     *
+     * @param host    the hostname or IP address to connect to
+     * @param port    the port number to connect on
+     * @param path    request path, including the query string
+     * @param lo      address of the first byte of the request body
+     * @param hi      address of the byte following the last byte of the request body
+     * @param timeout timeout in milliseconds
+     * @return stream id to await the response with
+     * @throws HttpClientException if the connection failed, or, reported as
+     *                             {@link HttpClientException#isUnprocessed() unprocessed}, if the server is
+     *                             closing the connection while responses to earlier streams are still due
+     */
+    public int submit(CharSequence host, int port, CharSequence path, long lo, long hi, int timeout) {
+        final long startTimeNanos = System.nanoTime();
+        ensureSession(host, port);
+        while (openStreamCount >= peerMaxConcurrentStreams) {
+            receiveFrames(remainingTime(timeout, startTimeNanos));
+        }
+        if (goAway) {
+            throw new HttpClientException("HTTP/2 server is closing the connection [error=").put(goAwayErrorCode).put(']')
+                    .unprocessed();
+        }
+        if (nextStreamId < 0) {
+            throw new HttpClientException("HTTP/2 stream ids are exhausted, the connection must be re-established");
+        }
+        final Stream stream;
+        final int spareCount = spareStreams.size();
+        if (spareCount > 0) {
+            stream = spareStreams.getQuick(spareCount - 1);
+            spareStreams.setPos(spareCount - 1);
+        } else {
+            stream = new Stream();
+        }
+        stream.of(nextStreamId, lo, hi, peerInitialWindowSize);
+        nextStreamId += 2;
+        streams.add(stream);
+        openStreamCount++;
+
+        putHeaders(stream, path, hi - lo);
+        final int remainingTimeout = remainingTime(timeout, startTimeNanos);
+        putData(stream, remainingTimeout);
+        flush(remainingTimeout);
+        return stream.id;
+    }
+
+    private static int getInt(long p) {
+        return ((Unsafe.getUnsafe().getByte(p) & 0xff) << 24)
+                | ((Unsafe.getUnsafe().getByte(p + 1) & 0xff) << 16)
+                | ((Unsafe.getUnsafe().getByte(p + 2) & 0xff) << 8)
+                | (Unsafe.getUnsafe().getByte(p + 3) & 0xff);
+    }
+
+    private static HttpClientException protocolError(String message, int errorCode) {
+        return new HttpClientException("HTTP/2 protocol error [error=").put(errorCode).put("]: ").put(message);
+    }
+
+    private static int remainingTime(int timeoutMillis, long startTimeNanos) {
+        timeoutMillis -= (int) NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+        if (timeoutMillis <= 0) {
+            throw new HttpClientException("timed out waiting for HTTP/2 response");
+        }
+        return timeoutMillis;
+    }
+
+    /**
+     * Marks the stream complete. A request body the server no longer wants, because it has responded
+     * already, is abandoned.
+     */
+    private void complete(Stream stream, int errorCode) {
+        if (!stream.complete) {
+            stream.complete = true;
+            stream.errorCode = errorCode;
+            openStreamCount--;
+            if (stream.dataLo < stream.dataHi && errorCode == -1) {
+                putFrameHeader(4, FRAME_RST_STREAM, 0, stream.id);
+                putInt(ERROR_NO_ERROR);
+            }
+            stream.dataLo = stream.dataHi;
+        }
+    }
+
+    private void ensureSession(CharSequence host, int port) {
+        if (goAway && streams.size() == 0) {
+            // the server has drained the connection, start over
+            disconnect();
+        }
+        if (connectCount == connection.getConnectCount() && connection.isConnected()
+                && Chars.equalsNc(host, this.host) && port == this.port) {
+            return;
+        }
+        if (streams.size() > 0) {
+            throw new HttpClientException("HTTP/2 connection lost with streams outstanding [host=")
+                    .put(host).put(", port=").put(port).put(", streams=").put(streams.size()).put(']');
+        }
+        resetSession();
+        // a connection this session has not opened may have carried HTTP/1.1 exchanges, e.g. the protocol
+        // version probe, and, over TLS, it has not negotiated HTTP/2 via ALPN; it is never reused
+        connection.disconnect();
+        connection.connect(host, port);
+        if (tls && !ALPN_PROTOCOL.equals(connection.getApplicationProtocol())) {
+            connection.disconnect();
+            throw new HttpClientException("server did not negotiate HTTP/2 via ALPN [host=").put(host)
+                    .put(", port=").put(port).put(", protocol=").put(connection.getApplicationProtocol()).put(']');
+        }
+        this.host = host;
+        this.port = port;
+        this.connectCount = connection.getConnectCount();
+
+        out.putAscii(PREFACE);
+        putFrameHeader(12, FRAME_SETTINGS, 0, 0);
+        putSetting(SETTINGS_ENABLE_PUSH, 0);
+        putSetting(SETTINGS_INITIAL_WINDOW_SIZE, RECV_WINDOW_SIZE);
+        putWindowUpdate(0, RECV_WINDOW_SIZE - DEFAULT_WINDOW_SIZE);
+        // sent along with the first request
+    }
+
+    private Stream findStream(int streamId) {
+        for (int i = 0, n = streams.size(); i < n; i++) {
+            final Stream stream = streams.getQuick(i);
+            if (stream.id == streamId) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    private void flush(int timeout) {
+        if (out.size() > 0) {
+            connection.send(out.ptr(), out.ptr() + out.size(), timeout);
+            out.clear();
+        }
+    }
+
+    private void onContinuation(int flags, int streamId, long lo, long hi) {
+        if (streamId != continuationStreamId) {
+            throw protocolError("unexpected CONTINUATION frame", ERROR_PROTOCOL);
+        }
+        inboundHeaderBlock.putNonAscii(lo, hi);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            continuationStreamId = 0;
+            onHeaderBlock();
+        }
+    }
+
+    private void onData(int flags, int streamId, long lo, long hi) {
+        if (streamId == 0) {
+            throw protocolError("DATA frame on the connection stream", ERROR_PROTOCOL);
+        }
+        final int length = (int) (hi - lo);
+        if ((flags & FLAG_PADDED) != 0) {
+            if (lo == hi) {
+                throw protocolError("DATA frame is too short for its padding", ERROR_FRAME_SIZE);
+            }
+            final int padLength = Unsafe.getUnsafe().getByte(lo++) & 0xff;
+            if (padLength > hi - lo) {
+                throw protocolError("DATA frame padding exceeds the frame", ERROR_PROTOCOL);
+            }
+            hi -= padLength;
+        }
+        // the whole frame, including padding, counts against flow control
+        if (length > 0) {
+            putWindowUpdate(0, length);
+        }
+        final Stream stream = findStream(streamId);
+        if (stream != null && !stream.complete) {
+            final int room = RESPONSE_BODY_LIMIT - stream.body.size();
+            if (room > 0) {
+                stream.body.putNonAscii(lo, Math.min(hi, lo + room));
+            }
+            if ((flags & FLAG_END_STREAM) != 0) {
+                complete(stream, -1);
+            } else if (length > 0) {
+                putWindowUpdate(streamId, length);
+            }
+        }
+    }
+
+    private void onFrame(int type, int flags, int streamId, long lo, long hi) {
+        if (continuationStreamId != 0 && type != FRAME_CONTINUATION) {
+            throw protocolError("header block is interrupted by another frame", ERROR_PROTOCOL);
+        }
+        switch (type) {
+            case FRAME_DATA:
+                onData(flags, streamId, lo, hi);
+                break;
+            case FRAME_HEADERS:
+                onHeaders(flags, streamId, lo, hi);
+                break;
+            case FRAME_CONTINUATION:
+                onContinuation(flags, streamId, lo, hi);
+                break;
+            case FRAME_RST_STREAM:
+                onRstStream(streamId, lo, hi);
+                break;
+            case FRAME_SETTINGS:
+                onSettings(flags, streamId, lo, hi);
+                break;
+            case FRAME_PING:
+                onPing(flags, lo, hi);
+                break;
+            case FRAME_GOAWAY:
+                onGoAway(lo, hi);
+                break;
+            case FRAME_WINDOW_UPDATE:
+                onWindowUpdate(streamId, lo, hi);
+                break;
+            case FRAME_PUSH_PROMISE:
+                throw protocolError("server push is disabled", ERROR_PROTOCOL);
+            default:
+                // PRIORITY and unknown frame types are ignored
+                break;
+        }
+    }
+
+    private void onGoAway(long lo, long hi) {
+        if (hi - lo < 8) {
+            throw protocolError("GOAWAY frame is too short", ERROR_FRAME_SIZE);
+        }
+        final int lastStreamId = getInt(lo) & Integer.MAX_VALUE;
+        goAway = true;
+        goAwayErrorCode = getInt(lo + 4);
+        // streams above the last one the server has processed may be retried on a new connection
+        for (int i = 0, n = streams.size(); i < n; i++) {
+            final Stream stream = streams.getQuick(i);
+            if (stream.id > lastStreamId) {
+                complete(stream, ERROR_REFUSED_STREAM);
+            }
+        }
+    }
+
+    private void onHeader(DirectUtf8Sequence name, DirectUtf8Sequence value) {
+        final Stream stream = decodingStream;
+        if (stream == null || stream.headersReceived) {
+            // trailers, or a stream nobody waits for anymore
+            return;
+        }
+        if (Utf8s.equals(NAME_STATUS, name)) {
+            stream.status.clear();
+            stream.status.put(value);
+        } else if (name.size() > 0 && name.byteAt(0) != ':') {
+            stream.addHeader(name, value);
+        }
+    }
+
+    private void onHeaderBlock() {
+        final Stream stream = findStream(headerBlockStreamId);
+        decodingStream = stream != null && !stream.complete ? stream : null;
+        if (decodingStream != null && !decodingStream.headersReceived) {
+            decodingStream.clearHeaders();
+        }
+        // the block is decoded even if nobody waits for it, to keep the dynamic table in sync
+        decoder.decode(inboundHeaderBlock.ptr(), inboundHeaderBlock.ptr() + inboundHeaderBlock.size(), headerListener);
+        if (decodingStream != null) {
+            final DirectUtf8Sink status = decodingStream.status;
+            // informational responses are followed by the final one
+            decodingStream.headersReceived = status.size() > 0 && status.byteAt(0) != '1';
+            if (headerBlockEndsStream) {
+                complete(decodingStream, -1);
+            }
+            decodingStream = null;
+        }
+    }
+
+    private void onHeaders(int flags, int streamId, long lo, long hi) {
+        if (streamId == 0) {
+            throw protocolError("HEADERS frame on the connection stream", ERROR_PROTOCOL);
+        }
+        if ((flags & FLAG_PADDED) != 0) {
+            if (lo == hi) {
+                throw protocolError("HEADERS frame is too short for its padding", ERROR_FRAME_SIZE);
+            }
+            final int padLength = Unsafe.getUnsafe().getByte(lo++) & 0xff;
+            hi -= padLength;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            lo += 5;
+        }
+        if (lo > hi) {
+            throw protocolError("HEADERS frame is too short", ERROR_PROTOCOL);
+        }
+        inboundHeaderBlock.clear();
+        inboundHeaderBlock.putNonAscii(lo, hi);
+        headerBlockStreamId = streamId;
+        headerBlockEndsStream = (flags & FLAG_END_STREAM) != 0;
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        } else {
+            continuationStreamId = streamId;
+        }
+    }
+
+    private void onPing(int flags, long lo, long hi) {
+        if (hi - lo != 8) {
+            throw protocolError("PING frame must be 8 bytes long", ERROR_FRAME_SIZE);
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            putFrameHeader(8, FRAME_PING, FLAG_ACK, 0);
+            out.putNonAscii(lo, hi);
+        }
+    }
+
+    private void onRstStream(int streamId, long lo, long hi) {
+        if (hi - lo != 4) {
+            throw protocolError("RST_STREAM frame must be 4 bytes long", ERROR_FRAME_SIZE);
+        }
+        final Stream stream = findStream(streamId);
+        if (stream != null) {
+            // the stream is done with, there is nothing to send back
+            stream.dataLo = stream.dataHi;
+            complete(stream, getInt(lo));
+        }
+    }
+
+    private void onSettings(int flags, int streamId, long lo, long hi) {
+        if (streamId != 0) {
+            throw protocolError("SETTINGS frame on a request stream", ERROR_PROTOCOL);
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            return;
+        }
+        if ((hi - lo) % 6 != 0) {
+            throw protocolError("SETTINGS frame length must be a multiple of 6", ERROR_FRAME_SIZE);
+        }
+        for (long p = lo; p < hi; p += 6) {
+            final int id = ((Unsafe.getUnsafe().getByte(p) & 0xff) << 8) | (Unsafe.getUnsafe().getByte(p + 1) & 0xff);
+            final long value = getInt(p + 2) & 0xffffffffL;
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    encoder.setPeerTableSize((int) Math.min(value, Integer.MAX_VALUE));
+                    break;
+                case SETTINGS_MAX_CONCURRENT_STREAMS:
+                    peerMaxConcurrentStreams = (int) Math.min(value, Integer.MAX_VALUE);
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value > Integer.MAX_VALUE) {
+                        throw protocolError("initial window size is too large", ERROR_FLOW_CONTROL);
+                    }
+                    // the change applies to the windows of open streams too
+                    final int delta = (int) value - peerInitialWindowSize;
+                    for (int i = 0, n = streams.size(); i < n; i++) {
+                        streams.getQuick(i).sendWindow += delta;
+                    }
+                    peerInitialWindowSize = (int) value;
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xffffff) {
+                        throw protocolError("invalid maximum frame size", ERROR_PROTOCOL);
+                    }
+                    peerMaxFrameSize = (int) value;
+                    break;
+                default:
+                    // settings that do not affect a client, and unknown ones, are ignored
+                    break;
+            }
+        }
+        putFrameHeader(0, FRAME_SETTINGS, FLAG_ACK, 0);
+    }
+
+    private void onWindowUpdate(int streamId, long lo, long hi) {
+        if (hi - lo != 4) {
+            throw protocolError("WINDOW_UPDATE frame must be 4 bytes long", ERROR_FRAME_SIZE);
+        }
+        final int increment = getInt(lo) & Integer.MAX_VALUE;
+        if (increment == 0) {
+            throw protocolError("WINDOW_UPDATE increment must not be zero", ERROR_PROTOCOL);
+        }
+        if (streamId == 0) {
+            connectionSendWindow += increment;
+            if (connectionSendWindow > Integer.MAX_VALUE) {
+                throw protocolError("connection window overflow", ERROR_FLOW_CONTROL);
+            }
+        } else {
+            final Stream stream = findStream(streamId);
+            if (stream != null) {
+                stream.sendWindow += increment;
+            }
+        }
+    }
+
+    /**
+     * Sends as much of the request body as the connection and stream flow-control windows allow.
+     */
+    private void putData(Stream stream, int timeout) {
+        while (stream.dataLo < stream.dataHi) {
+            final long window = Math.min(connectionSendWindow, stream.sendWindow);
+            if (window <= 0) {
+                return;
+            }
+            final int len = (int) Math.min(Math.min(window, peerMaxFrameSize), stream.dataHi - stream.dataLo);
+            final boolean last = stream.dataLo + len == stream.dataHi;
+            putFrameHeader(len, FRAME_DATA, last ? FLAG_END_STREAM : 0, stream.id);
+            out.putNonAscii(stream.dataLo, stream.dataLo + len);
+            stream.dataLo += len;
+            stream.sendWindow -= len;
+            connectionSendWindow -= len;
+            if (out.size() >= WRITE_FLUSH_THRESHOLD) {
+                flush(timeout);
+            }
+        }
+    }
+
+    private void putFrameHeader(int length, int type, int flags, int streamId) {
+        out.putAny((byte) (length >>> 16));
+        out.putAny((byte) (length >>> 8));
+        out.putAny((byte) length);
+        out.putAny((byte) type);
+        out.putAny((byte) flags);
+        putInt(streamId);
+    }
+
+    private void putHeaders(Stream stream, CharSequence path, long contentLength) {
+        headerBlock.clear();
+        encoder.beginBlock(headerBlock);
+        encoder.header(NAME_METHOD, VALUE_POST, false);
+        encoder.header(NAME_SCHEME, tls ? VALUE_HTTPS : VALUE_HTTP, false);
+        authority.clear();
+        authority.put(host).put(':').put(port);
+        encoder.header(NAME_AUTHORITY, authority, true);
+        this.path.clear();
+        this.path.put(path);
+        encoder.header(NAME_PATH, this.path, true);
+        for (int i = 0, n = headerNames.size(); i < n; i++) {
+            encoder.header(headerNames.getQuick(i), headerValues.getQuick(i), true);
+        }
+        this.contentLength.clear();
+        this.contentLength.put(contentLength);
+        encoder.header(NAME_CONTENT_LENGTH, this.contentLength, false);
+
+        // a block larger than the peer's frame size is continued in CONTINUATION frames
+        long lo = headerBlock.ptr();
+        final long hi = lo + headerBlock.size();
+        int type = FRAME_HEADERS;
+        int flags = contentLength == 0 ? FLAG_END_STREAM : 0;
+        do {
+            final int len = (int) Math.min(hi - lo, peerMaxFrameSize);
+            putFrameHeader(len, type, lo + len == hi ? flags | FLAG_END_HEADERS : flags, stream.id);
+            out.putNonAscii(lo, lo + len);
+            lo += len;
+            type = FRAME_CONTINUATION;
+            flags = 0;
+        } while (lo < hi);
+    }
+
+    private void putInt(int value) {
+        out.putAny((byte) (value >>> 24));
+        out.putAny((byte) (value >>> 16));
+        out.putAny((byte) (value >>> 8));
+        out.putAny((byte) value);
+    }
+
+    private void putSetting(int id, int value) {
+        out.putAny((byte) (id >>> 8));
+        out.putAny((byte) id);
+        putInt(value);
+    }
+
+    private void putWindowUpdate(int streamId, int increment) {
+        putFrameHeader(4, FRAME_WINDOW_UPDATE, 0, streamId);
+        putInt(increment);
+    }
+
+    /**
+     * Receives whatever the server has sent, at least one byte, and processes all complete frames. Request
+     * bodies that were held back by flow control are then sent as far as the updated windows allow.
+     */
+    private void receiveFrames(int timeout) {
+        if (recvBuf + RECV_BUFFER_SIZE - recvHi < FRAME_HEADER_SIZE + DEFAULT_MAX_FRAME_SIZE) {
+            final long len = recvHi - recvLo;
+            Vect.memmove(recvBuf, recvLo, len);
+            recvLo = recvBuf;
+            recvHi = recvBuf + len;
+        }
+        recvHi += connection.recv(recvHi, (int) (recvBuf + RECV_BUFFER_SIZE - recvHi), timeout);
+        while (recvHi - recvLo >= FRAME_HEADER_SIZE) {
+            final int length = ((Unsafe.getUnsafe().getByte(recvLo) & 0xff) << 16)
+                    | ((Unsafe.getUnsafe().getByte(recvLo + 1) & 0xff) << 8)
+                    | (Unsafe.getUnsafe().getByte(recvLo + 2) & 0xff);
+            if (length > DEFAULT_MAX_FRAME_SIZE) {
+                throw protocolError("frame exceeds the maximum frame size", ERROR_FRAME_SIZE);
+            }
+            if (recvHi - recvLo < FRAME_HEADER_SIZE + length) {
+                break;
+            }
+            final int type = Unsafe.getUnsafe().getByte(recvLo + 3) & 0xff;
+            final int flags = Unsafe.getUnsafe().getByte(recvLo + 4) & 0xff;
+            final int streamId = getInt(recvLo + 5) & Integer.MAX_VALUE;
+            final long payloadLo = recvLo + FRAME_HEADER_SIZE;
+            recvLo = payloadLo + length;
+            onFrame(type, flags, streamId, payloadLo, recvLo);
+        }
+        if (recvLo == recvHi) {
+            recvLo = recvHi = recvBuf;
+        }
+        for (int i = 0, n = streams.size(); i < n; i++) {
+            putData(streams.getQuick(i), timeout);
+        }
+        flush(timeout);
+    }
+
+    private void releaseAwaitedStream() {
+        if (awaitedStream != null) {
+            spareStreams.add(awaitedStream);
+            awaitedStream = null;
+        }
+    }
+
+    private void resetSession() {
+        releaseAwaitedStream();
+        for (int i = 0, n = streams.size(); i < n; i++) {
+            spareStreams.add(streams.getQuick(i));
+        }
+        streams.clear();
+        encoder.reset();
+        decoder.reset();
+        out.clear();
+        recvLo = recvHi = recvBuf;
+        connectCount = -1;
+        connectionSendWindow = DEFAULT_WINDOW_SIZE;
+        continuationStreamId = 0;
+        decodingStream = null;
+        goAway = false;
+        goAwayErrorCode = ERROR_NO_ERROR;
+        nextStreamId = 1;
+        openStreamCount = 0;
+        peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+        peerMaxConcurrentStreams = Integer.MAX_VALUE;
+        peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    }
+
+    private static class Stream implements HttpResponseHeaders, Response, Fragment, QuietCloseable {
+        private final DirectUtf8Sink body = new DirectUtf8Sink(64);
+        // name and value bounds of each header field, relative to the start of the headers sink
+        private final IntList headerBounds = new IntList();
+        private final DirectUtf8String headerValue = new DirectUtf8String();
+        private final DirectUtf8Sink headers = new DirectUtf8Sink(128);
+        private final DirectUtf8Sink status = new DirectUtf8Sink(8);
+        private boolean bodyRead;
+        private boolean complete;
+        private long dataHi;
+        private long dataLo;
+        private int errorCode;
+        private boolean headersReceived;
+        private int id;
+        private long sendWindow;
+
+        @Override
+        public void close() {
+            Misc.free(body);
+            Misc.free(headers);
+            Misc.free(status);
+        }
+
+        @Override
+        public DirectUtf8Sequence getContentType() {
+            return getHeader(NAME_CONTENT_TYPE);
+        }
+
+        @Override
+        public DirectUtf8Sequence getHeader(Utf8Sequence name) {
+            final long base = headers.ptr();
+            for (int i = 0, n = headerBounds.size(); i < n; i += 3) {
+                final int nameLo = headerBounds.getQuick(i);
+                final int valueLo = headerBounds.getQuick(i + 1);
+                final int valueHi = headerBounds.getQuick(i + 2);
+                if (valueLo - nameLo == name.size()
+                        && Utf8s.equalsIgnoreCaseAscii(name, headerValue.of(base + nameLo, base + valueLo))) {
+                    return headerValue.of(base + valueLo, base + valueHi);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Response getResponse() {
+            return this;
+        }
+
+        @Override
+        public DirectUtf8Sequence getStatusCode() {
+            return status.size() > 0 ? status : null;
+        }
+
+        @Override
+        public long hi() {
+            return body.ptr() + body.size();
+        }
+
+        @Override
+        public boolean isChunked() {
+            return true;
+        }
+
+        @Override
+        public long lo() {
+            return body.ptr();
+        }
+
+        @Override
+        public Fragment recv() {
+            if (bodyRead || body.size() == 0) {
+                return null;
+            }
+            bodyRead = true;
+            return this;
+        }
+
+        private void addHeader(Utf8Sequence name, Utf8Sequence value) {
+            headerBounds.add(headers.size());
+            headers.put(name);
+            headerBounds.add(headers.size());
+            headers.put(value);
+            headerBounds.add(headers.size());
+        }
+
+        private void clearHeaders() {
+            headerBounds.clear();
+            headers.clear();
+            status.clear();
+        }
+
+        private void of(int id, long dataLo, long dataHi, int sendWindow) {
+            this.id = id;
+            this.dataLo = dataLo;
+            this.dataHi = dataHi;
+            this.sendWindow = sendWindow;
+            this.complete = false;
+            this.errorCode = -1;
+            this.headersReceived = false;
+            this.bodyRead = false;
+            body.clear();
+            clearHeaders();
+        }
+    }
+}
@@ -35,9 +35,14 @@ import io.questdb.client.network.SocketFactory;
 import io.questdb.client.network.TlsSessionInitFailedException;
 import io.questdb.client.std.BinarySequence;
 import io.questdb.client.std.Chars;
+import io.questdb.client.std.DoubleFormatter;
+import io.questdb.client.std.LongFormatter;
+import io.questdb.client.std.LongList;
 import io.questdb.client.std.MemoryTag;
 import io.questdb.client.std.Misc;
 import io.questdb.client.std.Mutable;
+import io.questdb.client.std.NativeMemoryBudget;
+import io.questdb.client.std.NativePagePool;
 import io.questdb.client.std.Numbers;
 import io.questdb.client.std.ObjectPool;
 import io.questdb.client.std.QuietCloseable;
@@ -57,58 +62,140 @@ import org.slf4j.LoggerFactory;
 
 import java.net.HttpURLConnection;
 
+import static io.questdb.client.cutlass.http.HttpConstants.HEADER_CONNECTION;
 import static io.questdb.client.cutlass.http.HttpConstants.HEADER_TRANSFER_ENCODING;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public abstract class HttpClient implements QuietCloseable {
+    // chunk size is always sent as 8 zero-padded hex digits followed by CRLF,
+    // this lets us reserve the chunk header in front of the content and send
+    // the request header and the first chunk with a single write
+    private static final int CHUNK_HEADER_LEN = 10;
+    // CRLF after chunk data followed by the last chunk: "0" CRLF CRLF
+    private static final int CHUNK_TRAILER_LEN = 7;
+    // chars reserved per step by putEscaped(), bounded to stay within a content page
+    private static final int ESCAPE_CHUNK_CHARS = 128;
     private static final String HEADER_CONTENT_LENGTH = "Content-Length: ";
     private static final String HTTP_NO_CONTENT = String.valueOf(HttpURLConnection.HTTP_NO_CONTENT);
     private static final Logger LOG = LoggerFactory.getLogger(HttpClient.class);
     protected final NetworkFacade nf;
-    protected final Socket socket;
+    private final HttpConnectionPool connectionPool;
+    // sealed content segments as (lo, hi) pairs, the first one is in the head buffer, the rest are pooled pages
+    private final LongList contentSegments = new LongList();
     private final ObjectPool<DirectUtf8String> csPool = new ObjectPool<>(DirectUtf8String.FACTORY, 64);
     private final int defaultTimeout;
     private final boolean fixBrokenConnection;
     private final int maxBufferSize;
+    private final NativePagePool pagePool;
     private final Request request = new Request();
     private final ResponseHeaders responseHeaders;
     private final int responseParserBufSize;
+    private final SocketFactory socketFactory;
+    protected Socket socket;
+    private String[] applicationProtocols;
     private long bufLo;
     private int bufferSize;
+    // received bytes that follow the last complete response, they start the next pipelined response
+    private long bufferedResponseHi;
+    private long bufferedResponseLo;
+    private long connectCount;
     private long contentStart = -1;
+    // the connection has no request or response outstanding and can be parked in the connection pool
+    private boolean exchangeComplete;
     private CharSequence host;
+    // end of the pooled page the content is being written to, 0 when writing to the head buffer
+    private long pageHi;
+    // requests sent on the current connection whose responses have not been read in full yet
+    private int pendingResponses;
     private int port;
     private long ptr = bufLo;
     private long responseParserBufLo;
+    private long sealedContentLen;
+    private long sealedHeaderHi;
+    private long tlsHandshakeCount;
 
     public HttpClient(HttpClientConfiguration configuration, SocketFactory socketFactory) {
         this.nf = configuration.getNetworkFacade();
+        this.socketFactory = socketFactory;
         this.socket = socketFactory.newInstance(nf, LOG);
+        this.connectionPool = configuration.getConnectionPool();
         this.defaultTimeout = configuration.getTimeout();
         this.bufferSize = configuration.getInitialRequestBufferSize();
         this.maxBufferSize = configuration.getMaximumRequestBufferSize();
         this.responseParserBufSize = configuration.getResponseBufferSize();
         this.fixBrokenConnection = configuration.fixBrokenConnection();
-        this.bufLo = Unsafe.malloc(bufferSize, MemoryTag.NATIVE_DEFAULT);
-        this.responseParserBufLo = Unsafe.malloc(responseParserBufSize, MemoryTag.NATIVE_DEFAULT);
+        final int pageSize = configuration.getRequestPageSize();
+        this.pagePool = pageSize > 0 ? NativePagePool.getInstance(pageSize) : null;
+        NativeMemoryBudget.INSTANCE.acquire((long) bufferSize + responseParserBufSize);
+        try {
+            this.bufLo = Unsafe.malloc(bufferSize, MemoryTag.NATIVE_DEFAULT);
+            this.responseParserBufLo = Unsafe.malloc(responseParserBufSize, MemoryTag.NATIVE_DEFAULT);
+        } catch (Throwable th) {
+            if (bufLo != 0) {
+                Unsafe.free(bufLo, bufferSize, MemoryTag.NATIVE_DEFAULT);
+                bufLo = 0;
+            }
+            NativeMemoryBudget.INSTANCE.release((long) bufferSize + responseParserBufSize);
+            throw th;
+        }
         this.responseHeaders = new ResponseHeaders(responseParserBufLo, responseParserBufSize, defaultTimeout, 4096, csPool);
     }
 
     @Override
     public void close() {
-        disconnect();
+        releaseConnection();
+        releasePages();
         if (bufLo != 0) {
             Unsafe.free(bufLo, bufferSize, MemoryTag.NATIVE_DEFAULT);
             bufLo = 0;
             assert responseParserBufLo != 0;
             Unsafe.free(responseParserBufLo, responseParserBufSize, MemoryTag.NATIVE_DEFAULT);
             responseParserBufLo = 0;
+            NativeMemoryBudget.INSTANCE.release((long) bufferSize + responseParserBufSize);
         }
         responseHeaders.free();
     }
 
+    /**
+     * Opens a connection to the given host and port for protocols that are layered directly over it, such as
+     * HTTP/2, unless such connection is open already. Bytes are then exchanged with {@link #send(long, long, int)}
+     * and {@link #recv(long, int, int)}. Use {@link #getConnectCount()} to tell whether a new connection
+     * has been opened.
+     *
+     * @param host the hostname or IP address to connect to
+     * @param port the port number to connect on
+     */
+    public void connect(CharSequence host, int port) {
+        clearPendingResponses();
+        request.ensureConnected(host, port);
+    }
+
     public void disconnect() {
         Misc.free(socket);
+        exchangeComplete = false;
+        clearPendingResponses();
+    }
+
+    /**
+     * Returns the application protocol negotiated via ALPN on the current connection, null if there was none.
+     */
+    public String getApplicationProtocol() {
+        return socket.getApplicationProtocol();
+    }
+
+    /**
+     * Returns the number of connections this client has successfully established over its lifetime.
+     */
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    /**
+     * Returns the number of requests sent on the current connection whose responses have not been read
+     * in full yet. It drops to zero when the connection is closed, the responses are then lost.
+     */
+    public int getPendingResponseCount() {
+        return pendingResponses;
     }
 
     @TestOnly
@@ -116,28 +203,143 @@ public abstract class HttpClient implements QuietCloseable {
         return responseHeaders;
     }
 
+    /**
+     * Returns the number of TLS sessions this client has successfully started over its lifetime.
+     */
+    public long getTlsHandshakeCount() {
+        return tlsHandshakeCount;
+    }
+
+    public boolean isConnected() {
+        return !socket.isClosed();
+    }
+
     public Request newRequest(CharSequence host, int port) {
         if (!Chars.equalsNc(host, this.host) || port != this.port) {
             // Can't reuse the existing connection, if any.
-            socket.close();
+            releaseConnection();
         }
         this.host = host;
         this.port = port;
+        releasePages();
         ptr = bufLo;
         contentStart = -1;
         request.contentLengthHeaderReserved = 0;
+        request.chunked = false;
+        request.headerSent = false;
+        request.streamedBytes = 0;
         request.state = Request.STATE_REQUEST;
         return request;
     }
 
+    /**
+     * Returns response headers of the oldest request sent with {@link #sendPipelined(CharSequence, int, long, long, int)}
+     * whose response has not been read yet. The response, including its body, must be read in full before
+     * the next one is requested.
+     *
+     * @return cleared response headers, ready to be awaited
+     */
+    public ResponseHeaders nextResponse() {
+        if (pendingResponses == 0) {
+            throw new HttpClientException("no request is awaiting response");
+        }
+        responseHeaders.clear();
+        return responseHeaders;
+    }
+
+    /**
+     * Receives at least one byte on the connection opened with {@link #connect(CharSequence, int)}.
+     *
+     * @param lo      address of the receive buffer
+     * @param len     receive buffer capacity
+     * @param timeout timeout in milliseconds
+     * @return number of bytes received
+     */
+    public int recv(long lo, int len, int timeout) {
+        final long startTimeNanos = System.nanoTime();
+        int n;
+        while ((n = recvOrDie(lo, len, remainingTime(timeout, startTimeNanos))) == 0) {
+            // a partial TLS record, keep waiting
+        }
+        return n;
+    }
+
+    /**
+     * Sends bytes on the connection opened with {@link #connect(CharSequence, int)}.
+     *
+     * @param lo      address of the first byte to send
+     * @param hi      address of the byte following the last byte to send
+     * @param timeout timeout in milliseconds for each socket operation
+     */
+    public void send(long lo, long hi, int timeout) {
+        request.doSend(lo, hi, timeout);
+    }
+
+    /**
+     * Sets the application protocols offered via ALPN when the client opens TLS connections.
+     *
+     * @param protocols protocol names in order of preference, e.g. "h2"
+     */
+    public void setApplicationProtocols(String... protocols) {
+        this.applicationProtocols = protocols;
+    }
+
+    /**
+     * Sends a complete request, as produced by {@link Request#seal()} and {@link Request#copyTo(long)}, without
+     * waiting for responses to the requests sent before it. HTTP/1.1 servers respond to pipelined requests in
+     * the order they were received, responses are read in that order via {@link #nextResponse()}.
+     * <p>
+     * The first request of a pipeline may open, or re-open, the connection. Subsequent requests must go to
+     * the same host and port, and they fail if the connection has been lost. Responses to all requests sent
+     * on a lost connection are lost too, it is up to the caller to decide which requests to send again.
+     *
+     * @param host    the hostname or IP address to connect to
+     * @param port    the port number to connect on
+     * @param lo      address of the first byte of the request
+     * @param hi      address of the byte following the last byte of the request
+     * @param timeout timeout in milliseconds for socket operations
+     */
+    public void sendPipelined(CharSequence host, int port, long lo, long hi, int timeout) {
+        if (pendingResponses == 0) {
+            clearPendingResponses();
+            request.ensureConnected(host, port);
+        } else if (socket.isClosed() || !Chars.equalsNc(host, this.host) || port != this.port) {
+            throw new HttpClientException("connection lost with responses outstanding [host=")
+                    .put(host).put(", port=").put(port).put(", pendingResponses=").put(pendingResponses).put(']');
+        }
+        exchangeComplete = false;
+        request.doSend(lo, hi, timeout);
+        pendingResponses++;
+    }
+
     private void checkCapacity(long capacity) {
+        if (pageHi != 0) {
+            if (ptr + capacity > pageHi) {
+                nextPage(capacity);
+            }
+            return;
+        }
         long usedBytes = ptr - bufLo;
         final long requiredSize = usedBytes + capacity;
         if (requiredSize > bufferSize) {
-            growBuffer(requiredSize);
+            if (isContentPaged()) {
+                nextPage(capacity);
+            } else {
+                growBuffer(requiredSize);
+            }
         }
     }
 
+    private void clearPendingResponses() {
+        pendingResponses = 0;
+        bufferedResponseLo = 0;
+        bufferedResponseHi = 0;
+    }
+
+    private long contentSegmentLo() {
+        return pageHi != 0 ? pageHi - pagePool.getPageSize() : contentStart;
+    }
+
     private int dieIfNegative(int byteCount) {
         if (byteCount < 0) {
             throw new HttpClientException("peer disconnect [errno=").errno(nf.errno()).put(']');
@@ -157,15 +359,17 @@ public abstract class HttpClient implements QuietCloseable {
 
     private void growBuffer(long requiredSize) {
         if (requiredSize > maxBufferSize) {
-            throw new HttpClientException("transaction is too large, either flush more frequently or " +
-                    "increase buffer size \"max_buf_size\" [maxBufferSize=")
-                    .putSize(maxBufferSize)
-                    .put(", transactionSize=")
-                    .putSize(requiredSize)
-                    .put(']');
+            throw transactionTooLarge(requiredSize);
         }
         long newBufferSize = Math.min(Numbers.ceilPow2((int) requiredSize), maxBufferSize);
-        long newBufLo = Unsafe.realloc(bufLo, bufferSize, newBufferSize, MemoryTag.NATIVE_DEFAULT);
+        NativeMemoryBudget.INSTANCE.acquire(newBufferSize - bufferSize);
+        long newBufLo;
+        try {
+            newBufLo = Unsafe.realloc(bufLo, bufferSize, newBufferSize, MemoryTag.NATIVE_DEFAULT);
+        } catch (Throwable th) {
+            NativeMemoryBudget.INSTANCE.release(newBufferSize - bufferSize);
+            throw th;
+        }
 
         long offset = newBufLo - bufLo;
 
@@ -177,6 +381,41 @@ public abstract class HttpClient implements QuietCloseable {
         }
     }
 
+    private boolean isContentPaged() {
+        return pagePool != null && contentStart > -1;
+    }
+
+    /**
+     * Seals the content segment being written and continues writing content to a page
+     * from the pool. Unlike growing the head buffer, this does not copy the content
+     * accumulated so far.
+     */
+    private void nextPage(long capacity) {
+        final long requiredSize = (contentStart - bufLo) + request.getContentLength() + capacity;
+        if (requiredSize > maxBufferSize) {
+            throw transactionTooLarge(requiredSize);
+        }
+        final long lo = contentSegmentLo();
+        contentSegments.add(lo);
+        contentSegments.add(ptr);
+        sealedContentLen += ptr - lo;
+        ptr = pagePool.acquire();
+        pageHi = ptr + pagePool.getPageSize();
+    }
+
+    /**
+     * Called once the response body has been read in full. Bytes received past the end of the body are
+     * kept, they are the beginning of the response to the next pipelined request.
+     */
+    private void onResponseComplete(boolean keepAlive, long unconsumedLo, long unconsumedHi) {
+        bufferedResponseLo = unconsumedLo;
+        bufferedResponseHi = unconsumedHi;
+        if (pendingResponses > 0) {
+            pendingResponses--;
+        }
+        exchangeComplete = keepAlive && pendingResponses == 0 && unconsumedLo == unconsumedHi;
+    }
+
     private int recvOrDie(long lo, int len, int timeout) {
         long startTimeNanos = System.nanoTime();
         int n = dieIfNegative(socket.recv(lo, len));
@@ -188,6 +427,35 @@ public abstract class HttpClient implements QuietCloseable {
         return n;
     }
 
+    /**
+     * Parks the connection in the connection pool, if it is configured and the connection has
+     * no request or response outstanding, otherwise closes it.
+     */
+    private void releaseConnection() {
+        if (connectionPool != null && exchangeComplete && !socket.isClosed()) {
+            connectionPool.release(host, port, socketFactory, nf, socket);
+            socket = socketFactory.newInstance(nf, LOG);
+            exchangeComplete = false;
+        } else {
+            disconnect();
+        }
+    }
+
+    private void releasePages() {
+        if (pagePool != null) {
+            // the first segment is in the head buffer
+            for (int i = 2, n = contentSegments.size(); i < n; i += 2) {
+                pagePool.release(contentSegments.getQuick(i));
+            }
+            if (pageHi != 0) {
+                pagePool.release(pageHi - pagePool.getPageSize());
+            }
+        }
+        contentSegments.clear();
+        sealedContentLen = 0;
+        pageHi = 0;
+    }
+
     private int recvOrDie(long addr, int timeout) {
         return recvOrDie(addr, (int) (responseParserBufSize - (addr - responseParserBufLo)), timeout);
     }
@@ -200,6 +468,21 @@ public abstract class HttpClient implements QuietCloseable {
         return timeoutMillis;
     }
 
+    /**
+     * Moves bytes of the next response that arrived with the previous one to the start of the response buffer.
+     *
+     * @return number of bytes moved
+     */
+    private int takeBufferedResponse() {
+        final int len = (int) (bufferedResponseHi - bufferedResponseLo);
+        if (len > 0) {
+            Vect.memmove(responseParserBufLo, bufferedResponseLo, len);
+        }
+        bufferedResponseLo = 0;
+        bufferedResponseHi = 0;
+        return len;
+    }
+
     private int sendOrDie(long lo, int len, int timeoutMillis) {
         long startTimeNanos = System.nanoTime();
         ioWait(timeoutMillis, IOOperation.WRITE);
@@ -212,6 +495,15 @@ public abstract class HttpClient implements QuietCloseable {
         return n;
     }
 
+    private HttpClientException transactionTooLarge(long requiredSize) {
+        return new HttpClientException("transaction is too large, either flush more frequently or " +
+                "increase buffer size \"max_buf_size\" [maxBufferSize=")
+                .putSize(maxBufferSize)
+                .put(", transactionSize=")
+                .putSize(requiredSize)
+                .put(']');
+    }
+
     protected void dieWaiting(int n) {
         if (n == 1) {
             return;
@@ -258,10 +550,26 @@ public abstract class HttpClient implements QuietCloseable {
     }
 
     private class ChunkedResponseImpl extends AbstractChunkedResponse {
+        private boolean complete;
+        private boolean keepAlive;
+
         public ChunkedResponseImpl(long bufLo, long bufHi, int defaultTimeout) {
             super(bufLo, bufHi, defaultTimeout);
         }
 
+        @Override
+        public Fragment recv(int timeout) {
+            if (complete) {
+                return null;
+            }
+            final Fragment fragment = super.recv(timeout);
+            if (fragment == null) {
+                complete = true;
+                onResponseComplete(keepAlive, getUnconsumedLo(), getUnconsumedHi());
+            }
+            return fragment;
+        }
+
         @Override
         protected int recvOrDie(long bufLo, long bufHi, int timeout) {
             return HttpClient.this.recvOrDie(bufLo, timeout);
@@ -276,8 +584,11 @@ public abstract class HttpClient implements QuietCloseable {
         private static final int STATE_URL = 1;
         private static final int STATE_URL_DONE = 2;
         private BinarySequenceAdapter binarySequenceAdapter;
+        private boolean chunked;
         private int contentLengthHeaderReserved = 0;
+        private boolean headerSent;
         private int state;
+        private long streamedBytes;
         private boolean urlEncode = false;
 
         public Request DELETE() {
@@ -327,12 +638,20 @@ public abstract class HttpClient implements QuietCloseable {
 
         public int getContentLength() {
             if (contentStart > -1) {
-                return (int) (ptr - contentStart);
+                return (int) (sealedContentLen + ptr - contentSegmentLo());
             } else {
                 return 0;
             }
         }
 
+        /**
+         * Returns start of the content segment that is currently being written. It is the same
+         * as {@link #getContentStart()}, unless the content has spilled over to pooled pages.
+         */
+        public long getContentSegmentStart() {
+            return contentSegmentLo();
+        }
+
         public long getContentStart() {
             return contentStart;
         }
@@ -341,6 +660,26 @@ public abstract class HttpClient implements QuietCloseable {
             return ptr;
         }
 
+        /**
+         * Returns number of content bytes that have already been sent to the server as
+         * HTTP chunks via {@link #sendChunk(CharSequence, int, int)}. These bytes are no
+         * longer present in the request buffer.
+         *
+         * @return number of streamed content bytes, always 0 for non-chunked requests
+         */
+        public long getStreamedBytes() {
+            return streamedBytes;
+        }
+
+        /**
+         * Returns true when the request header and at least one content chunk have already
+         * been sent via {@link #sendChunk(CharSequence, int, int)}. Such request cannot be
+         * re-sent, neither to the same nor to a different host.
+         */
+        public boolean isHeaderSent() {
+            return headerSent;
+        }
+
         public Request header(CharSequence name, CharSequence value) {
             beforeHeader();
             put(name).putAsciiInternal(": ").put(value);
@@ -351,9 +690,16 @@ public abstract class HttpClient implements QuietCloseable {
         public Request put(@Nullable Utf8Sequence us) {
             if (us != null) {
                 int size = us.size();
-                checkCapacity(size);
-                Utf8s.strCpy(us, size, ptr);
-                ptr += size;
+                if (isContentPaged() && ptr + size > (pageHi != 0 ? pageHi : bufLo + bufferSize)) {
+                    // the sequence spans content pages
+                    for (int i = 0; i < size; i++) {
+                        put(us.byteAt(i));
+                    }
+                } else {
+                    checkCapacity(size);
+                    Utf8s.strCpy(us, size, ptr);
+                    ptr += size;
+                }
             }
             return this;
         }
@@ -378,6 +724,24 @@ public abstract class HttpClient implements QuietCloseable {
             return this;
         }
 
+        @Override
+        public Request put(double value) {
+            checkCapacity(DoubleFormatter.MAX_CHARS);
+            ptr = DoubleFormatter.append(ptr, value);
+            return this;
+        }
+
+        @Override
+        public Request put(long value) {
+            if (value == Long.MIN_VALUE) {
+                // keeps the null rendering of Numbers.append()
+                return putAscii("null");
+            }
+            checkCapacity(LongFormatter.MAX_CHARS);
+            ptr = LongFormatter.append(ptr, value);
+            return this;
+        }
+
         @Override
         public Request putAscii(char c) {
             if (urlEncode) {
@@ -396,9 +760,12 @@ public abstract class HttpClient implements QuietCloseable {
 
         @Override
         public void putBlockOfBytes(long from, long len) {
-            checkCapacity(len);
-            Vect.memcpy(ptr, from, len);
-            ptr += len;
+            copyFrom(from, len);
+        }
+
+        @Override
+        public void putBlockOfBytes(Object array, long offset, long len) {
+            copyFrom(array, offset, len);
         }
 
         @Override
@@ -429,10 +796,57 @@ public abstract class HttpClient implements QuietCloseable {
 
         @Override
         public Request putNonAscii(long lo, long hi) {
-            final long size = hi - lo;
-            checkCapacity(size);
-            Vect.memcpy(ptr, lo, size);
-            ptr += size;
+            copyFrom(lo, hi - lo);
+            return this;
+        }
+
+        /**
+         * Encodes the sequence as UTF-8, prefixing backslashes and the chars flagged in {@code escapeMask}
+         * with a backslash, see {@link Utf8s#strCpyAsciiUnescaped(CharSequence, int, int, long, long)}.
+         * Runs of plain ASCII are copied in bulk after a single capacity check.
+         */
+        public Request putEscaped(@NotNull CharSequence cs, long escapeMask) {
+            final int n = cs.length();
+            int i = 0;
+            while (i < n) {
+                final int hi = Math.min(n, i + ESCAPE_CHUNK_CHARS);
+                checkCapacity(hi - i);
+                final int stop = Utf8s.strCpyAsciiUnescaped(cs, i, hi, ptr, escapeMask);
+                ptr += stop - i;
+                i = stop;
+                if (i < hi) {
+                    char c = cs.charAt(i++);
+                    if (c < 128) {
+                        put((byte) '\\').put((byte) c);
+                    } else {
+                        i = Utf8s.encodeUtf16Char(this, cs, n, i, c);
+                        // non-ASCII text tends to come in runs, encode them without re-entering the bulk path
+                        while (i < n && (c = cs.charAt(i)) > 127) {
+                            i = Utf8s.encodeUtf16Char(this, cs, n, i + 1, c);
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Copies already encoded UTF-8 bytes, escaping them the same way as
+         * {@link #putEscaped(CharSequence, long)}. Multibyte chars are copied as they are.
+         */
+        public Request putEscaped(@NotNull Utf8Sequence us, long escapeMask) {
+            final int n = us.size();
+            int i = 0;
+            while (i < n) {
+                final int hi = Math.min(n, i + ESCAPE_CHUNK_CHARS);
+                checkCapacity(hi - i);
+                final int stop = Utf8s.strCpyUnescaped(us, i, hi, ptr, escapeMask);
+                ptr += stop - i;
+                i = stop;
+                if (i < hi) {
+                    put((byte) '\\').put(us.byteAt(i++));
+                }
+            }
             return this;
         }
 
@@ -479,6 +893,46 @@ public abstract class HttpClient implements QuietCloseable {
             return send(defaultTimeout);
         }
 
+        /**
+         * Copies the request sealed by {@link #seal()} to the given address, which must have room for
+         * the number of bytes {@link #seal()} returned.
+         *
+         * @param dst address to copy the request to
+         */
+        public void copyTo(long dst) {
+            assert sealedHeaderHi > bufLo;
+            final long headerLen = sealedHeaderHi - bufLo;
+            Vect.memcpy(dst, bufLo, headerLen);
+            dst += headerLen;
+            for (int i = 0, n = contentSegments.size(); i < n; i += 2) {
+                final long lo = i == 0 ? contentStart : contentSegments.getQuick(i);
+                final long len = contentSegments.getQuick(i + 1) - lo;
+                Vect.memcpy(dst, lo, len);
+                dst += len;
+            }
+            final long lo = pageHi != 0 ? contentSegmentLo() : contentStart;
+            Vect.memcpy(dst, lo, ptr - lo);
+        }
+
+        /**
+         * Completes the request, the way {@link #send(CharSequence, int, int)} would, without sending it.
+         * The complete request can then be copied out with {@link #copyTo(long)} and sent, possibly more than
+         * once, with {@link HttpClient#sendPipelined(CharSequence, int, long, long, int)}. Only requests with
+         * content started by {@link #withContent()} can be sealed.
+         *
+         * @return size of the complete request in bytes
+         */
+        public long seal() {
+            assert !chunked && contentStart > -1 && state == STATE_CONTENT;
+            if (contentLengthHeaderReserved > 0) {
+                sealedHeaderHi = putContentLength(contentStart - contentLengthHeaderReserved, getContentLength());
+                assert sealedHeaderHi <= contentStart;
+            } else {
+                sealedHeaderHi = contentStart;
+            }
+            return (sealedHeaderHi - bufLo) + getContentLength();
+        }
+
         /**
          * Sends the HTTP request to the specified host and port with connection management.
          * <p>
@@ -509,17 +963,10 @@ public abstract class HttpClient implements QuietCloseable {
          */
         public ResponseHeaders send(CharSequence host, int port, int timeout) {
             assert state == STATE_URL_DONE || state == STATE_QUERY || state == STATE_HEADER || state == STATE_CONTENT;
-            if (socket == null || socket.isClosed()) {
-                connect(host, port);
-            } else if (fixBrokenConnection && nf.testConnection(socket.getFd(), responseParserBufLo, 1)) {
-                socket.close();
-                connect(host, port);
-            } else if (!Chars.equalsNc(host, HttpClient.this.host) || (port != HttpClient.this.port)) {
-                socket.close();
-                connect(host, port);
-                HttpClient.this.host = host;
-                HttpClient.this.port = port;
-            }
+            ensureConnected(host, port);
+            // responses to any earlier requests are abandoned
+            clearPendingResponses();
+            pendingResponses = 1;
 
             if (state == STATE_URL_DONE || state == STATE_QUERY) {
                 putAsciiInternal(" HTTP/1.1").putEOL();
@@ -527,9 +974,12 @@ public abstract class HttpClient implements QuietCloseable {
                 state = STATE_HEADER;
             }
 
-            if (contentStart > -1) {
+            if (chunked) {
                 assert state == STATE_CONTENT;
-                sendHeaderAndContent(Integer.MAX_VALUE, timeout);
+                sendChunkedContent(true, timeout);
+            } else if (contentStart > -1) {
+                assert state == STATE_CONTENT;
+                sendHeaderAndContent(timeout);
             } else {
                 eol();
                 doSend(bufLo, ptr, timeout);
@@ -542,17 +992,52 @@ public abstract class HttpClient implements QuietCloseable {
             return send(host, port, timeout);
         }
 
+        /**
+         * Sends content accumulated so far as a single HTTP chunk and resets the content
+         * to empty. The request header is sent along with the first chunk. The request must
+         * have been started with {@link #withChunkedContent()}.
+         * <p>
+         * Once the first chunk is sent, the request is bound to the connection it was sent on
+         * and must be completed via {@link #send(CharSequence, int, int)} with the same host
+         * and port. The content that has been streamed cannot be re-sent should the request fail.
+         *
+         * @param host    the hostname or IP address to connect to
+         * @param port    the port number to connect on
+         * @param timeout timeout in milliseconds for socket operations
+         */
+        public void sendChunk(CharSequence host, int port, int timeout) {
+            assert chunked && state == STATE_CONTENT;
+            if (getContentLength() == 0) {
+                return;
+            }
+            ensureConnected(host, port);
+            sendChunkedContent(false, timeout);
+        }
+
         @Override
         public String toString() {
             StringSink ss = new StringSink();
             DirectUtf8String s = new DirectUtf8String();
-            s.of(bufLo, ptr);
-            ss.put(s);
+            for (int i = 0, n = contentSegments.size(); i < n; i += 2) {
+                ss.put(s.of(i == 0 ? bufLo : contentSegments.getQuick(i), contentSegments.getQuick(i + 1)));
+            }
+            ss.put(s.of(pageHi != 0 ? contentSegmentLo() : bufLo, ptr));
             return ss.toString();
         }
 
         public void trimContentToLen(int contentLen) {
-            ptr = contentStart + contentLen;
+            while (contentLen < sealedContentLen) {
+                // trimmed content ends in one of the sealed segments, the current page is no longer needed
+                final int n = contentSegments.size();
+                final long lo = contentSegments.getQuick(n - 2);
+                final long hi = contentSegments.getQuick(n - 1);
+                contentSegments.setPos(n - 2);
+                pagePool.release(pageHi - pagePool.getPageSize());
+                sealedContentLen -= hi - lo;
+                pageHi = n > 2 ? lo + pagePool.getPageSize() : 0;
+                ptr = hi;
+            }
+            ptr = contentSegmentLo() + (contentLen - sealedContentLen);
         }
 
         public void truncate() {
@@ -565,6 +1050,13 @@ public abstract class HttpClient implements QuietCloseable {
             return put(url);
         }
 
+        /**
+         * Starts request content that is sent using chunked transfer encoding. The content
+         * written after this call is framed into chunks automatically, either by
+         * {@link #sendChunk(CharSequence, int, int)} or when the request is sent.
+         *
+         * @return this request
+         */
         public Request withChunkedContent() {
             beforeHeader();
 
@@ -572,7 +1064,10 @@ public abstract class HttpClient implements QuietCloseable {
             putEOL();
 
             contentLengthHeaderReserved = 0;
+            checkCapacity(CHUNK_HEADER_LEN);
+            ptr += CHUNK_HEADER_LEN;
             contentStart = ptr;
+            chunked = true;
             state = STATE_CONTENT;
             return this;
         }
@@ -607,6 +1102,21 @@ public abstract class HttpClient implements QuietCloseable {
         }
 
         private void connect(CharSequence host, int port) {
+            HttpClient.this.host = host;
+            HttpClient.this.port = port;
+            if (connectionPool != null) {
+                Socket pooled;
+                while ((pooled = connectionPool.acquire(host, port, socketFactory, nf)) != null) {
+                    if (fixBrokenConnection && nf.testConnection(pooled.getFd(), responseParserBufLo, 1)) {
+                        // the server closed the connection while it was idle
+                        pooled.close();
+                        continue;
+                    }
+                    socket = pooled;
+                    setupIoWait();
+                    return;
+                }
+            }
             int fd = nf.socketTcp(true);
             if (fd < 0) {
                 throw new HttpClientException("could not allocate a file descriptor").errno(nf.errno());
@@ -641,6 +1151,7 @@ public abstract class HttpClient implements QuietCloseable {
 
             if (socket.supportsTls()) {
                 try {
+                    socket.setApplicationProtocols(applicationProtocols);
                     socket.startTlsSession(host);
                 } catch (TlsSessionInitFailedException e) {
                     int errno = nf.errno();
@@ -650,10 +1161,54 @@ public abstract class HttpClient implements QuietCloseable {
                             .put(", errno=").put(errno)
                             .put(']');
                 }
+                tlsHandshakeCount++;
             }
+            connectCount++;
             setupIoWait();
         }
 
+        private void copyFrom(long lo, long len) {
+            if (isContentPaged()) {
+                while (len > 0) {
+                    final long available = (pageHi != 0 ? pageHi : bufLo + bufferSize) - ptr;
+                    if (available == 0) {
+                        nextPage(len);
+                        continue;
+                    }
+                    final long n = Math.min(available, len);
+                    Vect.memcpy(ptr, lo, n);
+                    ptr += n;
+                    lo += n;
+                    len -= n;
+                }
+            } else {
+                checkCapacity(len);
+                Vect.memcpy(ptr, lo, len);
+                ptr += len;
+            }
+        }
+
+        private void copyFrom(Object array, long offset, long len) {
+            if (isContentPaged()) {
+                while (len > 0) {
+                    final long available = (pageHi != 0 ? pageHi : bufLo + bufferSize) - ptr;
+                    if (available == 0) {
+                        nextPage(len);
+                        continue;
+                    }
+                    final long n = Math.min(available, len);
+                    Unsafe.getUnsafe().copyMemory(array, offset, null, ptr, n);
+                    ptr += n;
+                    offset += n;
+                    len -= n;
+                }
+            } else {
+                checkCapacity(len);
+                Unsafe.getUnsafe().copyMemory(array, offset, null, ptr, len);
+                ptr += len;
+            }
+        }
+
         private void doSend(long lo, long hi, int timeoutMillis) {
             int len = (int) (hi - lo);
             if (len > 0) {
@@ -668,11 +1223,43 @@ public abstract class HttpClient implements QuietCloseable {
             }
         }
 
+        /**
+         * Sends content segments in order. The first segment is sent from the given address,
+         * which allows it to be prefixed with the preceding bytes of the head buffer.
+         */
+        private void doSendContent(long lo, int timeout) {
+            for (int i = 0, n = contentSegments.size(); i < n; i += 2) {
+                doSend(i == 0 ? lo : contentSegments.getQuick(i), contentSegments.getQuick(i + 1), timeout);
+            }
+            doSend(pageHi != 0 ? contentSegmentLo() : lo, ptr, timeout);
+        }
+
         private Request eol() {
             putEOL();
             return this;
         }
 
+        private void ensureConnected(CharSequence host, int port) {
+            if (headerSent) {
+                // a chunked request is in flight, it cannot be moved to a different connection
+                if (socket.isClosed() || !Chars.equalsNc(host, HttpClient.this.host) || port != HttpClient.this.port) {
+                    throw new HttpClientException("connection lost while streaming chunked request [host=")
+                            .put(host).put(", port=").put(port).put(']');
+                }
+                return;
+            }
+            if (socket == null || socket.isClosed()) {
+                connect(host, port);
+            } else if (fixBrokenConnection && nf.testConnection(socket.getFd(), responseParserBufLo, 1)) {
+                socket.close();
+                connect(host, port);
+            } else if (!Chars.equalsNc(host, HttpClient.this.host) || (port != HttpClient.this.port)) {
+                releaseConnection();
+                connect(host, port);
+            }
+            exchangeComplete = false;
+        }
+
         private Request putAsciiInternal(char c) {
             Utf8Sink.super.putAscii(c);
             return this;
@@ -803,20 +1390,72 @@ public abstract class HttpClient implements QuietCloseable {
             }
         }
 
-        private void sendHeaderAndContent(int maxContentLen, int timeout) {
-            final int contentLength = (int) (ptr - contentStart);
+        private long putContentLength(long lo, int contentLength) {
+            // written directly, the reserved space precedes the content and the content may be paged
+            int digits = 1;
+            for (int v = contentLength; v > 9; v /= 10) {
+                digits++;
+            }
+            long p = lo + digits;
+            int v = contentLength;
+            do {
+                Unsafe.getUnsafe().putByte(--p, (byte) ('0' + v % 10));
+                v /= 10;
+            } while (v > 0);
+            p = lo + digits;
+            Unsafe.getUnsafe().putByte(p++, (byte) '\r');
+            Unsafe.getUnsafe().putByte(p++, (byte) '\n');
+            Unsafe.getUnsafe().putByte(p++, (byte) '\r');
+            Unsafe.getUnsafe().putByte(p++, (byte) '\n');
+            return p;
+        }
+
+        private void putChunkSize(long lo, int size) {
+            for (int i = 7; i > -1; i--) {
+                Unsafe.getUnsafe().putByte(lo + i, (byte) Numbers.hexDigits[size & 0xf]);
+                size >>>= 4;
+            }
+            Unsafe.getUnsafe().putByte(lo + 8, (byte) '\r');
+            Unsafe.getUnsafe().putByte(lo + 9, (byte) '\n');
+        }
 
-            // Add content bytes into the header.
+        private void sendChunkedContent(boolean last, int timeout) {
+            final int contentLength = getContentLength();
+            // trailer may reallocate the buffer, chunk header address must be taken after
+            checkCapacity(CHUNK_TRAILER_LEN);
             final long hi = ptr;
+            try {
+                if (contentLength > 0) {
+                    putEOL();
+                    if (last) {
+                        putAsciiInternal('0').eol().eol();
+                    }
+                } else {
+                    // zero-length chunk is the last chunk, it only needs the (empty) trailer
+                    assert last;
+                    eol();
+                }
+                final long chunkLo = contentStart - CHUNK_HEADER_LEN;
+                putChunkSize(chunkLo, contentLength);
+                doSendContent(headerSent ? chunkLo : bufLo, timeout);
+            } finally {
+                // keep the content intact, the last chunk can be re-sent should the request fail
+                ptr = hi;
+            }
+            if (!last) {
+                headerSent = true;
+                streamedBytes += contentLength;
+                releasePages();
+                ptr = contentStart;
+            }
+        }
+
+        private void sendHeaderAndContent(int timeout) {
             final long headerHi;
             if (contentLengthHeaderReserved > 0) {
-                ptr = contentStart - contentLengthHeaderReserved;
-                put(contentLength);
-                eol();
-                eol();
-                headerHi = ptr;
-                assert headerHi < contentStart;
-                ptr = hi;
+                // Add content bytes into the header.
+                headerHi = putContentLength(contentStart - contentLengthHeaderReserved, getContentLength());
+                assert headerHi <= contentStart;
             } else {
                 headerHi = contentStart;
             }
@@ -825,17 +1464,17 @@ public abstract class HttpClient implements QuietCloseable {
             doSend(bufLo, headerHi, timeout);
 
             // Send content.
-            doSend(contentStart, contentStart + Math.min(hi - contentStart, maxContentLen), timeout);
+            doSendContent(contentStart, timeout);
         }
     }
 
-    public class ResponseHeaders extends HttpHeaderParser {
+    public class ResponseHeaders extends HttpHeaderParser implements HttpResponseHeaders {
         private final ChunkedResponseImpl chunkedResponse;
         private final int defaultTimeout;
         private final ResponseImpl response;
 
         public ResponseHeaders(long respParserBufLo, int respParserBufSize, int defaultTimeout, int headerBufSize, ObjectPool<DirectUtf8String> pool) {
-            super(headerBufSize, pool);
+            super(headerBufSize, pool, true);
             this.defaultTimeout = defaultTimeout;
             this.response = new ResponseImpl(respParserBufLo, respParserBufLo + respParserBufSize, defaultTimeout);
             this.chunkedResponse = new ChunkedResponseImpl(respParserBufLo, respParserBufLo + respParserBufSize, defaultTimeout);
@@ -846,27 +1485,35 @@ public abstract class HttpClient implements QuietCloseable {
         }
 
         public void await(int timeout) {
-            int totalBytesReceived = 0;
+            // the response may have started arriving along with the previous pipelined response
+            int totalBytesReceived = takeBufferedResponse();
             long unprocessedLo = responseParserBufLo;
             while (isIncomplete()) {
-                final int len = recvOrDie(responseParserBufLo + totalBytesReceived, timeout);
-                if (len > 0) {
+                if (unprocessedLo == responseParserBufLo + totalBytesReceived) {
+                    final int len = recvOrDie(responseParserBufLo + totalBytesReceived, timeout);
+                    if (len == 0) {
+                        continue;
+                    }
                     totalBytesReceived += len;
-                    unprocessedLo = parse(unprocessedLo, responseParserBufLo + totalBytesReceived, false, true);
-                    if (!isIncomplete()) {
-                        if (isChunked()) {
-                            chunkedResponse.begin(unprocessedLo, responseParserBufLo + totalBytesReceived);
-                        } else {
-                            long contentLength = getContentLength();
-                            if (contentLength > bufferSize) {
-                                throw new HttpClientException("insufficient http client buffer size: " + contentLength);
-                            }
-                            response.begin(unprocessedLo, responseParserBufLo + totalBytesReceived, contentLength);
-                        }
-                        final Utf8Sequence statusCode = getStatusCode();
-                        if (statusCode != null && Utf8s.equalsNcAscii(HTTP_NO_CONTENT, getStatusCode())) {
-                            incomplete = false;
+                }
+                unprocessedLo = parse(unprocessedLo, responseParserBufLo + totalBytesReceived, false, true);
+                if (!isIncomplete()) {
+                    final boolean keepAlive = !HttpKeywords.isClose(getHeader(HEADER_CONNECTION));
+                    final Utf8Sequence statusCode = getStatusCode();
+                    final boolean noContent = statusCode != null && Utf8s.equalsNcAscii(HTTP_NO_CONTENT, statusCode);
+                    if (isChunked()) {
+                        chunkedResponse.begin(unprocessedLo, responseParserBufLo + totalBytesReceived);
+                        chunkedResponse.keepAlive = keepAlive;
+                        chunkedResponse.complete = false;
+                    } else {
+                        long contentLength = noContent ? 0 : getContentLength();
+                        if (contentLength > bufferSize) {
+                            throw new HttpClientException("insufficient http client buffer size: " + contentLength);
                         }
+                        response.of(unprocessedLo, responseParserBufLo + totalBytesReceived, contentLength, keepAlive);
+                    }
+                    if (noContent) {
+                        incomplete = false;
                     }
                 }
             }
@@ -886,6 +1533,7 @@ public abstract class HttpClient implements QuietCloseable {
             clear();
         }
 
+        @Override
         public Response getResponse() {
             if (isChunked()) {
                 return chunkedResponse;
@@ -893,6 +1541,7 @@ public abstract class HttpClient implements QuietCloseable {
             return response;
         }
 
+        @Override
         public boolean isChunked() {
             if (isIncomplete()) {
                 throw new HttpClientException("http response headers not yet received");
@@ -906,10 +1555,41 @@ public abstract class HttpClient implements QuietCloseable {
     }
 
     private class ResponseImpl extends AbstractResponse {
+        private boolean complete;
+        private boolean keepAlive;
+
         public ResponseImpl(long bufLo, long bufHi, int defaultTimeout) {
             super(bufLo, bufHi, defaultTimeout);
         }
 
+        @Override
+        public Fragment recv(int timeout) {
+            if (complete) {
+                return null;
+            }
+            final Fragment fragment = super.recv(timeout);
+            if (fragment == null) {
+                complete();
+            }
+            return fragment;
+        }
+
+        private void complete() {
+            complete = true;
+            onResponseComplete(keepAlive, getUnconsumedLo(), getUnconsumedHi());
+        }
+
+        private void of(long lo, long hi, long contentLength, boolean keepAlive) {
+            begin(lo, hi, contentLength);
+            // a body without Content-Length is delimited by the server closing the connection
+            this.keepAlive = keepAlive && contentLength > -1;
+            this.complete = false;
+            if (contentLength < 1) {
+                // there is no body to read, the exchange is complete
+                complete();
+            }
+        }
+
         @Override
         protected int recvOrDie(long bufLo, long bufHi, int timeout) {
             return HttpClient.this.recvOrDie(bufLo, timeout);
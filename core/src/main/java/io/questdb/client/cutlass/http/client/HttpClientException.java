@@ -31,6 +31,7 @@ public class HttpClientException extends RuntimeException {
 
     private final StringSink message = new StringSink();
     private int errno = Integer.MIN_VALUE;
+    private boolean unprocessed;
 
     public HttpClientException(String message) {
         this.message.put(message);
@@ -41,6 +42,14 @@ public class HttpClientException extends RuntimeException {
         return this;
     }
 
+    /**
+     * @return true if the server is known not to have processed the request, e.g. it refused the HTTP/2
+     * stream or is shutting the connection down, so that the request can be sent again safely
+     */
+    public boolean isUnprocessed() {
+        return unprocessed;
+    }
+
     @Override
     public String getMessage() {
         if (errno == Integer.MIN_VALUE) {
@@ -77,4 +86,9 @@ public class HttpClientException extends RuntimeException {
         message.putSize(value);
         return this;
     }
+
+    public HttpClientException unprocessed() {
+        this.unprocessed = true;
+        return this;
+    }
 }
\ No newline at end of file
@@ -59,7 +59,10 @@ public class HttpClientLinux extends HttpClient {
     }
 
     protected void setupIoWait() {
-        if (epoll.control(socket.getFd(), 0, EpollAccessor.EPOLL_CTL_ADD, EpollAccessor.EPOLLOUT) < 0) {
+        // a pooled connection this client used before is still registered, registrations are
+        // one-shot, so while the connection was used elsewhere it could not wake this client up
+        if (epoll.control(socket.getFd(), 0, EpollAccessor.EPOLL_CTL_ADD, EpollAccessor.EPOLLOUT) < 0
+                && epoll.control(socket.getFd(), 0, EpollAccessor.EPOLL_CTL_MOD, EpollAccessor.EPOLLOUT) < 0) {
             throw new HttpClientException("internal error: epoll_ctl failure [cmd=add, errno=").put(nf.errno()).put(']');
         }
     }
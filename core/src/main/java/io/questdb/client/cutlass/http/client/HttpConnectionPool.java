@@ -0,0 +1,292 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.network.NetworkFacade;
+import io.questdb.client.network.Socket;
+import io.questdb.client.network.SocketFactory;
+import io.questdb.client.std.Chars;
+import io.questdb.client.std.LongList;
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.datetime.NanosecondClock;
+import io.questdb.client.std.datetime.nanotime.NanosecondClockImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe pool of idle, kept-alive HTTP connections, shared by {@link HttpClient} instances that are
+ * configured with it. When a client is closed, or moves on to a different host, a connection that has no
+ * request or response outstanding is parked in the pool instead of being closed. The next client to connect
+ * to the same endpoint takes it over, along with the established TLS session, and skips both the TCP and
+ * the TLS handshake.
+ * <p>
+ * Connections are keyed by host, port and socket factory, the latter carrying the TLS configuration. The
+ * pool keeps up to a limited number of idle connections per endpoint, connections released beyond that limit
+ * are closed. Connections that stay idle for longer than the idle timeout are closed the next time the pool
+ * is used, or when {@link #reap()} is called.
+ * <p>
+ * The process-wide pool is obtained via {@link #getInstance()}.
+ */
+public final class HttpConnectionPool implements QuietCloseable {
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_IDLE_PER_HOST = 8;
+    private static HttpConnectionPool instance;
+    private final NanosecondClock clock;
+    private final ObjList<Endpoint> endpoints = new ObjList<>();
+    private final long idleTimeoutNanos;
+    private final int maxIdlePerHost;
+    private long evictionCount;
+    private long hitCount;
+    private int idleCount;
+    private long missCount;
+    private long nextReapTicks = Long.MAX_VALUE;
+    private long reapCount;
+
+    public HttpConnectionPool(int maxIdlePerHost, long idleTimeoutMillis) {
+        this(maxIdlePerHost, idleTimeoutMillis, NanosecondClockImpl.INSTANCE);
+    }
+
+    public HttpConnectionPool(int maxIdlePerHost, long idleTimeoutMillis, NanosecondClock clock) {
+        if (maxIdlePerHost < 1) {
+            throw new HttpClientException("max idle connections per host must be positive [maxIdlePerHost=").put(maxIdlePerHost).put(']');
+        }
+        if (idleTimeoutMillis < 1) {
+            throw new HttpClientException("idle timeout must be positive [idleTimeoutMillis=").put(idleTimeoutMillis).put(']');
+        }
+        this.maxIdlePerHost = maxIdlePerHost;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the process-wide pool. It keeps up to {@link #DEFAULT_MAX_IDLE_PER_HOST} idle connections per
+     * endpoint for up to {@link #DEFAULT_IDLE_TIMEOUT_MILLIS}.
+     *
+     * @return shared pool instance
+     */
+    public static synchronized HttpConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new HttpConnectionPool(DEFAULT_MAX_IDLE_PER_HOST, DEFAULT_IDLE_TIMEOUT_MILLIS);
+        }
+        return instance;
+    }
+
+    /**
+     * Takes the most recently released idle connection to the endpoint, if there is one. The connection is
+     * open, but may have been closed by the server while idle, which the caller is expected to check.
+     *
+     * @return connected socket, owned by the caller, or null when there is no idle connection to the endpoint
+     */
+    public synchronized Socket acquire(CharSequence host, int port, SocketFactory socketFactory, NetworkFacade nf) {
+        final long now = clock.getTicks();
+        reapIfDue(now);
+        final Endpoint endpoint = findEndpoint(host, port, socketFactory, nf);
+        if (endpoint != null) {
+            final int n = endpoint.sockets.size();
+            if (n > 0) {
+                final Socket socket = endpoint.sockets.getQuick(n - 1);
+                endpoint.sockets.remove(n - 1);
+                endpoint.releaseTicks.setPos(n - 1);
+                idleCount--;
+                hitCount++;
+                return socket;
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Closes all idle connections. The pool remains usable.
+     */
+    @Override
+    public synchronized void close() {
+        for (int i = 0, n = endpoints.size(); i < n; i++) {
+            final Endpoint endpoint = endpoints.getQuick(i);
+            for (int j = 0, m = endpoint.sockets.size(); j < m; j++) {
+                endpoint.sockets.getQuick(j).close();
+            }
+            endpoint.sockets.clear();
+            endpoint.releaseTicks.clear();
+        }
+        idleCount = 0;
+        nextReapTicks = Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of idle connections closed because their endpoint already had the maximum number
+     * of idle connections.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of connections handed out by {@link #acquire(CharSequence, int, SocketFactory, NetworkFacade)}.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getIdleCount() {
+        return idleCount;
+    }
+
+    public synchronized int getIdleCount(CharSequence host, int port) {
+        int count = 0;
+        for (int i = 0, n = endpoints.size(); i < n; i++) {
+            final Endpoint endpoint = endpoints.getQuick(i);
+            if (endpoint.port == port && Chars.equals(endpoint.host, host)) {
+                count += endpoint.sockets.size();
+            }
+        }
+        return count;
+    }
+
+    public int getMaxIdlePerHost() {
+        return maxIdlePerHost;
+    }
+
+    /**
+     * Returns the number of {@link #acquire(CharSequence, int, SocketFactory, NetworkFacade)} calls that found
+     * no idle connection, i.e. that left the caller to connect.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of idle connections closed because they exceeded the idle timeout.
+     */
+    public synchronized long getReapCount() {
+        return reapCount;
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle timeout.
+     */
+    public synchronized void reap() {
+        reap(clock.getTicks());
+    }
+
+    /**
+     * Parks a connected socket that has no request or response outstanding. The pool takes ownership of the
+     * socket, it must not be used by the caller after this call.
+     */
+    public synchronized void release(CharSequence host, int port, SocketFactory socketFactory, NetworkFacade nf, Socket socket) {
+        final long now = clock.getTicks();
+        reapIfDue(now);
+        Endpoint endpoint = findEndpoint(host, port, socketFactory, nf);
+        if (endpoint == null) {
+            endpoint = new Endpoint(Chars.toString(host), port, socketFactory, nf);
+            endpoints.add(endpoint);
+        }
+        if (endpoint.sockets.size() == maxIdlePerHost) {
+            // evict the connection that has been idle the longest
+            endpoint.sockets.getQuick(0).close();
+            endpoint.removeOldest(1);
+            idleCount--;
+            evictionCount++;
+        }
+        endpoint.sockets.add(socket);
+        endpoint.releaseTicks.add(now);
+        idleCount++;
+        nextReapTicks = Math.min(nextReapTicks, now + idleTimeoutNanos);
+    }
+
+    private Endpoint findEndpoint(CharSequence host, int port, SocketFactory socketFactory, NetworkFacade nf) {
+        for (int i = 0, n = endpoints.size(); i < n; i++) {
+            final Endpoint endpoint = endpoints.getQuick(i);
+            if (endpoint.port == port
+                    && endpoint.nf == nf
+                    && endpoint.socketFactory.equals(socketFactory)
+                    && Chars.equals(endpoint.host, host)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    private void reap(long now) {
+        long next = Long.MAX_VALUE;
+        for (int i = 0, n = endpoints.size(); i < n; i++) {
+            final Endpoint endpoint = endpoints.getQuick(i);
+            // connections are ordered by release time, the expired ones are at the front
+            int expired = 0;
+            for (int m = endpoint.sockets.size(); expired < m; expired++) {
+                final long expiryTicks = endpoint.releaseTicks.getQuick(expired) + idleTimeoutNanos;
+                if (expiryTicks > now) {
+                    next = Math.min(next, expiryTicks);
+                    break;
+                }
+                endpoint.sockets.getQuick(expired).close();
+            }
+            if (expired > 0) {
+                endpoint.removeOldest(expired);
+                idleCount -= expired;
+                reapCount += expired;
+            }
+        }
+        nextReapTicks = next;
+    }
+
+    private void reapIfDue(long now) {
+        if (now >= nextReapTicks) {
+            reap(now);
+        }
+    }
+
+    private static class Endpoint {
+        private final String host;
+        private final NetworkFacade nf;
+        private final int port;
+        // release time of each idle socket, in the same order as the sockets
+        private final LongList releaseTicks = new LongList();
+        private final SocketFactory socketFactory;
+        private final ObjList<Socket> sockets = new ObjList<>();
+
+        private Endpoint(String host, int port, SocketFactory socketFactory, NetworkFacade nf) {
+            this.host = host;
+            this.port = port;
+            this.socketFactory = socketFactory;
+            this.nf = nf;
+        }
+
+        private void removeOldest(int count) {
+            final int n = sockets.size();
+            for (int i = count; i < n; i++) {
+                sockets.setQuick(i - count, sockets.getQuick(i));
+                releaseTicks.setQuick(i - count, releaseTicks.getQuick(i));
+            }
+            for (int i = n - count; i < n; i++) {
+                sockets.setQuick(i, null);
+            }
+            sockets.setPos(n - count);
+            releaseTicks.setPos(n - count);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.std.str.DirectUtf8Sequence;
+import io.questdb.client.std.str.Utf8Sequence;
+
+/**
+ * Status and headers of a received HTTP response, along with access to its body, regardless of the
+ * HTTP version it was received with.
+ */
+public interface HttpResponseHeaders {
+
+    DirectUtf8Sequence getContentType();
+
+    DirectUtf8Sequence getHeader(Utf8Sequence name);
+
+    /**
+     * @return the response body; it must be read in full before the next response on the same connection
+     */
+    Response getResponse();
+
+    DirectUtf8Sequence getStatusCode();
+
+    /**
+     * @return true if the body is framed, i.e. its length is not known upfront and it is read in
+     * fragments until the end of the response; always true for HTTP/2 responses
+     */
+    boolean isChunked();
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.ClientTlsConfiguration;
+import io.questdb.client.HttpClientConfiguration;
+import io.questdb.client.std.Misc;
+import io.questdb.client.std.QuietCloseable;
+
+/**
+ * Runs SQL queries against the {@code /exec} endpoint of a QuestDB server and streams the
+ * result set through a reusable {@link QueryCursor}.
+ * <p>
+ * The client runs one query at a time: executing a query closes the cursor of the previous
+ * one. Not thread-safe.
+ * <pre>
+ * try (QueryClient client = QueryClient.newPlainTextInstance("localhost", 9000)) {
+ *     QueryCursor cursor = client.execute("select sym, price from trades");
+ *     while (cursor.hasNext()) {
+ *         CharSequence sym = cursor.getStr(0);
+ *         double price = cursor.getDouble(1);
+ *     }
+ * }
+ * </pre>
+ */
+public class QueryClient implements QuietCloseable {
+    // longest single value, such as a string or an array, the cursor accepts
+    private static final int MAX_VALUE_LENGTH = 16 * 1024 * 1024;
+    private final HttpClient client;
+    private final QueryCursor cursor;
+    private final String host;
+    private final int port;
+    private String authPassword;
+    private String authToken;
+    private String authUsername;
+
+    /**
+     * @param client HTTP client to run queries with, the query client takes ownership of it
+     */
+    public QueryClient(HttpClient client, String host, int port) {
+        this.client = client;
+        this.host = host;
+        this.port = port;
+        this.cursor = new QueryCursor(client, MAX_VALUE_LENGTH);
+    }
+
+    public static QueryClient newPlainTextInstance(String host, int port) {
+        return new QueryClient(HttpClientFactory.newPlainTextInstance(), host, port);
+    }
+
+    public static QueryClient newTlsInstance(
+            HttpClientConfiguration configuration,
+            ClientTlsConfiguration tlsConfig,
+            String host,
+            int port
+    ) {
+        return new QueryClient(HttpClientFactory.newTlsInstance(configuration, tlsConfig), host, port);
+    }
+
+    public QueryClient authBasic(String username, String password) {
+        this.authUsername = username;
+        this.authPassword = password;
+        this.authToken = null;
+        return this;
+    }
+
+    public QueryClient authToken(String token) {
+        this.authToken = token;
+        this.authUsername = null;
+        this.authPassword = null;
+        return this;
+    }
+
+    @Override
+    public void close() {
+        Misc.free(cursor);
+        Misc.free(client);
+    }
+
+    /**
+     * Sends the query and waits for the response headers. The rows are received lazily,
+     * as the returned cursor is advanced.
+     *
+     * @return cursor over the result set, reused by the next call
+     * @throws HttpClientException if the query cannot be sent, or the server rejects it
+     */
+    public QueryCursor execute(CharSequence sql) {
+        cursor.close();
+        final HttpClient.Request request = client.newRequest(host, port)
+                .GET()
+                .url("/exec")
+                .query("query", sql);
+        if (authToken != null) {
+            request.authToken(authToken);
+        } else if (authUsername != null) {
+            request.authBasic(authUsername, authPassword);
+        }
+        final HttpClient.ResponseHeaders responseHeaders = request.send();
+        responseHeaders.await();
+        cursor.of(responseHeaders);
+        return cursor;
+    }
+}
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.json.JsonException;
+import io.questdb.client.cutlass.json.JsonLexer;
+import io.questdb.client.cutlass.json.JsonParser;
+import io.questdb.client.std.Chars;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.NumericException;
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.QuietCloseable;
+import io.questdb.client.std.str.AbstractCharSequence;
+import io.questdb.client.std.str.DirectUtf8Sequence;
+import io.questdb.client.std.str.StringSink;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Forward-only cursor over the result set of a {@link QueryClient#execute(CharSequence)} call.
+ * <p>
+ * The JSON response of {@code /exec} is parsed incrementally, one received fragment at a time,
+ * and only the rows of the current fragment are buffered, so memory use is bounded by the
+ * response buffer size whatever the size of the result. Rows are decoded into reusable buffers
+ * and the getters do not allocate: {@link #getStr(int)} returns a view that is valid until the
+ * next call to {@link #hasNext()}.
+ * <p>
+ * Values are typed by the server's JSON rendering: numbers can be read with the numeric getters,
+ * while timestamps, dates, UUIDs and other types rendered as strings are read with
+ * {@link #getStr(int)}. Array values are returned by {@link #getStr(int)} in their JSON form.
+ */
+public class QueryCursor implements JsonParser, QuietCloseable {
+    private static final int FIELD_COLUMNS = 1;
+    private static final int FIELD_COLUMN_NAME = 2;
+    private static final int FIELD_COLUMN_TYPE = 3;
+    private static final int FIELD_DATASET = 4;
+    private static final int FIELD_ERROR = 5;
+    private static final int FIELD_NONE = 0;
+    private static final int FIELD_POSITION = 6;
+    // JSON nesting of the result set: {"columns":[{...}],"dataset":[[cell, [nested]]]}
+    private static final int DEPTH_CELL = 3;
+    private static final int DEPTH_ROWS = 2;
+    private static final int DEPTH_TOP = 1;
+    private static final int NULL_HI = -1;
+    private final HttpClient client;
+    private final ObjList<StringSink> columnNames = new ObjList<>();
+    private final IntList columnTypes = new IntList();
+    private final StringSink error = new StringSink();
+    private final JsonLexer lexer;
+    // lo and hi offsets in values of each buffered value, hi is NULL_HI for nulls
+    private final IntList valueBounds = new IntList();
+    private final ObjList<ValueView> views = new ObjList<>();
+    private int bufferedRows;
+    private int columnCount;
+    private int columnField;
+    private int depth;
+    private boolean done = true;
+    private int errorPosition = -1;
+    private boolean hasError;
+    private int nestedCellLo;
+    private Response response;
+    private int rowIndex;
+    private StringSink spareValues = new StringSink();
+    private int topField;
+    private StringSink values = new StringSink();
+
+    QueryCursor(HttpClient client, int maxValueLength) {
+        this.client = client;
+        this.lexer = new JsonLexer(1024, maxValueLength);
+    }
+
+    /**
+     * Abandons the rest of the result set. When rows are left unread, the connection is
+     * closed rather than drained, so that closing is cheap whatever the result size.
+     */
+    @Override
+    public void close() {
+        if (!done) {
+            done = true;
+            client.disconnect();
+        }
+        bufferedRows = 0;
+        rowIndex = 0;
+        response = null;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return index of the column with the given name, case-insensitive, or -1 when there is none
+     */
+    public int getColumnIndex(CharSequence name) {
+        for (int i = 0; i < columnCount; i++) {
+            if (Chars.equalsIgnoreCase(columnNames.getQuick(i), name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public CharSequence getColumnName(int col) {
+        return columnNames.getQuick(col);
+    }
+
+    /**
+     * @return the {@link ColumnType} of the column as reported by the server, or -1 when
+     * this client does not know the type
+     */
+    public int getColumnType(int col) {
+        return columnTypes.getQuick(col);
+    }
+
+    public boolean getBool(int col) {
+        final ValueView value = value(col);
+        return value != null && Chars.equals(value, "true");
+    }
+
+    /**
+     * @return the value, or NaN for nulls
+     */
+    public double getDouble(int col) {
+        final ValueView value = value(col);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Numbers.parseDouble(value);
+        } catch (NumericException e) {
+            throw typeMismatch(col, "double");
+        }
+    }
+
+    /**
+     * @return the value, or {@link Numbers#INT_NULL} for nulls
+     */
+    public int getInt(int col) {
+        final ValueView value = value(col);
+        if (value == null) {
+            return Numbers.INT_NULL;
+        }
+        try {
+            return Numbers.parseInt(value);
+        } catch (NumericException e) {
+            throw typeMismatch(col, "int");
+        }
+    }
+
+    /**
+     * @return the value, or {@link Numbers#LONG_NULL} for nulls
+     */
+    public long getLong(int col) {
+        final ValueView value = value(col);
+        if (value == null) {
+            return Numbers.LONG_NULL;
+        }
+        try {
+            return Numbers.parseLong(value);
+        } catch (NumericException e) {
+            throw typeMismatch(col, "long");
+        }
+    }
+
+    /**
+     * @return a view of the value that is valid until the next call to {@link #hasNext()},
+     * or null for nulls
+     */
+    @Nullable
+    public CharSequence getStr(int col) {
+        return value(col);
+    }
+
+    /**
+     * Moves to the next row, receiving and parsing more of the response when the rows
+     * buffered so far have been read.
+     *
+     * @return false once the result set is exhausted
+     * @throws HttpClientException if the response is malformed, or the server reports an error
+     */
+    public boolean hasNext() {
+        if (++rowIndex < bufferedRows) {
+            return true;
+        }
+        compactValues();
+        try {
+            while (!done && bufferedRows == 0) {
+                final Fragment fragment = response.recv();
+                if (fragment == null) {
+                    lexer.parseLast();
+                    done = true;
+                } else {
+                    lexer.parse(fragment.lo(), fragment.hi(), this);
+                }
+            }
+        } catch (JsonException e) {
+            close();
+            throw new HttpClientException("malformed query result [position=").put(e.getPosition())
+                    .put("]: ").put(e.getFlyweightMessage());
+        }
+        rowIndex = 0;
+        if (bufferedRows > 0) {
+            return true;
+        }
+        if (hasError) {
+            throw queryError(null);
+        }
+        return false;
+    }
+
+    public boolean isNull(int col) {
+        return valueBounds.getQuick(valueIndex(col) + 1) == NULL_HI;
+    }
+
+    @Override
+    public void onEvent(int code, CharSequence tag, int position) throws JsonException {
+        switch (code) {
+            case JsonLexer.EVT_OBJ_START:
+                depth++;
+                break;
+            case JsonLexer.EVT_OBJ_END:
+                depth--;
+                break;
+            case JsonLexer.EVT_ARRAY_START:
+                if (topField == FIELD_DATASET && depth >= DEPTH_CELL) {
+                    // array value of a cell
+                    if (depth == DEPTH_CELL) {
+                        nestedCellLo = values.length();
+                    } else {
+                        putNestedSeparator();
+                    }
+                    values.put('[');
+                }
+                depth++;
+                break;
+            case JsonLexer.EVT_ARRAY_END:
+                depth--;
+                if (topField == FIELD_DATASET) {
+                    if (depth > DEPTH_CELL) {
+                        values.put(']');
+                    } else if (depth == DEPTH_CELL) {
+                        values.put(']');
+                        valueBounds.add(nestedCellLo);
+                        valueBounds.add(values.length());
+                    } else if (depth == DEPTH_ROWS) {
+                        onRowEnd(position);
+                    }
+                }
+                break;
+            case JsonLexer.EVT_NAME:
+                if (depth == DEPTH_TOP) {
+                    topField = topField(tag);
+                } else if (topField == FIELD_COLUMNS) {
+                    columnField = Chars.equals(tag, "name") ? FIELD_COLUMN_NAME
+                            : Chars.equals(tag, "type") ? FIELD_COLUMN_TYPE : FIELD_NONE;
+                }
+                break;
+            case JsonLexer.EVT_VALUE:
+                onValue(tag);
+                break;
+            case JsonLexer.EVT_ARRAY_VALUE:
+                if (topField == FIELD_DATASET) {
+                    if (depth == DEPTH_CELL) {
+                        putCell(tag);
+                    } else if (depth > DEPTH_CELL) {
+                        putNestedSeparator();
+                        putValue(tag);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int topField(CharSequence name) {
+        if (Chars.equals(name, "dataset")) {
+            return FIELD_DATASET;
+        }
+        if (Chars.equals(name, "columns")) {
+            return FIELD_COLUMNS;
+        }
+        if (Chars.equals(name, "error")) {
+            return FIELD_ERROR;
+        }
+        if (Chars.equals(name, "position")) {
+            return FIELD_POSITION;
+        }
+        return FIELD_NONE;
+    }
+
+    private static void unescape(CharSequence cs, StringSink sink) {
+        for (int i = 0, n = cs.length(); i < n; i++) {
+            char c = cs.charAt(i);
+            if (c != '\\' || i + 1 == n) {
+                sink.put(c);
+                continue;
+            }
+            c = cs.charAt(++i);
+            switch (c) {
+                case 'b':
+                    sink.put('\b');
+                    break;
+                case 'f':
+                    sink.put('\f');
+                    break;
+                case 'n':
+                    sink.put('\n');
+                    break;
+                case 'r':
+                    sink.put('\r');
+                    break;
+                case 't':
+                    sink.put('\t');
+                    break;
+                case 'u':
+                    if (i + 4 < n) {
+                        try {
+                            sink.put((char) Numbers.parseHexInt(cs, i + 1, i + 5));
+                            i += 4;
+                            break;
+                        } catch (NumericException ignore) {
+                            // keep the malformed escape as it is
+                        }
+                    }
+                    sink.put('\\').put(c);
+                    break;
+                default:
+                    // quote, backslash and slash stand for themselves
+                    sink.put(c);
+                    break;
+            }
+        }
+    }
+
+    private void compactValues() {
+        final int consumed = bufferedRows * columnCount * 2;
+        bufferedRows = 0;
+        final int n = valueBounds.size();
+        if (consumed == n && (topField != FIELD_DATASET || depth <= DEPTH_CELL)) {
+            values.clear();
+            valueBounds.clear();
+            return;
+        }
+        // move the values of a partially received row to the front
+        final int base = consumed < n ? valueBounds.getQuick(consumed) : nestedCellLo;
+        spareValues.clear();
+        spareValues.put(values, base, values.length());
+        final StringSink tmp = values;
+        values = spareValues;
+        spareValues = tmp;
+        for (int i = consumed; i < n; i += 2) {
+            final int hi = valueBounds.getQuick(i + 1);
+            valueBounds.setQuick(i - consumed, valueBounds.getQuick(i) - base);
+            valueBounds.setQuick(i - consumed + 1, hi == NULL_HI ? NULL_HI : hi - base);
+        }
+        valueBounds.setPos(n - consumed);
+        nestedCellLo -= base;
+    }
+
+    private void onRowEnd(int position) throws JsonException {
+        final int expected = (bufferedRows + 1) * columnCount * 2;
+        if (columnCount == 0 || valueBounds.size() != expected) {
+            throw JsonException.$(position, "row does not match the columns [columnCount=")
+                    .put(Integer.toString(columnCount)).put(']');
+        }
+        bufferedRows++;
+    }
+
+    private void onValue(CharSequence tag) {
+        switch (topField) {
+            case FIELD_COLUMNS:
+                if (columnField == FIELD_COLUMN_NAME) {
+                    StringSink name;
+                    if (columnCount < columnNames.size()) {
+                        name = columnNames.getQuick(columnCount);
+                    } else {
+                        name = new StringSink();
+                        columnNames.extendAndSet(columnCount, name);
+                        views.extendAndSet(columnCount, new ValueView());
+                    }
+                    name.clear();
+                    unescape(tag, name);
+                    columnTypes.extendAndSet(columnCount, -1);
+                } else if (columnField == FIELD_COLUMN_TYPE) {
+                    columnTypes.setQuick(columnCount, ColumnType.typeOf(tag));
+                    // the type is the last attribute of a column
+                    columnCount++;
+                }
+                break;
+            case FIELD_ERROR:
+                hasError = true;
+                error.clear();
+                unescape(tag, error);
+                break;
+            case FIELD_POSITION:
+                errorPosition = Numbers.parseIntQuiet(tag);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void putCell(CharSequence tag) {
+        final int lo = values.length();
+        valueBounds.add(lo);
+        if (!lexer.isQuoted() && Chars.equals(tag, "null")) {
+            valueBounds.add(NULL_HI);
+        } else {
+            putValue(tag);
+            valueBounds.add(values.length());
+        }
+    }
+
+    private void putNestedSeparator() {
+        if (values.length() > nestedCellLo && values.charAt(values.length() - 1) != '[') {
+            values.put(',');
+        }
+    }
+
+    private void putValue(CharSequence tag) {
+        if (lexer.isQuoted()) {
+            unescape(tag, values);
+        } else {
+            values.put(tag);
+        }
+    }
+
+    private HttpClientException queryError(@Nullable DirectUtf8Sequence statusCode) {
+        final HttpClientException e = new HttpClientException("query failed");
+        if (statusCode != null) {
+            e.put(" [status=").put(statusCode.asAsciiCharSequence()).put(']');
+        }
+        if (hasError) {
+            if (errorPosition > -1) {
+                e.put(" [position=").put(errorPosition).put(']');
+            }
+            e.put(": ").put(error);
+        }
+        return e;
+    }
+
+    private HttpClientException typeMismatch(int col, String type) {
+        return new HttpClientException("value is not a ").put(type)
+                .put(" [column=").put(columnNames.getQuick(col))
+                .put(", value=").put(getStr(col)).put(']');
+    }
+
+    @Nullable
+    private ValueView value(int col) {
+        final int index = valueIndex(col);
+        final int hi = valueBounds.getQuick(index + 1);
+        if (hi == NULL_HI) {
+            return null;
+        }
+        return views.getQuick(col).of(valueBounds.getQuick(index), hi);
+    }
+
+    private int valueIndex(int col) {
+        return (rowIndex * columnCount + col) * 2;
+    }
+
+    void of(HttpClient.ResponseHeaders responseHeaders) {
+        lexer.clear();
+        valueBounds.clear();
+        values.clear();
+        error.clear();
+        hasError = false;
+        errorPosition = -1;
+        bufferedRows = 0;
+        rowIndex = -1;
+        columnCount = 0;
+        depth = 0;
+        topField = FIELD_NONE;
+        columnField = FIELD_NONE;
+        response = responseHeaders.getResponse();
+        done = false;
+        final DirectUtf8Sequence statusCode = responseHeaders.getStatusCode();
+        if (statusCode == null || statusCode.size() != 3 || statusCode.byteAt(0) != '2') {
+            // error bodies are small, read the whole of it for the message
+            try {
+                while (hasNext()) {
+                    // no rows are expected
+                }
+            } catch (HttpClientException ignore) {
+                // not a JSON error, report the status alone
+            }
+            close();
+            client.disconnect();
+            throw queryError(statusCode);
+        }
+        // parse the response up to the first row, so that column metadata is available
+        if (hasNext()) {
+            rowIndex = -1;
+        }
+    }
+
+    private class ValueView extends AbstractCharSequence {
+        private int hi;
+        private int lo;
+
+        @Override
+        public char charAt(int index) {
+            return values.charAt(lo + index);
+        }
+
+        @Override
+        public int length() {
+            return hi - lo;
+        }
+
+        ValueView of(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+            return this;
+        }
+
+        @Override
+        protected CharSequence _subSequence(int start, int end) {
+            return values.subSequence(lo + start, lo + end);
+        }
+    }
+}
@@ -31,11 +31,21 @@ import io.questdb.client.std.Mutable;
 import io.questdb.client.std.Numbers;
 import io.questdb.client.std.Unsafe;
 import io.questdb.client.std.Vect;
+import io.questdb.client.std.str.AbstractCharSequence;
 import io.questdb.client.std.str.StringSink;
 import io.questdb.client.std.str.Utf8s;
 
 import java.io.Closeable;
 
+/**
+ * Incremental JSON lexer, fed fragments of a document as they arrive.
+ * <p>
+ * Strings and unquoted values are scanned eight bytes at a time, SWAR style, for the bytes
+ * that end them, so long values cost no per-byte branches. A value that is ASCII and lies
+ * within one fragment is handed to the listener as a view over the input bytes, values that
+ * are not ASCII or straddle fragments are decoded into a reused sink. Either way the tag is
+ * only valid while the event is being handled.
+ */
 public class JsonLexer implements Mutable, Closeable {
     public static final int EVT_ARRAY_END = 4;
     public static final int EVT_ARRAY_START = 3;
@@ -50,8 +60,20 @@ public class JsonLexer implements Mutable, Closeable {
     private static final int S_EXPECT_NAME = 1;
     private static final int S_EXPECT_VALUE = 2;
     private static final int S_START = 0;
+    private static final long SWAR_BACKSLASHES = 0x5c5c5c5c5c5c5c5cL;
+    // '[' and '{', or ']' and '}', differ in bit 5 only: OR-ing it in folds each pair into one test
+    private static final long SWAR_CLOSE_BRACES = 0x7d7d7d7d7d7d7d7dL;
+    private static final long SWAR_COMMAS = 0x2c2c2c2c2c2c2c2cL;
+    private static final long SWAR_HIGH_BITS = 0x8080808080808080L;
+    private static final long SWAR_LOW_BITS = 0x0101010101010101L;
+    private static final long SWAR_OPEN_BRACES = 0x7b7b7b7b7b7b7b7bL;
+    private static final long SWAR_QUOTES = 0x2222222222222222L;
+    private static final long SWAR_SPACE_BITS = 0x2020202020202020L;
+    // bytes below '!' include all the whitespace terminators
+    private static final long SWAR_WHITESPACE_LIMIT = 0x2121212121212121L;
     private static final IntHashSet unquotedTerminators = new IntHashSet(256);
     private final IntStack arrayDepthStack = new IntStack(64);
+    private final AsciiView asciiView = new AsciiView();
     private final int cacheSizeLimit;
     private final IntStack objDepthStack = new IntStack(64);
     private final StringSink sink = new StringSink();
@@ -97,6 +119,15 @@ public class JsonLexer implements Mutable, Closeable {
         }
     }
 
+    /**
+     * Tells whether the value of the current {@link #EVT_VALUE} or {@link #EVT_ARRAY_VALUE}
+     * event was a quoted string, e.g. to tell {@code "null"} from {@code null}. Only valid
+     * while the event is being handled.
+     */
+    public boolean isQuoted() {
+        return quoted;
+    }
+
     public void parse(long lo, long hi, JsonParser listener) throws JsonException {
         if (lo >= hi) {
             return;
@@ -113,6 +144,13 @@ public class JsonLexer implements Mutable, Closeable {
         int arrayDepth = this.arrayDepth;
 
         while (p < hi) {
+            if (valueStart > 0 && !ignoreNext) {
+                // skip the bytes that cannot end the value
+                p = quoted ? skipQuoted(p, hi) : skipUnquoted(p, hi);
+                if (p == hi) {
+                    break;
+                }
+            }
             char c = (char) Unsafe.getUnsafe().getByte(p++);
 
             if (ignoreNext) {
@@ -135,6 +173,8 @@ public class JsonLexer implements Mutable, Closeable {
                 }
 
                 int vp = (int) (posAtStart + valueStart - lo + 1 - cacheSize);
+                // visible to the listener via isQuoted()
+                this.quoted = quoted;
                 if (state == S_EXPECT_NAME || state == S_EXPECT_FIRST_NAME) {
                     listener.onEvent(EVT_NAME, getCharSequence(valueStart, p, vp), vp);
                     state = S_EXPECT_COLON;
@@ -281,10 +321,46 @@ public class JsonLexer implements Mutable, Closeable {
         }
     }
 
+    private static boolean hasZeroByte(long word) {
+        return ((word - SWAR_LOW_BITS) & ~word & SWAR_HIGH_BITS) != 0;
+    }
+
     private static boolean isNotATerminator(char c) {
         return unquotedTerminators.excludes(c);
     }
 
+    /**
+     * @return address of the first 8-byte word in {@code [p, hi)} that may hold a quote or
+     * a backslash, or of the tail shorter than a word
+     */
+    private static long skipQuoted(long p, long hi) {
+        for (; p + Long.BYTES <= hi; p += Long.BYTES) {
+            final long word = Unsafe.getUnsafe().getLong(p);
+            if (hasZeroByte(word ^ SWAR_QUOTES) || hasZeroByte(word ^ SWAR_BACKSLASHES)) {
+                break;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return address of the first 8-byte word in {@code [p, hi)} that may hold a terminator
+     * of an unquoted value, or of the tail shorter than a word
+     */
+    private static long skipUnquoted(long p, long hi) {
+        for (; p + Long.BYTES <= hi; p += Long.BYTES) {
+            final long word = Unsafe.getUnsafe().getLong(p);
+            final long folded = word | SWAR_SPACE_BITS;
+            if (((word - SWAR_WHITESPACE_LIMIT) & ~word & SWAR_HIGH_BITS) != 0
+                    || hasZeroByte(word ^ SWAR_COMMAS)
+                    || hasZeroByte(folded ^ SWAR_OPEN_BRACES)
+                    || hasZeroByte(folded ^ SWAR_CLOSE_BRACES)) {
+                break;
+            }
+        }
+        return p;
+    }
+
     private static JsonException unsupportedEncoding(int position) {
         return JsonException.$(position, "Unsupported encoding");
     }
@@ -319,6 +395,9 @@ public class JsonLexer implements Mutable, Closeable {
     }
 
     private CharSequence getCharSequence(long lo, long hi, int position) throws JsonException {
+        if (cacheSize == 0 && Utf8s.isAscii(lo, hi - 1)) {
+            return asciiView.of(lo, hi - 1);
+        }
         sink.clear();
         if (cacheSize == 0) {
             if (!Utf8s.utf8ToUtf16(lo, hi - 1, sink)) {
@@ -387,6 +466,32 @@ public class JsonLexer implements Mutable, Closeable {
         }
     }
 
+    private static class AsciiView extends AbstractCharSequence {
+        private long hi;
+        private long lo;
+
+        @Override
+        public char charAt(int index) {
+            return (char) Unsafe.getUnsafe().getByte(lo + index);
+        }
+
+        @Override
+        public int length() {
+            return (int) (hi - lo);
+        }
+
+        AsciiView of(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+            return this;
+        }
+
+        @Override
+        protected CharSequence _subSequence(int start, int end) {
+            return new AsciiView().of(lo + start, lo + end);
+        }
+    }
+
     static {
         unquotedTerminators.add(' ');
         unquotedTerminators.add('\t');
@@ -25,14 +25,19 @@
 package io.questdb.client.cutlass.line;
 
 import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
 import io.questdb.client.cairo.TableUtils;
 import io.questdb.client.cutlass.auth.AuthUtils;
+import io.questdb.client.cutlass.line.tcp.DelegatingTlsChannel;
+import io.questdb.client.std.DoubleFormatter;
+import io.questdb.client.std.LongFormatter;
 import io.questdb.client.std.MemoryTag;
 import io.questdb.client.std.Misc;
-import io.questdb.client.std.Numbers;
+import io.questdb.client.std.NativeMemoryBudget;
 import io.questdb.client.std.Unsafe;
 import io.questdb.client.std.Vect;
 import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.std.str.ByteArrayUtf8String;
 import io.questdb.client.std.str.Utf8Sequence;
 import io.questdb.client.std.str.Utf8Sink;
 import io.questdb.client.std.str.Utf8s;
@@ -48,11 +53,16 @@ import java.security.SignatureException;
 import java.util.Base64;
 
 public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender {
+    // chars reserved per step when escaping, keeps the reservation well below the buffer capacity
+    private static final int ESCAPE_CHUNK_CHARS = 128;
     protected final int capacity;
     private final long bufA;
     private final long bufB;
     private final DirectByteSlice bufferView = new DirectByteSlice();
     private final int maxNameLength;
+    private final LineSenderMetrics metrics = new LineSenderMetrics();
+    private final ByteArrayUtf8String nameBytes = new ByteArrayUtf8String();
+    private final ByteArrayUtf8String valueBytes = new ByteArrayUtf8String();
     protected long hi;
     protected LineChannel lineChannel;
     protected long ptr;
@@ -71,13 +81,25 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         this.enableValidation = true;
         this.maxNameLength = maxNameLength;
 
-        bufA = Unsafe.malloc(capacity, MemoryTag.NATIVE_ILP_RSS);
-        bufB = Unsafe.malloc(capacity, MemoryTag.NATIVE_ILP_RSS);
+        NativeMemoryBudget.INSTANCE.acquire(2L * capacity);
+        long buf = 0;
+        try {
+            buf = Unsafe.malloc(capacity, MemoryTag.NATIVE_ILP_RSS);
+            bufB = Unsafe.malloc(capacity, MemoryTag.NATIVE_ILP_RSS);
+        } catch (Throwable th) {
+            if (buf != 0) {
+                Unsafe.free(buf, capacity, MemoryTag.NATIVE_ILP_RSS);
+            }
+            NativeMemoryBudget.INSTANCE.release(2L * capacity);
+            throw th;
+        }
+        bufA = buf;
 
         lo = bufA;
         hi = lo + capacity;
         ptr = lo;
         lineStart = lo;
+        metrics.onConnectionStats(1, lineChannel instanceof DelegatingTlsChannel ? 1 : 0);
     }
 
     public void $(long timestamp) {
@@ -97,6 +119,7 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
 
         putAsciiInternal('\n');
         lineStart = ptr;
+        metrics.onRowBuffered(ptr - lo);
         hasTable = false;
         hasColumns = false;
         hasSymbols = false;
@@ -106,7 +129,7 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         validateNotClosed();
         put(keyId);
         putAsciiInternal('\n');
-        sendAll();
+        sendHandshake();
 
         byte[] challengeBytes = receiveChallengeBytes();
         byte[] signature = signAndEncode(privateKey, challengeBytes);
@@ -114,7 +137,7 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
             putAsciiInternal((char) signature[n]);
         }
         putAsciiInternal('\n');
-        sendAll();
+        sendHandshake();
     }
 
     @Override
@@ -122,6 +145,11 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return field(name, value);
     }
 
+    @Override
+    public final AbstractLineSender boolColumnUtf8(Utf8Sequence name, boolean value) {
+        return field(name, value);
+    }
+
     public DirectByteSlice bufferView() {
         return bufferView.of(lo, (int) (ptr - lo));
     }
@@ -138,6 +166,7 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
             lineChannel = Misc.free(lineChannel);
             Unsafe.free(bufA, capacity, MemoryTag.NATIVE_ILP_RSS);
             Unsafe.free(bufB, capacity, MemoryTag.NATIVE_ILP_RSS);
+            NativeMemoryBudget.INSTANCE.release(2L * capacity);
         }
     }
 
@@ -154,6 +183,11 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return this;
     }
 
+    public AbstractLineSender field(Utf8Sequence name, long value) {
+        writeFieldName(name).put(value).put('i');
+        return this;
+    }
+
     public AbstractLineSender field(CharSequence name, CharSequence value) {
         writeFieldName(name).put('"');
         quoted = true;
@@ -163,6 +197,15 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return this;
     }
 
+    public AbstractLineSender field(Utf8Sequence name, Utf8Sequence value) {
+        writeFieldName(name).put('"');
+        quoted = true;
+        put(value);
+        quoted = false;
+        putAsciiInternal('"');
+        return this;
+    }
+
     public AbstractLineSender field(CharSequence name, double value) {
         writeFieldName(name).put(value);
         return this;
@@ -173,37 +216,76 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return this;
     }
 
+    public AbstractLineSender field(Utf8Sequence name, boolean value) {
+        writeFieldName(name).putAsciiInternal(value ? 't' : 'f');
+        return this;
+    }
+
     @Override
     public void flush() {
         validateNotClosed();
         sendLine();
         ptr = lineStart = lo;
+        metrics.onBufferReset();
+    }
+
+    @Override
+    public AbstractLineSender longColumn(CharSequence name, long value) {
+        return field(name, value);
     }
 
     @Override
-    public final AbstractLineSender longColumn(CharSequence name, long value) {
+    public AbstractLineSender longColumnUtf8(Utf8Sequence name, long value) {
         return field(name, value);
     }
 
     public AbstractLineSender metric(CharSequence metric) {
         validateNotClosed();
         validateTableName(metric);
-        if (hasTable) {
-            throw new LineSenderException(
-                    "duplicated table. call sender.at() or sender.atNow() to finish the current row first");
-        }
-        if (metric.length() == 0) {
-            throw new LineSenderException("table name cannot be empty");
-        }
-        quoted = false;
-        hasTable = true;
+        beginMetric(metric.length());
+        put(metric);
+        return this;
+    }
+
+    public AbstractLineSender metric(Utf8Sequence metric) {
+        validateNotClosed();
+        validateTableName(metric);
+        beginMetric(metric.size());
         put(metric);
         return this;
     }
 
+    @Override
+    public SenderMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public AbstractLineSender put(@Nullable CharSequence cs) {
-        Utf8Sink.super.put(cs);
+        if (cs != null) {
+            final long escapeMask = quoted ? LineEscapes.STRING_ESCAPE_MASK : LineEscapes.NAME_ESCAPE_MASK;
+            final int n = cs.length();
+            int i = 0;
+            while (i < n) {
+                final int hi = Math.min(n, i + ESCAPE_CHUNK_CHARS);
+                ensureCapacity(hi - i);
+                final int stop = Utf8s.strCpyAsciiUnescaped(cs, i, hi, ptr, escapeMask);
+                ptr += stop - i;
+                i = stop;
+                if (i < hi) {
+                    char c = cs.charAt(i++);
+                    if (c < 128) {
+                        putAscii(c);
+                    } else {
+                        i = Utf8s.encodeUtf16Char(this, cs, n, i, c);
+                        // non-ASCII text tends to come in runs, encode them without re-entering the bulk path
+                        while (i < n && (c = cs.charAt(i)) > 127) {
+                            i = Utf8s.encodeUtf16Char(this, cs, n, i + 1, c);
+                        }
+                    }
+                }
+            }
+        }
         return this;
     }
 
@@ -215,7 +297,22 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
 
     @Override
     public AbstractLineSender put(@Nullable Utf8Sequence us) {
-        throw new UnsupportedOperationException();
+        if (us != null) {
+            final long escapeMask = quoted ? LineEscapes.STRING_ESCAPE_MASK : LineEscapes.NAME_ESCAPE_MASK;
+            final int n = us.size();
+            int i = 0;
+            while (i < n) {
+                final int hi = Math.min(n, i + ESCAPE_CHUNK_CHARS);
+                ensureCapacity(hi - i);
+                final int stop = Utf8s.strCpyUnescaped(us, i, hi, ptr, escapeMask);
+                ptr += stop - i;
+                i = stop;
+                if (i < hi) {
+                    put((byte) '\\').put(us.byteAt(i++));
+                }
+            }
+        }
+        return this;
     }
 
     @Override
@@ -228,9 +325,17 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return this;
     }
 
+    @Override
+    public AbstractLineSender put(double value) {
+        ensureCapacity(DoubleFormatter.MAX_CHARS);
+        ptr = DoubleFormatter.append(ptr, value);
+        return this;
+    }
+
     @Override
     public AbstractLineSender put(long value) {
-        Numbers.append(this, value, false);
+        ensureCapacity(LongFormatter.MAX_CHARS);
+        ptr = LongFormatter.append(ptr, value);
         return this;
     }
 
@@ -332,23 +437,57 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return field(name, value);
     }
 
+    @Override
+    public final AbstractLineSender stringColumnUtf8(Utf8Sequence name, Utf8Sequence value) {
+        return field(name, value);
+    }
+
+    @Override
+    public final AbstractLineSender stringColumnUtf8(byte[] name, byte[] value) {
+        return field(nameBytes.of(name), valueBytes.of(value));
+    }
+
     @Override
     public final AbstractLineSender symbol(CharSequence name, CharSequence value) {
         return tag(name, value);
     }
 
+    @Override
+    public final AbstractLineSender symbolUtf8(Utf8Sequence name, Utf8Sequence value) {
+        return tag(name, value);
+    }
+
+    @Override
+    public final AbstractLineSender symbolUtf8(byte[] name, byte[] value) {
+        return tag(nameBytes.of(name), valueBytes.of(value));
+    }
+
     @Override
     public final AbstractLineSender table(CharSequence table) {
         return metric(table);
     }
 
+    @Override
+    public final AbstractLineSender tableUtf8(Utf8Sequence table) {
+        return metric(table);
+    }
+
+    @Override
+    public final AbstractLineSender tableUtf8(byte[] table) {
+        return metric(nameBytes.of(table));
+    }
+
     public AbstractLineSender tag(CharSequence tag, CharSequence value) {
-        if (!hasTable) {
-            throw new LineSenderException("table expected");
-        }
-        if (hasColumns) {
-            throw new LineSenderException("symbols must be written before any other column types");
-        }
+        beginTag();
+        validateColumnName(tag);
+        putAsciiInternal(',').put(tag);
+        putAsciiInternal('=').put(value);
+        hasSymbols = true;
+        return this;
+    }
+
+    public AbstractLineSender tag(Utf8Sequence tag, Utf8Sequence value) {
+        beginTag();
         validateColumnName(tag);
         putAsciiInternal(',').put(tag);
         putAsciiInternal('=').put(value);
@@ -366,6 +505,65 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return -1;
     }
 
+    private static LineSenderException invalidColumnName(CharSequence name, int maxNameLength) {
+        if (name.length() > maxNameLength) {
+            return new LineSenderException("column name is too long: [name = ")
+                    .putAsPrintable(name)
+                    .put(", maxNameLength=")
+                    .put(maxNameLength)
+                    .put(']');
+        }
+        return new LineSenderException("column name contains an illegal char: '\\n', '\\r', '?', '.', ','" +
+                ", ''', '\"', '\\', '/', ':', ')', '(', '+', '-', '*' '%%', '~', or a non-printable char: ")
+                .putAsPrintable(name);
+    }
+
+    private static LineSenderException invalidTableName(CharSequence name, int maxNameLength) {
+        if (name.length() > maxNameLength) {
+            return new LineSenderException("table name is too long: [name = ")
+                    .putAsPrintable(name)
+                    .put(", maxNameLength=")
+                    .put(maxNameLength)
+                    .put(']');
+        }
+        return new LineSenderException("table name contains an illegal char: '\\n', '\\r', '?', ',', ''', " +
+                "'\"', '\\', '/', ':', ')', '(', '+', '*' '%%', '~', or a non-printable char: ")
+                .putAsPrintable(name);
+    }
+
+    private void beginField() {
+        if (!hasTable) {
+            throw new LineSenderException("table expected");
+        }
+        if (!hasColumns) {
+            putAsciiInternal(' ');
+            hasColumns = true;
+        } else {
+            putAsciiInternal(',');
+        }
+    }
+
+    private void beginMetric(int nameLength) {
+        if (hasTable) {
+            throw new LineSenderException(
+                    "duplicated table. call sender.at() or sender.atNow() to finish the current row first");
+        }
+        if (nameLength == 0) {
+            throw new LineSenderException("table name cannot be empty");
+        }
+        quoted = false;
+        hasTable = true;
+    }
+
+    private void beginTag() {
+        if (!hasTable) {
+            throw new LineSenderException("table expected");
+        }
+        if (hasColumns) {
+            throw new LineSenderException("symbols must be written before any other column types");
+        }
+    }
+
     private byte[] receiveChallengeBytes() {
         int n = 0;
         for (;;) {
@@ -394,10 +592,29 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
         return challengeBytes;
     }
 
+    private void send(long lo, int len) {
+        final long start = System.nanoTime();
+        try {
+            lineChannel.send(lo, len);
+        } catch (Throwable th) {
+            metrics.onFlushFailed();
+            throw th;
+        }
+        final long sendNanos = System.nanoTime() - start;
+        metrics.onFlush(metrics.getRowsBuffered(), len, sendNanos, 0, sendNanos);
+    }
+
+    // the handshake is not a flush, it is not recorded in metrics
+    private void sendHandshake() {
+        lineChannel.send(lo, (int) (ptr - lo));
+        lineStart = ptr = lo;
+    }
+
     private void sendLine() {
         if (lo < lineStart) {
-            int len = (int) (lineStart - lo);
-            lineChannel.send(lo, len);
+            send(lo, (int) (lineStart - lo));
+            // the row in progress, if any, stays in the buffer
+            metrics.onRowsSent(ptr - lineStart);
         }
     }
 
@@ -406,16 +623,16 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
             return;
         }
         if (!TableUtils.isValidColumnName(name, maxNameLength)) {
-            if (name.length() > maxNameLength) {
-                throw new LineSenderException("column name is too long: [name = ")
-                        .putAsPrintable(name)
-                        .put(", maxNameLength=")
-                        .put(maxNameLength)
-                        .put(']');
-            }
-            throw new LineSenderException("column name contains an illegal char: '\\n', '\\r', '?', '.', ','" +
-                    ", ''', '\"', '\\', '/', ':', ')', '(', '+', '-', '*' '%%', '~', or a non-printable char: ")
-                    .putAsPrintable(name);
+            throw invalidColumnName(name, maxNameLength);
+        }
+    }
+
+    private void validateColumnName(Utf8Sequence name) {
+        if (!enableValidation) {
+            return;
+        }
+        if (!TableUtils.isValidColumnName(name, maxNameLength)) {
+            throw invalidColumnName(Utf8s.stringFromUtf8BytesSafe(name), maxNameLength);
         }
     }
 
@@ -424,16 +641,26 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
             return;
         }
         if (!TableUtils.isValidTableName(name, maxNameLength)) {
-            if (name.length() > maxNameLength) {
-                throw new LineSenderException("table name is too long: [name = ")
-                        .putAsPrintable(name)
-                        .put(", maxNameLength=")
-                        .put(maxNameLength)
-                        .put(']');
+            throw invalidTableName(name, maxNameLength);
+        }
+    }
+
+    private void validateTableName(Utf8Sequence name) {
+        if (!enableValidation) {
+            return;
+        }
+        if (!TableUtils.isValidTableName(name, maxNameLength)) {
+            throw invalidTableName(Utf8s.stringFromUtf8BytesSafe(name), maxNameLength);
+        }
+    }
+
+    protected final void ensureCapacity(int len) {
+        validateNotClosed();
+        if (ptr + len > hi) {
+            send00();
+            if (ptr + len > hi) {
+                throw new LineSenderException("line too long. increase buffer size.");
             }
-            throw new LineSenderException("table name contains an illegal char: '\\n', '\\r', '?', ',', ''', " +
-                    "'\"', '\\', '/', ':', ')', '(', '+', '*' '%%', '~', or a non-printable char: ")
-                    .putAsPrintable(name);
         }
     }
 
@@ -458,9 +685,9 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
     protected void sendAll() {
         validateNotClosed();
         if (lo < ptr) {
-            int len = (int) (ptr - lo);
-            lineChannel.send(lo, len);
+            send(lo, (int) (ptr - lo));
             lineStart = ptr = lo;
+            metrics.onBufferReset();
         }
     }
 
@@ -494,15 +721,14 @@ public abstract class AbstractLineSender implements Utf8Sink, Closeable, Sender
     protected AbstractLineSender writeFieldName(CharSequence name) {
         validateNotClosed();
         validateColumnName(name);
-        if (hasTable) {
-            if (!hasColumns) {
-                putAsciiInternal(' ');
-                hasColumns = true;
-            } else {
-                putAsciiInternal(',');
-            }
-            return put(name).putAsciiInternal('=');
-        }
-        throw new LineSenderException("table expected");
+        beginField();
+        return put(name).putAsciiInternal('=');
+    }
+
+    protected AbstractLineSender writeFieldName(Utf8Sequence name) {
+        validateNotClosed();
+        validateColumnName(name);
+        beginField();
+        return put(name).putAsciiInternal('=');
     }
 }
\ No newline at end of file
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.line;
+
+import io.questdb.client.cutlass.line.array.ArrayBufferAppender;
+import io.questdb.client.std.Decimal128;
+import io.questdb.client.std.Decimal256;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.DecimalParser;
+import io.questdb.client.std.NumericException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Writes decimals in the binary ILP format, see {@link EntityTypes#DECIMAL}. The
+ * unscaled value is sent in the smallest power-of-two number of bytes, from 1 to 32,
+ * that holds it in two's complement form, so that typical prices go out in 4 or 8
+ * bytes regardless of the width of the {@code Decimal} type that carries them.
+ * <p>
+ * Text literals, {@link BigDecimal}s and scaled doubles are converted on the client
+ * into a reusable {@link Decimal256}, so that they travel in the same binary form.
+ * Text literals and doubles are converted without allocating per value.
+ */
+public final class BinaryDecimalUtils {
+
+    // a value of at most this many significant digits fits in a long
+    private static final int FAST_PATH_MAX_DIGITS = 18;
+    // 5^0 .. 5^76 as 256-bit words, ordered hh, hl, lh, ll
+    private static final long[] POW5 = new long[(Decimal256.MAX_SCALE + 1) * 4];
+
+    private BinaryDecimalUtils() {
+    }
+
+    /**
+     * Converts a {@link BigDecimal}. Values of up to 18 digits are read as a long,
+     * wider ones from the two's complement bytes of their unscaled {@link BigInteger}.
+     * A negative scale is applied to the unscaled value, which is sent with scale 0.
+     *
+     * @param sink  receives the value
+     * @param value the value to convert
+     * @throws NumericException if the value does not fit in 256 bits, or its scale
+     *                          exceeds {@link Decimal256#MAX_SCALE}
+     */
+    public static void ofBigDecimal(Decimal256 sink, BigDecimal value) throws NumericException {
+        final int scale = value.scale();
+        if (scale > Decimal256.MAX_SCALE) {
+            throw NumericException.instance().put("Invalid scale: ").put(scale);
+        }
+        final BigInteger unscaled = value.unscaledValue();
+        if (value.precision() <= FAST_PATH_MAX_DIGITS) {
+            final long compact = unscaled.longValueExact();
+            final long sign = compact >> 63;
+            sink.of(sign, sign, sign, compact, 0);
+        } else {
+            if (unscaled.bitLength() > 255) {
+                throw NumericException.instance().put("BigDecimal value too large for Decimal256");
+            }
+            // at most 32 big-endian bytes, shifted in over the sign extension
+            final byte[] bytes = unscaled.toByteArray();
+            final long sign = bytes[0] >> 7;
+            long hh = sign, hl = sign, lh = sign, ll = sign;
+            for (int i = 0, n = bytes.length; i < n; i++) {
+                hh = (hh << 8) | (hl >>> 56);
+                hl = (hl << 8) | (lh >>> 56);
+                lh = (lh << 8) | (ll >>> 56);
+                ll = (ll << 8) | (bytes[i] & 0xffL);
+            }
+            sink.of(hh, hl, lh, ll, 0);
+        }
+        if (scale < 0) {
+            // multiply the unscaled value by 10^-scale, then send it with scale 0
+            sink.rescale(-scale);
+            sink.of(sink.getHh(), sink.getHl(), sink.getLh(), sink.getLl(), 0);
+        } else {
+            sink.of(sink.getHh(), sink.getHl(), sink.getLh(), sink.getLl(), scale);
+        }
+    }
+
+    /**
+     * Converts a double into a decimal of the given scale without allocating. The exact
+     * binary value of the double is rounded half-up, which gives the same result as
+     * {@code new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP)}. NaN and
+     * infinities convert to a NULL decimal.
+     * <p>
+     * The double is split into {@code m * 2^e}, so its scaled value is
+     * {@code m * 5^scale * 2^(e + scale)}: one multiplication by a tabulated power of
+     * five, which cannot overflow, and one rounded binary shift.
+     *
+     * @param sink  receives the value
+     * @param value the value to convert
+     * @param scale the number of decimal places, 0 to {@link Decimal256#MAX_SCALE}
+     * @throws NumericException if the scale is out of range, or the scaled value does
+     *                          not fit in 256 bits
+     */
+    public static void ofDouble(Decimal256 sink, double value, int scale) throws NumericException {
+        if (scale < 0 || scale > Decimal256.MAX_SCALE) {
+            throw NumericException.instance().put("Invalid scale: ").put(scale);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            sink.ofNull();
+            return;
+        }
+        final long bits = Double.doubleToRawLongBits(value);
+        final int biasedExp = (int) (bits >>> 52) & 0x7ff;
+        long m = bits & 0xfffffffffffffL;
+        if (biasedExp != 0) {
+            m |= 1L << 52;
+        }
+        if (m == 0) {
+            sink.of(0, 0, 0, 0, scale);
+            return;
+        }
+        final int trailingZeros = Long.numberOfTrailingZeros(m);
+        m >>>= trailingZeros;
+        final int shift = (biasedExp != 0 ? biasedExp : 1) - 1075 + trailingZeros + scale;
+        sink.of(0, 0, 0, m, 0);
+        if (scale > 0) {
+            // m < 2^53 and 5^76 < 2^177, the product stays well within 256 bits
+            final int p = scale * 4;
+            sink.multiply(POW5[p], POW5[p + 1], POW5[p + 2], POW5[p + 3], 0);
+        }
+        if (shift > 0) {
+            shiftLeft(sink, shift);
+        } else if (shift < 0) {
+            shiftRightHalfUp(sink, -shift);
+        }
+        if (bits < 0) {
+            sink.negate();
+        }
+        sink.of(sink.getHh(), sink.getHl(), sink.getLh(), sink.getLl(), scale);
+    }
+
+    /**
+     * Parses a decimal literal the way {@link DecimalParser} does with no precision or
+     * scale limit and trailing fractional zeros dropped. Plain literals such as
+     * {@code -1234.50} with up to 18 significant digits are accumulated straight into
+     * a long; everything else, including exponents, suffixes and NaN, which parses
+     * as a NULL decimal, is handed over to {@link DecimalParser}.
+     *
+     * @param sink receives the parsed value
+     * @param cs   the literal
+     * @throws NumericException if the literal is not a valid decimal
+     */
+    public static void parseDecimal(Decimal256 sink, CharSequence cs) throws NumericException {
+        final int len = cs.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0) {
+            final char c = cs.charAt(0);
+            if (c == '-') {
+                negative = true;
+                i++;
+            } else if (c == '+') {
+                i++;
+            }
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean digitFound = false;
+        boolean dot = false;
+        for (; i < len; i++) {
+            final char c = cs.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitFound = true;
+                if ((unscaled != 0 || c != '0') && ++digits > FAST_PATH_MAX_DIGITS) {
+                    break;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (dot) {
+                    scale++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i < len || !digitFound || scale > FAST_PATH_MAX_DIGITS) {
+            DecimalParser.parse(sink, cs, 0, len, -1, -1, false, false);
+            return;
+        }
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        if (negative) {
+            unscaled = -unscaled;
+        }
+        final long sign = unscaled >> 63;
+        sink.of(sign, sign, sign, unscaled, scale);
+    }
+
+    public static void putDecimal(ArrayBufferAppender mem, Decimal256 value) {
+        putDecimal(mem, value.getScale(), value.getHh(), value.getHl(), value.getLh(), value.getLl());
+    }
+
+    public static void putDecimal(ArrayBufferAppender mem, Decimal128 value) {
+        final long sign = value.getHigh() >> 63;
+        putDecimal(mem, value.getScale(), sign, sign, value.getHigh(), value.getLow());
+    }
+
+    public static void putDecimal(ArrayBufferAppender mem, Decimal64 value) {
+        final long sign = value.getValue() >> 63;
+        putDecimal(mem, value.getScale(), sign, sign, sign, value.getValue());
+    }
+
+    /**
+     * Writes the type tag, scale, length and big-endian unscaled value of a decimal,
+     * given as the four 64-bit words of a 256-bit two's complement number.
+     */
+    public static void putDecimal(ArrayBufferAppender mem, int scale, long hh, long hl, long lh, long ll) {
+        final int sizePow2 = storageSizePow2(hh, hl, lh, ll);
+        mem.putByte(EntityTypes.DECIMAL);
+        mem.putByte((byte) scale);
+        mem.putByte((byte) (1 << sizePow2));
+        switch (sizePow2) {
+            case 0:
+                mem.putByte((byte) ll);
+                break;
+            case 1:
+                mem.putByte((byte) (ll >> 8));
+                mem.putByte((byte) ll);
+                break;
+            case 2:
+                mem.putInt(Integer.reverseBytes((int) ll));
+                break;
+            case 3:
+                mem.putLong(Long.reverseBytes(ll));
+                break;
+            case 4:
+                mem.putLong(Long.reverseBytes(lh));
+                mem.putLong(Long.reverseBytes(ll));
+                break;
+            default:
+                mem.putLong(Long.reverseBytes(hh));
+                mem.putLong(Long.reverseBytes(hl));
+                mem.putLong(Long.reverseBytes(lh));
+                mem.putLong(Long.reverseBytes(ll));
+                break;
+        }
+    }
+
+    /**
+     * Returns log2 of the smallest number of bytes, from 1 to 32, that holds the given
+     * 256-bit two's complement value without loss: a narrower encoding is valid when
+     * every word above it is the sign extension of its top bit.
+     */
+    public static int storageSizePow2(long hh, long hl, long lh, long ll) {
+        if (hh != hl || hl != lh >> 63) {
+            return 5;
+        }
+        if (lh != ll >> 63) {
+            return 4;
+        }
+        if (ll == (byte) ll) {
+            return 0;
+        }
+        if (ll == (short) ll) {
+            return 1;
+        }
+        return ll == (int) ll ? 2 : 3;
+    }
+
+    private static int bitLength(long hh, long hl, long lh, long ll) {
+        if (hh != 0) {
+            return 256 - Long.numberOfLeadingZeros(hh);
+        }
+        if (hl != 0) {
+            return 192 - Long.numberOfLeadingZeros(hl);
+        }
+        if (lh != 0) {
+            return 128 - Long.numberOfLeadingZeros(lh);
+        }
+        return 64 - Long.numberOfLeadingZeros(ll);
+    }
+
+    // shifts a non-negative value left, failing if it would no longer fit in 255 bits
+    private static void shiftLeft(Decimal256 sink, int n) {
+        long hh = sink.getHh(), hl = sink.getHl(), lh = sink.getLh(), ll = sink.getLl();
+        if (bitLength(hh, hl, lh, ll) + n > 255) {
+            throw NumericException.instance().put("double value too large for Decimal256");
+        }
+        for (; n >= 64; n -= 64) {
+            hh = hl;
+            hl = lh;
+            lh = ll;
+            ll = 0;
+        }
+        if (n > 0) {
+            hh = (hh << n) | (hl >>> (64 - n));
+            hl = (hl << n) | (lh >>> (64 - n));
+            lh = (lh << n) | (ll >>> (64 - n));
+            ll <<= n;
+        }
+        sink.of(hh, hl, lh, ll, 0);
+    }
+
+    // shifts a non-negative value right, rounding the bits shifted out half-up
+    private static void shiftRightHalfUp(Decimal256 sink, int n) {
+        long hh = sink.getHh(), hl = sink.getHl(), lh = sink.getLh(), ll = sink.getLl();
+        if (n > bitLength(hh, hl, lh, ll)) {
+            // less than half of the lowest kept unit
+            sink.of(0, 0, 0, 0, 0);
+            return;
+        }
+        final int roundBit = n - 1;
+        final long roundWord;
+        switch (roundBit >> 6) {
+            case 0:
+                roundWord = ll;
+                break;
+            case 1:
+                roundWord = lh;
+                break;
+            case 2:
+                roundWord = hl;
+                break;
+            default:
+                roundWord = hh;
+                break;
+        }
+        final boolean roundUp = ((roundWord >>> (roundBit & 63)) & 1) != 0;
+        for (; n >= 64; n -= 64) {
+            ll = lh;
+            lh = hl;
+            hl = hh;
+            hh = 0;
+        }
+        if (n > 0) {
+            ll = (ll >>> n) | (lh << (64 - n));
+            lh = (lh >>> n) | (hl << (64 - n));
+            hl = (hl >>> n) | (hh << (64 - n));
+            hh >>>= n;
+        }
+        if (roundUp && ++ll == 0 && ++lh == 0 && ++hl == 0) {
+            hh++;
+        }
+        sink.of(hh, hl, lh, ll, 0);
+    }
+
+    static {
+        BigInteger pow5 = BigInteger.ONE;
+        for (int i = 0; i <= Decimal256.MAX_SCALE; i++, pow5 = pow5.multiply(BigInteger.valueOf(5))) {
+            POW5[i * 4] = pow5.shiftRight(192).longValue();
+            POW5[i * 4 + 1] = pow5.shiftRight(128).longValue();
+            POW5[i * 4 + 2] = pow5.shiftRight(64).longValue();
+            POW5[i * 4 + 3] = pow5.longValue();
+        }
+    }
+}
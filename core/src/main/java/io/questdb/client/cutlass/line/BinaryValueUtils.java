@@ -0,0 +1,123 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.line;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cairo.GeoHashes;
+import io.questdb.client.cutlass.line.array.ArrayBufferAppender;
+
+/**
+ * Writes fixed-width column values in the binary ILP format of protocol version 4,
+ * each as its entity type followed by the value in little-endian byte order. Callers
+ * write the field name and the binary format flag first.
+ */
+public final class BinaryValueUtils {
+
+    private BinaryValueUtils() {
+    }
+
+    public static void putFloat(ArrayBufferAppender mem, float value) {
+        mem.putByte(EntityTypes.FLOAT);
+        mem.putInt(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Writes a geohash in the narrowest of the GEOBYTE, GEOSHORT, GEOINT and GEOLONG
+     * entities that holds the given number of bits, the same storage the server uses.
+     * The precision and value must have been checked with {@link #validateGeoHash(int, long)}.
+     *
+     * @param bits  precision of the geohash, 1 to {@link ColumnType#GEOLONG_MAX_BITS}
+     * @param value the geohash, or {@link GeoHashes#NULL}
+     */
+    public static void putGeoHash(ArrayBufferAppender mem, int bits, long value) {
+        switch (ColumnType.pow2SizeOfBits(bits)) {
+            case 0:
+                mem.putByte(EntityTypes.GEOBYTE);
+                mem.putByte((byte) bits);
+                mem.putByte((byte) value);
+                break;
+            case 1:
+                mem.putByte(EntityTypes.GEOSHORT);
+                mem.putByte((byte) bits);
+                mem.putByte((byte) value);
+                mem.putByte((byte) (value >> 8));
+                break;
+            case 2:
+                mem.putByte(EntityTypes.GEOINT);
+                mem.putByte((byte) bits);
+                mem.putInt((int) value);
+                break;
+            default:
+                mem.putByte(EntityTypes.GEOLONG);
+                mem.putByte((byte) bits);
+                mem.putLong(value);
+                break;
+        }
+    }
+
+    public static void putIPv4(ArrayBufferAppender mem, int address) {
+        mem.putByte(EntityTypes.IPv4);
+        mem.putInt(address);
+    }
+
+    public static void putInt(ArrayBufferAppender mem, int value) {
+        mem.putByte(EntityTypes.INTEGER);
+        mem.putInt(value);
+    }
+
+    /**
+     * Writes a 256-bit value as four longs, least significant first.
+     */
+    public static void putLong256(ArrayBufferAppender mem, long l0, long l1, long l2, long l3) {
+        mem.putByte(EntityTypes.LONG256);
+        mem.putLong(l0);
+        mem.putLong(l1);
+        mem.putLong(l2);
+        mem.putLong(l3);
+    }
+
+    public static void putUuid(ArrayBufferAppender mem, long lo, long hi) {
+        mem.putByte(EntityTypes.UUID);
+        mem.putLong(lo);
+        mem.putLong(hi);
+    }
+
+    /**
+     * Checks a geohash before anything of its field is written, so that a bad value
+     * leaves the row intact.
+     *
+     * @throws LineSenderException if the precision is out of range or the value does not fit in it
+     */
+    public static void validateGeoHash(int bits, long value) {
+        if (bits < 1 || bits > ColumnType.GEOLONG_MAX_BITS) {
+            throw new LineSenderException("invalid geohash precision [bits=").put(bits).put(']');
+        }
+        if (value != GeoHashes.NULL && (value >>> bits) != 0) {
+            throw new LineSenderException("geohash value does not fit in precision [bits=").put(bits)
+                    .put(", value=").put(value).put(']');
+        }
+    }
+}
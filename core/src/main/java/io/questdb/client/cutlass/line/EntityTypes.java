@@ -56,22 +56,69 @@ public class EntityTypes {
      */
     public static final byte DECIMAL = 23;
     public static final byte DOUBLE = 16;
+    /**
+     * Binary format (protocol version 4 onwards): IEEE 754 single precision, 4 bytes, little-endian.
+     */
     public static final byte FLOAT = 2;
+    /**
+     * Binary format of the geohash entities (protocol version 4 onwards): precision in bits (1 byte),
+     * followed by the value in 1, 2, 4 or 8 bytes, little-endian, for GEOBYTE, GEOSHORT, GEOINT and
+     * GEOLONG respectively.
+     */
     public static final byte GEOBYTE = 9;
     public static final byte GEOINT = 11;
     public static final byte GEOLONG = 12;
     public static final byte GEOSHORT = 10;
+    /**
+     * Binary format (protocol version 4 onwards): 4 bytes, little-endian.
+     */
     public static final byte INTEGER = 3;
+    /**
+     * Representation of the {@link ColumnType#IPv4} type in ILP, binary format only
+     * (protocol version 4 onwards): the address as an int, 4 bytes, little-endian.
+     */
+    public static final byte IPv4 = 24;
+    /**
+     * Representation of the {@link ColumnType#LONG} type in ILP.
+     * <p>
+     * - text format: integer suffixed with `i`
+     * <p>
+     * - binary format (protocol version 4 onwards): 8 bytes, little-endian.
+     */
     public static final byte LONG = 15;
+    /**
+     * Binary format (protocol version 4 onwards): four longs, least significant first, 8 bytes each, little-endian.
+     */
     public static final byte LONG256 = 7;
     public static final byte NONE = (byte) 0xff; // visible for testing
     public static final byte NULL = 0;
-    public static final int N_ENTITY_TYPES = DECIMAL + 1;
+    public static final int N_ENTITY_TYPES = IPv4 + 1;
     public static final byte SHORT = 17;
     public static final byte STRING = 4;
     public static final byte SYMBOL = 5;
     public static final byte TAG = 1;
+    /**
+     * Representation of the {@link ColumnType#TIMESTAMP} type in ILP, both for timestamp
+     * columns and for the designated timestamp.
+     * <p>
+     * - text format: integer suffixed with `t` (micros) or `n` (nanos)
+     * <p>
+     * - binary format (protocol version 4 onwards):
+     * <pre>
+     *    +--------+---------+
+     *    |  unit  |  value  |
+     *    +--------+---------+
+     *    | 1 byte | 8 bytes |
+     *    +--------+---------+
+     * </pre>
+     * <p>
+     * Unit is the text format suffix, `t` or `n`, and value is little-endian. The designated
+     * timestamp uses the same layout after the binary format flag, i.e. {@code ' ', '=', TIMESTAMP}.
+     */
     public static final byte TIMESTAMP = 13;
+    /**
+     * Binary format (protocol version 4 onwards): the low, then the high long, 8 bytes each, little-endian.
+     */
     public static final byte UUID = 21;
     public static final byte VARCHAR = 22;
 }
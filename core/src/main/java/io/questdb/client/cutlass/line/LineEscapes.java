@@ -0,0 +1,45 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.line;
+
+/**
+ * Escape sets of the ILP text format, as masks for {@link io.questdb.client.std.str.Utf8s#strCpyAsciiUnescaped}:
+ * bit {@code c} is set for every char {@code c} that needs a backslash in front of it. Backslashes themselves
+ * are always escaped.
+ */
+public final class LineEscapes {
+    /**
+     * Table and column names, symbol values.
+     */
+    public static final long NAME_ESCAPE_MASK = 1L << ' ' | 1L << ',' | 1L << '=' | 1L << '\n' | 1L << '\r';
+    /**
+     * Quoted string values.
+     */
+    public static final long STRING_ESCAPE_MASK = 1L << '"' | 1L << '\n' | 1L << '\r';
+
+    private LineEscapes() {
+    }
+}
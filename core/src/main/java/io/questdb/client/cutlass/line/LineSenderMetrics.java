@@ -0,0 +1,233 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.cutlass.line;
+
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.std.LongHistogram;
+import io.questdb.client.std.Unsafe;
+
+/**
+ * Single-writer {@link SenderMetrics} implementation. All recording methods must be called by
+ * the thread that owns the Sender, they do not allocate. The counters are volatile so that any
+ * thread, e.g. a JMX client, reads current and untorn values. The per-row update uses ordered
+ * stores, which need no fence on the writer side.
+ */
+public class LineSenderMetrics implements SenderMetrics {
+    private static final long BUFFER_HIGH_WATER_MARK_OFFSET = Unsafe.getFieldOffset(LineSenderMetrics.class, "bufferHighWaterMark");
+    private static final long BYTES_BUFFERED_OFFSET = Unsafe.getFieldOffset(LineSenderMetrics.class, "bytesBuffered");
+    private static final long ROWS_BUFFERED_OFFSET = Unsafe.getFieldOffset(LineSenderMetrics.class, "rowsBuffered");
+    private final LongHistogram flushLatency = new LongHistogram();
+    private volatile long addressRotationCount;
+    private volatile long backoffNanos;
+    private volatile long bufferHighWaterMark;
+    private volatile long bytesBuffered;
+    private volatile long bytesSent;
+    private volatile long connectCount;
+    private volatile long failedFlushCount;
+    private volatile long flushCount;
+    private volatile long flushMaxNanos;
+    private volatile long flushTotalNanos;
+    private volatile long retryCount;
+    private volatile long rowsBuffered;
+    private volatile long rowsSent;
+    private volatile long sendMaxNanos;
+    private volatile long sendTotalNanos;
+    private volatile long tlsHandshakeCount;
+    private volatile long waitMaxNanos;
+    private volatile long waitTotalNanos;
+
+    @Override
+    public long getAddressRotationCount() {
+        return addressRotationCount;
+    }
+
+    @Override
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+
+    @Override
+    public long getBufferHighWaterMark() {
+        return bufferHighWaterMark;
+    }
+
+    @Override
+    public long getBytesBuffered() {
+        return bytesBuffered;
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public long getFailedFlushCount() {
+        return failedFlushCount;
+    }
+
+    @Override
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    @Override
+    public long getFlushMaxNanos() {
+        return flushMaxNanos;
+    }
+
+    /**
+     * @return histogram of flush latencies in nanoseconds, it may be read and snapshotted by any thread
+     */
+    public LongHistogram getFlushLatencyHistogram() {
+        return flushLatency;
+    }
+
+    @Override
+    public long getFlushP50Nanos() {
+        return flushLatency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getFlushP99Nanos() {
+        return flushLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getFlushP999Nanos() {
+        return flushLatency.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getFlushTotalNanos() {
+        return flushTotalNanos;
+    }
+
+    @Override
+    public long getReconnectCount() {
+        return Math.max(0, connectCount - 1);
+    }
+
+    @Override
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    @Override
+    public long getRowsBuffered() {
+        return rowsBuffered;
+    }
+
+    @Override
+    public long getRowsSent() {
+        return rowsSent;
+    }
+
+    @Override
+    public long getSendMaxNanos() {
+        return sendMaxNanos;
+    }
+
+    @Override
+    public long getSendTotalNanos() {
+        return sendTotalNanos;
+    }
+
+    @Override
+    public long getTlsHandshakeCount() {
+        return tlsHandshakeCount;
+    }
+
+    @Override
+    public long getWaitMaxNanos() {
+        return waitMaxNanos;
+    }
+
+    @Override
+    public long getWaitTotalNanos() {
+        return waitTotalNanos;
+    }
+
+    public void onAddressRotated() {
+        addressRotationCount++;
+    }
+
+    public void onBufferReset() {
+        rowsBuffered = 0;
+        bytesBuffered = 0;
+    }
+
+    /**
+     * Updates connection counters, the values are cumulative counts kept by the transport.
+     */
+    public void onConnectionStats(long connectCount, long tlsHandshakeCount) {
+        this.connectCount = connectCount;
+        this.tlsHandshakeCount = tlsHandshakeCount;
+    }
+
+    /**
+     * Records a batch acknowledged by the server. The buffered counters are not cleared, rows may
+     * have been buffered since the batch was sent, they are cleared by {@link #onBufferReset()}.
+     */
+    public void onFlush(long rows, long bytes, long sendNanos, long waitNanos, long flushNanos) {
+        flushCount++;
+        rowsSent += rows;
+        bytesSent += bytes;
+        sendTotalNanos += sendNanos;
+        sendMaxNanos = Math.max(sendMaxNanos, sendNanos);
+        waitTotalNanos += waitNanos;
+        waitMaxNanos = Math.max(waitMaxNanos, waitNanos);
+        flushTotalNanos += flushNanos;
+        flushMaxNanos = Math.max(flushMaxNanos, flushNanos);
+        flushLatency.record(flushNanos);
+    }
+
+    public void onFlushFailed() {
+        failedFlushCount++;
+    }
+
+    public void onRetry(long backoffNanos) {
+        retryCount++;
+        this.backoffNanos += backoffNanos;
+    }
+
+    public void onRowBuffered(long bufferedBytes) {
+        Unsafe.getUnsafe().putOrderedLong(this, ROWS_BUFFERED_OFFSET, rowsBuffered + 1);
+        Unsafe.getUnsafe().putOrderedLong(this, BYTES_BUFFERED_OFFSET, bufferedBytes);
+        if (bufferedBytes > bufferHighWaterMark) {
+            Unsafe.getUnsafe().putOrderedLong(this, BUFFER_HIGH_WATER_MARK_OFFSET, bufferedBytes);
+        }
+    }
+
+    /**
+     * Clears the buffered rows once they are sent, the buffer may still hold a row in progress.
+     *
+     * @param bufferedBytes bytes left in the buffer
+     */
+    public void onRowsSent(long bufferedBytes) {
+        rowsBuffered = 0;
+        bytesBuffered = bufferedBytes;
+    }
+}
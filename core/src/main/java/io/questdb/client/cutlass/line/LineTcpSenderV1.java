@@ -27,8 +27,10 @@ package io.questdb.client.cutlass.line;
 import io.questdb.client.Sender;
 import io.questdb.client.cairo.MicrosTimestampDriver;
 import io.questdb.client.cairo.NanosTimestampDriver;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.line.array.DoubleArray;
 import io.questdb.client.cutlass.line.array.LongArray;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
@@ -52,6 +54,11 @@ public class LineTcpSenderV1 extends AbstractLineTcpSender {
         atNow();
     }
 
+    @Override
+    public Sender arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        throw new LineSenderException("current protocol version does not support arrays");
+    }
+
     @Override
     public Sender doubleArray(@NotNull CharSequence name, double[] values) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -67,6 +74,11 @@ public class LineTcpSenderV1 extends AbstractLineTcpSender {
         throw new LineSenderException("current protocol version does not support double-array");
     }
 
+    @Override
+    public Sender doubleArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support double-array");
+    }
+
     @Override
     public Sender doubleArray(CharSequence name, DoubleArray array) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -78,6 +90,12 @@ public class LineTcpSenderV1 extends AbstractLineTcpSender {
         return this;
     }
 
+    @Override
+    public Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        writeFieldName(name).put(value);
+        return this;
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, long[] values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -93,6 +111,11 @@ public class LineTcpSenderV1 extends AbstractLineTcpSender {
         throw new LineSenderException("current protocol version does not support long-array");
     }
 
+    @Override
+    public Sender longArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support long-array");
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, LongArray values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -107,4 +130,14 @@ public class LineTcpSenderV1 extends AbstractLineTcpSender {
     public final AbstractLineSender timestampColumn(CharSequence name, Instant value) {
         return writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAsciiInternal('t');
     }
+
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        return writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value, unit)).putAsciiInternal('t');
+    }
+
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        return writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAsciiInternal('t');
+    }
 }
\ No newline at end of file
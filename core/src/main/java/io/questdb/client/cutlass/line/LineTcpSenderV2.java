@@ -28,6 +28,7 @@ import io.questdb.client.Sender;
 import io.questdb.client.cairo.ColumnType;
 import io.questdb.client.cairo.MicrosTimestampDriver;
 import io.questdb.client.cairo.NanosTimestampDriver;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.line.array.ArrayBufferAppender;
 import io.questdb.client.cutlass.line.array.ArrayDataAppender;
 import io.questdb.client.cutlass.line.array.ArrayShapeAppender;
@@ -39,6 +40,7 @@ import io.questdb.client.network.Net;
 import io.questdb.client.network.NetworkFacadeImpl;
 import io.questdb.client.std.Unsafe;
 import io.questdb.client.std.Vect;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
@@ -88,6 +90,22 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         atNow();
     }
 
+    @Override
+    public Sender arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        if (array == null || array.isNull()) {
+            return this;
+        }
+        final short elemType = array.getElemType();
+        if (elemType != ColumnType.DOUBLE && elemType != ColumnType.LONG) {
+            throw new LineSenderException("unsupported array element type [type=")
+                    .put(ColumnType.nameOf(elemType))
+                    .put(']');
+        }
+        return arrayColumn(name, elemType, (byte) array.getDimCount(), array,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender doubleArray(@NotNull CharSequence name, double[] values) {
         return arrayColumn(name, ColumnType.DOUBLE, (byte) 1, values,
@@ -109,6 +127,16 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
                 FlattenArrayUtils::putDataToBuf);
     }
 
+    @Override
+    public Sender doubleArray(@NotNull CharSequence name, Object[] values) {
+        if (values == null) {
+            return this;
+        }
+        return arrayColumn(name, ColumnType.DOUBLE, FlattenArrayUtils.dimCount(values, double.class), values,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender doubleArray(CharSequence name, DoubleArray array) {
         if (array == null) {
@@ -122,6 +150,19 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         return this;
     }
 
+    @Override
+    public Sender doubleArrayUtf8(@NotNull Utf8Sequence name, DoubleArray array) {
+        if (array == null) {
+            return this;
+        }
+        writeFieldName(name)
+                .putAsciiInternal('=')
+                .put(EntityTypes.ARRAY) // ARRAY binary format
+                .put((byte) ColumnType.DOUBLE); // element type
+        array.appendToBufPtr(this);
+        return this;
+    }
+
     @Override
     public Sender doubleColumn(CharSequence name, double value) {
         writeFieldName(name)
@@ -135,6 +176,15 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         return this;
     }
 
+    @Override
+    public Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        writeFieldName(name)
+                .putAsciiInternal('=')
+                .put(EntityTypes.DOUBLE);
+        putDouble(value);
+        return this;
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, long[] values) {
         return arrayColumn(name, ColumnType.LONG, (byte) 1, values,
@@ -156,6 +206,16 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
                 FlattenArrayUtils::putDataToBuf);
     }
 
+    @Override
+    public Sender longArray(@NotNull CharSequence name, Object[] values) {
+        if (values == null) {
+            return this;
+        }
+        return arrayColumn(name, ColumnType.LONG, FlattenArrayUtils.dimCount(values, long.class), values,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, LongArray values) {
         if (values == null) {
@@ -169,6 +229,19 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         return this;
     }
 
+    @Override
+    public Sender longArrayUtf8(@NotNull Utf8Sequence name, LongArray values) {
+        if (values == null) {
+            return this;
+        }
+        writeFieldName(name)
+                .putAsciiInternal('=')
+                .put(EntityTypes.ARRAY) // ARRAY binary format
+                .put((byte) ColumnType.LONG); // element type
+        values.appendToBufPtr(this);
+        return this;
+    }
+
     @Override
     public void putBlockOfBytes(long from, long len) {
         while (len > 0) {
@@ -182,6 +255,20 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         }
     }
 
+    @Override
+    public void putBlockOfBytes(Object array, long offset, long len) {
+        while (len > 0) {
+            if (ptr >= hi) {
+                send00();
+            }
+            long copy = Math.min(len, hi - ptr);
+            Unsafe.getUnsafe().copyMemory(array, offset, null, ptr, copy);
+            offset += copy;
+            len -= copy;
+            ptr += copy;
+        }
+    }
+
     @Override
     public void putByte(byte value) {
         put(value);
@@ -228,6 +315,28 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         return this;
     }
 
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        writeFieldName(name);
+        putTimestamp(value, unit);
+        return this;
+    }
+
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        writeFieldName(name);
+        putTimestamp(value);
+        return this;
+    }
+
+    /**
+     * Writes a timestamp value, either of a column or the designated one, in the given unit:
+     * 't' for micros and 'n' for nanos.
+     */
+    protected void putTimestampValue(long value, char unit) {
+        put(value).putAsciiInternal(unit);
+    }
+
     private <T> Sender arrayColumn(
             CharSequence name,
             short columnType,
@@ -253,14 +362,14 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
         // nanos sent as nanos, everything else is sent as micros
         switch (unit) {
             case NANOS:
-                put(timestamp).putAsciiInternal('n');
+                putTimestampValue(timestamp, 'n');
                 break;
             case MICROS:
-                put(timestamp).putAsciiInternal('t');
+                putTimestampValue(timestamp, 't');
                 break;
             default:
                 // unit needs conversion to micros
-                put(MicrosTimestampDriver.INSTANCE.from(timestamp, unit)).putAsciiInternal('t');
+                putTimestampValue(MicrosTimestampDriver.INSTANCE.from(timestamp, unit), 't');
                 break;
         }
     }
@@ -268,10 +377,10 @@ public class LineTcpSenderV2 extends AbstractLineTcpSender implements ArrayBuffe
     private void putTimestamp(Instant timestamp) {
         // always send as nanos as long as it fits in a long
         try {
-            put(NanosTimestampDriver.INSTANCE.from(timestamp)).putAsciiInternal('n');
+            putTimestampValue(NanosTimestampDriver.INSTANCE.from(timestamp), 'n');
         } catch (ArithmeticException e) {
             // value does not fit in a long, sending as micros
-            put(MicrosTimestampDriver.INSTANCE.from(timestamp)).putAsciiInternal('t');
+            putTimestampValue(MicrosTimestampDriver.INSTANCE.from(timestamp), 't');
         }
     }
 }
\ No newline at end of file
@@ -32,11 +32,14 @@ import io.questdb.client.network.NetworkFacadeImpl;
 import io.questdb.client.std.Decimal128;
 import io.questdb.client.std.Decimal256;
 import io.questdb.client.std.Decimal64;
-import io.questdb.client.std.Numbers;
 import io.questdb.client.std.NumericException;
 
+import java.math.BigDecimal;
+
 @SuppressWarnings("resource")
 public class LineTcpSenderV3 extends LineTcpSenderV2 implements ArrayBufferAppender {
+    private final Decimal256 decimalSink = new Decimal256();
+
     public LineTcpSenderV3(LineChannel channel, int bufferCapacity, int maxNameLength) {
         super(channel, bufferCapacity, maxNameLength);
     }
@@ -69,15 +72,8 @@ public class LineTcpSenderV3 extends LineTcpSenderV2 implements ArrayBufferAppen
         if (value == null || value.isNull()) {
             return this;
         }
-        writeFieldName(name)
-                .putAsciiInternal('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 32); // Length
-        putLong(Long.reverseBytes(value.getHh()));
-        putLong(Long.reverseBytes(value.getHl()));
-        putLong(Long.reverseBytes(value.getLh()));
-        putLong(Long.reverseBytes(value.getLl()));
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryDecimalUtils.putDecimal(this, value);
         return this;
     }
 
@@ -86,13 +82,8 @@ public class LineTcpSenderV3 extends LineTcpSenderV2 implements ArrayBufferAppen
         if (value == null || value.isNull()) {
             return this;
         }
-        writeFieldName(name)
-                .putAsciiInternal('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 16); // Length
-        putLong(Long.reverseBytes(value.getHigh()));
-        putLong(Long.reverseBytes(value.getLow()));
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryDecimalUtils.putDecimal(this, value);
         return this;
     }
 
@@ -101,25 +92,52 @@ public class LineTcpSenderV3 extends LineTcpSenderV2 implements ArrayBufferAppen
         if (value == null || value.isNull()) {
             return this;
         }
-        writeFieldName(name)
-                .putAsciiInternal('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 8); // Length
-        putLong(Long.reverseBytes(value.getValue()));
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryDecimalUtils.putDecimal(this, value);
         return this;
     }
 
+    @Override
+    public Sender decimalColumn(CharSequence name, BigDecimal value) {
+        if (value == null) {
+            return this;
+        }
+        try {
+            BinaryDecimalUtils.ofBigDecimal(decimalSink, value);
+        } catch (NumericException e) {
+            throw new LineSenderException("Failed to convert sent decimal value: " + value, e);
+        }
+        return decimalColumn(name, decimalSink);
+    }
+
+    @Override
+    public Sender decimalColumn(CharSequence name, long unscaledValue, int scale) {
+        if (scale < 0 || scale > Decimal256.MAX_SCALE) {
+            throw new LineSenderException("invalid decimal scale [scale=").put(scale).put(']');
+        }
+        final long sign = unscaledValue >> 63;
+        decimalSink.of(sign, sign, sign, unscaledValue, scale);
+        return decimalColumn(name, decimalSink);
+    }
+
+    @Override
+    public Sender decimalColumn(CharSequence name, double value, int scale) {
+        try {
+            BinaryDecimalUtils.ofDouble(decimalSink, value, scale);
+        } catch (NumericException e) {
+            throw new LineSenderException("Failed to convert sent decimal value: " + value, e);
+        }
+        return decimalColumn(name, decimalSink);
+    }
+
     @Override
     public Sender decimalColumn(CharSequence name, CharSequence value) {
+        // parse once here and send the binary form, sparing the server a text parse
         try {
-            // Validate that the value is properly formatted
-            Numbers.parseDouble(value);
+            BinaryDecimalUtils.parseDecimal(decimalSink, value);
         } catch (NumericException e) {
             throw new LineSenderException("Failed to parse sent decimal value: " + value, e);
         }
-        writeFieldName(name);
-        put(value).putAscii('d');
-        return this;
+        return decimalColumn(name, decimalSink);
     }
 }
\ No newline at end of file
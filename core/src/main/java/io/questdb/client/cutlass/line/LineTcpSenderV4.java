@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.cutlass.line;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.tcp.PlainTcpLineChannel;
+import io.questdb.client.network.Net;
+import io.questdb.client.network.NetworkFacadeImpl;
+
+/**
+ * Sends longs, timestamp columns and the designated timestamp as fixed-width binary
+ * entities, see {@link EntityTypes#LONG} and {@link EntityTypes#TIMESTAMP}, and adds
+ * binary int, float, UUID, long256, IPv4 and geohash columns, see {@link BinaryValueUtils}.
+ */
+@SuppressWarnings("resource")
+public class LineTcpSenderV4 extends LineTcpSenderV3 {
+
+    public LineTcpSenderV4(LineChannel channel, int bufferCapacity, int maxNameLength) {
+        super(channel, bufferCapacity, maxNameLength);
+    }
+
+    /**
+     * Create a new LineTcpSender.
+     * <br>
+     * IP address is encoded as <code>int</code> obtained via {@link Net#parseIPv4(CharSequence)}
+     * <br>
+     * This is meant to be used for testing only, it's not something most users want to use.
+     * See {@link Sender} instead
+     *
+     * @param ip             IP address of a server
+     * @param port           port where a server is listening
+     * @param bufferCapacity capacity of an internal buffer in bytes
+     * @return LineTcpSender instance of LineTcpSender
+     */
+    public static LineTcpSenderV4 newSender(int ip, int port, int bufferCapacity) {
+        PlainTcpLineChannel channel = new PlainTcpLineChannel(NetworkFacadeImpl.INSTANCE, ip, port, bufferCapacity * 2);
+        try {
+            return new LineTcpSenderV4(channel, bufferCapacity, 127);
+        } catch (Throwable t) {
+            channel.close();
+            throw t;
+        }
+    }
+
+    @Override
+    public Sender floatColumn(CharSequence name, float value) {
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putFloat(this, value);
+        return this;
+    }
+
+    @Override
+    public Sender geoHashColumn(CharSequence name, int bits, long value) {
+        BinaryValueUtils.validateGeoHash(bits, value);
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putGeoHash(this, bits, value);
+        return this;
+    }
+
+    @Override
+    public Sender intColumn(CharSequence name, int value) {
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putInt(this, value);
+        return this;
+    }
+
+    @Override
+    public Sender ipv4Column(CharSequence name, int address) {
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putIPv4(this, address);
+        return this;
+    }
+
+    @Override
+    public Sender long256Column(CharSequence name, long l0, long l1, long l2, long l3) {
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putLong256(this, l0, l1, l2, l3);
+        return this;
+    }
+
+    @Override
+    public AbstractLineSender longColumn(CharSequence name, long value) {
+        writeFieldName(name)
+                .putAsciiInternal('=')
+                .put(EntityTypes.LONG);
+        putLong(value);
+        return this;
+    }
+
+    @Override
+    public Sender uuidColumn(CharSequence name, long lo, long hi) {
+        writeFieldName(name).putAsciiInternal('=');
+        BinaryValueUtils.putUuid(this, lo, hi);
+        return this;
+    }
+
+    @Override
+    protected void putTimestampValue(long value, char unit) {
+        putAsciiInternal('=')
+                .put(EntityTypes.TIMESTAMP)
+                .put((byte) unit);
+        putLong(value);
+    }
+}
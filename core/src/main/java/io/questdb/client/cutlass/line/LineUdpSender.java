@@ -28,11 +28,13 @@ package io.questdb.client.cutlass.line;
 import io.questdb.client.Sender;
 import io.questdb.client.cairo.MicrosTimestampDriver;
 import io.questdb.client.cairo.NanosTimestampDriver;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.line.array.DoubleArray;
 import io.questdb.client.cutlass.line.array.LongArray;
 import io.questdb.client.cutlass.line.udp.UdpLineChannel;
 import io.questdb.client.network.NetworkFacade;
 import io.questdb.client.network.NetworkFacadeImpl;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
@@ -66,6 +68,11 @@ public class LineUdpSender extends AbstractLineSender {
         throw new LineSenderException("cancelRow() not supported by UDP transport");
     }
 
+    @Override
+    public Sender arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        throw new LineSenderException("current protocol version does not support arrays");
+    }
+
     @Override
     public Sender doubleArray(@NotNull CharSequence name, double[] values) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -81,6 +88,11 @@ public class LineUdpSender extends AbstractLineSender {
         throw new LineSenderException("current protocol version does not support double-array");
     }
 
+    @Override
+    public Sender doubleArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support double-array");
+    }
+
     @Override
     public Sender doubleArray(CharSequence name, DoubleArray array) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -92,6 +104,12 @@ public class LineUdpSender extends AbstractLineSender {
         return this;
     }
 
+    @Override
+    public Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        writeFieldName(name).put(value);
+        return this;
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, long[] values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -107,6 +125,11 @@ public class LineUdpSender extends AbstractLineSender {
         throw new LineSenderException("current protocol version does not support long-array");
     }
 
+    @Override
+    public Sender longArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support long-array");
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, LongArray values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -123,4 +146,16 @@ public class LineUdpSender extends AbstractLineSender {
         writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAsciiInternal('t');
         return this;
     }
+
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value, unit)).putAsciiInternal('t');
+        return this;
+    }
+
+    @Override
+    public final AbstractLineSender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAsciiInternal('t');
+        return this;
+    }
 }
@@ -27,7 +27,6 @@ package io.questdb.client.cutlass.line.array;
 import io.questdb.client.Sender;
 import io.questdb.client.cairo.ColumnType;
 import io.questdb.client.cairo.arr.ArrayView;
-import io.questdb.client.cairo.arr.BorrowedFlatArrayView;
 import io.questdb.client.cairo.arr.DirectArray;
 import io.questdb.client.cairo.vm.api.MemoryA;
 import io.questdb.client.cutlass.line.LineSenderException;
@@ -115,15 +114,9 @@ public abstract class AbstractArray implements QuietCloseable {
      */
     public void appendToBufPtr(ArrayBufferAppender mem) {
         assert !closed;
-        byte nDims = (byte) array.getDimCount();
-        mem.putByte(nDims);
-        for (byte i = 0; i < nDims; i++) {
-            mem.putInt(array.getDimLen(i));
-        }
-        if (!array.isNull() && !array.isEmpty()) {
-            BorrowedFlatArrayView view = array.borrowedFlatView();
-            mem.putBlockOfBytes(view.ptr(), view.size());
-        }
+        mem.putByte((byte) array.getDimCount());
+        FlattenArrayUtils.putShapeToBuf(mem, array);
+        FlattenArrayUtils.putDataToBuf(mem, array);
     }
 
     /**
@@ -27,6 +27,17 @@ package io.questdb.client.cutlass.line.array;
 public interface ArrayBufferAppender {
     void putBlockOfBytes(long from, long len);
 
+    /**
+     * Copies {@code len} bytes of a heap array, starting {@code offset} bytes from the
+     * object base, as addressed by {@code Unsafe.copyMemory(Object, long, Object, long, long)}.
+     * The copy is split only where the destination buffer runs out.
+     *
+     * @param array  primitive array to copy from
+     * @param offset base offset of the array plus the offset of the first byte to copy
+     * @param len    number of bytes to copy
+     */
+    void putBlockOfBytes(Object array, long offset, long len);
+
     void putByte(byte b);
 
     void putDouble(double value);
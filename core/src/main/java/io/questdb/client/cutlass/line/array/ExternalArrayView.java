@@ -0,0 +1,203 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.cutlass.line.array;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cairo.arr.ArrayView;
+import io.questdb.client.cairo.arr.BorrowedArray;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.std.Unsafe;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Array view over native memory owned by the caller, such as a direct {@link ByteBuffer}
+ * or a block allocated by a native library. Unlike {@link DoubleArray} and
+ * {@link LongArray}, it holds no memory of its own: pass it to
+ * {@link io.questdb.client.Sender#arrayColumn(CharSequence, ArrayView) Sender.arrayColumn()}
+ * and the elements are copied straight from the caller's memory into the send buffer.
+ * <p>
+ * Elements must be {@code double} or {@code long} values in little-endian byte order.
+ * Strides are expressed in elements, not bytes, and must not be negative. When the
+ * strides describe a row-major contiguous layout, the whole array is sent with a
+ * single bulk copy; otherwise each contiguous run of elements is copied separately.
+ * <p>
+ * The view is a flyweight: it can be re-pointed with {@code of()} for every row. The
+ * memory must stay valid until the row has been added to the sender.
+ * <pre>
+ *    ExternalArrayView view = new ExternalArrayView();
+ *    sender.table("sim")
+ *          .arrayColumn("state", view.of(buffer, ColumnType.DOUBLE, 64, 3))
+ *          .atNow();
+ * </pre>
+ */
+public class ExternalArrayView extends BorrowedArray {
+    private static final long BUFFER_ADDRESS_OFFSET = Unsafe.getFieldOffset(Buffer.class, "address");
+
+    /**
+     * Points this view at a contiguous row-major array that starts at {@code ptr}.
+     *
+     * @param ptr      address of the first element
+     * @param elemType {@link ColumnType#DOUBLE} or {@link ColumnType#LONG}
+     * @param shape    length of each dimension
+     * @return this view
+     */
+    public ExternalArrayView of(long ptr, short elemType, int... shape) {
+        return of(ptr, elemType, shape, null);
+    }
+
+    /**
+     * Points this view at an array that starts at {@code ptr}, with the given strides.
+     * The element at coordinates {@code (i, j, ...)} is read from
+     * {@code ptr + (i * strides[0] + j * strides[1] + ...) * elementSize}.
+     *
+     * @param ptr      address of the element at coordinates {@code (0, 0, ...)}
+     * @param elemType {@link ColumnType#DOUBLE} or {@link ColumnType#LONG}
+     * @param shape    length of each dimension
+     * @param strides  stride of each dimension, in elements, or {@code null} for row-major
+     * @return this view
+     */
+    public ExternalArrayView of(long ptr, short elemType, int[] shape, int[] strides) {
+        final int elemSize = validate(elemType, shape, strides);
+        final int nDims = shape.length;
+        boolean empty = false;
+        this.type = ColumnType.encodeArrayType(elemType, nDims, false);
+        this.shape.clear();
+        this.strides.clear();
+        for (int dim = 0; dim < nDims; dim++) {
+            this.shape.add(shape[dim]);
+            this.strides.add(0);
+            empty |= shape[dim] == 0;
+        }
+        // span is the number of elements between the first and the last one, inclusive
+        final long maxSpan = Integer.MAX_VALUE / elemSize;
+        long span = empty ? 0 : 1;
+        long defaultStride = 1;
+        boolean vanilla = true;
+        for (int dim = nDims - 1; dim >= 0; dim--) {
+            final int dimLen = shape[dim];
+            final long stride = strides != null ? strides[dim] : defaultStride;
+            vanilla &= stride == defaultStride || dimLen == 1;
+            this.strides.setQuick(dim, (int) stride);
+            if (!empty) {
+                span += (dimLen - 1) * stride;
+                if (span > maxSpan) {
+                    clear();
+                    throw new LineSenderException("array is too large [maxElements=")
+                            .put(maxSpan)
+                            .put(']');
+                }
+                // clamp to a value that no int stride can match
+                defaultStride = Math.min(defaultStride * dimLen, Integer.MAX_VALUE + 1L);
+            }
+        }
+        if (span > 0 && ptr == 0) {
+            clear();
+            throw new LineSenderException("array address must not be zero");
+        }
+        this.isVanilla = vanilla || empty;
+        this.flatViewLength = (int) span;
+        borrowedFlatView().of(ptr, elemType, flatViewLength);
+        return this;
+    }
+
+    /**
+     * Points this view at a contiguous row-major array that starts at the current
+     * position of a direct buffer. The buffer's position and limit are not changed.
+     *
+     * @param buffer   direct buffer holding the elements in little-endian byte order
+     * @param elemType {@link ColumnType#DOUBLE} or {@link ColumnType#LONG}
+     * @param shape    length of each dimension
+     * @return this view
+     */
+    public ExternalArrayView of(ByteBuffer buffer, short elemType, int... shape) {
+        return of(buffer, elemType, shape, null);
+    }
+
+    /**
+     * Points this view at an array that starts at the current position of a direct
+     * buffer, with the given strides. The buffer's position and limit are not changed.
+     *
+     * @param buffer   direct buffer holding the elements in little-endian byte order
+     * @param elemType {@link ColumnType#DOUBLE} or {@link ColumnType#LONG}
+     * @param shape    length of each dimension
+     * @param strides  stride of each dimension, in elements, or {@code null} for row-major
+     * @return this view
+     */
+    public ExternalArrayView of(ByteBuffer buffer, short elemType, int[] shape, int[] strides) {
+        if (!buffer.isDirect()) {
+            throw new LineSenderException("buffer must be direct");
+        }
+        final long address = Unsafe.getUnsafe().getLong(buffer, BUFFER_ADDRESS_OFFSET) + buffer.position();
+        of(address, elemType, shape, strides);
+        final long required = (long) flatViewLength * ColumnType.sizeOf(elemType);
+        if (required > buffer.remaining()) {
+            clear();
+            throw new LineSenderException("buffer is too small for the array [required=")
+                    .put(required)
+                    .put(", remaining=").put(buffer.remaining())
+                    .put(']');
+        }
+        return this;
+    }
+
+    private static int validate(short elemType, int[] shape, int[] strides) {
+        if (elemType != ColumnType.DOUBLE && elemType != ColumnType.LONG) {
+            throw new LineSenderException("unsupported array element type [type=")
+                    .put(ColumnType.nameOf(elemType))
+                    .put(']');
+        }
+        if (shape.length == 0) {
+            throw new LineSenderException("Shape must have at least one dimension");
+        }
+        if (shape.length > ColumnType.ARRAY_NDIMS_LIMIT) {
+            throw new LineSenderException("Maximum supported dimensionality is " +
+                    ColumnType.ARRAY_NDIMS_LIMIT + "D, but got " + shape.length + "D");
+        }
+        if (strides != null && strides.length != shape.length) {
+            throw new LineSenderException("strides and shape do not match [shapeDims=")
+                    .put(shape.length)
+                    .put(", strideDims=").put(strides.length)
+                    .put(']');
+        }
+        for (int dim = 0; dim < shape.length; dim++) {
+            if (shape[dim] < 0) {
+                throw new LineSenderException("dimension length must not be negative [dim=" + dim +
+                        ", dimLen=" + shape[dim] + "]");
+            }
+            if (shape[dim] > ArrayView.DIM_MAX_LEN) {
+                throw new LineSenderException("dimension length out of range [dim=" + dim +
+                        ", dimLen=" + shape[dim] + ", maxLen=" + ArrayView.DIM_MAX_LEN + "]");
+            }
+            if (strides != null && strides[dim] < 0) {
+                throw new LineSenderException("stride must not be negative [dim=" + dim +
+                        ", stride=" + strides[dim] + "]");
+            }
+        }
+        return ColumnType.sizeOf(elemType);
+    }
+}
@@ -24,34 +24,86 @@
 
 package io.questdb.client.cutlass.line.array;
 
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.std.Unsafe;
 
 /**
  * Utility class with methods that flatten an N-dimensional Java array into a
  * native-memory buffer.
  * <p>
  * Methods ensure that the array has a regular shape (i.e., is not jagged).
+ * Innermost rows are copied with a single bulk copy each, split only where
+ * the destination buffer runs out.
+ * <p>
+ * Arrays of more than three dimensions are passed as {@code Object[]} and
+ * handled by the generic overloads, which walk the nesting at runtime.
+ * <p>
+ * The {@link ArrayView} overloads serialize an array that already lives in native
+ * memory, copying contiguous runs of elements straight from that memory.
  */
 public class FlattenArrayUtils {
 
-    public static void putDataToBuf(ArrayBufferAppender mem, double[] array) {
-        for (int n = array.length, i = 0; i < n; i++) {
-            mem.putDouble(array[i]);
+    /**
+     * Returns the dimensionality of a nested Java array, such as {@code double[][][][]},
+     * after checking that its innermost component type is {@code elementType}.
+     *
+     * @param array       nested array
+     * @param elementType {@code double.class} or {@code long.class}
+     * @return number of dimensions, at most {@link ColumnType#ARRAY_NDIMS_LIMIT}
+     */
+    public static byte dimCount(Object[] array, Class<?> elementType) {
+        int nDims = 1;
+        Class<?> type = array.getClass().getComponentType();
+        while (type.isArray()) {
+            nDims++;
+            type = type.getComponentType();
+        }
+        if (type != elementType) {
+            throw new LineSenderException("expected a nested array of ").put(elementType.getName())
+                    .put(", but got ").put(array.getClass().getSimpleName());
+        }
+        if (nDims > ColumnType.ARRAY_NDIMS_LIMIT) {
+            throw new LineSenderException("Maximum supported dimensionality is " +
+                    ColumnType.ARRAY_NDIMS_LIMIT + "D, but got " + nDims + "D");
+        }
+        return (byte) nDims;
+    }
+
+    /**
+     * Copies the elements of an array view in row-major order. A vanilla view is copied
+     * with a single bulk copy; for a strided view, the innermost dimensions that are laid
+     * out contiguously are copied as one block per outer index.
+     */
+    public static void putDataToBuf(ArrayBufferAppender mem, ArrayView view) {
+        if (view.isNull() || view.isEmpty()) {
+            return;
         }
+        final long ptr = view.borrowedFlatView().ptr();
+        final int elemSize = ColumnType.sizeOf(view.getElemType());
+        if (view.isVanilla()) {
+            mem.putBlockOfBytes(ptr, (long) view.getFlatViewLength() * elemSize);
+            return;
+        }
+        // find the trailing dimensions that form one contiguous run of elements
+        int runDim = view.getDimCount();
+        long runLen = 1;
+        while (runDim > 0 && (view.getStride(runDim - 1) == runLen || view.getDimLen(runDim - 1) == 1)) {
+            runLen *= view.getDimLen(--runDim);
+        }
+        putStridedDataToBuf(mem, view, ptr, elemSize, 0, runDim, runLen * elemSize);
+    }
+
+    public static void putDataToBuf(ArrayBufferAppender mem, double[] array) {
+        mem.putBlockOfBytes(array, Unsafe.DOUBLE_OFFSET, (long) array.length * Double.BYTES);
     }
 
     public static void putDataToBuf(ArrayBufferAppender mem, double[][] array) {
         if (array.length == 0) {
             return;
         }
-        final int dim1Len = array[0].length;
-        for (int n = array.length, i = 0; i < n; i++) {
-            double[] subArr = array[i];
-            if (subArr.length != dim1Len) {
-                throw new LineSenderException("irregular array shape");
-            }
-            putDataToBuf(mem, subArr);
-        }
+        putDataToBuf(mem, array, array[0].length);
     }
 
     public static void putDataToBuf(ArrayBufferAppender mem, double[][][] array) {
@@ -59,34 +111,25 @@ public class FlattenArrayUtils {
             return;
         }
         final int dim1Len = array[0].length;
+        final int dim2Len = dim1Len > 0 ? array[0][0].length : 0;
         for (int n = array.length, i = 0; i < n; i++) {
             double[][] v = array[i];
             if (v.length != dim1Len) {
                 throw new LineSenderException("irregular array shape");
             }
-            putDataToBuf(mem, v);
+            putDataToBuf(mem, v, dim2Len);
         }
     }
 
     public static void putDataToBuf(ArrayBufferAppender mem, long[] array) {
-        for (int n = array.length, i = 0; i < n; i++) {
-            long v = array[i];
-            mem.putLong(v);
-        }
+        mem.putBlockOfBytes(array, Unsafe.LONG_OFFSET, (long) array.length * Long.BYTES);
     }
 
     public static void putDataToBuf(ArrayBufferAppender mem, long[][] array) {
         if (array.length == 0) {
             return;
         }
-        final int dim1Len = array[0].length;
-        for (int n = array.length, i = 0; i < n; i++) {
-            long[] v = array[i];
-            if (v.length != dim1Len) {
-                throw new LineSenderException("irregular array shape");
-            }
-            putDataToBuf(mem, v);
-        }
+        putDataToBuf(mem, array, array[0].length);
     }
 
     public static void putDataToBuf(ArrayBufferAppender mem, long[][][] array) {
@@ -94,12 +137,27 @@ public class FlattenArrayUtils {
             return;
         }
         final int dim1Len = array[0].length;
+        final int dim2Len = dim1Len > 0 ? array[0][0].length : 0;
         for (int n = array.length, i = 0; i < n; i++) {
             long[][] v = array[i];
             if (v.length != dim1Len) {
                 throw new LineSenderException("irregular array shape");
             }
-            putDataToBuf(mem, v);
+            putDataToBuf(mem, v, dim2Len);
+        }
+    }
+
+    /**
+     * Flattens a nested {@code double} or {@code long} array of any dimensionality. Every
+     * sub-array must have the length of the first sub-array at the same depth.
+     */
+    public static void putDataToBuf(ArrayBufferAppender mem, Object[] array) {
+        putDataToBuf(mem, array, array, 0);
+    }
+
+    public static void putShapeToBuf(ArrayBufferAppender mem, ArrayView view) {
+        for (int d = 0, n = view.getDimCount(); d < n; d++) {
+            mem.putInt(view.getDimLen(d));
         }
     }
 
@@ -148,4 +206,114 @@ public class FlattenArrayUtils {
             putShapeToBuf(mem, array[0]);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the shape of a nested array of any dimensionality, taking each dimension
+     * from the first sub-array at that depth. Dimensions below an empty one are zero.
+     */
+    public static void putShapeToBuf(ArrayBufferAppender mem, Object[] array) {
+        Object level = array;
+        for (int d = 0, n = dimCount(array.getClass()); d < n; d++) {
+            final int len = level != null ? lengthOf(level) : 0;
+            mem.putInt(len);
+            level = len > 0 && level instanceof Object[] ? ((Object[]) level)[0] : null;
+        }
+    }
+
+    private static int dimCount(Class<?> type) {
+        int nDims = 0;
+        while (type.isArray()) {
+            nDims++;
+            type = type.getComponentType();
+        }
+        return nDims;
+    }
+
+    private static int dimLen(Object[] root, int depth) {
+        Object level = root;
+        for (int d = 0; d < depth; d++) {
+            level = ((Object[]) level)[0];
+        }
+        return lengthOf(level);
+    }
+
+    private static int lengthOf(Object array) {
+        if (array instanceof Object[]) {
+            return ((Object[]) array).length;
+        }
+        if (array instanceof double[]) {
+            return ((double[]) array).length;
+        }
+        if (array instanceof long[]) {
+            return ((long[]) array).length;
+        }
+        throw new LineSenderException("irregular array shape");
+    }
+
+    private static void putDataToBuf(ArrayBufferAppender mem, double[][] array, int rowLen) {
+        for (int n = array.length, i = 0; i < n; i++) {
+            double[] row = array[i];
+            if (row.length != rowLen) {
+                throw new LineSenderException("irregular array shape");
+            }
+            putDataToBuf(mem, row);
+        }
+    }
+
+    private static void putDataToBuf(ArrayBufferAppender mem, long[][] array, int rowLen) {
+        for (int n = array.length, i = 0; i < n; i++) {
+            long[] row = array[i];
+            if (row.length != rowLen) {
+                throw new LineSenderException("irregular array shape");
+            }
+            putDataToBuf(mem, row);
+        }
+    }
+
+    private static void putDataToBuf(ArrayBufferAppender mem, Object[] root, Object[] array, int depth) {
+        if (array.length == 0) {
+            return;
+        }
+        final int childLen = dimLen(root, depth + 1);
+        for (int n = array.length, i = 0; i < n; i++) {
+            final Object child = array[i];
+            if (child == null || lengthOf(child) != childLen) {
+                throw new LineSenderException("irregular array shape");
+            }
+            if (child instanceof Object[]) {
+                putDataToBuf(mem, root, (Object[]) child, depth + 1);
+            } else if (child instanceof double[]) {
+                putDataToBuf(mem, (double[]) child);
+            } else {
+                putDataToBuf(mem, (long[]) child);
+            }
+        }
+    }
+
+    private static void putStridedDataToBuf(
+            ArrayBufferAppender mem,
+            ArrayView view,
+            long ptr,
+            int elemSize,
+            int dim,
+            int runDim,
+            long runBytes
+    ) {
+        if (dim == runDim) {
+            mem.putBlockOfBytes(ptr, runBytes);
+            return;
+        }
+        final long step = (long) view.getStride(dim) * elemSize;
+        final int dimLen = view.getDimLen(dim);
+        if (dim + 1 == runDim && runBytes == Long.BYTES) {
+            // innermost dimension is strided, gather its elements one by one
+            for (int i = 0; i < dimLen; i++, ptr += step) {
+                mem.putLong(Unsafe.getUnsafe().getLong(ptr));
+            }
+            return;
+        }
+        for (int i = 0; i < dimLen; i++, ptr += step) {
+            putStridedDataToBuf(mem, view, ptr, elemSize, dim + 1, runDim, runBytes);
+        }
+    }
+}
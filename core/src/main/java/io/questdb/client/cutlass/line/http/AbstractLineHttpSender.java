@@ -28,30 +28,40 @@ import io.questdb.client.BuildInformationHolder;
 import io.questdb.client.ClientTlsConfiguration;
 import io.questdb.client.HttpClientConfiguration;
 import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
 import io.questdb.client.cairo.TableUtils;
 import io.questdb.client.cutlass.http.HttpConstants;
 import io.questdb.client.cutlass.http.HttpKeywords;
 import io.questdb.client.cutlass.http.client.Fragment;
+import io.questdb.client.cutlass.http.client.Http2Client;
 import io.questdb.client.cutlass.http.client.HttpClient;
 import io.questdb.client.cutlass.http.client.HttpClientException;
 import io.questdb.client.cutlass.http.client.HttpClientFactory;
+import io.questdb.client.cutlass.http.client.HttpResponseHeaders;
 import io.questdb.client.cutlass.http.client.Response;
 import io.questdb.client.cutlass.json.JsonException;
 import io.questdb.client.cutlass.json.JsonLexer;
 import io.questdb.client.cutlass.json.JsonParser;
+import io.questdb.client.cutlass.line.LineEscapes;
 import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.LineSenderMetrics;
 import io.questdb.client.std.Chars;
 import io.questdb.client.std.IntList;
+import io.questdb.client.std.MemoryTag;
 import io.questdb.client.std.Misc;
 import io.questdb.client.std.Mutable;
+import io.questdb.client.std.NativeMemoryBudget;
 import io.questdb.client.std.Numbers;
 import io.questdb.client.std.NumericException;
 import io.questdb.client.std.ObjList;
 import io.questdb.client.std.Os;
+import io.questdb.client.std.QuietCloseable;
 import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
 import io.questdb.client.std.bytes.DirectByteSlice;
 import io.questdb.client.std.datetime.microtime.MicrosecondClockImpl;
 import io.questdb.client.std.datetime.nanotime.NanosecondClockImpl;
+import io.questdb.client.std.str.ByteArrayUtf8String;
 import io.questdb.client.std.str.DirectUtf8Sequence;
 import io.questdb.client.std.str.StringSink;
 import io.questdb.client.std.str.Utf8Sequence;
@@ -59,9 +69,13 @@ import io.questdb.client.std.str.Utf8s;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 public abstract class AbstractLineHttpSender implements Sender {
     private static final String PATH = "/write?precision=n";
+    // consecutive rounds of batches left unprocessed by the server that are resent without backoff
+    private static final int MAX_UNPROCESSED_RESENDS = 8;
     private static final int RETRY_BACKOFF_MULTIPLIER = 2;
     private static final int RETRY_INITIAL_BACKOFF_MS = 10;
     private static final int RETRY_MAX_JITTER_MS = 10;
@@ -71,19 +85,30 @@ public abstract class AbstractLineHttpSender implements Sender {
     private final DirectByteSlice bufferView = new DirectByteSlice();
     private final long flushIntervalNanos;
     private final ObjList<String> hosts;
+    private final Http2Client http2;
     private final boolean isTls;
     private final int maxBackoffMillis;
     private final int maxNameLength;
     private final long maxRetriesNanos;
+    private final LineSenderMetrics metrics = new LineSenderMetrics();
     private final long minRequestThroughput;
+    private final ByteArrayUtf8String nameBytes = new ByteArrayUtf8String();
     private final String password;
     private final String path;
+    // batches sealed by auto-flush, in the order they were sealed, that the server has not acknowledged yet
+    private final ObjList<PipelinedBatch> pipeline = new ObjList<>();
+    private final int pipelineDepth;
     private final IntList ports;
     private final CharSequence questDBVersion;
+    private final int requestChunkSize;
     private final Rnd rnd;
     private final StringSink sink = new StringSink();
+    private final ObjList<PipelinedBatch> sparePipelinedBatches = new ObjList<>();
     private final String username;
+    private final ByteArrayUtf8String valueBytes = new ByteArrayUtf8String();
     protected HttpClient.Request request;
+    private long chunkRetryAfterNanos;
+    private int chunkRetryBackoff = RETRY_INITIAL_BACKOFF_MS;
     private HttpClient client;
     private boolean closed;
     private int currentAddressIndex;
@@ -189,6 +214,10 @@ public abstract class AbstractLineHttpSender implements Sender {
         this.minRequestThroughput = minRequestThroughput;
         this.flushIntervalNanos = flushIntervalNanos;
         this.baseTimeoutMillis = clientConfiguration.getTimeout();
+        this.requestChunkSize = clientConfiguration.getRequestChunkSize();
+        this.pipelineDepth = clientConfiguration.getPipelineDepth();
+        assert pipelineDepth < 2 || requestChunkSize == 0;
+        assert clientConfiguration.getHttpVersion() == 1 || requestChunkSize == 0;
 
         this.isTls = tlsConfig != null;
 
@@ -200,6 +229,17 @@ public abstract class AbstractLineHttpSender implements Sender {
                     : HttpClientFactory.newPlainTextInstance(clientConfiguration);
         }
         this.questDBVersion = new BuildInformationHolder().getSwVersion();
+        if (clientConfiguration.getHttpVersion() == 2) {
+            this.http2 = new Http2Client(this.client, isTls);
+            http2.header("user-agent", "QuestDB/java/" + questDBVersion);
+            if (username != null) {
+                http2.header("authorization", "Basic " + Base64.getEncoder().encodeToString((username + ':' + password).getBytes(StandardCharsets.UTF_8)));
+            } else if (authToken != null) {
+                http2.header("authorization", "Bearer " + authToken);
+            }
+        } else {
+            this.http2 = null;
+        }
         this.request = newRequest();
         this.maxNameLength = maxNameLength;
         this.rnd = rnd;
@@ -395,6 +435,26 @@ public abstract class AbstractLineHttpSender implements Sender {
                         currentAddressIndex,
                         rnd
                 );
+            case PROTOCOL_VERSION_V4:
+                return new LineHttpSenderV4(
+                        hosts,
+                        ports,
+                        path,
+                        clientConfiguration,
+                        tlsConfig,
+                        cli,
+                        autoFlushRows,
+                        authToken,
+                        username,
+                        password,
+                        maxNameLength,
+                        maxRetriesNanos,
+                        maxBackoffMillis,
+                        minRequestThroughput,
+                        flushIntervalNanos,
+                        currentAddressIndex,
+                        rnd
+                );
             default:
                 throw new LineSenderException("Unsupported protocol version: " + protocolVersion);
         }
@@ -421,7 +481,9 @@ public abstract class AbstractLineHttpSender implements Sender {
                 break;
         }
         if (rowAdded()) {
-            flush();
+            autoFlush();
+        } else {
+            sendChunkIfFull();
         }
     }
 
@@ -432,8 +494,21 @@ public abstract class AbstractLineHttpSender implements Sender {
         return this;
     }
 
+    @Override
+    public Sender boolColumnUtf8(Utf8Sequence name, boolean value) {
+        writeFieldName(name);
+        request.put(value ? 't' : 'f');
+        return this;
+    }
+
+    /**
+     * Returns view of the request content buffered so far. When chunked streaming is enabled,
+     * this is only the content that has not been streamed to the server yet. When request
+     * paging is enabled, this is only the content of the page that is currently being written.
+     */
     public DirectByteSlice bufferView() {
-        return bufferView.of(request.getContentStart(), request.getContentLength());
+        final long lo = request.getContentSegmentStart();
+        return bufferView.of(lo, (int) (request.getPtr() - lo));
     }
 
     @Override
@@ -456,7 +531,11 @@ public abstract class AbstractLineHttpSender implements Sender {
             }
         } finally {
             Misc.free(jsonErrorParser);
+            // batches left in the pipeline failed to flush, they are dropped along with the buffer
+            Misc.freeObjListAndClear(pipeline);
+            Misc.freeObjListAndClear(sparePipelinedBatches);
             closed = true;
+            Misc.free(http2);
             client = Misc.free(client);
         }
     }
@@ -481,12 +560,27 @@ public abstract class AbstractLineHttpSender implements Sender {
         return this;
     }
 
+    @Override
+    public Sender longColumnUtf8(Utf8Sequence name, long value) {
+        writeFieldName(name);
+        request.put(value);
+        request.put('i');
+        return this;
+    }
+
+    @Override
+    public SenderMetrics metrics() {
+        return metrics;
+    }
+
     @TestOnly
     public void putRawMessage(Utf8Sequence msg) {
         request.put(msg); // message must include trailing \n
         state = RequestState.EMPTY;
         if (rowAdded()) {
-            flush();
+            autoFlush();
+        } else {
+            sendChunkIfFull();
         }
     }
 
@@ -504,48 +598,72 @@ public abstract class AbstractLineHttpSender implements Sender {
         return this;
     }
 
+    @Override
+    public Sender stringColumnUtf8(Utf8Sequence name, Utf8Sequence value) {
+        writeFieldName(name);
+        request.put('"');
+        request.putEscaped(value, LineEscapes.STRING_ESCAPE_MASK);
+        request.put('"');
+        return this;
+    }
+
+    @Override
+    public Sender stringColumnUtf8(byte[] name, byte[] value) {
+        return stringColumnUtf8(nameBytes.of(name), valueBytes.of(value));
+    }
+
     @Override
     public Sender symbol(CharSequence name, CharSequence value) {
-        switch (state) {
-            case EMPTY:
-                throw new LineSenderException("table name must be set first");
-            case ADDING_COLUMNS:
-                throw new LineSenderException("symbols must be written before any other column types");
-            case TABLE_NAME_SET:
-                state = RequestState.ADDING_SYMBOLS;
-                // fall through
-            case ADDING_SYMBOLS:
-                validateColumnName(name);
-                request.putAscii(',');
-                escapeQuotedString(name);
-                request.putAscii('=');
-                escapeQuotedString(value);
-                state = RequestState.ADDING_SYMBOLS;
-                break;
-            default:
-                throw new LineSenderException("unexpected state: ").put(state.name());
-        }
+        beginSymbol();
+        validateColumnName(name);
+        request.putAscii(',');
+        escapeQuotedString(name);
+        request.putAscii('=');
+        escapeQuotedString(value);
         return this;
     }
 
+    @Override
+    public Sender symbolUtf8(Utf8Sequence name, Utf8Sequence value) {
+        beginSymbol();
+        validateColumnName(name);
+        request.putAscii(',');
+        request.putEscaped(name, LineEscapes.NAME_ESCAPE_MASK);
+        request.putAscii('=');
+        request.putEscaped(value, LineEscapes.NAME_ESCAPE_MASK);
+        return this;
+    }
+
+    @Override
+    public Sender symbolUtf8(byte[] name, byte[] value) {
+        return symbolUtf8(nameBytes.of(name), valueBytes.of(value));
+    }
+
     @Override
     public Sender table(CharSequence table) {
         assert request != null;
         validateNotClosed();
         validateTableName(table);
-        if (state != RequestState.EMPTY) {
-            throw new LineSenderException("duplicated table. call sender.at() or sender.atNow() to finish the current row first");
-        }
-        if (table.length() == 0) {
-            throw new LineSenderException("table name cannot be empty");
-        }
-        // set bookmark at start of the line.
-        rowBookmark = request.getContentLength();
-        state = RequestState.TABLE_NAME_SET;
+        beginRow(table.length());
         escapeQuotedString(table);
         return this;
     }
 
+    @Override
+    public Sender tableUtf8(Utf8Sequence table) {
+        assert request != null;
+        validateNotClosed();
+        validateTableName(table);
+        beginRow(table.size());
+        request.putEscaped(table, LineEscapes.NAME_ESCAPE_MASK);
+        return this;
+    }
+
+    @Override
+    public Sender tableUtf8(byte[] table) {
+        return tableUtf8(nameBytes.of(table));
+    }
+
     private static int backoff(Rnd rnd, int retryBackoff, int retryMaxBackoffMs) {
         int jitter = rnd.nextInt(RETRY_MAX_JITTER_MS);
         int backoff = retryBackoff + jitter;
@@ -553,7 +671,7 @@ public abstract class AbstractLineHttpSender implements Sender {
         return Math.min(retryMaxBackoffMs, backoff * RETRY_BACKOFF_MULTIPLIER);
     }
 
-    private static void chunkedResponseToSink(HttpClient.ResponseHeaders response, StringSink sink) {
+    private static void chunkedResponseToSink(HttpResponseHeaders response, StringSink sink) {
         if (!response.isChunked()) {
             return;
         }
@@ -564,6 +682,32 @@ public abstract class AbstractLineHttpSender implements Sender {
         }
     }
 
+    private static LineSenderException invalidColumnName(CharSequence name, int maxNameLength) {
+        if (name.length() > maxNameLength) {
+            return new LineSenderException("column name is too long: [name = ")
+                    .putAsPrintable(name)
+                    .put(", maxNameLength=")
+                    .put(maxNameLength)
+                    .put(']');
+        }
+        return new LineSenderException("column name contains an illegal char: '\\n', '\\r', '?', '.', ','" +
+                ", ''', '\"', '\\', '/', ':', ')', '(', '+', '-', '*' '%%', '~', or a non-printable char: ")
+                .putAsPrintable(name);
+    }
+
+    private static LineSenderException invalidTableName(CharSequence name, int maxNameLength) {
+        if (name.length() > maxNameLength) {
+            return new LineSenderException("table name is too long: [name = ")
+                    .putAsPrintable(name)
+                    .put(", maxNameLength=")
+                    .put(maxNameLength)
+                    .put(']');
+        }
+        return new LineSenderException("table name contains an illegal char: '\\n', '\\r', '?', ',', ''', " +
+                "'\"', '\\', '/', ':', ')', '(', '+', '*' '%%', '~', or a non-printable char: ")
+                .putAsPrintable(name);
+    }
+
     private static boolean isRetryableHttpStatus(DirectUtf8Sequence statusCode) {
         if (statusCode == null || statusCode.size() != 3 || statusCode.byteAt(0) != '5') {
             return false;
@@ -595,12 +739,233 @@ public abstract class AbstractLineHttpSender implements Sender {
         return statusCode != null && statusCode.size() == 3 && statusCode.byteAt(0) == '2';
     }
 
-    private static boolean keepAliveDisabled(HttpClient.ResponseHeaders response) {
+    private static boolean keepAliveDisabled(HttpResponseHeaders response) {
         DirectUtf8Sequence connectionHeader = response.getHeader(HttpConstants.HEADER_CONNECTION);
         return HttpKeywords.isClose(connectionHeader);
     }
 
-    private void consumeChunkedResponse(HttpClient.ResponseHeaders response) {
+    /**
+     * Acknowledges the batches whose HTTP/2 streams completed successfully before the connection failed,
+     * so that they are not sent again.
+     */
+    private void acknowledgeCompletedStreams() {
+        for (int i = 0; i < pipeline.size(); ) {
+            final PipelinedBatch batch = pipeline.getQuick(i);
+            if (batch.sent && http2.isCompleted(batch.streamId)) {
+                final HttpResponseHeaders response;
+                try {
+                    response = awaitPipelinedResponse(batch);
+                } catch (HttpClientException e) {
+                    // the stream was reset, the batch will be sent again
+                    i++;
+                    continue;
+                }
+                if (isSuccessResponse(response.getStatusCode())) {
+                    onPipelinedBatchAcknowledged(i, response);
+                    continue;
+                }
+            }
+            i++;
+        }
+    }
+
+    private LineSenderException abortStreamedRequest(HttpClientException e) {
+        final long streamedBytes = request.getStreamedBytes();
+        reset();
+        return new LineSenderException("Could not flush buffer: connection failed after part of the request was streamed, transaction was aborted [streamedBytes=")
+                .put(streamedBytes).put("]: ").put(e.getMessage());
+    }
+
+    private void abortStreamedRequest(DirectUtf8Sequence statusCode, HttpResponseHeaders response) {
+        try {
+            // streamed content is gone, the request cannot be retried regardless of the status
+            throwOnHttpErrorResponse(statusCode, response, false);
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * Sends the batch that has just been flushed without waiting for the response. When the pipeline is full,
+     * waits for the oldest batch to be acknowledged first.
+     */
+    private void autoFlush() {
+        if (!isPipelined()) {
+            flush0(false);
+            return;
+        }
+        if (pipeline.size() == pipelineDepth) {
+            awaitPipeline(pipelineDepth - 1, false);
+        }
+        enqueuePipelinedBatch();
+    }
+
+    /**
+     * Reads responses to pipelined batches, oldest first, until no more than the given number of batches
+     * remain unacknowledged. A batch that failed with a retryable error, or whose response was lost with
+     * the connection, is sent again along with all batches behind it, in their original order. Before that,
+     * responses to the batches sent after the failed one are read, so that none of them is written twice.
+     * <p>
+     * Batches the server did not process, because it refused their HTTP/2 streams or is recycling the
+     * connection with GOAWAY, are not failures. Once the responses to the other batches are read, they are
+     * sent again to the same address, without backoff and without counting against the retry timeout.
+     */
+    private void awaitPipeline(int maxUnacknowledged, boolean closing) {
+        long retryingDeadlineNanos = Long.MIN_VALUE;
+        int retryBackoff = RETRY_INITIAL_BACKOFF_MS;
+        int unprocessedResends = 0;
+        boolean failed = true;
+        try {
+            while (pipeline.size() > maxUnacknowledged) {
+                try {
+                    sendPipelinedBatches();
+                    final PipelinedBatch batch = pipeline.getQuick(0);
+                    HttpResponseHeaders response = awaitPipelinedResponse(batch);
+                    DirectUtf8Sequence statusCode = response.getStatusCode();
+                    if (isSuccessResponse(statusCode)) {
+                        onPipelinedBatchAcknowledged(0, response);
+                        lastFlushFailed = false;
+                        unprocessedResends = 0;
+                        continue;
+                    }
+                    assert http2 != null || response.isChunked();
+                    lastFlushFailed = true;
+                    if (isRetryableHttpStatus(statusCode) || isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
+                        if (isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
+                            rotateAddress();
+                        }
+
+                        long nowNanos = System.nanoTime();
+                        retryingDeadlineNanos = (retryingDeadlineNanos == Long.MIN_VALUE && !closing)
+                                ? nowNanos + maxRetriesNanos
+                                : retryingDeadlineNanos;
+                        if (nowNanos >= retryingDeadlineNanos) {
+                            // throw, but keep the batches - a caller can try to flush later
+                            throw pipelinedBatchFailed(statusCode, response, true, 1);
+                        }
+                        consumeChunkedResponse(response);
+                        settlePipeline(1);
+                        disconnect(); // forces reconnect, just in case
+                        retryBackoff = retryBackoff(retryBackoff);
+                        continue;
+                    }
+                    // the batch is rejected for good, it is dropped and the batches behind it are kept
+                    pipeline.remove(0);
+                    sparePipelinedBatches.add(batch);
+                    throw pipelinedBatchFailed(statusCode, response, false, 0);
+                } catch (HttpClientException e) {
+                    if (e.isUnprocessed() && unprocessedResends < MAX_UNPROCESSED_RESENDS) {
+                        final int pipelineSize = pipeline.size();
+                        if (settleUnprocessedBatches()) {
+                            unprocessedResends = pipeline.size() < pipelineSize ? 0 : unprocessedResends + 1;
+                            continue;
+                        }
+                    }
+                    lastFlushFailed = true;
+                    if (http2 != null) {
+                        acknowledgeCompletedStreams();
+                    }
+                    // responses to all batches sent on the connection are lost, they will be sent again
+                    disconnect();
+                    long nowNanos = System.nanoTime();
+                    retryingDeadlineNanos = (retryingDeadlineNanos == Long.MIN_VALUE && !closing)
+                            ? nowNanos + maxRetriesNanos
+                            : retryingDeadlineNanos;
+                    if (nowNanos >= retryingDeadlineNanos) {
+                        // we did our best, give up, but keep the batches
+                        // a caller can try to flush later
+                        throw connectionFailed(e);
+                    }
+                    rotateAddress();
+                    retryBackoff = retryBackoff(retryBackoff);
+                }
+            }
+            failed = false;
+        } finally {
+            metrics.onConnectionStats(client.getConnectCount(), client.getTlsHandshakeCount());
+            if (failed) {
+                metrics.onFlushFailed();
+            }
+        }
+    }
+
+    private HttpResponseHeaders awaitPipelinedResponse(PipelinedBatch batch) {
+        final long beforeWait = System.nanoTime();
+        final HttpResponseHeaders response;
+        if (http2 != null) {
+            try {
+                response = http2.await(batch.streamId, requestTimeoutMillis(batch.contentBytes));
+            } catch (HttpClientException e) {
+                if (e.isUnprocessed()) {
+                    // the server has not seen the batch, it is sent again on a new stream
+                    batch.sent = false;
+                }
+                throw e;
+            }
+        } else {
+            HttpClient.ResponseHeaders headers = client.nextResponse();
+            headers.await(requestTimeoutMillis(batch.contentBytes));
+            response = headers;
+        }
+        batch.waitNanos += System.nanoTime() - beforeWait;
+        return response;
+    }
+
+    private void beginField() {
+        switch (state) {
+            case EMPTY:
+                throw new LineSenderException("table name must be set first");
+            case ADDING_SYMBOLS:
+                // fall through
+            case TABLE_NAME_SET:
+                request.putAscii(' ');
+                state = RequestState.ADDING_COLUMNS;
+                break;
+            case ADDING_COLUMNS:
+                request.putAscii(',');
+                break;
+        }
+    }
+
+    private void beginRow(int tableNameLength) {
+        if (state != RequestState.EMPTY) {
+            throw new LineSenderException("duplicated table. call sender.at() or sender.atNow() to finish the current row first");
+        }
+        if (tableNameLength == 0) {
+            throw new LineSenderException("table name cannot be empty");
+        }
+        // set bookmark at start of the line.
+        rowBookmark = request.getContentLength();
+        state = RequestState.TABLE_NAME_SET;
+    }
+
+    private void beginSymbol() {
+        switch (state) {
+            case EMPTY:
+                throw new LineSenderException("table name must be set first");
+            case ADDING_COLUMNS:
+                throw new LineSenderException("symbols must be written before any other column types");
+            case TABLE_NAME_SET:
+            case ADDING_SYMBOLS:
+                state = RequestState.ADDING_SYMBOLS;
+                break;
+            default:
+                throw new LineSenderException("unexpected state: ").put(state.name());
+        }
+    }
+
+    private LineSenderException connectionFailed(HttpClientException e) {
+        LineSenderException ex = new LineSenderException("Could not flush buffer: http", true);
+        if (isTls) {
+            ex.put('s');
+        }
+        ex.put("://");
+        ex.put(currentHost()).put(':').put(currentPort()).put(this.path);
+        ex.put(" Connection Failed").put(": ").put(e.getMessage());
+        return ex;
+    }
+
+    private void consumeChunkedResponse(HttpResponseHeaders response) {
         if (!response.isChunked()) {
             return;
         }
@@ -619,113 +984,177 @@ public abstract class AbstractLineHttpSender implements Sender {
         return ports.get(currentAddressIndex);
     }
 
-    private void escapeString(CharSequence value) {
-        for (int i = 0, n = value.length(); i < n; i++) {
-            char c = value.charAt(i);
-            switch (c) {
-                case '\n':
-                case '\r':
-                case '"':
-                case '\\':
-                    request.put((byte) '\\').put((byte) c);
-                    break;
-                default:
-                    request.put(c);
-                    break;
+    /**
+     * Closes the connection. Responses to the batches in flight on it are lost, the batches will be sent again.
+     */
+    private void disconnect() {
+        if (http2 != null) {
+            http2.disconnect();
+        } else {
+            client.disconnect();
+        }
+        for (int i = 0, n = pipeline.size(); i < n; i++) {
+            pipeline.getQuick(i).sent = false;
+        }
+    }
+
+    private void enqueuePipelinedBatch() {
+        final PipelinedBatch batch;
+        final int spareCount = sparePipelinedBatches.size();
+        if (spareCount > 0) {
+            batch = sparePipelinedBatches.getQuick(spareCount - 1);
+            sparePipelinedBatches.setPos(spareCount - 1);
+        } else {
+            batch = new PipelinedBatch();
+        }
+        try {
+            batch.of(request, pendingRows);
+        } catch (Throwable th) {
+            sparePipelinedBatches.add(batch);
+            throw th;
+        }
+        pipeline.add(batch);
+        reset(System.nanoTime() + flushIntervalNanos);
+        try {
+            sendPipelinedBatches();
+        } catch (HttpClientException e) {
+            // the batch is kept, it is sent again when the pipeline is drained
+            if (!e.isUnprocessed()) {
+                lastFlushFailed = true;
+                disconnect();
             }
         }
     }
 
+    private void escapeString(CharSequence value) {
+        request.putEscaped(value, LineEscapes.STRING_ESCAPE_MASK);
+    }
+
     private void flush0(boolean closing) {
         if (state != RequestState.EMPTY && !closing) {
             throw new LineSenderException(
                     "Cannot flush buffer while row is in progress. " +
                             "Use sender.at() or sender.atNow() to finish the current row first.");
         }
+        if (isPipelined()) {
+            flushPipeline(closing);
+            return;
+        }
         if (pendingRows == 0 || (closing && lastFlushFailed)) {
             return;
         }
 
         long retryingDeadlineNanos = Long.MIN_VALUE;
         int retryBackoff = RETRY_INITIAL_BACKOFF_MS;
-        int contentLen = request.getContentLength();
-        int actualTimeoutMillis = baseTimeoutMillis;
-        if (minRequestThroughput > 0) {
-            long throughputTimeoutBonusMillis = (contentLen * 1_000L / minRequestThroughput);
-            if (throughputTimeoutBonusMillis + actualTimeoutMillis > Integer.MAX_VALUE) {
-                actualTimeoutMillis = Integer.MAX_VALUE;
-            } else {
-                actualTimeoutMillis += (int) throughputTimeoutBonusMillis;
-            }
-        }
-        for (; ; ) {
-            try {
-                long beforeRequest = System.nanoTime();
-                HttpClient.ResponseHeaders response = request.send(currentHost(), currentPort(), actualTimeoutMillis);
-                long elapsedNanos = System.nanoTime() - beforeRequest;
-                int remainingMillis = actualTimeoutMillis - (int) (elapsedNanos / 1_000_000L);
-                if (remainingMillis <= 0) {
-                    throw new HttpClientException("Request timed out");
-                }
+        int actualTimeoutMillis = requestTimeoutMillis(request.getContentLength());
+        // part of the request has already been streamed, it cannot be re-sent
+        final boolean streamed = request.isHeaderSent();
+        final long flushStartNanos = System.nanoTime();
+        final long flushRows = pendingRows;
+        final long flushBytes = request.getStreamedBytes() + request.getContentLength();
+        long sendNanos = 0;
+        long waitNanos = 0;
+        boolean flushed = false;
+        try {
+            for (; ; ) {
+                try {
+                    long beforeRequest = System.nanoTime();
+                    HttpClient.ResponseHeaders response = request.send(currentHost(), currentPort(), actualTimeoutMillis);
+                    long elapsedNanos = System.nanoTime() - beforeRequest;
+                    sendNanos += elapsedNanos;
+                    int remainingMillis = actualTimeoutMillis - (int) (elapsedNanos / 1_000_000L);
+                    if (remainingMillis <= 0) {
+                        throw new HttpClientException("Request timed out");
+                    }
 
-                response.await(remainingMillis);
-                DirectUtf8Sequence statusCode = response.getStatusCode();
-                if (isSuccessResponse(statusCode)) {
-                    consumeChunkedResponse(response); // if any
-                    if (keepAliveDisabled(response)) {
-                        // Server has HTTP keep-alive disabled, and it's closing this TCP connection.
-                        client.disconnect();
+                    response.await(remainingMillis);
+                    waitNanos += System.nanoTime() - beforeRequest - elapsedNanos;
+                    DirectUtf8Sequence statusCode = response.getStatusCode();
+                    if (isSuccessResponse(statusCode)) {
+                        consumeChunkedResponse(response); // if any
+                        if (keepAliveDisabled(response)) {
+                            // Server has HTTP keep-alive disabled, and it's closing this TCP connection.
+                            client.disconnect();
+                        }
+                        lastFlushFailed = false;
+                        flushed = true;
+                        break;
                     }
-                    lastFlushFailed = false;
-                    break;
-                }
-                assert response.isChunked();
-                lastFlushFailed = true;
-                if (isRetryableHttpStatus(statusCode) || isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
-                    if (isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
-                        rotateAddress();
+                    assert response.isChunked();
+                    lastFlushFailed = true;
+                    if (streamed) {
+                        abortStreamedRequest(statusCode, response);
                     }
+                    if (isRetryableHttpStatus(statusCode) || isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
+                        if (isMisdirectedRequest(statusCode) || isNotFound(statusCode)) {
+                            rotateAddress();
+                        }
 
+                        long nowNanos = System.nanoTime();
+                        retryingDeadlineNanos = (retryingDeadlineNanos == Long.MIN_VALUE && !closing)
+                                ? nowNanos + maxRetriesNanos
+                                : retryingDeadlineNanos;
+                        if (nowNanos >= retryingDeadlineNanos) {
+                            // throw, but do not reset - a caller can try to flush later
+                            throwOnHttpErrorResponse(statusCode, response, true);
+                        }
+                        client.disconnect(); // forces reconnect, just in case
+                        retryBackoff = retryBackoff(retryBackoff);
+                        continue;
+                    }
+                    throwOnHttpErrorResponse(statusCode, response, false);
+                } catch (HttpClientException e) {
+                    lastFlushFailed = true;
+                    client.disconnect(); // forces reconnect
+                    if (streamed) {
+                        throw abortStreamedRequest(e);
+                    }
+                    // this is a network error, we can retry
                     long nowNanos = System.nanoTime();
                     retryingDeadlineNanos = (retryingDeadlineNanos == Long.MIN_VALUE && !closing)
                             ? nowNanos + maxRetriesNanos
                             : retryingDeadlineNanos;
                     if (nowNanos >= retryingDeadlineNanos) {
-                        // throw, but do not reset - a caller can try to flush later
-                        throwOnHttpErrorResponse(statusCode, response, true);
-                    }
-                    client.disconnect(); // forces reconnect, just in case
-                    retryBackoff = backoff(rnd, retryBackoff, maxBackoffMillis);
-                    continue;
-                }
-                throwOnHttpErrorResponse(statusCode, response, false);
-            } catch (HttpClientException e) {
-                // this is a network error, we can retry
-                lastFlushFailed = true;
-                client.disconnect(); // forces reconnect
-                long nowNanos = System.nanoTime();
-                retryingDeadlineNanos = (retryingDeadlineNanos == Long.MIN_VALUE && !closing)
-                        ? nowNanos + maxRetriesNanos
-                        : retryingDeadlineNanos;
-                if (nowNanos >= retryingDeadlineNanos) {
-                    // we did our best, give up, but do not reset the sender
-                    // a caller can try to flush later
-                    LineSenderException ex = new LineSenderException("Could not flush buffer: http", true);
-                    if (isTls) {
-                        ex.put('s');
+                        // we did our best, give up, but do not reset the sender
+                        // a caller can try to flush later
+                        throw connectionFailed(e);
                     }
-                    ex.put("://");
-                    ex.put(currentHost()).put(':').put(currentPort()).put(this.path);
-                    ex.put(" Connection Failed").put(": ").put(e.getMessage());
-                    throw ex;
+                    rotateAddress();
+                    retryBackoff = retryBackoff(retryBackoff);
                 }
-                rotateAddress();
-                retryBackoff = backoff(rnd, retryBackoff, maxBackoffMillis);
+            }
+        } finally {
+            metrics.onConnectionStats(client.getConnectCount(), client.getTlsHandshakeCount());
+            if (flushed) {
+                metrics.onFlush(flushRows, flushBytes, sendNanos, waitNanos, System.nanoTime() - flushStartNanos);
+            } else {
+                metrics.onFlushFailed();
             }
         }
         reset(System.nanoTime() + flushIntervalNanos);
     }
 
+    /**
+     * Queues the buffered rows as a batch, unless the buffer is empty, and waits for the server to
+     * acknowledge all queued batches.
+     */
+    private void flushPipeline(boolean closing) {
+        if (closing && lastFlushFailed) {
+            return;
+        }
+        if (pendingRows > 0) {
+            if (pipeline.size() == pipelineDepth) {
+                awaitPipeline(pipelineDepth - 1, closing);
+            }
+            enqueuePipelinedBatch();
+        }
+        awaitPipeline(0, closing);
+    }
+
+    private boolean isPipelined() {
+        return pipelineDepth > 1 || http2 != null;
+    }
+
     private HttpClient.Request newRequest() {
         HttpClient.Request r = client.newRequest(currentHost(), currentPort())
                 .POST()
@@ -736,19 +1165,79 @@ public abstract class AbstractLineHttpSender implements Sender {
         } else if (authToken != null) {
             r.authToken(authToken);
         }
-        r.withContent();
+        if (requestChunkSize > 0) {
+            r.withChunkedContent();
+        } else {
+            r.withContent();
+        }
         rowBookmark = r.getContentLength();
         state = RequestState.EMPTY;
         return r;
     }
 
+    private void onPipelinedBatchAcknowledged(int index, HttpResponseHeaders response) {
+        consumeChunkedResponse(response); // if any
+        if (keepAliveDisabled(response)) {
+            // Server has HTTP keep-alive disabled, and it's closing this TCP connection.
+            // Batches sent after this one are not processed, they will be sent again.
+            disconnect();
+        }
+        final PipelinedBatch batch = pipeline.getQuick(index);
+        pipeline.remove(index);
+        sparePipelinedBatches.add(batch);
+        metrics.onFlush(batch.rows, batch.contentBytes, batch.sendNanos, batch.waitNanos, System.nanoTime() - batch.flushStartNanos);
+    }
+
+    /**
+     * Reads the failed batch's error response, and responses to the batches sent after it, so that none
+     * of them is written twice. The connection is closed afterwards.
+     */
+    private LineSenderException pipelinedBatchFailed(DirectUtf8Sequence statusCode, HttpResponseHeaders response, boolean retryable, int settleFrom) {
+        final LineSenderException ex = toHttpErrorException(statusCode, response, retryable);
+        try {
+            settlePipeline(settleFrom);
+        } catch (HttpClientException ignore) {
+            // the responses are lost with the connection, the batches will be sent again
+        }
+        disconnect();
+        return ex;
+    }
+
+    private int requestTimeoutMillis(long contentLen) {
+        int timeoutMillis = baseTimeoutMillis;
+        if (minRequestThroughput > 0) {
+            long throughputTimeoutBonusMillis = (contentLen * 1_000L / minRequestThroughput);
+            if (throughputTimeoutBonusMillis + timeoutMillis > Integer.MAX_VALUE) {
+                timeoutMillis = Integer.MAX_VALUE;
+            } else {
+                timeoutMillis += (int) throughputTimeoutBonusMillis;
+            }
+        }
+        return timeoutMillis;
+    }
+
     private void reset(long newFlushAfterNanos) {
+        metrics.onBufferReset();
+        if (request != null && request.isHeaderSent()) {
+            // unfinished chunked request is in flight, the connection cannot be reused
+            client.disconnect();
+        }
         pendingRows = 0;
         flushAfterNanos = newFlushAfterNanos;
+        chunkRetryAfterNanos = 0;
+        chunkRetryBackoff = RETRY_INITIAL_BACKOFF_MS;
         request = newRequest();
     }
 
+    private int retryBackoff(int retryBackoff) {
+        final long start = System.nanoTime();
+        final int nextBackoff = backoff(rnd, retryBackoff, maxBackoffMillis);
+        metrics.onRetry(System.nanoTime() - start);
+        return nextBackoff;
+    }
+
     private void rotateAddress() {
+        metrics.onAddressRotated();
         currentAddressIndex = (currentAddressIndex + 1) % hosts.size();
     }
 
@@ -757,6 +1246,7 @@ public abstract class AbstractLineHttpSender implements Sender {
      */
     private boolean rowAdded() {
         pendingRows++;
+        metrics.onRowBuffered(request.getContentLength());
         long nowNanos = System.nanoTime();
         if (flushAfterNanos == Long.MAX_VALUE) {
             flushAfterNanos = nowNanos + flushIntervalNanos;
@@ -766,12 +1256,130 @@ public abstract class AbstractLineHttpSender implements Sender {
         return pendingRows == autoFlushRows;
     }
 
-    private void throwOnHttpErrorResponse(DirectUtf8Sequence statusCode, HttpClient.ResponseHeaders response, boolean retryable) {
+    /**
+     * Streams the buffered rows when they fill a chunk. When the first chunk cannot be sent, the rows
+     * stay in the buffer and the row that filled the chunk is not failed: the next chunk is attempted
+     * on the next address after a backoff, or the rows are sent by flush, which retries as usual.
+     */
+    private void sendChunkIfFull() {
+        if (requestChunkSize > 0 && request.getContentLength() >= requestChunkSize) {
+            if (chunkRetryAfterNanos != 0 && System.nanoTime() < chunkRetryAfterNanos) {
+                return;
+            }
+            final int contentLen = request.getContentLength();
+            try {
+                request.sendChunk(currentHost(), currentPort(), requestTimeoutMillis(contentLen));
+                metrics.onConnectionStats(client.getConnectCount(), client.getTlsHandshakeCount());
+                rowBookmark = 0;
+                chunkRetryAfterNanos = 0;
+                chunkRetryBackoff = RETRY_INITIAL_BACKOFF_MS;
+            } catch (HttpClientException e) {
+                client.disconnect();
+                if (request.isHeaderSent()) {
+                    throw abortStreamedRequest(e);
+                }
+                // nothing has been streamed yet, all rows are still in the buffer,
+                // the chunk is attempted again after a backoff, without blocking the caller
+                rotateAddress();
+                final int backoffMillis = chunkRetryBackoff + rnd.nextInt(RETRY_MAX_JITTER_MS);
+                chunkRetryAfterNanos = System.nanoTime() + backoffMillis * 1_000_000L;
+                chunkRetryBackoff = Math.min(maxBackoffMillis, backoffMillis * RETRY_BACKOFF_MULTIPLIER);
+            }
+        }
+    }
+
+    /**
+     * Sends the batches that are not in flight on the current connection. They are usually at the end of
+     * the pipeline, since losing the connection loses responses to all batches sent on it; over HTTP/2,
+     * a batch whose stream the server refused may be followed by batches still in flight. Over HTTP/2,
+     * each batch is sent on its own stream, with the request body only.
+     */
+    private void sendPipelinedBatches() {
+        for (int i = 0, n = pipeline.size(); i < n; i++) {
+            final PipelinedBatch batch = pipeline.getQuick(i);
+            if (batch.sent) {
+                continue;
+            }
+            final long beforeSend = System.nanoTime();
+            final int timeout = requestTimeoutMillis(batch.contentBytes);
+            final long hi = batch.lo + batch.size;
+            if (http2 != null) {
+                batch.streamId = http2.submit(currentHost(), currentPort(), path, hi - batch.contentBytes, hi, timeout);
+            } else {
+                client.sendPipelined(currentHost(), currentPort(), batch.lo, hi, timeout);
+            }
+            batch.sent = true;
+            batch.sendNanos += System.nanoTime() - beforeSend;
+        }
+    }
+
+    /**
+     * Reads the responses to all batches in flight on an HTTP/2 connection after the server left some of them
+     * unprocessed, so that the connection can be re-established if the server is closing it. Acknowledged
+     * batches leave the pipeline, all others are marked to be sent again.
+     *
+     * @return false if the connection failed meanwhile, the caller then handles it as a connection failure
+     */
+    private boolean settleUnprocessedBatches() {
+        for (int i = 0; i < pipeline.size(); ) {
+            final PipelinedBatch batch = pipeline.getQuick(i);
+            if (!batch.sent) {
+                i++;
+                continue;
+            }
+            final HttpResponseHeaders response;
+            try {
+                response = awaitPipelinedResponse(batch);
+            } catch (HttpClientException e) {
+                if (e.isUnprocessed()) {
+                    i++;
+                    continue;
+                }
+                return false;
+            }
+            if (isSuccessResponse(response.getStatusCode())) {
+                onPipelinedBatchAcknowledged(i, response);
+            } else {
+                // sent again, a batch rejected for good fails again and is reported then
+                consumeChunkedResponse(response);
+                batch.sent = false;
+                i++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads responses to the batches sent after the one that failed, starting at the given pipeline index.
+     * Acknowledged batches leave the pipeline, all others stay in it to be sent again, including those
+     * rejected for good, which fail again and are reported then.
+     */
+    private void settlePipeline(int index) {
+        while (index < pipeline.size() && pipeline.getQuick(index).sent) {
+            HttpResponseHeaders response = awaitPipelinedResponse(pipeline.getQuick(index));
+            if (isSuccessResponse(response.getStatusCode())) {
+                onPipelinedBatchAcknowledged(index, response);
+            } else {
+                consumeChunkedResponse(response);
+                index++;
+            }
+        }
+    }
+
+    private void throwOnHttpErrorResponse(DirectUtf8Sequence statusCode, HttpResponseHeaders response, boolean retryable) {
+        LineSenderException ex = toHttpErrorException(statusCode, response, retryable);
+        disconnect();
+        throw ex;
+    }
+
+    /**
+     * Reads the error response in full and turns it into an exception.
+     */
+    private LineSenderException toHttpErrorException(DirectUtf8Sequence statusCode, HttpResponseHeaders response, boolean retryable) {
         CharSequence statusAscii = statusCode.asAsciiCharSequence();
         if (Chars.equals("405", statusAscii)) {
             consumeChunkedResponse(response);
-            client.disconnect();
-            throw new LineSenderException("Could not flush buffer: HTTP endpoint does not support ILP. [http-status=405]", retryable);
+            return new LineSenderException("Could not flush buffer: HTTP endpoint does not support ILP. [http-status=405]", retryable);
         }
         if (Chars.equals("401", statusAscii) || Chars.equals("403", statusAscii)) {
             sink.clear();
@@ -781,8 +1389,7 @@ public abstract class AbstractLineHttpSender implements Sender {
                 ex = ex.put(": ").put(sink);
             }
             ex.put(" [http-status=").put(statusAscii).put(']');
-            client.disconnect();
-            throw ex;
+            return ex;
         }
         DirectUtf8Sequence contentType = response.getContentType();
         if (contentType != null && Utf8s.equalsAscii("application/json", contentType)) {
@@ -790,17 +1397,14 @@ public abstract class AbstractLineHttpSender implements Sender {
                 jsonErrorParser = new JsonErrorParser();
             }
             jsonErrorParser.reset();
-            LineSenderException ex = jsonErrorParser.toException(response.getResponse(), statusCode, retryable);
-            client.disconnect();
-            throw ex;
+            return jsonErrorParser.toException(response.getResponse(), statusCode, retryable);
         }
         // ok, no JSON, let's do something more generic
         sink.clear();
         sink.put("Could not flush buffer: ");
         chunkedResponseToSink(response, sink);
         sink.put(" [http-status=").put(statusCode).put(']');
-        client.disconnect();
-        throw new LineSenderException(sink, retryable);
+        return new LineSenderException(sink, retryable);
     }
 
     private void validateNotClosed() {
@@ -811,73 +1415,48 @@ public abstract class AbstractLineHttpSender implements Sender {
 
     private void validateTableName(CharSequence name) {
         if (!TableUtils.isValidTableName(name, maxNameLength)) {
-            if (name.length() > maxNameLength) {
-                throw new LineSenderException("table name is too long: [name = ")
-                        .putAsPrintable(name)
-                        .put(", maxNameLength=")
-                        .put(maxNameLength)
-                        .put(']');
-            }
-            throw new LineSenderException("table name contains an illegal char: '\\n', '\\r', '?', ',', ''', " +
-                    "'\"', '\\', '/', ':', ')', '(', '+', '*' '%%', '~', or a non-printable char: ")
-                    .putAsPrintable(name);
+            throw invalidTableName(name, maxNameLength);
         }
     }
 
-    protected void escapeQuotedString(CharSequence name) {
-        for (int i = 0, n = name.length(); i < n; i++) {
-            char c = name.charAt(i);
-            switch (c) {
-                case ' ':
-                case ',':
-                case '=':
-                case '\n':
-                case '\r':
-                case '\\':
-                    request.put((byte) '\\').put((byte) c);
-                    break;
-                default:
-                    request.put(c);
-                    break;
-            }
+    private void validateTableName(Utf8Sequence name) {
+        if (!TableUtils.isValidTableName(name, maxNameLength)) {
+            throw invalidTableName(Utf8s.stringFromUtf8BytesSafe(name), maxNameLength);
         }
     }
 
+    protected void escapeQuotedString(CharSequence name) {
+        request.putEscaped(name, LineEscapes.NAME_ESCAPE_MASK);
+    }
+
     protected void validateColumnName(CharSequence name) {
         if (!TableUtils.isValidColumnName(name, maxNameLength)) {
-            if (name.length() > maxNameLength) {
-                throw new LineSenderException("column name is too long: [name = ")
-                        .putAsPrintable(name)
-                        .put(", maxNameLength=")
-                        .put(maxNameLength)
-                        .put(']');
-            }
-            throw new LineSenderException("column name contains an illegal char: '\\n', '\\r', '?', '.', ','" +
-                    ", ''', '\"', '\\', '/', ':', ')', '(', '+', '-', '*' '%%', '~', or a non-printable char: ")
-                    .putAsPrintable(name);
+            throw invalidColumnName(name, maxNameLength);
+        }
+    }
+
+    protected void validateColumnName(Utf8Sequence name) {
+        if (!TableUtils.isValidColumnName(name, maxNameLength)) {
+            throw invalidColumnName(Utf8s.stringFromUtf8BytesSafe(name), maxNameLength);
         }
     }
 
     protected HttpClient.Request writeFieldName(CharSequence name) {
         validateColumnName(name);
-        switch (state) {
-            case EMPTY:
-                throw new LineSenderException("table name must be set first");
-            case ADDING_SYMBOLS:
-                // fall through
-            case TABLE_NAME_SET:
-                request.putAscii(' ');
-                state = RequestState.ADDING_COLUMNS;
-                break;
-            case ADDING_COLUMNS:
-                request.putAscii(',');
-                break;
-        }
+        beginField();
         escapeQuotedString(name);
         request.put('=');
         return request;
     }
 
+    protected HttpClient.Request writeFieldName(Utf8Sequence name) {
+        validateColumnName(name);
+        beginField();
+        request.putEscaped(name, LineEscapes.NAME_ESCAPE_MASK);
+        request.put('=');
+        return request;
+    }
+
     enum RequestState {
         EMPTY,
         TABLE_NAME_SET,
@@ -885,6 +1464,53 @@ public abstract class AbstractLineHttpSender implements Sender {
         ADDING_COLUMNS,
     }
 
+    private static class PipelinedBatch implements QuietCloseable {
+        private long capacity;
+        private long contentBytes;
+        private long flushStartNanos;
+        private long lo;
+        private long rows;
+        private long sendNanos;
+        // in flight on the current connection
+        private boolean sent;
+        private long size;
+        private int streamId;
+        private long waitNanos;
+
+        @Override
+        public void close() {
+            if (lo != 0) {
+                Unsafe.free(lo, capacity, MemoryTag.NATIVE_DEFAULT);
+                NativeMemoryBudget.INSTANCE.release(capacity);
+                lo = 0;
+                capacity = 0;
+            }
+        }
+
+        void of(HttpClient.Request request, long rows) {
+            final long size = request.seal();
+            if (size > capacity) {
+                final long newCapacity = Math.max(size, capacity * 2);
+                NativeMemoryBudget.INSTANCE.acquire(newCapacity - capacity);
+                try {
+                    lo = Unsafe.realloc(lo, capacity, newCapacity, MemoryTag.NATIVE_DEFAULT);
+                } catch (Throwable th) {
+                    NativeMemoryBudget.INSTANCE.release(newCapacity - capacity);
+                    throw th;
+                }
+                capacity = newCapacity;
+            }
+            request.copyTo(lo);
+            this.size = size;
+            this.rows = rows;
+            this.sent = false;
+            this.contentBytes = request.getContentLength();
+            this.flushStartNanos = System.nanoTime();
+            this.sendNanos = 0;
+            this.waitNanos = 0;
+        }
+    }
+
     private static class JsonErrorParser implements JsonParser, Closeable {
         private final StringSink codeSink = new StringSink();
         private final StringSink errorIdSink = new StringSink();
@@ -1056,7 +1682,9 @@ public abstract class AbstractLineHttpSender implements Sender {
             if (supportVersions.size() == 0) {
                 return PROTOCOL_VERSION_V1;
             }
-            if (supportVersions.contains(PROTOCOL_VERSION_V3)) {
+            if (supportVersions.contains(PROTOCOL_VERSION_V4)) {
+                return PROTOCOL_VERSION_V4;
+            } else if (supportVersions.contains(PROTOCOL_VERSION_V3)) {
                 return PROTOCOL_VERSION_V3;
             } else if (supportVersions.contains(PROTOCOL_VERSION_V2)) {
                 return PROTOCOL_VERSION_V2;
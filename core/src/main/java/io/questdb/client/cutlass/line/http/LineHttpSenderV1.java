@@ -29,6 +29,7 @@ import io.questdb.client.HttpClientConfiguration;
 import io.questdb.client.Sender;
 import io.questdb.client.cairo.MicrosTimestampDriver;
 import io.questdb.client.cairo.NanosTimestampDriver;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.http.client.HttpClient;
 import io.questdb.client.cutlass.line.LineSenderException;
 import io.questdb.client.cutlass.line.array.DoubleArray;
@@ -36,6 +37,7 @@ import io.questdb.client.cutlass.line.array.LongArray;
 import io.questdb.client.std.IntList;
 import io.questdb.client.std.ObjList;
 import io.questdb.client.std.Rnd;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
@@ -126,6 +128,11 @@ public class LineHttpSenderV1 extends AbstractLineHttpSender {
         atNow();
     }
 
+    @Override
+    public Sender arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        throw new LineSenderException("current protocol version does not support arrays");
+    }
+
     @Override
     public Sender doubleArray(@NotNull CharSequence name, double[] values) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -141,6 +148,11 @@ public class LineHttpSenderV1 extends AbstractLineHttpSender {
         throw new LineSenderException("current protocol version does not support double-array");
     }
 
+    @Override
+    public Sender doubleArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support double-array");
+    }
+
     @Override
     public Sender doubleArray(CharSequence name, DoubleArray array) {
         throw new LineSenderException("current protocol version does not support double-array");
@@ -153,6 +165,13 @@ public class LineHttpSenderV1 extends AbstractLineHttpSender {
         return this;
     }
 
+    @Override
+    public Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        writeFieldName(name)
+                .put(value);
+        return this;
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, long[] values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -168,6 +187,11 @@ public class LineHttpSenderV1 extends AbstractLineHttpSender {
         throw new LineSenderException("current protocol version does not support long-array");
     }
 
+    @Override
+    public Sender longArray(@NotNull CharSequence name, Object[] values) {
+        throw new LineSenderException("current protocol version does not support long-array");
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, LongArray values) {
         throw new LineSenderException("current protocol version does not support long-array");
@@ -186,4 +210,18 @@ public class LineHttpSenderV1 extends AbstractLineHttpSender {
         writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAscii('t');
         return this;
     }
+
+    @Override
+    public Sender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        // micros
+        writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value, unit)).putAscii('t');
+        return this;
+    }
+
+    @Override
+    public Sender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        // micros
+        writeFieldName(name).put(MicrosTimestampDriver.INSTANCE.from(value)).putAscii('t');
+        return this;
+    }
 }
\ No newline at end of file
@@ -30,8 +30,10 @@ import io.questdb.client.Sender;
 import io.questdb.client.cairo.ColumnType;
 import io.questdb.client.cairo.MicrosTimestampDriver;
 import io.questdb.client.cairo.NanosTimestampDriver;
+import io.questdb.client.cairo.arr.ArrayView;
 import io.questdb.client.cutlass.http.client.HttpClient;
 import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.cutlass.line.LineSenderException;
 import io.questdb.client.cutlass.line.array.ArrayDataAppender;
 import io.questdb.client.cutlass.line.array.ArrayShapeAppender;
 import io.questdb.client.cutlass.line.array.DoubleArray;
@@ -42,6 +44,7 @@ import io.questdb.client.std.ObjList;
 import io.questdb.client.std.Rnd;
 import io.questdb.client.std.datetime.microtime.MicrosecondClockImpl;
 import io.questdb.client.std.datetime.nanotime.NanosecondClockImpl;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -175,6 +178,22 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         atNow();
     }
 
+    @Override
+    public Sender arrayColumn(@NotNull CharSequence name, ArrayView array) {
+        if (array == null || array.isNull()) {
+            return this;
+        }
+        final short elemType = array.getElemType();
+        if (elemType != ColumnType.DOUBLE && elemType != ColumnType.LONG) {
+            throw new LineSenderException("unsupported array element type [type=")
+                    .put(ColumnType.nameOf(elemType))
+                    .put(']');
+        }
+        return arrayColumn(name, elemType, (byte) array.getDimCount(), array,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender doubleArray(@NotNull CharSequence name, double[] values) {
         return arrayColumn(name, ColumnType.DOUBLE, (byte) 1, values,
@@ -196,6 +215,16 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
                 FlattenArrayUtils::putDataToBuf);
     }
 
+    @Override
+    public Sender doubleArray(@NotNull CharSequence name, Object[] values) {
+        if (values == null) {
+            return this;
+        }
+        return arrayColumn(name, ColumnType.DOUBLE, FlattenArrayUtils.dimCount(values, double.class), values,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender doubleArray(CharSequence name, DoubleArray array) {
         if (array == null) {
@@ -209,6 +238,19 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         return this;
     }
 
+    @Override
+    public Sender doubleArrayUtf8(@NotNull Utf8Sequence name, DoubleArray array) {
+        if (array == null) {
+            return this;
+        }
+        writeFieldName(name)
+                .putAscii('=') // binary format flag
+                .put(EntityTypes.ARRAY) // ND_ARRAY binary format
+                .put((byte) ColumnType.DOUBLE); // element type
+        array.appendToBufPtr(request);
+        return this;
+    }
+
     @Override
     public Sender doubleColumn(CharSequence name, double value) {
         writeFieldName(name)
@@ -218,6 +260,15 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         return this;
     }
 
+    @Override
+    public Sender doubleColumnUtf8(Utf8Sequence name, double value) {
+        writeFieldName(name)
+                .putAscii('=')
+                .put(EntityTypes.DOUBLE)
+                .putDouble(value);
+        return this;
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, long[] values) {
         return arrayColumn(name, ColumnType.LONG, (byte) 1, values,
@@ -239,6 +290,16 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
                 FlattenArrayUtils::putDataToBuf);
     }
 
+    @Override
+    public Sender longArray(@NotNull CharSequence name, Object[] values) {
+        if (values == null) {
+            return this;
+        }
+        return arrayColumn(name, ColumnType.LONG, FlattenArrayUtils.dimCount(values, long.class), values,
+                FlattenArrayUtils::putShapeToBuf,
+                FlattenArrayUtils::putDataToBuf);
+    }
+
     @Override
     public Sender longArray(@NotNull CharSequence name, LongArray values) {
         if (values == null) {
@@ -252,6 +313,19 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         return this;
     }
 
+    @Override
+    public Sender longArrayUtf8(@NotNull Utf8Sequence name, LongArray values) {
+        if (values == null) {
+            return this;
+        }
+        writeFieldName(name)
+                .putAscii('=') // binary format flag
+                .put(EntityTypes.ARRAY) // ND_ARRAY binary format
+                .put((byte) ColumnType.LONG); // element type
+        values.appendToBufPtr(request);
+        return this;
+    }
+
     @Override
     public Sender timestampColumn(CharSequence name, long value, ChronoUnit unit) {
         writeFieldName(name);
@@ -266,6 +340,28 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         return this;
     }
 
+    @Override
+    public Sender timestampColumnUtf8(Utf8Sequence name, long value, ChronoUnit unit) {
+        writeFieldName(name);
+        putTimestamp(value, unit);
+        return this;
+    }
+
+    @Override
+    public Sender timestampColumnUtf8(Utf8Sequence name, Instant value) {
+        writeFieldName(name);
+        putTimestamp(value);
+        return this;
+    }
+
+    /**
+     * Writes a timestamp value, either of a column or the designated one, in the given unit:
+     * 't' for micros and 'n' for nanos.
+     */
+    protected void putTimestampValue(long value, char unit) {
+        request.put(value).putAscii(unit);
+    }
+
     private <T> Sender arrayColumn(
             CharSequence name,
             short columnType,
@@ -291,14 +387,14 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
         // nanos sent as nanos, everything else is sent as micros
         switch (unit) {
             case NANOS:
-                request.put(timestamp).putAscii('n');
+                putTimestampValue(timestamp, 'n');
                 break;
             case MICROS:
-                request.put(timestamp).putAscii('t');
+                putTimestampValue(timestamp, 't');
                 break;
             default:
                 // unit needs conversion to micros
-                request.put(MicrosTimestampDriver.INSTANCE.from(timestamp, unit)).putAscii('t');
+                putTimestampValue(MicrosTimestampDriver.INSTANCE.from(timestamp, unit), 't');
                 break;
         }
     }
@@ -306,10 +402,10 @@ public class LineHttpSenderV2 extends AbstractLineHttpSender {
     private void putTimestamp(Instant timestamp) {
         // always send as nanos as long as it fits in a long
         try {
-            request.put(NanosTimestampDriver.INSTANCE.from(timestamp)).putAscii('n');
+            putTimestampValue(NanosTimestampDriver.INSTANCE.from(timestamp), 'n');
         } catch (ArithmeticException e) {
             // timestamp does not fit in a long, sending as micros
-            request.put(MicrosTimestampDriver.INSTANCE.from(timestamp)).putAscii('t');
+            putTimestampValue(MicrosTimestampDriver.INSTANCE.from(timestamp), 't');
         }
     }
 }
@@ -28,19 +28,22 @@ import io.questdb.client.ClientTlsConfiguration;
 import io.questdb.client.HttpClientConfiguration;
 import io.questdb.client.Sender;
 import io.questdb.client.cutlass.http.client.HttpClient;
-import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.cutlass.line.BinaryDecimalUtils;
 import io.questdb.client.cutlass.line.LineSenderException;
 import io.questdb.client.std.Decimal128;
 import io.questdb.client.std.Decimal256;
 import io.questdb.client.std.Decimal64;
 import io.questdb.client.std.IntList;
-import io.questdb.client.std.Numbers;
 import io.questdb.client.std.NumericException;
 import io.questdb.client.std.ObjList;
 import io.questdb.client.std.Rnd;
+import io.questdb.client.std.str.Utf8Sequence;
 import org.jetbrains.annotations.Nullable;
 
+import java.math.BigDecimal;
+
 public class LineHttpSenderV3 extends LineHttpSenderV2 {
+    private final Decimal256 decimalSink = new Decimal256();
 
     public LineHttpSenderV3(
             ObjList<String> hosts,
@@ -121,17 +124,48 @@ public class LineHttpSenderV3 extends LineHttpSenderV2 {
         );
     }
 
+    @Override
+    public Sender decimalColumn(CharSequence name, BigDecimal value) {
+        if (value == null) {
+            return this;
+        }
+        try {
+            BinaryDecimalUtils.ofBigDecimal(decimalSink, value);
+        } catch (NumericException e) {
+            throw new LineSenderException("Failed to convert sent decimal value: " + value, e);
+        }
+        return decimalColumn(name, decimalSink);
+    }
+
+    @Override
+    public Sender decimalColumn(CharSequence name, long unscaledValue, int scale) {
+        if (scale < 0 || scale > Decimal256.MAX_SCALE) {
+            throw new LineSenderException("invalid decimal scale [scale=").put(scale).put(']');
+        }
+        final long sign = unscaledValue >> 63;
+        decimalSink.of(sign, sign, sign, unscaledValue, scale);
+        return decimalColumn(name, decimalSink);
+    }
+
+    @Override
+    public Sender decimalColumn(CharSequence name, double value, int scale) {
+        try {
+            BinaryDecimalUtils.ofDouble(decimalSink, value, scale);
+        } catch (NumericException e) {
+            throw new LineSenderException("Failed to convert sent decimal value: " + value, e);
+        }
+        return decimalColumn(name, decimalSink);
+    }
+
     @Override
     public Sender decimalColumn(CharSequence name, CharSequence value) {
+        // parse once here and send the binary form, sparing the server a text parse
         try {
-            // Validate that the value is properly formatted
-            Numbers.parseDouble(value);
+            BinaryDecimalUtils.parseDecimal(decimalSink, value);
         } catch (NumericException e) {
             throw new LineSenderException("Failed to parse sent decimal value: " + value, e);
         }
-        var request = writeFieldName(name);
-        request.put(value).putAscii('d');
-        return this;
+        return decimalColumn(name, decimalSink);
     }
 
     @Override
@@ -139,15 +173,16 @@ public class LineHttpSenderV3 extends LineHttpSenderV2 {
         if (value == null || value.isNull()) {
             return this;
         }
-        var request = writeFieldName(name)
-                .putAscii('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 32); // Length
-        request.putLong(Long.reverseBytes(value.getHh()));
-        request.putLong(Long.reverseBytes(value.getHl()));
-        request.putLong(Long.reverseBytes(value.getLh()));
-        request.putLong(Long.reverseBytes(value.getLl()));
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
+        return this;
+    }
+
+    @Override
+    public Sender decimalColumnUtf8(Utf8Sequence name, Decimal256 value) {
+        if (value == null || value.isNull()) {
+            return this;
+        }
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
         return this;
     }
 
@@ -156,13 +191,16 @@ public class LineHttpSenderV3 extends LineHttpSenderV2 {
         if (value == null || value.isNull()) {
             return this;
         }
-        var request = writeFieldName(name)
-                .putAscii('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 16); // Length
-        request.putLong(Long.reverseBytes(value.getHigh()));
-        request.putLong(Long.reverseBytes(value.getLow()));
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
+        return this;
+    }
+
+    @Override
+    public Sender decimalColumnUtf8(Utf8Sequence name, Decimal128 value) {
+        if (value == null || value.isNull()) {
+            return this;
+        }
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
         return this;
     }
 
@@ -171,12 +209,16 @@ public class LineHttpSenderV3 extends LineHttpSenderV2 {
         if (value == null || value.isNull()) {
             return this;
         }
-        var request = writeFieldName(name)
-                .putAscii('=')
-                .put(EntityTypes.DECIMAL)
-                .put((byte) value.getScale())
-                .put((byte) 8); // Length
-        request.putLong(Long.reverseBytes(value.getValue()));
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
+        return this;
+    }
+
+    @Override
+    public Sender decimalColumnUtf8(Utf8Sequence name, Decimal64 value) {
+        if (value == null || value.isNull()) {
+            return this;
+        }
+        BinaryDecimalUtils.putDecimal(writeFieldName(name).putAscii('='), value);
         return this;
     }
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.cutlass.line.http;
+
+import io.questdb.client.ClientTlsConfiguration;
+import io.questdb.client.HttpClientConfiguration;
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.http.client.HttpClient;
+import io.questdb.client.cutlass.line.BinaryValueUtils;
+import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.ObjList;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.str.Utf8Sequence;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sends longs, timestamp columns and the designated timestamp as fixed-width binary
+ * entities, see {@link EntityTypes#LONG} and {@link EntityTypes#TIMESTAMP}, and adds
+ * binary int, float, UUID, long256, IPv4 and geohash columns, see {@link BinaryValueUtils}.
+ */
+public class LineHttpSenderV4 extends LineHttpSenderV3 {
+
+    public LineHttpSenderV4(
+            ObjList<String> hosts,
+            IntList ports,
+            String path,
+            HttpClientConfiguration clientConfiguration,
+            ClientTlsConfiguration tlsConfig,
+            @Nullable HttpClient client,
+            int autoFlushRows,
+            String authToken,
+            String username,
+            String password,
+            int maxNameLength,
+            long maxRetriesNanos,
+            int maxBackoffMillis,
+            long minRequestThroughput,
+            long flushIntervalNanos,
+            int currentAddressIndex,
+            Rnd rnd
+    ) {
+        super(
+                hosts,
+                ports,
+                path,
+                clientConfiguration,
+                tlsConfig,
+                client,
+                autoFlushRows,
+                authToken,
+                username,
+                password,
+                maxNameLength,
+                maxRetriesNanos,
+                maxBackoffMillis,
+                minRequestThroughput,
+                flushIntervalNanos,
+                currentAddressIndex,
+                rnd
+        );
+    }
+
+    @SuppressWarnings("unused")
+    protected LineHttpSenderV4(
+            String host,
+            int port,
+            String path,
+            HttpClientConfiguration clientConfiguration,
+            ClientTlsConfiguration tlsConfig,
+            HttpClient client,
+            int autoFlushRows,
+            String authToken,
+            String username,
+            String password,
+            int maxNameLength,
+            long maxRetriesNanos,
+            int maxBackoffMillis,
+            long minRequestThroughput,
+            long flushIntervalNanos,
+            Rnd rnd
+    ) {
+        super(
+                host,
+                port,
+                path,
+                clientConfiguration,
+                tlsConfig,
+                client,
+                autoFlushRows,
+                authToken,
+                username,
+                password,
+                maxNameLength,
+                maxRetriesNanos,
+                maxBackoffMillis,
+                minRequestThroughput,
+                flushIntervalNanos,
+                rnd
+        );
+    }
+
+    @Override
+    public Sender floatColumn(CharSequence name, float value) {
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putFloat(request, value);
+        return this;
+    }
+
+    @Override
+    public Sender geoHashColumn(CharSequence name, int bits, long value) {
+        BinaryValueUtils.validateGeoHash(bits, value);
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putGeoHash(request, bits, value);
+        return this;
+    }
+
+    @Override
+    public Sender intColumn(CharSequence name, int value) {
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putInt(request, value);
+        return this;
+    }
+
+    @Override
+    public Sender ipv4Column(CharSequence name, int address) {
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putIPv4(request, address);
+        return this;
+    }
+
+    @Override
+    public Sender long256Column(CharSequence name, long l0, long l1, long l2, long l3) {
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putLong256(request, l0, l1, l2, l3);
+        return this;
+    }
+
+    @Override
+    public Sender longColumn(CharSequence name, long value) {
+        writeFieldName(name)
+                .putAscii('=') // binary format flag
+                .put(EntityTypes.LONG);
+        request.putLong(value);
+        return this;
+    }
+
+    @Override
+    public Sender longColumnUtf8(Utf8Sequence name, long value) {
+        writeFieldName(name)
+                .putAscii('=') // binary format flag
+                .put(EntityTypes.LONG);
+        request.putLong(value);
+        return this;
+    }
+
+    @Override
+    public Sender uuidColumn(CharSequence name, long lo, long hi) {
+        writeFieldName(name).putAscii('=');
+        BinaryValueUtils.putUuid(request, lo, hi);
+        return this;
+    }
+
+    @Override
+    protected void putTimestampValue(long value, char unit) {
+        request.putAscii('=') // binary format flag
+                .put(EntityTypes.TIMESTAMP)
+                .put((byte) unit);
+        request.putLong(value);
+    }
+}
@@ -84,6 +84,7 @@ public final class JavaTlsClientSocket implements Socket {
     private final ByteBuffer unwrapOutputBuffer;
     private final ByteBuffer wrapInputBuffer;
     private final ByteBuffer wrapOutputBuffer;
+    private String[] applicationProtocols;
     private SSLEngine sslEngine;
     private int state = STATE_EMPTY;
     private long unwrapInputBufferPtr;
@@ -146,6 +147,15 @@ public final class JavaTlsClientSocket implements Socket {
         }
     }
 
+    @Override
+    public String getApplicationProtocol() {
+        if (sslEngine == null) {
+            return null;
+        }
+        String protocol = sslEngine.getApplicationProtocol();
+        return protocol == null || protocol.isEmpty() ? null : protocol;
+    }
+
     @Override
     public int getFd() {
         return delegate.getFd();
@@ -278,6 +288,11 @@ public final class JavaTlsClientSocket implements Socket {
         }
     }
 
+    @Override
+    public void setApplicationProtocols(String[] protocols) {
+        this.applicationProtocols = protocols;
+    }
+
     @Override
     public void startTlsSession(CharSequence peerName) throws TlsSessionInitFailedException {
         assert state == STATE_PLAINTEXT;
@@ -442,8 +457,8 @@ public final class JavaTlsClientSocket implements Socket {
         }
 
         SSLEngine sslEngine = sslContext.createSSLEngine(Chars.toString(serverName), -1);
+        SSLParameters sslParameters = sslEngine.getSSLParameters();
         if (tlsValidationMode != ClientTlsConfiguration.TLS_VALIDATION_MODE_NONE) {
-            SSLParameters sslParameters = sslEngine.getSSLParameters();
             // The https validation algorithm? That looks confusing! After all we are not using any
             // https here at so what does it mean?
             // It's actually simple: It just instructs the SSLEngine to perform the same hostname validation
@@ -452,8 +467,11 @@ public final class JavaTlsClientSocket implements Socket {
             // This option will make sure certificates are accepted only if they were issued for the
             // server we are connecting to.
             sslParameters.setEndpointIdentificationAlgorithm("https");
-            sslEngine.setSSLParameters(sslParameters);
         }
+        if (applicationProtocols != null) {
+            sslParameters.setApplicationProtocols(applicationProtocols);
+        }
+        sslEngine.setSSLParameters(sslParameters);
 
         sslEngine.setUseClientMode(true);
         return sslEngine;
@@ -37,6 +37,17 @@ public final class JavaTlsClientSocketFactory implements SocketFactory {
         this.tlsConfig = tlsConfig;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        // sockets made by factories with equal TLS configurations are interchangeable, e.g. in a connection pool
+        return this == o || (o instanceof JavaTlsClientSocketFactory && tlsConfig.equals(((JavaTlsClientSocketFactory) o).tlsConfig));
+    }
+
+    @Override
+    public int hashCode() {
+        return tlsConfig.hashCode();
+    }
+
     @Override
     public Socket newInstance(NetworkFacade nf, Logger log) {
         return new JavaTlsClientSocket(nf, log, tlsConfig);
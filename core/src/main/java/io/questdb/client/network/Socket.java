@@ -39,6 +39,15 @@ public interface Socket extends QuietCloseable {
     int READ_FLAG = 1 << 1;
     int WRITE_FLAG = 1;
 
+    /**
+     * @return the application protocol negotiated via ALPN during the TLS handshake;
+     * null if none was negotiated or the socket is not encrypted.
+     */
+    @Nullable
+    default String getApplicationProtocol() {
+        return null;
+    }
+
     /**
      * @return file descriptor associated with the socket.
      */
@@ -80,6 +89,15 @@ public interface Socket extends QuietCloseable {
      */
     int send(long bufferPtr, int bufferLen);
 
+    /**
+     * Sets the application protocols offered via ALPN when the next TLS session starts,
+     * in order of preference. Has no effect on sockets that do not support TLS.
+     *
+     * @param protocols protocol names, e.g. "h2"; null to offer none.
+     */
+    default void setApplicationProtocols(@Nullable String[] protocols) {
+    }
+
     /**
      * Starts a TLS session, if supported.
      * <p>
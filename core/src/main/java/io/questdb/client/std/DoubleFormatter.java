@@ -0,0 +1,267 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.std;
+
+import java.math.BigInteger;
+
+/**
+ * Formats doubles as the shortest decimal string that parses back to the same value, writing ASCII bytes
+ * straight to native memory. The digits are computed with Raffaello Giulietti's Schubfach algorithm, the same
+ * one behind {@code Double.toString()} since JDK 19, and laid out as {@link Numbers#append(io.questdb.client.std.str.CharSink, double)}
+ * does: plain notation for decimal exponents in [-3, 7), {@code 1.5E-7} style otherwise.
+ * <p>
+ * Callers reserve {@link #MAX_CHARS} bytes once and then call {@link #append(long, double)}, which performs
+ * no bounds checks and allocates nothing.
+ */
+public final class DoubleFormatter {
+    /**
+     * Upper bound of the formatted length, e.g. {@code -2.2250738585072014E-308}.
+     */
+    public static final int MAX_CHARS = 24;
+    private static final long C_MIN = 1L << 52;
+    private static final long C_TINY = 3;
+    // 126-bit approximations of 10^-k, split into the upper and lower 63 bits
+    private static final long[] G;
+    private static final int K_MAX = 292;
+    private static final int K_MIN = -324;
+    private static final long MASK_63 = 0x7fffffffffffffffL;
+    private static final int P = 53;
+    private static final long[] POW10 = new long[19];
+    private static final int Q_MIN = -1074;
+
+    private DoubleFormatter() {
+    }
+
+    /**
+     * Writes the shortest round-trip representation of the value at the given address.
+     *
+     * @param address destination, must have at least {@link #MAX_CHARS} bytes available
+     * @param value   value to format, NaN and infinities are written as {@code NaN}, {@code Infinity}
+     *                and {@code -Infinity}
+     * @return address past the last written byte
+     */
+    public static long append(long address, double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        final long t = bits & (C_MIN - 1);
+        final int bq = (int) (bits >>> (P - 1)) & 0x7ff;
+        long p = address;
+        if (bq < 0x7ff) {
+            if (bits < 0) {
+                Unsafe.getUnsafe().putByte(p++, (byte) '-');
+            }
+            if (bq != 0) {
+                final int mq = -Q_MIN + 1 - bq;
+                final long c = C_MIN | t;
+                // integers below 2^53 need no scaling
+                if (0 < mq & mq < P) {
+                    final long f = c >> mq;
+                    if (f << mq == c) {
+                        return layout(p, f, 0);
+                    }
+                }
+                return toDecimal(p, -mq, c, 0);
+            }
+            if (t != 0) {
+                // subnormal
+                return t < C_TINY ? toDecimal(p, Q_MIN, 10 * t, -1) : toDecimal(p, Q_MIN, t, 0);
+            }
+            Unsafe.getUnsafe().putByte(p, (byte) '0');
+            Unsafe.getUnsafe().putByte(p + 1, (byte) '.');
+            Unsafe.getUnsafe().putByte(p + 2, (byte) '0');
+            return p + 3;
+        }
+        if (t != 0) {
+            return putAscii(p, "NaN");
+        }
+        return putAscii(p, bits > 0 ? "Infinity" : "-Infinity");
+    }
+
+    private static int flog10ThreeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Writes f * 10^e, trimming trailing zeros of f first.
+     */
+    private static long layout(long p, long f, int e) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        final int n = LongFormatter.digitCount(f);
+        // the value is 0.d1d2...dn * 10^decExp
+        final int decExp = n + e;
+        if (decExp > 0 && decExp < 8) {
+            if (n <= decExp) {
+                LongFormatter.putDigits(p, f, n);
+                p += n;
+                for (int i = n; i < decExp; i++) {
+                    Unsafe.getUnsafe().putByte(p++, (byte) '0');
+                }
+                Unsafe.getUnsafe().putByte(p, (byte) '.');
+                Unsafe.getUnsafe().putByte(p + 1, (byte) '0');
+                return p + 2;
+            }
+            final long pow = POW10[n - decExp];
+            LongFormatter.putDigits(p, f / pow, decExp);
+            p += decExp;
+            Unsafe.getUnsafe().putByte(p++, (byte) '.');
+            LongFormatter.putDigits(p, f % pow, n - decExp);
+            return p + n - decExp;
+        }
+        if (decExp <= 0 && decExp > -3) {
+            Unsafe.getUnsafe().putByte(p++, (byte) '0');
+            Unsafe.getUnsafe().putByte(p++, (byte) '.');
+            for (int i = decExp; i < 0; i++) {
+                Unsafe.getUnsafe().putByte(p++, (byte) '0');
+            }
+            LongFormatter.putDigits(p, f, n);
+            return p + n;
+        }
+        final long pow = POW10[n - 1];
+        Unsafe.getUnsafe().putByte(p++, (byte) ('0' + f / pow));
+        Unsafe.getUnsafe().putByte(p++, (byte) '.');
+        if (n > 1) {
+            LongFormatter.putDigits(p, f % pow, n - 1);
+            p += n - 1;
+        } else {
+            Unsafe.getUnsafe().putByte(p++, (byte) '0');
+        }
+        Unsafe.getUnsafe().putByte(p++, (byte) 'E');
+        int exp = decExp - 1;
+        if (exp < 0) {
+            Unsafe.getUnsafe().putByte(p++, (byte) '-');
+            exp = -exp;
+        }
+        if (exp >= 100) {
+            Unsafe.getUnsafe().putByte(p++, (byte) ('0' + exp / 100));
+            exp %= 100;
+            Unsafe.getUnsafe().putByte(p++, (byte) ('0' + exp / 10));
+        } else if (exp >= 10) {
+            Unsafe.getUnsafe().putByte(p++, (byte) ('0' + exp / 10));
+        }
+        Unsafe.getUnsafe().putByte(p++, (byte) ('0' + exp % 10));
+        return p;
+    }
+
+    private static long putAscii(long p, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            Unsafe.getUnsafe().putByte(p++, (byte) s.charAt(i));
+        }
+        return p;
+    }
+
+    /**
+     * Computes round-to-odd of g * cp / 2^127.
+     */
+    private static long rop(long g1, long g0, long cp) {
+        final long x1 = Math.multiplyHigh(g0, cp);
+        final long y0 = g1 * cp;
+        final long y1 = Math.multiplyHigh(g1, cp);
+        final long z = (y0 >>> 1) + x1;
+        final long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    private static long toDecimal(long p, int q, long c, int dk) {
+        final int out = (int) c & 1;
+        final long cb = c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int k;
+        if (c != C_MIN | q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // the value is a power of two, its lower neighbour is closer
+            cbl = cb - 1;
+            k = flog10ThreeQuartersPow2(q);
+        }
+        final int h = q + flog2pow10(-k) + 2;
+        final int gi = (k - K_MIN) << 1;
+        final long g1 = G[gi];
+        final long g0 = G[gi + 1];
+
+        final long vb = rop(g1, g0, cb << h);
+        final long vbl = rop(g1, g0, cbl << h);
+        final long vbr = rop(g1, g0, cbr << h);
+
+        final long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit less than the full precision first, s / 10 * 10
+            final long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            final long tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return layout(p, upin ? sp10 : tp10, k);
+            }
+        }
+
+        final long t = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return layout(p, uin ? s : t, k + dk);
+        }
+        // both candidates are in the rounding interval, pick the closer one, or the even one on a tie
+        final long cmp = vb - (s + t << 1);
+        return layout(p, cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk);
+    }
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+        // g = floor(10^-k * 2^(125 - floor(log2(10^-k)))) + 1
+        final BigInteger ten = BigInteger.TEN;
+        final BigInteger mask63 = BigInteger.valueOf(MASK_63);
+        G = new long[(K_MAX - K_MIN + 1) * 2];
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            final int shift = 125 - flog2pow10(-k);
+            BigInteger g;
+            if (k <= 0) {
+                g = ten.pow(-k);
+                g = shift >= 0 ? g.shiftLeft(shift) : g.shiftRight(-shift);
+            } else {
+                g = BigInteger.ONE.shiftLeft(shift).divide(ten.pow(k));
+            }
+            g = g.add(BigInteger.ONE);
+            final int gi = (k - K_MIN) << 1;
+            G[gi] = g.shiftRight(63).longValue();
+            G[gi + 1] = g.and(mask63).longValue();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.std;
+
+/**
+ * Writes decimal integers as ASCII straight to native memory. The digit count is computed up front, so
+ * callers reserve {@link #MAX_CHARS} bytes once, and digits are then written two per step from a lookup table,
+ * right to left. Unlike {@link Numbers#append(io.questdb.client.std.str.CharSink, long)}, there is no per-byte
+ * bounds check and {@link Long#MIN_VALUE} is written as a number rather than as null.
+ */
+public final class LongFormatter {
+    /**
+     * Upper bound of the formatted length, i.e. the length of {@code -9223372036854775808}.
+     */
+    public static final int MAX_CHARS = 20;
+    // two ASCII digits per entry, laid out for little-endian stores
+    private static final short[] DIGIT_PAIRS = new short[100];
+    private static final String MIN_VALUE = "-9223372036854775808";
+    private static final long[] POW10 = new long[19];
+
+    private LongFormatter() {
+    }
+
+    /**
+     * Writes the value at the given address.
+     *
+     * @param address destination, must have at least {@link #MAX_CHARS} bytes available
+     * @param value   value to format
+     * @return address past the last written byte
+     */
+    public static long append(long address, long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                for (int i = 0, n = MIN_VALUE.length(); i < n; i++) {
+                    Unsafe.getUnsafe().putByte(address + i, (byte) MIN_VALUE.charAt(i));
+                }
+                return address + MIN_VALUE.length();
+            }
+            Unsafe.getUnsafe().putByte(address++, (byte) '-');
+            value = -value;
+        }
+        final int count = digitCount(value);
+        putDigits(address, value, count);
+        return address + count;
+    }
+
+    /**
+     * @param value non-negative value
+     * @return number of decimal digits in the value, 1 for zero
+     */
+    public static int digitCount(long value) {
+        assert value >= 0;
+        // floor(log10(2) * bit length) is either the digit count or one less
+        final int n = ((64 - Long.numberOfLeadingZeros(value | 1)) * 1233) >>> 12;
+        return (value | 1) >= POW10[n] ? n + 1 : n;
+    }
+
+    /**
+     * Writes exactly {@code count} low-order digits of the value, left-padded with zeros.
+     *
+     * @param address destination, must have at least {@code count} bytes available
+     * @param value   non-negative value
+     * @param count   number of digits to write
+     */
+    public static void putDigits(long address, long value, int count) {
+        assert value >= 0;
+        long p = address + count;
+        while (p - address > 1 && value > Integer.MAX_VALUE) {
+            final long q = value / 100;
+            p -= 2;
+            Unsafe.getUnsafe().putShort(p, DIGIT_PAIRS[(int) (value - q * 100)]);
+            value = q;
+        }
+        // the remainder fits an int, which divides faster; when the loop stopped for lack of room,
+        // at most one digit is left to write and the higher-order digits are dropped
+        int v = (int) (value > Integer.MAX_VALUE ? value % 10 : value);
+        while (p - address > 1) {
+            final int q = v / 100;
+            p -= 2;
+            Unsafe.getUnsafe().putShort(p, DIGIT_PAIRS[v - q * 100]);
+            v = q;
+        }
+        if (p > address) {
+            Unsafe.getUnsafe().putByte(address, (byte) ('0' + v % 10));
+        }
+    }
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[i] = (short) (('0' + i / 10) | ('0' + i % 10) << 8);
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.std;
+
+import io.questdb.client.cairo.CairoException;
+
+/**
+ * Log-linear histogram of non-negative long values, such as latencies in nanoseconds.
+ * <p>
+ * Values below {@code 2^precisionBits} are counted exactly. Larger values are counted in
+ * buckets, {@code 2^precisionBits} buckets per power of two, so the relative error of a reported
+ * value is below {@code 2^-precisionBits}: about 3% with the default 5 bits. The whole long
+ * range is covered, bucket counts are preallocated on construction and recording never allocates.
+ * <p>
+ * Recording is lock-free and may be done by any number of threads concurrently. Queries, snapshots
+ * and merges may run concurrently with recording, but the values they observe are not an atomic
+ * cut: a value recorded concurrently may be reflected in some of the statistics and not yet in
+ * others. Take a {@link #snapshot(LongHistogram)} to query several statistics consistently.
+ */
+public class LongHistogram implements Mutable {
+    public static final int DEFAULT_PRECISION_BITS = 5;
+    public static final int MAX_PRECISION_BITS = 14;
+    private static final long COUNT_OFFSET = Unsafe.getFieldOffset(LongHistogram.class, "count");
+    private static final long MAX_OFFSET = Unsafe.getFieldOffset(LongHistogram.class, "max");
+    private static final long MIN_OFFSET = Unsafe.getFieldOffset(LongHistogram.class, "min");
+    private static final long SUM_OFFSET = Unsafe.getFieldOffset(LongHistogram.class, "sum");
+    private final long[] buckets;
+    private final int precisionBits;
+    private volatile long count;
+    private volatile long max;
+    private volatile long min = Long.MAX_VALUE;
+    private volatile long sum;
+
+    public LongHistogram() {
+        this(DEFAULT_PRECISION_BITS);
+    }
+
+    public LongHistogram(int precisionBits) {
+        if (precisionBits < 1 || precisionBits > MAX_PRECISION_BITS) {
+            throw CairoException.nonCritical()
+                    .put("histogram precision is out of range [precisionBits=").put(precisionBits)
+                    .put(", min=1, max=").put(MAX_PRECISION_BITS)
+                    .put(']');
+        }
+        this.precisionBits = precisionBits;
+        this.buckets = new long[(64 - precisionBits) << precisionBits];
+    }
+
+    /**
+     * Adds all values recorded by another histogram to this one. Both histograms must have the same precision.
+     *
+     * @param other histogram to merge into this one, it is not modified
+     */
+    public void add(LongHistogram other) {
+        checkPrecision(other);
+        long added = 0;
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            final long c = Unsafe.arrayGetVolatile(other.buckets, i);
+            if (c != 0) {
+                addToBucket(i, c);
+                added += c;
+            }
+        }
+        Unsafe.getUnsafe().getAndAddLong(this, COUNT_OFFSET, added);
+        // sum, min and max are merged even when no buckets were, they may belong to buckets
+        // that have been merged earlier, when recording raced with snapshotAndReset()
+        Unsafe.getUnsafe().getAndAddLong(this, SUM_OFFSET, other.sum);
+        updateMin(other.min);
+        updateMax(other.max);
+    }
+
+    /**
+     * Resets the histogram. Unlike {@link #snapshotAndReset(LongHistogram)}, values recorded concurrently
+     * with this call may be lost.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            Unsafe.arrayPutOrdered(buckets, i, 0);
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return largest recorded value, 0 when the histogram is empty
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        final long c = count;
+        return c == 0 ? 0 : (double) sum / c;
+    }
+
+    /**
+     * @return smallest recorded value, 0 when the histogram is empty
+     */
+    public long getMin() {
+        final long m = min;
+        return m == Long.MAX_VALUE ? 0 : m;
+    }
+
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of recorded values fall. The result
+     * is the highest value equivalent to the bucket the percentile falls into, capped by {@link #getMax()}.
+     *
+     * @param percentile percentile in the [0, 100] range, e.g. 99.9
+     * @return value at the percentile, 0 when the histogram is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw CairoException.nonCritical().put("percentile is out of range [percentile=").put(String.valueOf(percentile)).put(']');
+        }
+        long total = 0;
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            total += Unsafe.arrayGetVolatile(buckets, i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        if (percentile == 0) {
+            return getMin();
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            seen += Unsafe.arrayGetVolatile(buckets, i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value value to record
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records the same value several times.
+     *
+     * @param value value to record, negative values are recorded as 0
+     * @param times number of times to record the value
+     */
+    public void record(long value, long times) {
+        if (times <= 0) {
+            return;
+        }
+        final long v = Math.max(0, value);
+        addToBucket(bucketIndex(v), times);
+        Unsafe.getUnsafe().getAndAddLong(this, COUNT_OFFSET, times);
+        Unsafe.getUnsafe().getAndAddLong(this, SUM_OFFSET, v * times);
+        updateMin(v);
+        updateMax(v);
+    }
+
+    /**
+     * Copies the recorded values into the sink, replacing its previous content. The sink's count is
+     * derived from the copied buckets, so percentiles of the sink are consistent with its count.
+     *
+     * @param sink histogram of the same precision to copy into
+     */
+    public void snapshot(LongHistogram sink) {
+        checkPrecision(sink);
+        long total = 0;
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            final long c = Unsafe.arrayGetVolatile(buckets, i);
+            sink.buckets[i] = c;
+            total += c;
+        }
+        sink.count = total;
+        sink.sum = sum;
+        sink.min = min;
+        sink.max = max;
+    }
+
+    /**
+     * Moves the recorded values into the sink, replacing its previous content, and resets this histogram.
+     * Values are moved bucket by bucket atomically, so values recorded concurrently are never lost: they
+     * end up either in the sink or in this histogram.
+     *
+     * @param sink histogram of the same precision to move values into
+     */
+    public void snapshotAndReset(LongHistogram sink) {
+        checkPrecision(sink);
+        long total = 0;
+        for (int i = 0, n = buckets.length; i < n; i++) {
+            final long c = Unsafe.getUnsafe().getAndSetLong(buckets, bucketOffset(i), 0);
+            sink.buckets[i] = c;
+            total += c;
+        }
+        Unsafe.getUnsafe().getAndAddLong(this, COUNT_OFFSET, -total);
+        sink.count = total;
+        sink.sum = Unsafe.getUnsafe().getAndSetLong(this, SUM_OFFSET, 0);
+        sink.min = Unsafe.getUnsafe().getAndSetLong(this, MIN_OFFSET, Long.MAX_VALUE);
+        sink.max = Unsafe.getUnsafe().getAndSetLong(this, MAX_OFFSET, 0);
+    }
+
+    private static long bucketOffset(int index) {
+        return Unsafe.LONG_OFFSET + ((long) index << Unsafe.LONG_SCALE);
+    }
+
+    private void addToBucket(int index, long delta) {
+        Unsafe.getUnsafe().getAndAddLong(buckets, bucketOffset(index), delta);
+    }
+
+    private int bucketIndex(long value) {
+        if (value < (1L << precisionBits)) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - precisionBits;
+        final long mantissa = (value >>> shift) & ((1L << precisionBits) - 1);
+        return (int) (((long) (shift + 1) << precisionBits) | mantissa);
+    }
+
+    private void checkPrecision(LongHistogram other) {
+        if (other.precisionBits != precisionBits) {
+            throw CairoException.nonCritical()
+                    .put("histogram precision mismatch [expected=").put(precisionBits)
+                    .put(", actual=").put(other.precisionBits)
+                    .put(']');
+        }
+    }
+
+    private long highestEquivalentValue(int index) {
+        if (index < (1 << precisionBits)) {
+            return index;
+        }
+        final int shift = (index >>> precisionBits) - 1;
+        final long mantissa = index & ((1L << precisionBits) - 1);
+        final long lowest = ((1L << precisionBits) | mantissa) << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+
+    private void updateMax(long value) {
+        long current;
+        while (value > (current = max)) {
+            if (Unsafe.cas(this, MAX_OFFSET, current, value)) {
+                return;
+            }
+        }
+    }
+
+    private void updateMin(long value) {
+        long current;
+        while (value < (current = min)) {
+            if (Unsafe.cas(this, MIN_OFFSET, current, value)) {
+                return;
+            }
+        }
+    }
+}
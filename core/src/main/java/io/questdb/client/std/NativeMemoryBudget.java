@@ -0,0 +1,182 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.std;
+
+import io.questdb.client.cairo.CairoException;
+
+/**
+ * JVM-wide budget for native memory used by client buffers, such as sender request and response
+ * buffers. Buffers are allocated only after their size has been acquired from the budget, and the
+ * size is released back when the buffer is freed.
+ * <p>
+ * When the budget is exhausted, threads that need more memory block until other clients release
+ * theirs, or until the wait timeout elapses, in which case the allocation fails. This turns bursts
+ * of buffer growth into backpressure rather than unbounded RSS growth. Idle pages of a
+ * {@link NativePagePool} stay charged to the budget until the pool frees them.
+ * <p>
+ * The budget is unlimited by default, usage is tracked regardless.
+ */
+public final class NativeMemoryBudget {
+    public static final long DEFAULT_WAIT_TIMEOUT_MILLIS = 30_000;
+    public static final NativeMemoryBudget INSTANCE = new NativeMemoryBudget();
+    private long limit;
+    private long maxWaitNanos;
+    private long timeoutCount;
+    private long totalWaitNanos;
+    private long used;
+    private long waitCount;
+    private long waitTimeoutMillis = DEFAULT_WAIT_TIMEOUT_MILLIS;
+    private int waitingThreads;
+
+    /**
+     * Acquires memory from the budget, blocking until enough memory is released by other users
+     * of the budget, or the wait timeout elapses.
+     *
+     * @param size number of bytes about to be allocated
+     * @throws CairoException when the wait times out, or the size exceeds the limit on its own
+     */
+    public synchronized void acquire(long size) {
+        assert size >= 0;
+        if (limit > 0 && used + size > limit) {
+            if (size > limit) {
+                throw CairoException.nonCritical()
+                        .put("allocation exceeds native memory budget [size=").put(size)
+                        .put(", limit=").put(limit)
+                        .put(']');
+            }
+            awaitRelease(size);
+        }
+        used += size;
+    }
+
+    public synchronized long getLimit() {
+        return limit;
+    }
+
+    public synchronized long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public synchronized long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public synchronized long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return number of times an acquisition had to wait for memory to be released
+     */
+    public synchronized long getWaitCount() {
+        return waitCount;
+    }
+
+    public synchronized long getWaitTimeoutMillis() {
+        return waitTimeoutMillis;
+    }
+
+    public synchronized int getWaitingThreads() {
+        return waitingThreads;
+    }
+
+    public synchronized void release(long size) {
+        assert size >= 0 && size <= used;
+        used -= size;
+        if (waitingThreads > 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Resets wait statistics. Memory usage is not affected.
+     */
+    public synchronized void resetStats() {
+        waitCount = 0;
+        timeoutCount = 0;
+        totalWaitNanos = 0;
+        maxWaitNanos = 0;
+    }
+
+    /**
+     * Sets the budget limit. Lowering the limit does not affect memory that has already
+     * been acquired, it only makes further acquisitions wait.
+     *
+     * @param limit limit in bytes, 0 means unlimited
+     */
+    public synchronized void setLimit(long limit) {
+        if (limit < 0) {
+            throw CairoException.nonCritical().put("native memory budget cannot be negative [limit=").put(limit).put(']');
+        }
+        this.limit = limit;
+        notifyAll();
+    }
+
+    /**
+     * Sets the maximum time a thread waits for memory to become available.
+     *
+     * @param waitTimeoutMillis timeout in milliseconds, 0 fails immediately when the budget is exhausted
+     */
+    public synchronized void setWaitTimeoutMillis(long waitTimeoutMillis) {
+        if (waitTimeoutMillis < 0) {
+            throw CairoException.nonCritical().put("wait timeout cannot be negative [waitTimeoutMillis=").put(waitTimeoutMillis).put(']');
+        }
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    private void awaitRelease(long size) {
+        final long start = System.nanoTime();
+        final long deadline = start + waitTimeoutMillis * 1_000_000L;
+        waitCount++;
+        waitingThreads++;
+        try {
+            long remaining;
+            while (limit > 0 && used + size > limit && (remaining = deadline - System.nanoTime()) > 0) {
+                wait(Math.max(1, remaining / 1_000_000L));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw CairoException.nonCritical().put("interrupted while waiting for native memory budget [size=").put(size).put(']');
+        } finally {
+            waitingThreads--;
+            final long waitNanos = System.nanoTime() - start;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+        if (limit > 0 && used + size > limit) {
+            timeoutCount++;
+            throw CairoException.nonCritical()
+                    .put("timed out waiting for native memory budget [size=").put(size)
+                    .put(", used=").put(used)
+                    .put(", limit=").put(limit)
+                    .put(", timeoutMillis=").put(waitTimeoutMillis)
+                    .put(']');
+        }
+    }
+}
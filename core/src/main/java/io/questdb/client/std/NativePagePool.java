@@ -0,0 +1,181 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.std;
+
+import io.questdb.client.cairo.CairoException;
+
+/**
+ * Thread-safe pool of fixed-size native memory pages. Pages are allocated on demand and returned
+ * to the pool when they are no longer used, so that a steady-state workload does not allocate,
+ * copy or page-fault native memory on every batch.
+ * <p>
+ * A pool keeps up to a limited number of idle pages, pages released beyond that limit are freed
+ * immediately. This keeps the idle memory bounded regardless of how many clients share the pool.
+ * <p>
+ * Every page the pool has allocated, in use or idle, is charged to a {@link NativeMemoryBudget}
+ * until it is freed, so that the budget caps the memory actually held by the process. Released pages
+ * are freed rather than kept idle while other threads are waiting for the budget.
+ * <p>
+ * Process-wide pools are obtained via {@link #getInstance(int)}, one per page size.
+ */
+public final class NativePagePool implements QuietCloseable {
+    public static final long DEFAULT_MAX_IDLE_BYTES = 64 * 1024 * 1024;
+    public static final int MAX_PAGE_SIZE = 16 * 1024 * 1024;
+    public static final int MIN_PAGE_SIZE = 4 * 1024;
+    private static final NativePagePool[] INSTANCES = new NativePagePool[Numbers.msb(MAX_PAGE_SIZE) + 1];
+    private final NativeMemoryBudget budget;
+    private final LongList idlePages = new LongList();
+    private final int maxIdlePages;
+    private final int memoryTag;
+    private final int pageSize;
+    private long acquiredPages;
+
+    public NativePagePool(int pageSize, int maxIdlePages, int memoryTag) {
+        this(pageSize, maxIdlePages, memoryTag, NativeMemoryBudget.INSTANCE);
+    }
+
+    public NativePagePool(int pageSize, int maxIdlePages, int memoryTag, NativeMemoryBudget budget) {
+        if (!isValidPageSize(pageSize)) {
+            throw invalidPageSize(pageSize);
+        }
+        this.pageSize = pageSize;
+        this.maxIdlePages = maxIdlePages;
+        this.memoryTag = memoryTag;
+        this.budget = budget;
+    }
+
+    /**
+     * Returns process-wide pool for the given page size. The pool retains up to
+     * {@link #DEFAULT_MAX_IDLE_BYTES} of idle pages.
+     *
+     * @param pageSize page size in bytes, power of 2 between {@link #MIN_PAGE_SIZE} and {@link #MAX_PAGE_SIZE}
+     * @return shared pool instance
+     */
+    public static NativePagePool getInstance(int pageSize) {
+        if (!isValidPageSize(pageSize)) {
+            throw invalidPageSize(pageSize);
+        }
+        final int index = Numbers.msb(pageSize);
+        synchronized (INSTANCES) {
+            NativePagePool pool = INSTANCES[index];
+            if (pool == null) {
+                pool = new NativePagePool(pageSize, (int) Math.max(1, DEFAULT_MAX_IDLE_BYTES / pageSize), MemoryTag.NATIVE_DEFAULT);
+                INSTANCES[index] = pool;
+            }
+            return pool;
+        }
+    }
+
+    public static boolean isValidPageSize(int pageSize) {
+        return pageSize >= MIN_PAGE_SIZE && pageSize <= MAX_PAGE_SIZE && Numbers.isPow2(pageSize);
+    }
+
+    /**
+     * Takes an idle page from the pool, or allocates a new one when the pool is empty. A new page
+     * is charged to the budget first, which may block until other users release memory.
+     *
+     * @return page address, the page is {@link #getPageSize()} bytes long
+     * @throws CairoException when the budget cannot provide the page
+     */
+    public long acquire() {
+        synchronized (this) {
+            final int idle = idlePages.size();
+            if (idle > 0) {
+                final long page = idlePages.getQuick(idle - 1);
+                idlePages.setPos(idle - 1);
+                acquiredPages++;
+                return page;
+            }
+        }
+        // wait for the budget outside the lock, so that other threads can release pages meanwhile
+        budget.acquire(pageSize);
+        final long page;
+        try {
+            page = Unsafe.malloc(pageSize, memoryTag);
+        } catch (Throwable th) {
+            budget.release(pageSize);
+            throw th;
+        }
+        synchronized (this) {
+            acquiredPages++;
+        }
+        return page;
+    }
+
+    /**
+     * Frees all idle pages. Pages that are still in use are not affected and are freed
+     * when they are released, should the pool remain over its idle limit.
+     */
+    @Override
+    public void close() {
+        final int n;
+        synchronized (this) {
+            n = idlePages.size();
+            for (int i = 0; i < n; i++) {
+                Unsafe.free(idlePages.getQuick(i), pageSize, memoryTag);
+            }
+            idlePages.clear();
+        }
+        budget.release((long) n * pageSize);
+    }
+
+    public synchronized long getAcquiredPageCount() {
+        return acquiredPages;
+    }
+
+    public synchronized int getIdlePageCount() {
+        return idlePages.size();
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns page to the pool. The page must have been acquired from this pool and must not be
+     * used after this call.
+     *
+     * @param page page address
+     */
+    public void release(long page) {
+        synchronized (this) {
+            assert acquiredPages > 0;
+            acquiredPages--;
+            if (idlePages.size() < maxIdlePages && budget.getWaitingThreads() == 0) {
+                idlePages.add(page);
+                return;
+            }
+        }
+        Unsafe.free(page, pageSize, memoryTag);
+        budget.release(pageSize);
+    }
+
+    private static CairoException invalidPageSize(int pageSize) {
+        return CairoException.nonCritical().put("invalid page size [pageSize=").put(pageSize)
+                .put(", min=").put(MIN_PAGE_SIZE)
+                .put(", max=").put(MAX_PAGE_SIZE)
+                .put(']');
+    }
+}
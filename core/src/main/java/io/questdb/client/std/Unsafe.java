@@ -43,6 +43,7 @@ public final class Unsafe {
 
     public static final long BYTE_OFFSET;
     public static final long BYTE_SCALE;
+    public static final long DOUBLE_OFFSET;
     public static final long INT_OFFSET;
     public static final long INT_SCALE;
     public static final Module JAVA_BASE_MODULE = System.class.getModule();
@@ -485,6 +486,8 @@ public final class Unsafe {
             BYTE_OFFSET = Unsafe.getUnsafe().arrayBaseOffset(byte[].class);
             BYTE_SCALE = msb(Unsafe.getUnsafe().arrayIndexScale(byte[].class));
 
+            DOUBLE_OFFSET = Unsafe.getUnsafe().arrayBaseOffset(double[].class);
+
             INT_OFFSET = Unsafe.getUnsafe().arrayBaseOffset(int[].class);
             INT_SCALE = msb(Unsafe.getUnsafe().arrayIndexScale(int[].class));
 
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.std.str;
+
+import io.questdb.client.std.Mutable;
+import io.questdb.client.std.Unsafe;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A flyweight to UTF-8 bytes held in an on-heap array. Lets callers hand over
+ * pre-encoded byte arrays without copying them into a {@link Utf8String}.
+ */
+public class ByteArrayUtf8String implements Utf8Sequence, Mutable {
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private final AsciiCharSequence asciiCharSequence = new AsciiCharSequence();
+    private byte[] bytes = EMPTY_BYTES;
+    private int hi;
+    private int lo;
+
+    @Override
+    public @NotNull CharSequence asAsciiCharSequence() {
+        return asciiCharSequence.of(this);
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        return bytes[lo + index];
+    }
+
+    @Override
+    public void clear() {
+        bytes = EMPTY_BYTES;
+        lo = hi = 0;
+    }
+
+    @Override
+    public int intAt(int offset) {
+        return Unsafe.byteArrayGetInt(bytes, lo + offset);
+    }
+
+    @Override
+    public long longAt(int offset) {
+        return Unsafe.byteArrayGetLong(bytes, lo + offset);
+    }
+
+    public ByteArrayUtf8String of(byte @NotNull [] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    public ByteArrayUtf8String of(byte @NotNull [] bytes, int lo, int hi) {
+        this.bytes = bytes;
+        this.lo = lo;
+        this.hi = hi;
+        return this;
+    }
+
+    @Override
+    public short shortAt(int offset) {
+        return Unsafe.byteArrayGetShort(bytes, lo + offset);
+    }
+
+    @Override
+    public int size() {
+        return hi - lo;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return Utf8s.stringFromUtf8Bytes(this);
+    }
+}
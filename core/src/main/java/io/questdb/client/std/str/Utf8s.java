@@ -31,6 +31,8 @@ import io.questdb.client.std.Unsafe;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
+
 import static io.questdb.client.std.Misc.getThreadLocalUtf8Sink;
 
 /**
@@ -42,6 +44,9 @@ public final class Utf8s {
     public static final long VARCHAR_INLINED_PREFIX_MASK = (1L << 8 * VARCHAR_INLINED_PREFIX_BYTES) - 1L;
 
     private static final char[] HEX_CHARS = "0123456789ABCDEF".toCharArray();
+    private static final long SWAR_BACKSLASHES = 0x5c5c5c5c5c5c5c5cL;
+    private static final long SWAR_HIGH_BITS = 0x8080808080808080L;
+    private static final long SWAR_LOW_BITS = 0x0101010101010101L;
     private static final ThreadLocal<StringSink> tlSink = new ThreadLocal<>(StringSink::new);
 
     private Utf8s() {
@@ -133,6 +138,24 @@ public final class Utf8s {
         return h;
     }
 
+    /**
+     * Tells whether the bytes in {@code [lo, hi)} are all ASCII, testing eight bytes at a time.
+     */
+    public static boolean isAscii(long lo, long hi) {
+        long p = lo;
+        for (; p + Long.BYTES <= hi; p += Long.BYTES) {
+            if ((Unsafe.getUnsafe().getLong(p) & SWAR_HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; p < hi; p++) {
+            if (Unsafe.getUnsafe().getByte(p) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static int lowerCaseAsciiHashCode(@NotNull Utf8Sequence value) {
         int size = value.size();
         if (size == 0) {
@@ -192,6 +215,83 @@ public final class Utf8s {
         }
     }
 
+    /**
+     * Copies ASCII chars of {@code cs} in {@code [lo, hi)} to native memory up to, and excluding, the first
+     * char that needs special handling: a non-ASCII char, a backslash, or a char below 64 whose bit is set
+     * in {@code escapeMask}. Eight chars are tested at a time, SWAR style, against each escaped char and
+     * stored with a single write, so runs of plain text cost no per-char branches.
+     *
+     * @param cs         source chars
+     * @param lo         index of the first char to copy
+     * @param hi         index past the last char to copy
+     * @param destAddr   destination, must have {@code hi - lo} bytes available
+     * @param escapeMask bit {@code c} set for every char {@code c < 64} that must stop the copy
+     * @return index of the first char that was not copied, {@code hi} if all were
+     */
+    public static int strCpyAsciiUnescaped(@NotNull CharSequence cs, int lo, int hi, long destAddr, long escapeMask) {
+        int i = lo;
+        while (i < hi) {
+            if (hi - i >= Long.BYTES) {
+                long word = 0;
+                int any = 0;
+                for (int k = 0; k < Long.BYTES; k++) {
+                    final char c = cs.charAt(i + k);
+                    any |= c;
+                    word |= (long) c << (k << 3);
+                }
+                if ((any & 0xff80) == 0 && hasNoEscapeByte(word, escapeMask)) {
+                    Unsafe.getUnsafe().putLong(destAddr + i - lo, word);
+                    i += Long.BYTES;
+                    continue;
+                }
+            }
+            // the block needs escaping or has non-ASCII chars, find the first one
+            for (int blockHi = Math.min(i + Long.BYTES, hi); i < blockHi; i++) {
+                final char c = cs.charAt(i);
+                if (c > 127 || c == '\\' || (c < 64 && (escapeMask >>> c & 1) != 0)) {
+                    return i;
+                }
+                Unsafe.getUnsafe().putByte(destAddr + i - lo, (byte) c);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Byte counterpart of {@link #strCpyAsciiUnescaped(CharSequence, int, int, long, long)}. Copies bytes of
+     * {@code seq} in {@code [lo, hi)} to native memory up to, and excluding, the first backslash or byte below
+     * 64 whose bit is set in {@code escapeMask}. Bytes of multibyte chars never need escaping and are copied
+     * as they are.
+     *
+     * @param seq        source UTF-8 bytes
+     * @param lo         offset of the first byte to copy
+     * @param hi         offset past the last byte to copy
+     * @param destAddr   destination, must have {@code hi - lo} bytes available
+     * @param escapeMask bit {@code b} set for every byte {@code b < 64} that must stop the copy
+     * @return offset of the first byte that was not copied, {@code hi} if all were
+     */
+    public static int strCpyUnescaped(@NotNull Utf8Sequence seq, int lo, int hi, long destAddr, long escapeMask) {
+        int i = lo;
+        while (i < hi) {
+            if (hi - i >= Long.BYTES) {
+                final long word = seq.longAt(i);
+                if (hasNoEscapeByte(word, escapeMask)) {
+                    Unsafe.getUnsafe().putLong(destAddr + i - lo, word);
+                    i += Long.BYTES;
+                    continue;
+                }
+            }
+            for (int blockHi = Math.min(i + Long.BYTES, hi); i < blockHi; i++) {
+                final byte b = seq.byteAt(i);
+                if (b == '\\' || (b >= 0 && b < 64 && (escapeMask >>> b & 1) != 0)) {
+                    return i;
+                }
+                Unsafe.getUnsafe().putByte(destAddr + i - lo, b);
+            }
+        }
+        return i;
+    }
+
     public static String stringFromUtf8Bytes(long lo, long hi) {
         if (hi == lo) {
             return "";
@@ -234,6 +334,10 @@ public final class Utf8s {
         return b.toString();
     }
 
+    public static String toString(byte @Nullable [] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
     public static String toString(@Nullable Utf8Sequence s) {
         return s == null ? null : s.toString();
     }
@@ -251,6 +355,21 @@ public final class Utf8s {
         return sink.toString();
     }
 
+    /**
+     * Returns the number of UTF-16 chars the sequence decodes to, without decoding it. Chars encoded with
+     * four bytes are outside the BMP and count as a surrogate pair.
+     */
+    public static int utf16Length(@NotNull Utf8Sequence seq) {
+        int length = 0;
+        for (int i = 0, n = seq.size(); i < n; i++) {
+            final int b = seq.byteAt(i) & 0xff;
+            if (isNotContinuation(b)) {
+                length += (b & 0xf8) == 0xf0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
     public static int utf8DecodeMultiByte(long lo, long hi, byte b, Utf16Sink sink) {
         if (b >> 5 == -2 && (b & 30) != 0) {
             return utf8Decode2Bytes(lo, hi, b, sink);
@@ -433,6 +552,22 @@ public final class Utf8s {
         return b;
     }
 
+    private static boolean hasNoEscapeByte(long word, long escapeMask) {
+        if (hasZeroByte(word ^ SWAR_BACKSLASHES)) {
+            return false;
+        }
+        for (long m = escapeMask; m != 0; m &= m - 1) {
+            if (hasZeroByte(word ^ Long.numberOfTrailingZeros(m) * SWAR_LOW_BITS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasZeroByte(long word) {
+        return ((word - SWAR_LOW_BITS) & ~word & SWAR_HIGH_BITS) != 0;
+    }
+
     private static boolean isMalformed3(int b1, int b2, int b3) {
         return b1 == -32 && (b2 & 224) == 128 || (b2 & 192) != 128 || (b3 & 192) != 128;
     }
@@ -273,14 +273,40 @@ public class LineSenderBuilderTest {
             assertConfStrError("http::addr=localhost;auto_flush=off;auto_flush_interval=1;", "cannot set auto flush interval when interval based auto-flush is already disabled");
             assertConfStrError("http::addr=localhost;auto_flush=off;auto_flush_rows=1;", "cannot set auto flush rows when auto-flush is already disabled");
             assertConfStrError("http::addr=localhost;auto_flush_bytes=1024;", "auto_flush_bytes is only supported for TCP transport");
-            assertConfStrError("http::addr=localhost;protocol_version=10", "current client only supports protocol version 1(text format for all datatypes), 2(binary format for part datatypes), 3(decimal datatype) or explicitly unset");
+            assertConfStrError("http::addr=localhost;protocol_version=10", "current client only supports protocol version 1(text format for all datatypes), 2(binary format for part datatypes), 3(decimal datatype), 4(binary integers, timestamps and typed columns) or explicitly unset");
             assertConfStrError("http::addr=localhost:48884;max_name_len=10;", "max_name_len must be at least 16 bytes [max_name_len=10]");
+            assertConfStrError("http::addr=localhost;request_chunk_size=notanumber;", "invalid request_chunk_size [value=notanumber]");
+            assertConfStrError("http::addr=localhost;request_chunk_size=-1;", "request chunk size cannot be negative [requestChunkSize=-1]");
+            assertConfStrError("http::addr=localhost;max_buf_size=100000;request_chunk_size=200000;", "request chunk size cannot be greater than maximum buffer capacity [requestChunkSize=200000, maximumBufferCapacity=100000]");
+            assertConfStrError("tcp::addr=localhost;request_chunk_size=1024;", "request chunk size is not supported for TCP protocol");
+            assertConfStrError("http::addr=localhost;request_page_size=5000;", "request page size must be a power of 2 between 4096 and 16777216 [requestPageSize=5000]");
+            assertConfStrError("http::addr=localhost;request_page_size=1024;", "request page size must be a power of 2 between 4096 and 16777216 [requestPageSize=1024]");
+            assertConfStrError("tcp::addr=localhost;request_page_size=65536;", "request page size is not supported for TCP protocol");
+            assertConfStrError("http::addr=localhost;connection_pool=yes;", "invalid connection_pool [value=yes, allowed-values=[on, off]]");
+            assertConfStrError("http::addr=localhost;connection_pool=on;connection_pool=off;", "connection pool was already configured [connectionPool=on]");
+            assertConfStrError("tcp::addr=localhost;connection_pool=on;", "connection pool is not supported for TCP protocol");
+            assertConfStrError("http::addr=localhost;pipeline_depth=0;", "pipeline depth must be positive [pipelineDepth=0]");
+            assertConfStrError("http::addr=localhost;pipeline_depth=2;pipeline_depth=4;", "pipeline depth was already configured [pipelineDepth=2]");
+            assertConfStrError("http::addr=localhost;pipeline_depth=4;request_chunk_size=65536;", "pipelining cannot be combined with request chunk streaming [pipelineDepth=4, requestChunkSize=65536]");
+            assertConfStrError("tcp::addr=localhost;pipeline_depth=4;", "pipeline depth is not supported for TCP protocol");
+            assertConfStrError("http::addr=localhost;http_version=3;", "unsupported HTTP version [httpVersion=3, supported-versions=[1, 2]]");
+            assertConfStrError("http::addr=localhost;http_version=2;http_version=1;", "HTTP version was already configured [httpVersion=2]");
+            assertConfStrError("http::addr=localhost;http_version=2;request_chunk_size=65536;", "HTTP/2 cannot be combined with request chunk streaming [requestChunkSize=65536]");
+            assertConfStrError("http::addr=localhost;http_version=2;connection_pool=on;", "HTTP/2 cannot be combined with the connection pool");
+            assertConfStrError("tcp::addr=localhost;http_version=2;", "HTTP version is not supported for TCP protocol");
 
             assertConfStrOk("addr=localhost:8080", "auto_flush_rows=100", "protocol_version=1");
             assertConfStrOk("addr=localhost:8080", "auto_flush=on", "auto_flush_rows=100", "protocol_version=2");
             assertConfStrOk("addr=localhost:8080", "auto_flush_rows=100", "auto_flush=on", "protocol_version=2");
             assertConfStrOk("addr=localhost", "auto_flush=on", "protocol_version=2");
             assertConfStrOk("addr=localhost:8080", "max_name_len=1024", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "request_chunk_size=65536", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "request_page_size=65536", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "connection_pool=on", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "connection_pool=off", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "pipeline_depth=4", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "http_version=2", "protocol_version=2");
+            assertConfStrOk("addr=localhost:8080", "http_version=2", "pipeline_depth=1", "protocol_version=2");
 
             assertConfStrError("tcp::addr=localhost;auto_flush_bytes=1024;init_buf_size=2048;", "TCP transport requires init_buf_size and auto_flush_bytes to be set to the same value [init_buf_size=2048, auto_flush_bytes=1024]");
             assertConfStrError("tcp::addr=localhost;init_buf_size=1024;auto_flush_bytes=2048;", "TCP transport requires init_buf_size and auto_flush_bytes to be set to the same value [init_buf_size=1024, auto_flush_bytes=2048]");
@@ -683,6 +709,31 @@ public class LineSenderBuilderTest {
         });
     }
 
+    @Test
+    public void testRequestChunkSizeDoubleSet() throws Exception {
+        assertMemoryLeak(() -> {
+            Sender.LineSenderBuilder builder = Sender.builder(Sender.Transport.HTTP).requestChunkSize(1024);
+            try {
+                builder.requestChunkSize(2048);
+                fail("should not allow double request chunk size set");
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "request chunk size was already configured [requestChunkSize=1024]");
+            }
+        });
+    }
+
+    @Test
+    public void testRequestChunkSizeNotSupportedForTcp() throws Exception {
+        assertMemoryLeak(() -> {
+            try {
+                Sender.builder(Sender.Transport.TCP).address(LOCALHOST).requestChunkSize(1024).build();
+                fail("request chunk size is not supported for TCP and the builder should fail-fast");
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "request chunk size is not supported for TCP protocol");
+            }
+        });
+    }
+
     @Test
     public void testSmallMaxNameLen() throws Exception {
         assertMemoryLeak(() -> {
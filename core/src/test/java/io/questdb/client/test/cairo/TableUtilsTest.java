@@ -25,6 +25,7 @@
 package io.questdb.client.test.cairo;
 
 import io.questdb.client.cairo.TableUtils;
+import io.questdb.client.std.str.Utf8String;
 import io.questdb.client.test.AbstractTest;
 import org.junit.Assert;
 import org.junit.Test;
@@ -94,6 +95,23 @@ public class TableUtilsTest extends AbstractTest {
         Assert.assertTrue(TableUtils.isValidTableName("الْعَرَبِيَّة", 127));
     }
 
+    @Test
+    public void testIsValidNameUtf8() {
+        final String[] names = {
+                "", " ", "a", "abc", ".", "..", "a.b", "a..b", ".a", "a.", " a", "a ", "a-b", "a,b", "a\nb",
+                "a\u007fb", "﻿a", "a﻿", "é", "中文", "😀", "a😀b", "abcd", "abcé", "ab😀", "ab😀c",
+                "tþÿ", "ï»¿", "الْعَرَبِيَّة"
+        };
+        for (String name : names) {
+            final Utf8String utf8 = new Utf8String(name);
+            for (int limit = 3; limit < 6; limit++) {
+                Assert.assertEquals(name, TableUtils.isValidColumnName(name, limit), TableUtils.isValidColumnName(utf8, limit));
+                Assert.assertEquals(name, TableUtils.isValidTableName(name, limit), TableUtils.isValidTableName(utf8, limit));
+            }
+            Assert.assertEquals(name, TableUtils.isValidTableName(name, 127), TableUtils.isValidTableName(utf8, 127));
+        }
+    }
+
     private void testIsValidColumnName(char c, boolean expected) {
         Assert.assertEquals(expected, TableUtils.isValidColumnName(Character.toString(c), 127));
         Assert.assertEquals(expected, TableUtils.isValidColumnName(c + "abc", 127));
@@ -82,6 +82,119 @@ public class HttpHeaderParserTest {
         }
     }
 
+    @Test
+    public void testIndexHeadersOnDemand() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            String v = "HTTP/1.1 200 OK\r\n" +
+                    "Server: questDB/1.0\r\n" +
+                    "Date: Thu, 1 Jan 1970 00:00:00 GMT\r\n" +
+                    "content-length: 42\r\n" +
+                    "Content-Type: application/json; charset=utf-8\r\n" +
+                    "CONNECTION: close\r\n" +
+                    "Keep-Alive: timeout=5, max=10000\r\n" +
+                    "X-Empty:\r\n" +
+                    "\r\n" +
+                    "{\"ok\":true}";
+            int headerLen = v.indexOf('{');
+            long p = TestUtils.toMemory(v);
+            try (
+                    HttpHeaderParser eager = new HttpHeaderParser(1024, pool);
+                    HttpHeaderParser lazy = new HttpHeaderParser(1024, pool, true)
+            ) {
+                // split the message at every position to cover lines spanning fragments
+                for (int split = 0; split <= v.length(); split++) {
+                    eager.clear();
+                    lazy.clear();
+                    pool.clear();
+                    long q = eager.parse(p, p + split, false, true);
+                    eager.parse(q, p + v.length(), false, true);
+                    q = lazy.parse(p, p + split, false, true);
+                    if (lazy.isIncomplete()) {
+                        Assert.assertEquals(p + split, q);
+                        q = lazy.parse(q, p + v.length(), false, true);
+                    }
+                    Assert.assertFalse(lazy.isIncomplete());
+                    Assert.assertEquals(p + headerLen, q);
+
+                    TestUtils.assertEquals("200", lazy.getStatusCode());
+                    Assert.assertEquals(42, lazy.getContentLength());
+                    TestUtils.assertEquals("application/json", lazy.getContentType());
+                    TestUtils.assertEquals("close", lazy.getHeader(new Utf8String("Connection")));
+                    TestUtils.assertEquals("42", lazy.getHeader(new Utf8String("Content-Length")));
+                    Assert.assertNull(lazy.getHeader(new Utf8String("Transfer-Encoding")));
+                    Assert.assertNull(lazy.getHeader(new Utf8String("X-Missing")));
+                    TestUtils.assertEquals("", lazy.getHeader(new Utf8String("x-empty")));
+                    for (String name : new String[]{"Server", "date", "Connection", "Content-Type", "Keep-Alive"}) {
+                        Utf8String n = new Utf8String(name);
+                        TestUtils.assertEquals(eager.getHeader(n), lazy.getHeader(n));
+                    }
+                }
+            } finally {
+                Unsafe.free(p, v.length(), MemoryTag.NATIVE_DEFAULT);
+            }
+        });
+    }
+
+    @Test
+    public void testIndexHeadersOnDemandChunked() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            String v = "HTTP/1.1 200 OK\n" +
+                    "Transfer-Encoding: chunked\n" +
+                    "X-Duplicate: first\n" +
+                    "X-Duplicate: second\n" +
+                    "\n";
+            long p = TestUtils.toMemory(v);
+            try (HttpHeaderParser hp = new HttpHeaderParser(1024, pool, true)) {
+                // byte at a time
+                long q = p;
+                for (long hi = p + 1; hi <= p + v.length(); hi++) {
+                    q = hp.parse(q, hi, false, true);
+                }
+                Assert.assertFalse(hp.isIncomplete());
+                Assert.assertEquals(-1, hp.getContentLength());
+                Assert.assertNull(hp.getContentType());
+                TestUtils.assertEquals("chunked", hp.getHeader(new Utf8String("transfer-encoding")));
+                TestUtils.assertEquals("second", hp.getHeader(new Utf8String("X-Duplicate")));
+            } finally {
+                Unsafe.free(p, v.length(), MemoryTag.NATIVE_DEFAULT);
+            }
+        });
+    }
+
+    @Test
+    public void testIndexHeadersOnDemandMalformedContentLength() {
+        String v = "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 4x\r\n" +
+                "\r\n";
+        long p = TestUtils.toMemory(v);
+        try (HttpHeaderParser hp = new HttpHeaderParser(1024, pool, true)) {
+            hp.parse(p, p + v.length(), false, true);
+            Assert.fail();
+        } catch (HttpException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), "Malformed Content-Length header");
+        } finally {
+            Unsafe.free(p, v.length(), MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    @Test
+    public void testIndexHeadersOnDemandTooLarge() {
+        String v = "HTTP/1.1 200 OK\r\n" +
+                "Server: questDB/1.0\r\n" +
+                "Date: Thu, 1 Jan 1970 00:00:00 GMT\r\n" +
+                "Keep-Alive: timeout=5, max=10000\r\n" +
+                "\r\n";
+        long p = TestUtils.toMemory(v);
+        try (HttpHeaderParser hp = new HttpHeaderParser(64, pool, true)) {
+            hp.parse(p, p + v.length(), false, true);
+            Assert.fail();
+        } catch (HttpException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), "header is too large");
+        } finally {
+            Unsafe.free(p, v.length(), MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
     @Test
     public void testMethodTooLarge() {
         String v = "GET /xyzadadadjlkjqeljqasdqweqeasdasdasdawqeadadsqweqeweqdadsasdadadasdadasdqadqw HTTP/1.1";
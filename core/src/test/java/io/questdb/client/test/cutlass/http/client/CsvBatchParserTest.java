@@ -0,0 +1,253 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.http.client.ColumnBatch;
+import io.questdb.client.cutlass.http.client.CsvBatchParser;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.std.IntList;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class CsvBatchParserTest {
+    private static final String TYPED_CSV = "\"b\",\"i\",\"l\",\"d\",\"f\",\"ts\",\"dt\",\"s\",\"v\"\r\n" +
+            "true,1,-9,1.5,0.25,2024-01-01T00:00:00.000001Z,2024-01-01T00:00:00.001Z,\"sym\",\"va\"\"l,ue\"\r\n" +
+            "false,,,,,,,,\r\n" +
+            "false,-2147483647,9223372036854775807,-1.0E-5,3.0,1970-01-01T00:00:00.000000Z,1970-01-01T00:00:00.000Z,\"sym\",\"\"\r\n" +
+            "true,0,0,0.0,0.0,2024-01-01T00:00:00.000001Z,,\"éé\",\"\"\"\"\r\n";
+    private static final String TYPED_EXPECTED = "b|i|l|d|f|ts|dt|s|v\n" +
+            "1|1|-9|1.5|0.25|1704067200000001|1704067200001|sym:0|va\"l,ue:0\n" +
+            "0|null|null|NaN|NaN|null|null|null|null\n" +
+            "0|-2147483647|9223372036854775807|-1.0E-5|3.0|0|0|sym:0|:1\n" +
+            "1|0|0|0.0|0.0|1704067200000001|null|éé:1|\":2\n";
+    private static final int[] TYPES = {
+            ColumnType.BOOLEAN,
+            ColumnType.INT,
+            ColumnType.LONG,
+            ColumnType.DOUBLE,
+            ColumnType.FLOAT,
+            ColumnType.TIMESTAMP,
+            ColumnType.DATE,
+            ColumnType.SYMBOL,
+            ColumnType.VARCHAR
+    };
+
+    @Test
+    public void testBatches() throws Exception {
+        assertMemoryLeak(() -> {
+            StringBuilder csv = new StringBuilder("\"x\",\"s\"\n");
+            StringBuilder expected = new StringBuilder("x|s\n");
+            for (int i = 0; i < 10; i++) {
+                csv.append(i).append(",s").append(i % 2).append('\n');
+                expected.append(i).append("|s").append(i % 2).append(':').append(i % 2).append('\n');
+                if (i % 3 == 2) {
+                    expected.append("--\n");
+                }
+            }
+            // dictionary keys are stable across batches
+            assertParse(expected + "--\n", csv.toString(), 3, true, ColumnType.LONG, ColumnType.SYMBOL);
+        });
+    }
+
+    @Test
+    public void testEmptyInput() throws Exception {
+        assertMemoryLeak(() -> assertParse("", "", 16, false, ColumnType.LONG));
+    }
+
+    @Test
+    public void testHeaderOnly() throws Exception {
+        assertMemoryLeak(() -> assertParse("", "\"x\"\n", 16, false, ColumnType.LONG));
+    }
+
+    @Test
+    public void testHeaderDoesNotMatch() throws Exception {
+        assertMemoryLeak(() -> assertError(
+                "header does not match the columns [columnCount=1, valueCount=2, row=0]",
+                "\"x\",\"y\"\n1,2\n",
+                ColumnType.LONG
+        ));
+    }
+
+    @Test
+    public void testLastLineWithoutLineFeed() throws Exception {
+        assertMemoryLeak(() -> {
+            assertParse("x|s\n1|a:0\n2|b:1\n", "\"x\",\"s\"\n1,\"a\"\n2,b", 16, false, ColumnType.LONG, ColumnType.STRING);
+            assertParse("x|s\n1|a:0\n2|b:1\n", "\"x\",\"s\"\n1,a\n2,\"b\"", 16, false, ColumnType.LONG, ColumnType.STRING);
+            assertParse("x|s\n1|a:0\n2|null\n", "\"x\",\"s\"\n1,a\n2,", 16, false, ColumnType.LONG, ColumnType.STRING);
+        });
+    }
+
+    @Test
+    public void testMalformedValues() throws Exception {
+        assertMemoryLeak(() -> {
+            assertError("could not parse value [row=1, column=x, type=LONG, value=1x]", "\"x\"\n1\n1x\n", ColumnType.LONG);
+            assertError("could not parse value [row=0, column=x, type=BOOLEAN, value=yes]", "\"x\"\nyes\n", ColumnType.BOOLEAN);
+            assertError("could not parse value [row=0, column=x, type=TIMESTAMP, value=2024-13-01]", "\"x\"\n2024-13-01\n", ColumnType.TIMESTAMP);
+            assertError("could not parse value [row=0, column=x, type=DOUBLE, value=abc]", "\"x\"\nabc\n", ColumnType.DOUBLE);
+            assertError("row does not match the columns [columnCount=2, valueCount=1, row=1]", "\"x\",\"y\"\n1,2\n3\n", ColumnType.LONG, ColumnType.LONG);
+            assertError("too many values in row [row=0, columnCount=1]", "\"x\"\n1,2\n", ColumnType.LONG);
+            assertError("unexpected character after quoted value [row=0, column=0]", "\"x\"\n\"a\"b\n", ColumnType.STRING);
+            assertError("unterminated quoted value [row=0]", "\"x\"\n\"abc", ColumnType.STRING);
+            assertError("expected line feed after carriage return [row=0]", "\"x\"\n1\r2\n", ColumnType.LONG);
+        });
+    }
+
+    @Test
+    public void testTimestampNano() throws Exception {
+        assertMemoryLeak(() -> assertParse(
+                "ts\n1704067200000000001\nnull\nnull\n",
+                "\"ts\"\n2024-01-01T00:00:00.000000001Z\n\r\n\n",
+                16,
+                false,
+                ColumnType.TIMESTAMP_NANO
+        ));
+    }
+
+    @Test
+    public void testTypedValues() throws Exception {
+        assertMemoryLeak(() -> assertParse(TYPED_EXPECTED, TYPED_CSV, 16, false, TYPES));
+    }
+
+    private static void appendBatch(StringBuilder sink, ColumnBatch batch, boolean markBatches) {
+        for (int row = 0, n = batch.getRowCount(); row < n; row++) {
+            for (int col = 0, m = batch.getColumnCount(); col < m; col++) {
+                if (col > 0) {
+                    sink.append('|');
+                }
+                if (batch.isNull(col, row)) {
+                    sink.append(batch.getColumnStorage(col) == ColumnBatch.STORAGE_DOUBLE ? "NaN" : "null");
+                    continue;
+                }
+                switch (batch.getColumnStorage(col)) {
+                    case ColumnBatch.STORAGE_LONG:
+                        sink.append(batch.getLong(col, row));
+                        break;
+                    case ColumnBatch.STORAGE_DOUBLE:
+                        sink.append(batch.getDouble(col, row));
+                        break;
+                    default:
+                        sink.append(batch.getStr(col, row)).append(':').append(batch.getStrKey(col, row));
+                        break;
+                }
+            }
+            sink.append('\n');
+        }
+        if (markBatches && batch.getRowCount() > 0) {
+            sink.append("--\n");
+        }
+    }
+
+    private static void assertError(String expected, String csv, int... types) {
+        final byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        final long mem = Unsafe.malloc(bytes.length, MemoryTag.NATIVE_DEFAULT);
+        try (
+                ColumnBatch batch = new ColumnBatch(16);
+                CsvBatchParser parser = new CsvBatchParser(batch)
+        ) {
+            for (int i = 0; i < bytes.length; i++) {
+                Unsafe.getUnsafe().putByte(mem + i, bytes[i]);
+            }
+            // the error is the same wherever the input is split
+            for (int split = 0; split <= bytes.length; split++) {
+                parser.of(toIntList(types), b -> {
+                });
+                try {
+                    parser.parse(mem, mem + split);
+                    parser.parse(mem + split, mem + bytes.length);
+                    parser.parseLast();
+                    Assert.fail("split " + split);
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), expected);
+                }
+            }
+        } finally {
+            Unsafe.free(mem, bytes.length, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    private static void assertParse(String expected, String csv, int batchSize, boolean markBatches, int... types) {
+        final byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        final long mem = Unsafe.malloc(Math.max(1, bytes.length), MemoryTag.NATIVE_DEFAULT);
+        try (
+                ColumnBatch batch = new ColumnBatch(batchSize);
+                CsvBatchParser parser = new CsvBatchParser(batch)
+        ) {
+            for (int i = 0; i < bytes.length; i++) {
+                Unsafe.getUnsafe().putByte(mem + i, bytes[i]);
+            }
+            final StringBuilder actual = new StringBuilder();
+            // split the input in two at every position
+            for (int split = 0; split <= bytes.length; split++) {
+                actual.setLength(0);
+                parser.of(toIntList(types), b -> appendBatch(actual, b, markBatches));
+                parser.parse(mem, mem + split);
+                parser.parse(mem + split, mem + bytes.length);
+                parser.parseLast();
+                Assert.assertEquals("split " + split, expected, header(batch, expected) + actual);
+            }
+            // and feed it one byte at a time
+            actual.setLength(0);
+            parser.of(toIntList(types), b -> appendBatch(actual, b, markBatches));
+            for (int i = 0; i < bytes.length; i++) {
+                parser.parse(mem + i, mem + i + 1);
+            }
+            parser.parseLast();
+            Assert.assertEquals(expected, header(batch, expected) + actual);
+        } finally {
+            Unsafe.free(mem, Math.max(1, bytes.length), MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    private static String header(ColumnBatch batch, String expected) {
+        if (expected.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int col = 0, n = batch.getColumnCount(); col < n; col++) {
+            if (col > 0) {
+                sb.append('|');
+            }
+            sb.append(batch.getColumnName(col));
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static IntList toIntList(int... values) {
+        IntList list = new IntList();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
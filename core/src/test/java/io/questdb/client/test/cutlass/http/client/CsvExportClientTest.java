@@ -0,0 +1,129 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.http.client.ColumnBatch;
+import io.questdb.client.cutlass.http.client.CsvExportClient;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.cutlass.http.client.HttpClientFactory;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class CsvExportClientTest {
+
+    @Test
+    public void testErrorStatus() throws Exception {
+        assertMemoryLeak(() -> {
+            final String body = "{\"query\":\"selec x\",\"error\":\"unexpected token [selec]\",\"position\":0}";
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"400 Bad Request", body}, 8);
+                    CsvExportClient client = CsvExportClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                try {
+                    client.export("selec x", batch -> Assert.fail(), ColumnType.LONG);
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    Assert.assertEquals("export failed [status=400]: " + body, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        assertMemoryLeak(() -> {
+            final int rowCount = 100_000;
+            final StringBuilder csv = new StringBuilder("\"x\",\"ts\",\"price\",\"sym\"\r\n");
+            for (int i = 0; i < rowCount; i++) {
+                csv.append(i).append(",1970-01-01T00:00:00.")
+                        .append(String.format("%06d", i % 1_000_000)).append("Z,")
+                        .append(i).append(".5,\"s").append(i % 10).append("\"\r\n");
+            }
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK", csv.toString()}, 1000);
+                    CsvExportClient client = new CsvExportClient(HttpClientFactory.newPlainTextInstance(), "localhost", server.getPort(), 4096)
+            ) {
+                client.authToken("secret");
+                for (int run = 0; run < 2; run++) {
+                    final AtomicLong next = new AtomicLong();
+                    final AtomicInteger batchCount = new AtomicInteger();
+                    final long exported = client.export("select x, ts, price, sym from t", batch -> {
+                        batchCount.incrementAndGet();
+                        Assert.assertEquals(4, batch.getColumnCount());
+                        TestUtils.assertEquals("price", batch.getColumnName(2));
+                        Assert.assertTrue(batch.getDictionarySize(3) <= 10);
+                        // the vectors can be read in bulk
+                        final long xAddr = batch.getColumnAddress(0);
+                        for (int row = 0, n = batch.getRowCount(); row < n; row++) {
+                            final long x = next.getAndIncrement();
+                            Assert.assertEquals(x, Unsafe.getUnsafe().getLong(xAddr + row * 8L));
+                            Assert.assertEquals(x, batch.getLong(1, row));
+                            Assert.assertEquals(x + 0.5, batch.getDouble(2, row), 0.0);
+                            Assert.assertEquals("s" + x % 10, batch.getStr(3, row).toString());
+                        }
+                    }, ColumnType.LONG, ColumnType.TIMESTAMP, ColumnType.DOUBLE, ColumnType.SYMBOL);
+                    Assert.assertEquals(rowCount, exported);
+                    Assert.assertEquals(rowCount, next.get());
+                    Assert.assertEquals((rowCount + 4095) / 4096, batchCount.get());
+                }
+                final String request = server.requests.poll();
+                TestUtils.assertContains(request, "GET /exp?query=select");
+                TestUtils.assertContains(request, "Authorization: Bearer secret");
+            }
+        });
+    }
+
+    @Test
+    public void testMalformedExportDropsConnection() throws Exception {
+        assertMemoryLeak(() -> {
+            final StringBuilder csv = new StringBuilder("\"x\"\n");
+            for (int i = 0; i < 10_000; i++) {
+                csv.append(i == 5_000 ? "oops" : Integer.toString(i)).append('\n');
+            }
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK", csv.toString()}, 512);
+                    CsvExportClient client = CsvExportClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                for (int run = 0; run < 2; run++) {
+                    try {
+                        client.export("select x from t", ColumnBatch::getRowCount, ColumnType.LONG);
+                        Assert.fail();
+                    } catch (HttpClientException e) {
+                        TestUtils.assertContains(e.getMessage(), "could not parse value [row=5000, column=x, type=LONG, value=oops]");
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import io.questdb.client.cutlass.http.client.HpackDecoder;
+import io.questdb.client.cutlass.http.client.HpackEncoder;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.str.DirectUtf8Sink;
+import io.questdb.client.std.str.Utf8String;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+/**
+ * Header block examples are taken from RFC 7541, Appendix C.
+ */
+public class HpackTest {
+
+    @Test
+    public void testDecodeHuffmanRequests() throws Exception {
+        assertMemoryLeak(() -> {
+            try (HpackDecoder decoder = new HpackDecoder(4096)) {
+                assertDecoded(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff",
+                        ":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com");
+                assertDecoded(decoder, "828684be5886a8eb10649cbf",
+                        ":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com", "cache-control: no-cache");
+                assertDecoded(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf",
+                        ":method: GET", ":scheme: https", ":path: /index.html", ":authority: www.example.com", "custom-key: custom-value");
+            }
+        });
+    }
+
+    @Test
+    public void testDecodeHuffmanResponsesWithEviction() throws Exception {
+        assertMemoryLeak(() -> {
+            try (HpackDecoder decoder = new HpackDecoder(256)) {
+                assertDecoded(decoder, "488264025885aec3771a4b6196d07abe941054d444a8200595040b8166e082a62d1bff6e919d29ad171863c78f0b97c8e9ae82ae43d3",
+                        ":status: 302", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT", "location: https://www.example.com");
+                assertDecoded(decoder, "4883640effc1c0bf",
+                        ":status: 307", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT", "location: https://www.example.com");
+                assertDecoded(decoder, "88c16196d07abe941054d444a8200595040b8166e084a62d1bffc05a839bd9ab77ad94e7821dd7f2e6c7b335dfdfcd5b3960d5af27087f3672c1ab270fb5291f9587316065c003ed4ee5b1063d5007",
+                        ":status: 200", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:22 GMT", "location: https://www.example.com",
+                        "content-encoding: gzip", "set-cookie: foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1");
+            }
+        });
+    }
+
+    @Test
+    public void testDecodeInvalidHuffmanPadding() throws Exception {
+        assertMemoryLeak(() -> {
+            try (HpackDecoder decoder = new HpackDecoder(4096)) {
+                // the name decodes to '0' followed by three zero bits, padding must be all ones
+                assertDecoded(decoder, "00810001", "expected to fail");
+                Assert.fail();
+            } catch (HttpClientException e) {
+                TestUtils.assertContains(e.getMessage(), "invalid HPACK Huffman string padding");
+            }
+        });
+    }
+
+    @Test
+    public void testDecodeInvalidIndex() throws Exception {
+        assertMemoryLeak(() -> {
+            try (HpackDecoder decoder = new HpackDecoder(4096)) {
+                assertDecoded(decoder, "be", "expected to fail");
+                Assert.fail();
+            } catch (HttpClientException e) {
+                TestUtils.assertContains(e.getMessage(), "invalid HPACK table index [index=62, dynamicEntries=0]");
+            }
+        });
+    }
+
+    @Test
+    public void testEncodeRequests() throws Exception {
+        assertMemoryLeak(() -> {
+            try (DirectUtf8Sink sink = new DirectUtf8Sink(64)) {
+                HpackEncoder encoder = new HpackEncoder(4096);
+                encoder.beginBlock(sink);
+                encodeRequest(encoder, "http", "/");
+                Assert.assertEquals("828684410f7777772e6578616d706c652e636f6d", toHex(sink));
+
+                sink.clear();
+                encoder.beginBlock(sink);
+                encodeRequest(encoder, "http", "/");
+                encoder.header(new Utf8String("cache-control"), new Utf8String("no-cache"), true);
+                Assert.assertEquals("828684be58086e6f2d6361636865", toHex(sink));
+
+                sink.clear();
+                encoder.beginBlock(sink);
+                encodeRequest(encoder, "https", "/index.html");
+                encoder.header(new Utf8String("custom-key"), new Utf8String("custom-value"), true);
+                Assert.assertEquals("828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565", toHex(sink));
+            }
+        });
+    }
+
+    @Test
+    public void testEncoderFollowsPeerTableSize() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    DirectUtf8Sink sink = new DirectUtf8Sink(64);
+                    HpackDecoder decoder = new HpackDecoder(4096)
+            ) {
+                HpackEncoder encoder = new HpackEncoder(4096);
+                encoder.beginBlock(sink);
+                encoder.header(new Utf8String("authorization"), new Utf8String("Bearer abc"), true);
+                assertDecoded(decoder, toHex(sink), "authorization: Bearer abc");
+
+                // the peer shrinks the table to nothing, the entry is evicted on both sides
+                encoder.setPeerTableSize(0);
+                sink.clear();
+                encoder.beginBlock(sink);
+                encoder.header(new Utf8String("authorization"), new Utf8String("Bearer abc"), true);
+                Assert.assertEquals("20", toHex(sink).substring(0, 2));
+                assertDecoded(decoder, toHex(sink), "authorization: Bearer abc");
+
+                // without a table, the field is sent as a literal again
+                sink.clear();
+                encoder.beginBlock(sink);
+                encoder.header(new Utf8String("authorization"), new Utf8String("Bearer abc"), true);
+                Assert.assertEquals("570a4265617265722061626", toHex(sink).substring(0, 23));
+                assertDecoded(decoder, toHex(sink), "authorization: Bearer abc");
+            }
+        });
+    }
+
+    private static void assertDecoded(HpackDecoder decoder, String hex, String... expected) {
+        final int len = hex.length() / 2;
+        final long mem = Unsafe.malloc(len, MemoryTag.NATIVE_DEFAULT);
+        try {
+            for (int i = 0; i < len; i++) {
+                Unsafe.getUnsafe().putByte(mem + i, (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16));
+            }
+            final List<String> fields = new ArrayList<>();
+            decoder.decode(mem, mem + len, (name, value) -> fields.add(name + ": " + value));
+            Assert.assertArrayEquals(expected, fields.toArray(new String[0]));
+        } finally {
+            Unsafe.free(mem, len, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    private static void encodeRequest(HpackEncoder encoder, String scheme, String path) {
+        encoder.header(new Utf8String(":method"), new Utf8String("GET"), true);
+        encoder.header(new Utf8String(":scheme"), new Utf8String(scheme), true);
+        encoder.header(new Utf8String(":path"), new Utf8String(path), true);
+        encoder.header(new Utf8String(":authority"), new Utf8String("www.example.com"), true);
+    }
+
+    private static String toHex(DirectUtf8Sink sink) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0, n = sink.size(); i < n; i++) {
+            sb.append(String.format("%02x", sink.byteAt(i) & 0xff));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import io.questdb.client.ClientTlsConfiguration;
+import io.questdb.client.DefaultHttpClientConfiguration;
+import io.questdb.client.cutlass.http.client.Fragment;
+import io.questdb.client.cutlass.http.client.HttpClient;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.cutlass.http.client.HttpClientFactory;
+import io.questdb.client.cutlass.http.client.HttpConnectionPool;
+import io.questdb.client.cutlass.http.client.Response;
+import io.questdb.client.network.JavaTlsClientSocketFactory;
+import io.questdb.client.network.NetworkFacade;
+import io.questdb.client.network.NetworkFacadeImpl;
+import io.questdb.client.network.PlainSocketFactory;
+import io.questdb.client.network.Socket;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class HttpConnectionPoolTest {
+    private static final NetworkFacade NF = NetworkFacadeImpl.INSTANCE;
+
+    @Test
+    public void testAcquireMostRecentlyReleased() {
+        try (HttpConnectionPool pool = new HttpConnectionPool(4, 1_000)) {
+            StubSocket s1 = new StubSocket();
+            StubSocket s2 = new StubSocket();
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s1);
+            pool.release(new StringBuilder("localhost"), 9000, PlainSocketFactory.INSTANCE, NF, s2);
+            Assert.assertEquals(2, pool.getIdleCount());
+            Assert.assertEquals(2, pool.getIdleCount("localhost", 9000));
+
+            Assert.assertSame(s2, pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertSame(s1, pool.acquire(new StringBuilder("localhost"), 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertNull(pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertEquals(0, pool.getIdleCount());
+            Assert.assertEquals(2, pool.getHitCount());
+            Assert.assertEquals(1, pool.getMissCount());
+            Assert.assertFalse(s1.isClosed());
+            Assert.assertFalse(s2.isClosed());
+        }
+    }
+
+    @Test
+    public void testClose() {
+        HttpConnectionPool pool = new HttpConnectionPool(4, 1_000);
+        StubSocket s1 = new StubSocket();
+        StubSocket s2 = new StubSocket();
+        pool.release("a", 9000, PlainSocketFactory.INSTANCE, NF, s1);
+        pool.release("b", 9000, PlainSocketFactory.INSTANCE, NF, s2);
+        pool.close();
+        Assert.assertTrue(s1.isClosed());
+        Assert.assertTrue(s2.isClosed());
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertNull(pool.acquire("a", 9000, PlainSocketFactory.INSTANCE, NF));
+    }
+
+    @Test
+    public void testConnectionCloseNotPooled() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK\r\nConnection: close", "bye"}, 1024);
+                    HttpConnectionPool pool = new HttpConnectionPool(4, 60_000)
+            ) {
+                PooledConfiguration configuration = new PooledConfiguration(pool);
+                for (int i = 0; i < 3; i++) {
+                    try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                        Assert.assertEquals("bye", get(client, server.getPort()));
+                    }
+                    Assert.assertEquals(0, pool.getIdleCount());
+                }
+                Assert.assertEquals(3, server.connectionCount.get());
+            }
+        });
+    }
+
+    @Test
+    public void testEndpointKey() {
+        try (HttpConnectionPool pool = new HttpConnectionPool(4, 1_000)) {
+            StubSocket plain = new StubSocket();
+            StubSocket tls = new StubSocket();
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, plain);
+            pool.release("localhost", 9000, newTlsFactory("secret"), NF, tls);
+
+            Assert.assertNull(pool.acquire("localhost", 9001, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertNull(pool.acquire("127.0.0.1", 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertNull(pool.acquire("localhost", 9000, newTlsFactory("other"), NF));
+            Assert.assertNull(pool.acquire("localhost", 9000, JavaTlsClientSocketFactory.DEFAULT, NF));
+            Assert.assertNull(pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, new NetworkFacadeImpl()));
+            // factories with equal TLS configurations share connections
+            Assert.assertSame(tls, pool.acquire("localhost", 9000, newTlsFactory("secret"), NF));
+            Assert.assertSame(plain, pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+        }
+    }
+
+    @Test
+    public void testEvictionOverPerHostLimit() {
+        try (HttpConnectionPool pool = new HttpConnectionPool(2, 1_000)) {
+            StubSocket s1 = new StubSocket();
+            StubSocket s2 = new StubSocket();
+            StubSocket s3 = new StubSocket();
+            StubSocket other = new StubSocket();
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s1);
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s2);
+            pool.release("localhost", 9001, PlainSocketFactory.INSTANCE, NF, other);
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s3);
+
+            Assert.assertTrue(s1.isClosed());
+            Assert.assertFalse(other.isClosed());
+            Assert.assertEquals(1, pool.getEvictionCount());
+            Assert.assertEquals(2, pool.getIdleCount("localhost", 9000));
+            Assert.assertSame(s3, pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertSame(s2, pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertNull(pool.acquire("localhost", 9000, PlainSocketFactory.INSTANCE, NF));
+        }
+    }
+
+    @Test
+    public void testInvalidLimits() {
+        try {
+            new HttpConnectionPool(0, 1_000);
+            Assert.fail();
+        } catch (HttpClientException e) {
+            TestUtils.assertContains(e.getMessage(), "max idle connections per host must be positive");
+        }
+        try {
+            new HttpConnectionPool(1, 0);
+            Assert.fail();
+        } catch (HttpClientException e) {
+            TestUtils.assertContains(e.getMessage(), "idle timeout must be positive");
+        }
+    }
+
+    @Test
+    public void testKeepAliveConnectionReused() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK", "hello"}, 1024);
+                    HttpConnectionPool pool = new HttpConnectionPool(4, 60_000)
+            ) {
+                PooledConfiguration configuration = new PooledConfiguration(pool);
+                for (int i = 0; i < 5; i++) {
+                    try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                        Assert.assertEquals("hello", get(client, server.getPort()));
+                        Assert.assertEquals(i == 0 ? 1 : 0, client.getConnectCount());
+                    }
+                    Assert.assertEquals(1, pool.getIdleCount("localhost", server.getPort()));
+                }
+                Assert.assertEquals(1, server.connectionCount.get());
+                Assert.assertEquals(5, server.requests.size());
+                Assert.assertEquals(4, pool.getHitCount());
+                Assert.assertEquals(1, pool.getMissCount());
+            }
+        });
+    }
+
+    @Test
+    public void testPooledConnectionClosedByServer() throws Exception {
+        assertMemoryLeak(() -> {
+            try (HttpConnectionPool pool = new HttpConnectionPool(4, 60_000)) {
+                PooledConfiguration configuration = new PooledConfiguration(pool);
+                int port;
+                try (TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK", "first"}, 1024)) {
+                    port = server.getPort();
+                    try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                        Assert.assertEquals("first", get(client, port));
+                    }
+                    Assert.assertEquals(1, pool.getIdleCount());
+                }
+                // the server is gone along with the idle connection, the client must not pick it up
+                try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                    client.newRequest("localhost", port).GET().url("/").send().await();
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "could not connect to host");
+                }
+                Assert.assertEquals(0, pool.getIdleCount());
+            }
+        });
+    }
+
+    @Test
+    public void testReapIdle() {
+        long[] ticks = {0};
+        try (HttpConnectionPool pool = new HttpConnectionPool(4, 1_000, () -> ticks[0])) {
+            StubSocket s1 = new StubSocket();
+            StubSocket s2 = new StubSocket();
+            StubSocket s3 = new StubSocket();
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s1);
+            ticks[0] = TimeUnit.MILLISECONDS.toNanos(500);
+            pool.release("localhost", 9000, PlainSocketFactory.INSTANCE, NF, s2);
+            pool.release("localhost", 9001, PlainSocketFactory.INSTANCE, NF, s3);
+
+            ticks[0] = TimeUnit.MILLISECONDS.toNanos(999);
+            pool.reap();
+            Assert.assertEquals(3, pool.getIdleCount());
+
+            // reaping is also due when the pool is used
+            ticks[0] = TimeUnit.MILLISECONDS.toNanos(1_000);
+            Assert.assertNull(pool.acquire("localhost", 9002, PlainSocketFactory.INSTANCE, NF));
+            Assert.assertTrue(s1.isClosed());
+            Assert.assertFalse(s2.isClosed());
+            Assert.assertEquals(2, pool.getIdleCount());
+            Assert.assertEquals(1, pool.getReapCount());
+
+            ticks[0] = TimeUnit.MILLISECONDS.toNanos(1_500);
+            pool.reap();
+            Assert.assertTrue(s2.isClosed());
+            Assert.assertTrue(s3.isClosed());
+            Assert.assertEquals(0, pool.getIdleCount());
+            Assert.assertEquals(3, pool.getReapCount());
+        }
+    }
+
+    @Test
+    public void testUnconsumedResponseNotPooled() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> new String[]{"200 OK", "hello"}, 1);
+                    HttpConnectionPool pool = new HttpConnectionPool(4, 60_000)
+            ) {
+                PooledConfiguration configuration = new PooledConfiguration(pool);
+                try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                    HttpClient.ResponseHeaders response = client.newRequest("localhost", server.getPort()).GET().url("/").send();
+                    response.await();
+                    Assert.assertNotNull(response.getResponse().recv());
+                    // the rest of the body is still in flight
+                }
+                Assert.assertEquals(0, pool.getIdleCount());
+
+                try (HttpClient client = HttpClientFactory.newPlainTextInstance(configuration)) {
+                    Assert.assertEquals("hello", get(client, server.getPort()));
+                    Assert.assertEquals(1, client.getConnectCount());
+                }
+                Assert.assertEquals(1, pool.getIdleCount());
+            }
+        });
+    }
+
+    private static String get(HttpClient client, int port) {
+        HttpClient.ResponseHeaders response = client.newRequest("localhost", port).GET().url("/").send();
+        response.await();
+        TestUtils.assertEquals("200", response.getStatusCode());
+        Response body = response.getResponse();
+        StringBuilder sb = new StringBuilder();
+        Fragment fragment;
+        while ((fragment = body.recv()) != null) {
+            for (long p = fragment.lo(); p < fragment.hi(); p++) {
+                sb.append((char) Unsafe.getUnsafe().getByte(p));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static JavaTlsClientSocketFactory newTlsFactory(String password) {
+        return new JavaTlsClientSocketFactory(new ClientTlsConfiguration("/tmp/trust.jks", password.toCharArray(), ClientTlsConfiguration.TLS_VALIDATION_MODE_FULL));
+    }
+
+    private static class PooledConfiguration extends DefaultHttpClientConfiguration {
+        private final HttpConnectionPool pool;
+
+        private PooledConfiguration(HttpConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public HttpConnectionPool getConnectionPool() {
+            return pool;
+        }
+    }
+
+    private static class StubSocket implements Socket {
+        private boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public int getFd() {
+            return -1;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void of(int fd) {
+        }
+
+        @Override
+        public int recv(long bufferPtr, int bufferLen) {
+            return 0;
+        }
+
+        @Override
+        public int send(long bufferPtr, int bufferLen) {
+            return 0;
+        }
+
+        @Override
+        public void startTlsSession(CharSequence peerName) {
+        }
+
+        @Override
+        public boolean supportsTls() {
+            return false;
+        }
+
+        @Override
+        public int tlsIO(int readinessFlags) {
+            return 0;
+        }
+
+        @Override
+        public boolean wantsTlsWrite() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.cutlass.http.client.QueryClient;
+import io.questdb.client.cutlass.http.client.QueryCursor;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class QueryClientTest {
+    private static final String TYPED_RESULT = "{\"query\":\"select * from t\",\"columns\":[" +
+            "{\"name\":\"l\",\"type\":\"LONG\"}," +
+            "{\"name\":\"d\",\"type\":\"DOUBLE\"}," +
+            "{\"name\":\"s\",\"type\":\"VARCHAR\"}," +
+            "{\"name\":\"b\",\"type\":\"BOOLEAN\"}," +
+            "{\"name\":\"ts\",\"type\":\"TIMESTAMP\"}," +
+            "{\"name\":\"arr\",\"type\":\"DOUBLE[][]\"}]," +
+            "\"timestamp\":4,\"dataset\":[" +
+            "[1,1.5,\"a\",true,\"2024-01-01T00:00:00.000000Z\",[[1.0,2.0],[3.0]]]," +
+            "[-9223372036854775807,-0.25,\"q\\\"\\\\\\/\\n\\t\\u00e9\",false,null,[]]," +
+            "[null,null,null,false,\"2024-01-02T00:00:00.000000Z\",null]," +
+            "[42,1.0E10,\"null\",true,null,[[],[5.0]]]" +
+            "],\"count\":4}";
+
+    @Test
+    public void testAuthHeader() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(TYPED_RESULT), 1024);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                client.authToken("secret").execute("select * from t").close();
+                TestUtils.assertContains(server.requests.poll(), "Authorization: Bearer secret");
+                client.authBasic("admin", "quest").execute("select * from t").close();
+                TestUtils.assertContains(server.requests.poll(), "Authorization: Basic YWRtaW46cXVlc3Q=");
+            }
+        });
+    }
+
+    @Test
+    public void testCloseBeforeEndAndReuse() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(rows(10_000)), 512);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                for (int i = 0; i < 3; i++) {
+                    QueryCursor cursor = client.execute("select x from long_sequence(10000)");
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertEquals(0, cursor.getLong(0));
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertEquals(1, cursor.getLong(0));
+                    // the next query abandons the rest of this one
+                }
+                QueryCursor cursor = client.execute("select x from long_sequence(10000)");
+                int count = 0;
+                while (cursor.hasNext()) {
+                    Assert.assertEquals(count++, cursor.getLong(0));
+                }
+                Assert.assertEquals(10_000, count);
+                Assert.assertFalse(cursor.hasNext());
+            }
+        });
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(TYPED_RESULT), 3);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                QueryCursor cursor = client.execute("select * from t");
+                // metadata is available before the first row
+                Assert.assertEquals(6, cursor.getColumnCount());
+                Assert.assertEquals("l", cursor.getColumnName(0).toString());
+                Assert.assertEquals(ColumnType.LONG, cursor.getColumnType(0));
+                Assert.assertEquals(ColumnType.DOUBLE, cursor.getColumnType(1));
+                Assert.assertEquals(ColumnType.VARCHAR, cursor.getColumnType(2));
+                Assert.assertEquals(ColumnType.TIMESTAMP, cursor.getColumnType(4));
+                Assert.assertEquals(4, cursor.getColumnIndex("TS"));
+                Assert.assertEquals(-1, cursor.getColumnIndex("missing"));
+                TestUtils.assertContains(server.requests.poll(), "GET /exec?query=select");
+            }
+        });
+    }
+
+    @Test
+    public void testEmptyResult() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(rows(0)), 7);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                QueryCursor cursor = client.execute("select x from long_sequence(0)");
+                Assert.assertEquals(3, cursor.getColumnCount());
+                Assert.assertFalse(cursor.hasNext());
+                Assert.assertFalse(cursor.hasNext());
+            }
+        });
+    }
+
+    @Test
+    public void testErrorMidStream() throws Exception {
+        assertMemoryLeak(() -> {
+            final String body = "{\"query\":\"q\",\"columns\":[{\"name\":\"x\",\"type\":\"LONG\"}],\"timestamp\":-1,\"dataset\":[[1],[2]" +
+                    "],\"count\":2,\"error\":\"timeout, query aborted\",\"position\":0}";
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(body), 5);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                QueryCursor cursor = client.execute("q");
+                Assert.assertTrue(cursor.hasNext());
+                Assert.assertTrue(cursor.hasNext());
+                Assert.assertEquals(2, cursor.getLong(0));
+                try {
+                    cursor.hasNext();
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "query failed [position=0]: timeout, query aborted");
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testErrorStatus() throws Exception {
+        assertMemoryLeak(() -> {
+            final String body = "{\"query\":\"selec x\",\"error\":\"unexpected token [selec]\",\"position\":0}";
+            final AtomicInteger calls = new AtomicInteger();
+            try (
+                    TestChunkedServer server = new TestChunkedServer(
+                            request -> calls.getAndIncrement() == 0
+                                    ? new String[]{"400 Bad Request", body}
+                                    : new String[]{"500 Internal Server Error", "<html>oops</html>"},
+                            4
+                    );
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                try {
+                    client.execute("selec x");
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "query failed [status=400] [position=0]: unexpected token [selec]");
+                }
+                try {
+                    client.execute("select x");
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    Assert.assertEquals("query failed [status=500]", e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testMalformedResult() throws Exception {
+        assertMemoryLeak(() -> {
+            final String body = "{\"columns\":[{\"name\":\"x\",\"type\":\"LONG\"},{\"name\":\"y\",\"type\":\"LONG\"}],\"dataset\":[[1,2],[3]],\"count\":2}";
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(body), 64);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                QueryCursor cursor = null;
+                try {
+                    // the bad row may arrive with the first fragment
+                    cursor = client.execute("q");
+                    while (cursor.hasNext()) {
+                        Assert.assertEquals(1, cursor.getLong(0));
+                    }
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "row does not match the columns [columnCount=2]");
+                }
+                if (cursor != null) {
+                    // the cursor is closed after a malformed result
+                    Assert.assertFalse(cursor.hasNext());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testStreamingDoesNotAllocatePerRow() throws Exception {
+        final int rowCount = 200_000;
+        try (
+                TestChunkedServer server = new TestChunkedServer(request -> ok(rows(rowCount)), 4096);
+                QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+        ) {
+            final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            final long threadId = Thread.currentThread().getId();
+            long allocated = 0;
+            for (int run = 0; run < 3; run++) {
+                QueryCursor cursor = client.execute("select x, x::string, x::double from long_sequence(" + rowCount + ")");
+                final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+                long sum = 0;
+                int count = 0;
+                while (cursor.hasNext()) {
+                    sum += cursor.getLong(0) + cursor.getStr(1).length() + (long) cursor.getDouble(2);
+                    count++;
+                }
+                allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                Assert.assertEquals(rowCount, count);
+                Assert.assertTrue(sum > 0);
+            }
+            // a few reused buffers may grow, rows must not allocate
+            Assert.assertTrue("allocated " + allocated + " bytes", allocated < rowCount);
+        }
+    }
+
+    @Test
+    public void testTypedValues() throws Exception {
+        assertMemoryLeak(() -> {
+            for (int chunkSize : new int[]{1, 2, 7, 1024}) {
+                try (
+                        TestChunkedServer server = new TestChunkedServer(request -> ok(TYPED_RESULT), chunkSize);
+                        QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+                ) {
+                    QueryCursor cursor = client.execute("select * from t");
+
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertEquals(1, cursor.getLong(0));
+                    Assert.assertEquals(1, cursor.getInt(0));
+                    Assert.assertEquals(1.5, cursor.getDouble(1), 0.0);
+                    TestUtils.assertEquals("a", cursor.getStr(2));
+                    Assert.assertTrue(cursor.getBool(3));
+                    TestUtils.assertEquals("2024-01-01T00:00:00.000000Z", cursor.getStr(4));
+                    TestUtils.assertEquals("[[1.0,2.0],[3.0]]", cursor.getStr(5));
+
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertEquals(-9223372036854775807L, cursor.getLong(0));
+                    Assert.assertEquals(-0.25, cursor.getDouble(1), 0.0);
+                    TestUtils.assertEquals("q\"\\/\n\t\u00e9", cursor.getStr(2));
+                    Assert.assertFalse(cursor.getBool(3));
+                    Assert.assertTrue(cursor.isNull(4));
+                    Assert.assertNull(cursor.getStr(4));
+                    TestUtils.assertEquals("[]", cursor.getStr(5));
+
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertTrue(cursor.isNull(0));
+                    Assert.assertEquals(Numbers.LONG_NULL, cursor.getLong(0));
+                    Assert.assertEquals(Numbers.INT_NULL, cursor.getInt(0));
+                    Assert.assertTrue(Double.isNaN(cursor.getDouble(1)));
+                    Assert.assertNull(cursor.getStr(2));
+                    Assert.assertTrue(cursor.isNull(5));
+
+                    Assert.assertTrue(cursor.hasNext());
+                    Assert.assertEquals(42, cursor.getLong(0));
+                    Assert.assertEquals(1.0E10, cursor.getDouble(1), 0.0);
+                    // a quoted "null" is a string, not a null
+                    Assert.assertFalse(cursor.isNull(2));
+                    TestUtils.assertEquals("null", cursor.getStr(2));
+                    TestUtils.assertEquals("[[],[5.0]]", cursor.getStr(5));
+                    Assert.assertEquals(Numbers.LONG_NULL, cursor.getLong(4));
+
+                    Assert.assertFalse(cursor.hasNext());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testValueIsNotANumber() throws Exception {
+        assertMemoryLeak(() -> {
+            try (
+                    TestChunkedServer server = new TestChunkedServer(request -> ok(TYPED_RESULT), 1024);
+                    QueryClient client = QueryClient.newPlainTextInstance("localhost", server.getPort())
+            ) {
+                QueryCursor cursor = client.execute("select * from t");
+                Assert.assertTrue(cursor.hasNext());
+                try {
+                    cursor.getLong(2);
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "value is not a long [column=s, value=a]");
+                }
+            }
+        });
+    }
+
+    private static String[] ok(String body) {
+        return new String[]{"200 OK", body};
+    }
+
+    private static String rows(int count) {
+        StringBuilder sb = new StringBuilder("{\"query\":\"q\",\"columns\":[" +
+                "{\"name\":\"x\",\"type\":\"LONG\"},{\"name\":\"s\",\"type\":\"STRING\"},{\"name\":\"d\",\"type\":\"DOUBLE\"}" +
+                "],\"timestamp\":-1,\"dataset\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('[').append(i).append(",\"").append(i).append("\",").append(i).append(".5]");
+        }
+        return sb.append("],\"count\":").append(count).append('}').toString();
+    }
+}
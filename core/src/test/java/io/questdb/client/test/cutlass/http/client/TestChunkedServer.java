@@ -0,0 +1,129 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.http.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Minimal HTTP server that answers each request with a canned response, sent with chunked
+ * transfer encoding in chunks of a fixed size.
+ */
+class TestChunkedServer implements Closeable {
+    final AtomicInteger connectionCount = new AtomicInteger();
+    final ConcurrentLinkedQueue<String> requests = new ConcurrentLinkedQueue<>();
+    private final int chunkSize;
+    private final Function<String, String[]> responder;
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+    private volatile Socket connection;
+
+    TestChunkedServer(Function<String, String[]> responder, int chunkSize) throws IOException {
+        this.responder = responder;
+        this.chunkSize = chunkSize;
+        this.serverSocket = new ServerSocket(0);
+        this.thread = new Thread(this::run);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        Socket connection = this.connection;
+        if (connection != null) {
+            // the client may keep the connection open, e.g. in a connection pool
+            connection.close();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private static String readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            header.append((char) b);
+            if (header.length() > 3 && header.charAt(header.length() - 1) == '\n'
+                    && header.indexOf("\r\n\r\n", header.length() - 4) > -1) {
+                return header.toString();
+            }
+        }
+        return null;
+    }
+
+    private void run() {
+        while (true) {
+            try (Socket socket = serverSocket.accept()) {
+                connection = socket;
+                connectionCount.incrementAndGet();
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    String request = readHeader(in);
+                    if (request == null) {
+                        break;
+                    }
+                    requests.add(request);
+                    String[] response = responder.apply(request);
+                    out.write(("HTTP/1.1 " + response[0] + "\r\n" +
+                            "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    byte[] body = response[1].getBytes(StandardCharsets.UTF_8);
+                    for (int lo = 0; lo < body.length; lo += chunkSize) {
+                        int len = Math.min(chunkSize, body.length - lo);
+                        out.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.write(body, lo, len);
+                        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                        if (chunkSize < 16) {
+                            out.flush();
+                        }
+                    }
+                    out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                // the client dropped the connection, wait for the next one
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.json;
+
+import io.questdb.client.cutlass.json.JsonException;
+import io.questdb.client.cutlass.json.JsonLexer;
+import io.questdb.client.cutlass.json.JsonParser;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks that {@link JsonLexer} produces the same events and errors as the byte-at-a-time
+ * {@link ReferenceJsonLexer}, for random documents, valid and corrupted, fed in random fragments.
+ */
+public class JsonLexerFuzzTest {
+    private static final String[] CHUNKS = {
+            "a", "abcdefghijklmnopq", " ", "é", "日本語", "😀", "\\\"", "\\\\", "\\n", "\\u00e9",
+            "0123456789", ",", "[", "]", "{", "}", ":"
+    };
+    private static final byte[] CORRUPTIONS = {'{', '}', '[', ']', '"', ',', ':', ' ', 'a', '\\', (byte) 0xff, (byte) 0xc3};
+
+    @Test
+    public void testFuzz() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final Rnd rnd = TestUtils.generateRandom(null);
+            final StringBuilder json = new StringBuilder();
+            final EventRecorder expected = new EventRecorder();
+            final EventRecorder actual = new EventRecorder();
+            for (int i = 0; i < 2_000; i++) {
+                json.setLength(0);
+                appendValue(rnd, json, 0);
+                final byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+                if (rnd.nextInt(4) == 0 && bytes.length > 0) {
+                    // corrupt the document
+                    bytes[rnd.nextInt(bytes.length)] = CORRUPTIONS[rnd.nextInt(CORRUPTIONS.length)];
+                }
+                final int cacheSizeLimit = rnd.nextBoolean() ? 1024 : 8 + rnd.nextInt(64);
+                final long mem = Unsafe.malloc(Math.max(1, bytes.length), MemoryTag.NATIVE_DEFAULT);
+                try (
+                        JsonLexer lexer = new JsonLexer(4, cacheSizeLimit);
+                        ReferenceJsonLexer reference = new ReferenceJsonLexer(4, cacheSizeLimit)
+                ) {
+                    for (int k = 0; k < bytes.length; k++) {
+                        Unsafe.getUnsafe().putByte(mem + k, bytes[k]);
+                    }
+                    final int fragmentCount = 1 + rnd.nextInt(4);
+                    final long[] splits = new long[fragmentCount + 1];
+                    splits[0] = mem;
+                    for (int k = 1; k < fragmentCount; k++) {
+                        splits[k] = splits[k - 1] + rnd.nextInt((int) (mem + bytes.length - splits[k - 1]) + 1);
+                    }
+                    splits[fragmentCount] = mem + bytes.length;
+
+                    expected.clear();
+                    try {
+                        for (int k = 0; k < fragmentCount; k++) {
+                            reference.parse(splits[k], splits[k + 1], expected);
+                        }
+                        reference.parseLast();
+                    } catch (JsonException e) {
+                        expected.onError(e);
+                    }
+
+                    actual.clear();
+                    try {
+                        for (int k = 0; k < fragmentCount; k++) {
+                            lexer.parse(splits[k], splits[k + 1], actual);
+                        }
+                        lexer.parseLast();
+                    } catch (JsonException e) {
+                        actual.onError(e);
+                    }
+
+                    Assert.assertEquals(json.toString(), expected.toString(), actual.toString());
+                } finally {
+                    Unsafe.free(mem, Math.max(1, bytes.length), MemoryTag.NATIVE_DEFAULT);
+                }
+            }
+        });
+    }
+
+    private static void appendString(Rnd rnd, StringBuilder json) {
+        json.append('"');
+        for (int i = 0, n = rnd.nextInt(8); i < n; i++) {
+            json.append(CHUNKS[rnd.nextInt(CHUNKS.length)]);
+        }
+        json.append('"');
+    }
+
+    private static void appendValue(Rnd rnd, StringBuilder json, int depth) {
+        final int kind = depth > 4 ? 2 + rnd.nextInt(3) : rnd.nextInt(5);
+        appendWhitespace(rnd, json);
+        switch (kind) {
+            case 0:
+                json.append('{');
+                for (int i = 0, n = rnd.nextInt(5); i < n; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendWhitespace(rnd, json);
+                    appendString(rnd, json);
+                    appendWhitespace(rnd, json);
+                    json.append(':');
+                    appendValue(rnd, json, depth + 1);
+                }
+                json.append('}');
+                break;
+            case 1:
+                json.append('[');
+                for (int i = 0, n = rnd.nextInt(5); i < n; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendValue(rnd, json, depth + 1);
+                }
+                json.append(']');
+                break;
+            case 2:
+                appendString(rnd, json);
+                break;
+            case 3:
+                json.append(rnd.nextBoolean() ? Long.toString(rnd.nextLong()) : Double.toString(rnd.nextDouble()));
+                break;
+            default:
+                json.append(rnd.nextBoolean() ? "true" : "null");
+                break;
+        }
+        appendWhitespace(rnd, json);
+    }
+
+    private static void appendWhitespace(Rnd rnd, StringBuilder json) {
+        for (int i = 0, n = rnd.nextInt(3); i < n; i++) {
+            json.append(" \t\r\n".charAt(rnd.nextInt(4)));
+        }
+    }
+
+    private static class EventRecorder implements JsonParser {
+        private final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void onEvent(int code, CharSequence tag, int position) {
+            events.append(code).append('@').append(position);
+            if (tag != null) {
+                events.append(':').append(tag);
+            }
+            events.append('\n');
+        }
+
+        @Override
+        public String toString() {
+            return events.toString();
+        }
+
+        void clear() {
+            events.setLength(0);
+        }
+
+        void onError(JsonException e) {
+            events.append("error@").append(e.getPosition()).append(':').append(e.getFlyweightMessage()).append('\n');
+        }
+    }
+}
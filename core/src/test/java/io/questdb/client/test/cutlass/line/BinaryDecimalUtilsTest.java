@@ -0,0 +1,368 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.BinaryDecimalUtils;
+import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.std.Decimal128;
+import io.questdb.client.std.Decimal256;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.DecimalParser;
+import io.questdb.client.std.NumericException;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Binary decimals must round-trip through the narrowest two's complement encoding,
+ * whichever {@code Decimal} type or text literal they come from.
+ */
+public class BinaryDecimalUtilsTest {
+
+    @Test
+    public void testBigDecimal() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final Decimal256 sink = new Decimal256();
+        for (int i = 0; i < 10_000; i++) {
+            // both compact (up to 18 digits) and inflated values, with negative scales too
+            BigInteger unscaled = new BigInteger(1 + rnd.nextInt(rnd.nextBoolean() ? 60 : 256), new Random(rnd.nextLong()));
+            if (rnd.nextBoolean()) {
+                unscaled = unscaled.negate();
+            }
+            final int scale = rnd.nextInt(80) - 3;
+            final BigDecimal value = new BigDecimal(unscaled, scale);
+            final BigDecimal expected = scale < 0 ? value.setScale(0, RoundingMode.UNNECESSARY) : value;
+            try {
+                BinaryDecimalUtils.ofBigDecimal(sink, value);
+                Assert.assertTrue(value.toString(), expected.unscaledValue().bitLength() <= 255 && scale <= Decimal256.MAX_SCALE);
+                Assert.assertEquals(expected, Decimal256.toBigDecimal(sink.getHh(), sink.getHl(), sink.getLh(), sink.getLl(), sink.getScale()));
+            } catch (NumericException e) {
+                Assert.assertTrue(value.toString(), expected.unscaledValue().bitLength() > 255 || scale > Decimal256.MAX_SCALE
+                        // the negative scale is applied within the 76-digit precision limit
+                        || (scale < 0 && expected.precision() > 76));
+            }
+        }
+
+        try (Sender sender = newHttpSender()) {
+            final BigDecimal price = new BigDecimal("2615.54");
+            sender.table("t").decimalColumn("d", price).atNow();
+            Assert.assertEquals(price, decodeRow(sender));
+            sender.table("t").decimalColumn("d", new BigDecimal("-1.5E+3")).atNow();
+            Assert.assertEquals(new BigDecimal("-1500"), decodeRow(sender));
+            try {
+                sender.table("t").decimalColumn("d", new BigDecimal(BigInteger.ONE.shiftLeft(255), 2));
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "Failed to convert sent decimal value");
+            }
+            sender.cancelRow();
+            try {
+                sender.table("t").decimalColumn("d", 1, -1);
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "invalid decimal scale [scale=-1]");
+            }
+            sender.cancelRow();
+        }
+    }
+
+    @Test
+    public void testDecimalTypes() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (Sender sender = newHttpSender()) {
+            for (int i = 0; i < 1000; i++) {
+                final int scale = rnd.nextInt(19);
+                final long value = randomLong(rnd);
+                final BigDecimal expected = BigDecimal.valueOf(value, scale);
+
+                sender.table("t").decimalColumn("d", new Decimal64(value, scale)).atNow();
+                Assert.assertEquals(expected, decodeRow(sender));
+
+                sender.table("t").decimalColumn("d", value, scale).atNow();
+                Assert.assertEquals(expected, decodeRow(sender));
+
+                final double d = expected.doubleValue();
+                sender.table("t").decimalColumn("d", d, scale).atNow();
+                Assert.assertEquals(new BigDecimal(d).setScale(scale, RoundingMode.HALF_UP), decodeRow(sender));
+
+                final long high = rnd.nextBoolean() ? value >> 63 : randomLong(rnd);
+                final long sign = high >> 63;
+                final Decimal128 d128 = new Decimal128();
+                d128.of(high, value, scale);
+                sender.table("t").decimalColumn("d", d128).atNow();
+                Assert.assertEquals(Decimal256.toBigDecimal(sign, sign, high, value, scale), decodeRow(sender));
+
+                final long hh = rnd.nextBoolean() ? sign : randomLong(rnd);
+                final Decimal256 d256 = new Decimal256();
+                d256.of(hh, sign, high, value, scale);
+                sender.table("t").decimalColumn("d", d256).atNow();
+                Assert.assertEquals(Decimal256.toBigDecimal(hh, sign, high, value, scale), decodeRow(sender));
+            }
+        }
+    }
+
+    @Test
+    public void testDouble() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final Decimal256 sink = new Decimal256();
+        // exact ties round away from zero
+        assertDouble(sink, 0.125, 2);
+        assertDouble(sink, -0.125, 2);
+        assertDouble(sink, 2.5, 0);
+        assertDouble(sink, 0.5, 0);
+        assertDouble(sink, 0.49999999999999994, 0);
+        assertDouble(sink, Double.MIN_VALUE, 76);
+        assertDouble(sink, Double.MAX_VALUE, 0);
+        assertDouble(sink, 1e76, 0);
+        assertDouble(sink, -0.0, 3);
+        assertDouble(sink, 2615.54, 2);
+        for (int i = 0; i < 100_000; i++) {
+            final double value;
+            switch (rnd.nextInt(4)) {
+                case 0:
+                    value = Double.longBitsToDouble(rnd.nextLong());
+                    break;
+                case 1:
+                    // prices with a few decimal places
+                    value = Math.round(rnd.nextDouble() * 1_000_000) / 100.0;
+                    break;
+                case 2:
+                    value = (rnd.nextDouble() - 0.5) * Math.pow(10, rnd.nextInt(40) - 20);
+                    break;
+                default:
+                    // exact binary fractions, which produce ties
+                    value = (rnd.nextInt() >> rnd.nextInt(32)) / (double) (1L << rnd.nextInt(20));
+                    break;
+            }
+            assertDouble(sink, value, rnd.nextInt(Decimal256.MAX_SCALE + 1));
+        }
+
+        BinaryDecimalUtils.ofDouble(sink, Double.NaN, 2);
+        Assert.assertTrue(sink.isNull());
+        BinaryDecimalUtils.ofDouble(sink, Double.NEGATIVE_INFINITY, 2);
+        Assert.assertTrue(sink.isNull());
+        try {
+            BinaryDecimalUtils.ofDouble(sink, 1, 77);
+            Assert.fail();
+        } catch (NumericException e) {
+            TestUtils.assertContains(e.getMessage(), "Invalid scale: 77");
+        }
+    }
+
+    @Test
+    public void testNoAllocations() {
+        final Decimal256 sink = new Decimal256();
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            // the first rounds warm up the JIT
+            final long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 100_000; i++) {
+                BinaryDecimalUtils.ofDouble(sink, 2615.54 + i, 4);
+                checksum += sink.getLl();
+                BinaryDecimalUtils.ofDouble(sink, 1e-30 * i, 40);
+                checksum += sink.getLl();
+            }
+            allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        Assert.assertNotEquals(0, checksum);
+        Assert.assertEquals(0, allocated);
+    }
+
+    @Test
+    public void testParseMatchesDecimalParser() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final Decimal256 expected = new Decimal256();
+        final Decimal256 actual = new Decimal256();
+        final String[] fixed = {"0", "-0", "+0.000", ".5", "5.", ".", "-", "", "007", "1.2.3", "1e3", "12d", " 1", "NaN",
+                "999999999999999999", "9999999999999999999", "-922337203685477580.8", "0.000000000000000001", "0.0000000000000000001"};
+        for (String literal : fixed) {
+            assertParse(literal, expected, actual);
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            sb.setLength(0);
+            if (rnd.nextInt(4) == 0) {
+                sb.append(rnd.nextBoolean() ? '-' : '+');
+            }
+            for (int j = 0, n = rnd.nextInt(24); j < n; j++) {
+                sb.append((char) ('0' + rnd.nextInt(10)));
+            }
+            if (rnd.nextBoolean()) {
+                sb.append('.');
+                for (int j = 0, n = rnd.nextInt(24); j < n; j++) {
+                    sb.append(rnd.nextInt(3) == 0 ? '0' : (char) ('0' + rnd.nextInt(10)));
+                }
+            }
+            assertParse(sb, expected, actual);
+        }
+    }
+
+    @Test
+    public void testStorageSize() {
+        assertStorageSize(0, 0);
+        assertStorageSize(0, 127);
+        assertStorageSize(0, -128);
+        assertStorageSize(1, 128);
+        assertStorageSize(1, -129);
+        assertStorageSize(1, Short.MAX_VALUE);
+        assertStorageSize(2, Short.MIN_VALUE - 1);
+        assertStorageSize(2, Integer.MIN_VALUE);
+        assertStorageSize(3, Integer.MAX_VALUE + 1L);
+        assertStorageSize(3, Long.MIN_VALUE);
+        // a positive value whose top bit is set needs a zero word above it
+        Assert.assertEquals(4, BinaryDecimalUtils.storageSizePow2(0, 0, 0, Long.MIN_VALUE));
+        Assert.assertEquals(4, BinaryDecimalUtils.storageSizePow2(-1, -1, -1, 1));
+        Assert.assertEquals(4, BinaryDecimalUtils.storageSizePow2(-1, -1, Long.MIN_VALUE, 0));
+        Assert.assertEquals(5, BinaryDecimalUtils.storageSizePow2(0, 0, Long.MIN_VALUE, 0));
+        Assert.assertEquals(5, BinaryDecimalUtils.storageSizePow2(0, -1, -1, -1));
+        Assert.assertEquals(5, BinaryDecimalUtils.storageSizePow2(1, 0, 0, 0));
+    }
+
+    @Test
+    public void testText() {
+        try (Sender sender = newHttpSender()) {
+            assertText(sender, "123.45", "123.45", 2);
+            assertText(sender, "-0.00001", "-0.00001", 1);
+            assertText(sender, "100.0000", "100", 1);
+            assertText(sender, "+000123.450000", "123.45", 2);
+            assertText(sender, "1.5e3", "1500", 2);
+            assertText(sender, "92233720368547758.08", "92233720368547758.08", 16);
+            assertText(sender, "-1234567890123456789012345678901234567890", "-1234567890123456789012345678901234567890", 32);
+
+            // NaN and Infinity parse as a NULL decimal, which is not sent
+            sender.table("t").decimalColumn("d", "NaN").boolColumn("b", true).atNow();
+            Assert.assertEquals("t b=t\n", new String(toBytes(sender.bufferView())));
+            sender.reset();
+
+            try {
+                sender.table("t").decimalColumn("d", "12.34.56");
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "Failed to parse sent decimal value: 12.34.56");
+            }
+            sender.cancelRow();
+        }
+    }
+
+    private static void assertDouble(Decimal256 sink, double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            BinaryDecimalUtils.ofDouble(sink, value, scale);
+            Assert.assertTrue(sink.isNull());
+            return;
+        }
+        final BigDecimal expected = new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP);
+        try {
+            BinaryDecimalUtils.ofDouble(sink, value, scale);
+            Assert.assertEquals(value + " @ " + scale, expected, Decimal256.toBigDecimal(sink.getHh(), sink.getHl(), sink.getLh(), sink.getLl(), sink.getScale()));
+        } catch (NumericException e) {
+            Assert.assertTrue(value + " @ " + scale, expected.unscaledValue().bitLength() > 255);
+        }
+    }
+
+    private static void assertParse(CharSequence literal, Decimal256 expected, Decimal256 actual) {
+        String expectedError = null;
+        try {
+            DecimalParser.parse(expected, literal, 0, literal.length(), -1, -1, false, false);
+        } catch (NumericException e) {
+            expectedError = e.getMessage();
+        }
+        try {
+            BinaryDecimalUtils.parseDecimal(actual, literal);
+            Assert.assertNull(literal.toString(), expectedError);
+            Assert.assertEquals(literal.toString(), expected, actual);
+        } catch (NumericException e) {
+            Assert.assertEquals(literal.toString(), expectedError, e.getMessage());
+        }
+    }
+
+    private static void assertStorageSize(int expected, long value) {
+        final long sign = value >> 63;
+        Assert.assertEquals(expected, BinaryDecimalUtils.storageSizePow2(sign, sign, sign, value));
+    }
+
+    private static void assertText(Sender sender, String text, String expected, int expectedLength) {
+        sender.table("t").decimalColumn("d", text).atNow();
+        final byte[] row = toBytes(sender.bufferView());
+        Assert.assertEquals(expectedLength, row.length - "t d==".length() - 3 - 1);
+        Assert.assertEquals(0, new BigDecimal(expected).compareTo(decodeRow(sender)));
+    }
+
+    /**
+     * Decodes the single decimal column of the buffered row "t d==..." and discards the buffer.
+     */
+    private static BigDecimal decodeRow(Sender sender) {
+        final byte[] row = toBytes(sender.bufferView());
+        sender.reset();
+        int p = "t d==".length();
+        Assert.assertEquals(EntityTypes.DECIMAL, row[p++]);
+        final int scale = row[p++];
+        final int len = row[p++];
+        Assert.assertTrue("length must be a power of two: " + len, len > 0 && len <= 32 && Integer.bitCount(len) == 1);
+        final byte[] unscaled = new byte[len];
+        System.arraycopy(row, p, unscaled, 0, len);
+        Assert.assertEquals('\n', row[p + len]);
+        Assert.assertEquals(p + len + 1, row.length);
+        final BigInteger value = new BigInteger(unscaled);
+        // the encoding must be the narrowest that holds the value
+        Assert.assertTrue(len == 1 || value.bitLength() >= len * 4);
+        return new BigDecimal(value, scale);
+    }
+
+    private static Sender newHttpSender() {
+        // the address is never connected to, the buffer is checked and discarded by reset()
+        return Sender.builder(Sender.Transport.HTTP)
+                .address("localhost:1")
+                .protocolVersion(Sender.PROTOCOL_VERSION_V3)
+                .disableAutoFlush()
+                .build();
+    }
+
+    private static long randomLong(Rnd rnd) {
+        // spread magnitudes across all encoding widths
+        return rnd.nextLong() >> rnd.nextInt(64);
+    }
+
+    private static byte[] toBytes(DirectByteSlice view) {
+        final byte[] bytes = new byte[view.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        return bytes;
+    }
+}
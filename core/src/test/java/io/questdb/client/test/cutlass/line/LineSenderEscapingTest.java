@@ -0,0 +1,277 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.LineTcpSenderV1;
+import io.questdb.client.cutlass.line.LineTcpSenderV2;
+import io.questdb.client.cutlass.line.array.DoubleArray;
+import io.questdb.client.cutlass.line.array.LongArray;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.std.str.Utf8String;
+import io.questdb.client.test.cutlass.line.tcp.ByteChannel;
+import io.questdb.client.test.tools.IlpSinkServer;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Checks the bulk escaping paths of the text protocol, for chars and pre-encoded UTF-8,
+ * against a char-by-char reference.
+ */
+public class LineSenderEscapingTest {
+    private static final String[] ALPHABET = {
+            "a", "b", "Z", "0", "9", ".", "_", "-", " ", ",", "=", "\"", "\\", "\n", "\r", "é", "ж", "中", "😀"
+    };
+
+    @Test
+    public void testHttp() throws Exception {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (IlpSinkServer sink = new IlpSinkServer().tcp(false, 0).start();
+             Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";protocol_version=1;auto_flush=off;")) {
+            for (int i = 0; i < 1000; i++) {
+                final String symbol = randomString(rnd);
+                final String value = randomString(rnd);
+                sender.table("tab").symbol("sym", symbol).stringColumn("s", value).atNow();
+                assertBuffer(sender, symbol, value);
+                sender.flush();
+            }
+        }
+    }
+
+    @Test
+    public void testHttpUtf8() throws Exception {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (IlpSinkServer sink = new IlpSinkServer().tcp(false, 0).start();
+             Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";protocol_version=1;auto_flush=off;")) {
+            for (int i = 0; i < 1000; i++) {
+                final String symbol = randomString(rnd);
+                final String value = randomString(rnd);
+                putUtf8Row(sender, rnd, symbol, value);
+                assertBuffer(sender, symbol, value);
+                sender.flush();
+            }
+        }
+    }
+
+    @Test
+    public void testTcp() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV1(channel, 64 * 1024, 127)) {
+            for (int i = 0; i < 1000; i++) {
+                final String symbol = randomString(rnd);
+                final String value = randomString(rnd);
+                sender.table("tab").symbol("sym", symbol).stringColumn("s", value).atNow();
+                assertBuffer(sender, symbol, value);
+                sender.flush();
+                channel.reset();
+            }
+        }
+    }
+
+    @Test
+    public void testTcpUtf8() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV1(channel, 64 * 1024, 127)) {
+            for (int i = 0; i < 1000; i++) {
+                final String symbol = randomString(rnd);
+                final String value = randomString(rnd);
+                putUtf8Row(sender, rnd, symbol, value);
+                assertBuffer(sender, symbol, value);
+                sender.flush();
+                channel.reset();
+            }
+        }
+    }
+
+    @Test
+    public void testUtf8ColumnNames() {
+        final ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV1(channel, 1024, 127)) {
+            assertUtf8ColumnNames(sender, Sender.PROTOCOL_VERSION_V1, channel);
+        }
+        try (Sender sender = new LineTcpSenderV2(channel, 1024, 127)) {
+            assertUtf8ColumnNames(sender, Sender.PROTOCOL_VERSION_V2, channel);
+        }
+        for (int protocolVersion = Sender.PROTOCOL_VERSION_V1; protocolVersion <= Sender.PROTOCOL_VERSION_V4; protocolVersion++) {
+            // the address is never connected to
+            try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                    .address("localhost:1")
+                    .protocolVersion(protocolVersion)
+                    .disableAutoFlush()
+                    .build()
+            ) {
+                assertUtf8ColumnNames(sender, protocolVersion, null);
+            }
+        }
+    }
+
+    @Test
+    public void testUtf8NameValidation() {
+        final ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV1(channel, 64 * 1024, 4)) {
+            try {
+                sender.tableUtf8(new Utf8String("a\nb"));
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "table name contains an illegal char");
+            }
+            try {
+                sender.tableUtf8("taébc".getBytes(StandardCharsets.UTF_8));
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "table name is too long: [name = taébc");
+            }
+            try {
+                sender.tableUtf8("t".getBytes(StandardCharsets.UTF_8)).symbolUtf8("\ufeffs".getBytes(StandardCharsets.UTF_8), new byte[]{'v'});
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "column name contains an illegal char");
+            }
+        }
+    }
+
+    private static void assertBuffer(Sender sender, String symbol, String value) {
+        final String expected = "tab,sym=" + escape(symbol, " ,=\n\r\\") + " s=\"" + escape(value, "\"\n\r\\") + "\"\n";
+        final DirectByteSlice view = sender.bufferView();
+        final byte[] actual = new byte[view.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        Assert.assertEquals(expected, new String(actual, StandardCharsets.UTF_8));
+    }
+
+    private static void assertUtf8ColumnNames(Sender sender, int protocolVersion, ByteChannel channel) {
+        try (
+                DoubleArray doubles = new DoubleArray(2).append(1.5).append(-2.5);
+                LongArray longs = new LongArray(2).append(1).append(-2)
+        ) {
+            final Instant instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+            final Decimal64 decimal = new Decimal64(123_456, 2);
+
+            sender.table("tab")
+                    .longColumn("long_é", 42)
+                    .doubleColumn("double_é", 1.25)
+                    .boolColumn("bool_é", true)
+                    .timestampColumn("ts_é", 1_700_000_000_000L, ChronoUnit.MILLIS)
+                    .timestampColumn("instant_é", instant);
+            if (protocolVersion >= Sender.PROTOCOL_VERSION_V2) {
+                sender.doubleArray("doubles_é", doubles).longArray("longs_é", longs);
+            }
+            if (protocolVersion >= Sender.PROTOCOL_VERSION_V3) {
+                sender.decimalColumn("decimal_é", decimal);
+            }
+            sender.atNow();
+            final String expected = bufferToString(sender);
+            resetBuffer(sender, channel);
+
+            sender.table("tab")
+                    .longColumnUtf8(new Utf8String("long_é"), 42)
+                    .doubleColumnUtf8(new Utf8String("double_é"), 1.25)
+                    .boolColumnUtf8(new Utf8String("bool_é"), true)
+                    .timestampColumnUtf8(new Utf8String("ts_é"), 1_700_000_000_000L, ChronoUnit.MILLIS)
+                    .timestampColumnUtf8(new Utf8String("instant_é"), instant);
+            if (protocolVersion >= Sender.PROTOCOL_VERSION_V2) {
+                sender.doubleArrayUtf8(new Utf8String("doubles_é"), doubles).longArrayUtf8(new Utf8String("longs_é"), longs);
+            }
+            if (protocolVersion >= Sender.PROTOCOL_VERSION_V3) {
+                sender.decimalColumnUtf8(new Utf8String("decimal_é"), decimal);
+            }
+            sender.atNow();
+            Assert.assertEquals(expected, bufferToString(sender));
+            resetBuffer(sender, channel);
+        }
+    }
+
+    private static String bufferToString(Sender sender) {
+        final DirectByteSlice view = sender.bufferView();
+        final byte[] bytes = new byte[view.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String escape(String value, String specials) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0, n = value.length(); i < n; i++) {
+            final char c = value.charAt(i);
+            if (specials.indexOf(c) > -1) {
+                b.append('\\');
+            }
+            b.append(c);
+        }
+        return b.toString();
+    }
+
+    private static void putUtf8Row(Sender sender, Rnd rnd, String symbol, String value) {
+        if (rnd.nextBoolean()) {
+            sender.tableUtf8(new Utf8String("tab"))
+                    .symbolUtf8(new Utf8String("sym"), new Utf8String(symbol))
+                    .stringColumnUtf8(new Utf8String("s"), new Utf8String(value))
+                    .atNow();
+        } else {
+            sender.tableUtf8("tab".getBytes(StandardCharsets.UTF_8))
+                    .symbolUtf8("sym".getBytes(StandardCharsets.UTF_8), symbol.getBytes(StandardCharsets.UTF_8))
+                    .stringColumnUtf8("s".getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8))
+                    .atNow();
+        }
+    }
+
+    private static String randomString(Rnd rnd) {
+        final StringBuilder b = new StringBuilder();
+        // mostly plain runs, so that both the bulk path and the fallback are exercised,
+        // rows stay below the 1 KiB capacity of ByteChannel
+        final int len = rnd.nextInt(200);
+        while (b.length() < len) {
+            if (rnd.nextInt(8) == 0) {
+                b.append(ALPHABET[rnd.nextInt(ALPHABET.length)]);
+            } else {
+                b.append(ALPHABET[rnd.nextInt(3)]);
+            }
+        }
+        return b.toString();
+    }
+
+    private static void resetBuffer(Sender sender, ByteChannel channel) {
+        if (channel != null) {
+            sender.flush();
+            channel.reset();
+        } else {
+            sender.reset();
+        }
+    }
+}
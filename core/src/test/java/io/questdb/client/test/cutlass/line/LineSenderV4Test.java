@@ -0,0 +1,422 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.LineTcpSenderV3;
+import io.questdb.client.cutlass.line.LineTcpSenderV4;
+import io.questdb.client.cutlass.line.http.LineHttpSenderV4;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.test.cutlass.line.tcp.ByteChannel;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Protocol V4 sends longs, timestamps and typed columns as binary entities. A reference decoder turns
+ * them back into their text form, which must match what V3 sends for the same rows.
+ */
+public class LineSenderV4Test {
+    private static final ChronoUnit[] UNITS = {ChronoUnit.NANOS, ChronoUnit.MICROS, ChronoUnit.MILLIS, ChronoUnit.SECONDS};
+
+    @Test
+    public void testGeoHashValidation() {
+        try (Sender sender = newHttpSender(Sender.PROTOCOL_VERSION_V4)) {
+            sender.table("t").intColumn("i", 1);
+            final byte[] before = toBytes(sender.bufferView());
+            assertGeoHashError(sender, 0, 0, "invalid geohash precision [bits=0]");
+            assertGeoHashError(sender, 61, 0, "invalid geohash precision [bits=61]");
+            assertGeoHashError(sender, 5, 32, "geohash value does not fit in precision [bits=5, value=32]");
+            assertGeoHashError(sender, 60, -2, "geohash value does not fit in precision [bits=60, value=-2]");
+            // a rejected value leaves the row as it was
+            Assert.assertArrayEquals(before, toBytes(sender.bufferView()));
+            sender.geoHashColumn("g", 60, -1).atNow();
+            sender.reset();
+        }
+    }
+
+    @Test
+    public void testHttpRoundTrip() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (
+                Sender v3 = newHttpSender(Sender.PROTOCOL_VERSION_V3);
+                Sender v4 = newHttpSender(Sender.PROTOCOL_VERSION_V4)
+        ) {
+            Assert.assertTrue(v4 instanceof LineHttpSenderV4);
+            for (int i = 0; i < 1_000; i++) {
+                final long seed0 = rnd.nextLong();
+                final long seed1 = rnd.nextLong();
+                appendRandomRow(v3, new Rnd(seed0, seed1));
+                appendRandomRow(v4, new Rnd(seed0, seed1));
+            }
+            final byte[] text = toBytes(v3.bufferView());
+            final byte[] binary = toBytes(v4.bufferView());
+            Assert.assertArrayEquals(text, decode(binary));
+            v3.reset();
+            v4.reset();
+        }
+    }
+
+    @Test
+    public void testTcpRoundTrip() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final ByteChannel textChannel = new ByteChannel();
+        final ByteChannel binaryChannel = new ByteChannel();
+        for (int i = 0; i < 100; i++) {
+            textChannel.reset();
+            binaryChannel.reset();
+            final long seed0 = rnd.nextLong();
+            final long seed1 = rnd.nextLong();
+            try (Sender v3 = new LineTcpSenderV3(textChannel, 512, 127)) {
+                appendRandomRow(v3, new Rnd(seed0, seed1));
+            }
+            try (Sender v4 = new LineTcpSenderV4(binaryChannel, 512, 127)) {
+                appendRandomRow(v4, new Rnd(seed0, seed1));
+            }
+            Assert.assertArrayEquals(textChannel.toByteArray(), decode(binaryChannel.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testTypedColumns() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (Sender sender = newHttpSender(Sender.PROTOCOL_VERSION_V4)) {
+            for (int n = 0; n < 1_000; n++) {
+                final int i = rnd.nextInt();
+                final float f = Float.intBitsToFloat(rnd.nextInt());
+                final long lo = rnd.nextLong();
+                final long hi = rnd.nextLong();
+                final long l0 = rnd.nextLong();
+                final long l1 = rnd.nextLong();
+                final long l2 = rnd.nextLong();
+                final long l3 = rnd.nextLong();
+                final int ip = rnd.nextInt();
+                final int bits = 1 + rnd.nextInt(60);
+                final long geo = rnd.nextLong() >>> (64 - bits);
+                sender.table("t")
+                        .intColumn("i", i)
+                        .floatColumn("f", f)
+                        .uuidColumn("u", lo, hi)
+                        .long256Column("l", l0, l1, l2, l3)
+                        .ipv4Column("ip", ip)
+                        .geoHashColumn("g", bits, geo)
+                        .atNow();
+                final String expected = "t i=" + i + "i"
+                        + ",f=" + f
+                        + ",u=\"" + new UUID(hi, lo) + '"'
+                        + ",l=0x" + String.format("%016x%016x%016x%016x", l3, l2, l1, l0) + 'i'
+                        + ",ip=\"" + (ip >>> 24) + '.' + ((ip >>> 16) & 0xff) + '.' + ((ip >>> 8) & 0xff) + '.' + (ip & 0xff) + '"'
+                        + ",g=\"##" + toBinaryString(geo, bits) + "\"\n";
+                Assert.assertEquals(expected, new String(decode(toBytes(sender.bufferView())), StandardCharsets.UTF_8));
+                sender.reset();
+            }
+        }
+    }
+
+    @Test
+    public void testTypedColumnsRequireV4() {
+        try (Sender sender = newHttpSender(Sender.PROTOCOL_VERSION_V3)) {
+            sender.table("t");
+            assertUnsupported(() -> sender.intColumn("i", 1), "int");
+            assertUnsupported(() -> sender.floatColumn("f", 1), "float");
+            assertUnsupported(() -> sender.uuidColumn("u", 1, 2), "uuid");
+            assertUnsupported(() -> sender.long256Column("l", 1, 2, 3, 4), "long256");
+            assertUnsupported(() -> sender.ipv4Column("ip", 1), "ipv4");
+            assertUnsupported(() -> sender.geoHashColumn("g", 5, 1), "geohash");
+            sender.reset();
+        }
+    }
+
+    @Test
+    public void testWireFormat() {
+        try (Sender sender = newHttpSender(Sender.PROTOCOL_VERSION_V4)) {
+            sender.table("t")
+                    .longColumn("x", 0x0102030405060708L)
+                    .timestampColumn("ts", 42, ChronoUnit.MILLIS)
+                    .at(-1, ChronoUnit.NANOS);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            putAscii(expected, "t x==");
+            expected.write(EntityTypes.LONG);
+            putLongLE(expected, 0x0102030405060708L);
+            putAscii(expected, ",ts==");
+            expected.write(EntityTypes.TIMESTAMP);
+            expected.write('t');
+            putLongLE(expected, 42_000);
+            putAscii(expected, " =");
+            expected.write(EntityTypes.TIMESTAMP);
+            expected.write('n');
+            putLongLE(expected, -1);
+            expected.write('\n');
+            Assert.assertArrayEquals(expected.toByteArray(), toBytes(sender.bufferView()));
+            sender.reset();
+        }
+    }
+
+    private static void appendRandomRow(Sender sender, Rnd rnd) {
+        sender.table("tab").symbol("sym", "a=b c");
+        final int columns = 1 + rnd.nextInt(6);
+        for (int c = 0; c < columns; c++) {
+            final String name = "c" + c;
+            switch (rnd.nextInt(6)) {
+                case 0:
+                    sender.longColumn(name, rnd.nextLong() >> rnd.nextInt(64));
+                    break;
+                case 1:
+                    sender.timestampColumn(name, rnd.nextLong() >> 30, UNITS[rnd.nextInt(UNITS.length)]);
+                    break;
+                case 2:
+                    sender.timestampColumn(name, Instant.ofEpochSecond(rnd.nextLong() >> 30, rnd.nextInt(1_000_000_000)));
+                    break;
+                case 3:
+                    sender.doubleColumn(name, rnd.nextDouble());
+                    break;
+                case 4:
+                    sender.stringColumn(name, "x=1i \"q\"\n 2t");
+                    break;
+                default:
+                    sender.decimalColumn(name, new Decimal64(rnd.nextLong(), 3));
+                    break;
+            }
+        }
+        switch (rnd.nextInt(3)) {
+            case 0:
+                sender.at(rnd.nextLong() >> 30, UNITS[rnd.nextInt(UNITS.length)]);
+                break;
+            case 1:
+                sender.at(Instant.ofEpochSecond(rnd.nextLong() >> 30, rnd.nextInt(1_000_000_000)));
+                break;
+            default:
+                sender.atNow();
+                break;
+        }
+    }
+
+    private static void assertGeoHashError(Sender sender, int bits, long value, String message) {
+        try {
+            sender.geoHashColumn("g", bits, value);
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), message);
+        }
+    }
+
+    private static void assertUnsupported(Runnable column, String type) {
+        try {
+            column.run();
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), "current protocol version does not support " + type);
+        }
+    }
+
+    private static void copy(byte[] in, int lo, int len, ByteArrayOutputStream out) {
+        Assert.assertTrue("truncated binary value", lo + len <= in.length);
+        out.write(in, lo, len);
+    }
+
+    /**
+     * Reference decoder: rewrites binary longs and timestamps into their text form and copies
+     * everything else, including other binary entities, verbatim.
+     */
+    private static byte[] decode(byte[] in) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 0 - table and symbols, 1 - fields, 2 - designated timestamp
+        int section = 0;
+        int i = 0;
+        while (i < in.length) {
+            final byte b = in[i++];
+            out.write(b);
+            switch (b) {
+                case '\\':
+                    out.write(in[i++]);
+                    break;
+                case '\n':
+                    section = 0;
+                    break;
+                case ' ':
+                    section++;
+                    if (section == 2 && in[i] == '=') {
+                        Assert.assertEquals(EntityTypes.TIMESTAMP, in[i + 1]);
+                        i = decodeTimestamp(in, i + 2, out);
+                    }
+                    break;
+                case '=':
+                    if (section != 1) {
+                        break;
+                    }
+                    if (in[i] == '"') {
+                        out.write(in[i++]);
+                        while (in[i] != '"') {
+                            if (in[i] == '\\') {
+                                out.write(in[i++]);
+                            }
+                            out.write(in[i++]);
+                        }
+                        out.write(in[i++]);
+                    } else if (in[i] == '=') {
+                        final byte type = in[i + 1];
+                        switch (type) {
+                            case EntityTypes.LONG:
+                                putAscii(out, Long.toString(getLongLE(in, i + 2)));
+                                out.write('i');
+                                i += 2 + Long.BYTES;
+                                break;
+                            case EntityTypes.TIMESTAMP:
+                                i = decodeTimestamp(in, i + 2, out);
+                                break;
+                            case EntityTypes.DOUBLE:
+                                copy(in, i, 2 + Double.BYTES, out);
+                                i += 2 + Double.BYTES;
+                                break;
+                            case EntityTypes.DECIMAL: {
+                                final int len = 4 + in[i + 3];
+                                copy(in, i, len, out);
+                                i += len;
+                                break;
+                            }
+                            case EntityTypes.INTEGER:
+                                putAscii(out, Integer.toString((int) getLE(in, i + 2, Integer.BYTES)));
+                                out.write('i');
+                                i += 2 + Integer.BYTES;
+                                break;
+                            case EntityTypes.FLOAT:
+                                putAscii(out, Float.toString(Float.intBitsToFloat((int) getLE(in, i + 2, Float.BYTES))));
+                                i += 2 + Float.BYTES;
+                                break;
+                            case EntityTypes.UUID:
+                                putAscii(out, '"' + new UUID(getLongLE(in, i + 10), getLongLE(in, i + 2)).toString() + '"');
+                                i += 2 + 2 * Long.BYTES;
+                                break;
+                            case EntityTypes.LONG256:
+                                putAscii(out, "0x");
+                                for (int k = 3; k >= 0; k--) {
+                                    putAscii(out, String.format("%016x", getLongLE(in, i + 2 + k * Long.BYTES)));
+                                }
+                                out.write('i');
+                                i += 2 + 4 * Long.BYTES;
+                                break;
+                            case EntityTypes.IPv4: {
+                                final long address = getLE(in, i + 2, Integer.BYTES);
+                                putAscii(out, "\"" + (address >>> 24) + '.' + ((address >>> 16) & 0xff) + '.'
+                                        + ((address >>> 8) & 0xff) + '.' + (address & 0xff) + '"');
+                                i += 2 + Integer.BYTES;
+                                break;
+                            }
+                            case EntityTypes.GEOBYTE:
+                            case EntityTypes.GEOSHORT:
+                            case EntityTypes.GEOINT:
+                            case EntityTypes.GEOLONG: {
+                                final int bits = in[i + 2];
+                                final int size = 1 << (type - EntityTypes.GEOBYTE);
+                                Assert.assertEquals("geohash must use the narrowest storage", size, geoHashSize(bits));
+                                putAscii(out, "\"##" + toBinaryString(getLE(in, i + 3, size), bits) + '"');
+                                i += 3 + size;
+                                break;
+                            }
+                            default:
+                                Assert.fail("unexpected binary type: " + type);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int decodeTimestamp(byte[] in, int lo, ByteArrayOutputStream out) {
+        final byte unit = in[lo];
+        Assert.assertTrue("unexpected timestamp unit: " + unit, unit == 'n' || unit == 't');
+        putAscii(out, Long.toString(getLongLE(in, lo + 1)));
+        out.write(unit);
+        return lo + 1 + Long.BYTES;
+    }
+
+    private static int geoHashSize(int bits) {
+        return bits < 8 ? 1 : bits < 16 ? 2 : bits < 32 ? 4 : 8;
+    }
+
+    private static long getLE(byte[] in, int lo, int size) {
+        Assert.assertTrue("truncated binary value", lo + size <= in.length);
+        long value = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            value = (value << 8) | (in[lo + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long getLongLE(byte[] in, int lo) {
+        return getLE(in, lo, Long.BYTES);
+    }
+
+    private static Sender newHttpSender(int protocolVersion) {
+        // the address is never connected to, the buffer is checked and discarded by reset()
+        return Sender.builder(Sender.Transport.HTTP)
+                .address("localhost:1")
+                .protocolVersion(protocolVersion)
+                .disableAutoFlush()
+                .build();
+    }
+
+    private static void putAscii(ByteArrayOutputStream out, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void putLongLE(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+
+    private static String toBinaryString(long value, int bits) {
+        final StringBuilder sb = new StringBuilder(bits);
+        for (int i = bits - 1; i >= 0; i--) {
+            sb.append((value >>> i) & 1);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] toBytes(DirectByteSlice view) {
+        final byte[] bytes = new byte[view.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.array;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.array.ExternalArrayView;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A view over caller-owned memory, with any strides, must encode to the same bytes
+ * as the nested Java array holding the elements it addresses.
+ */
+public class ExternalArrayViewTest {
+
+    @Test
+    public void testByteBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(64).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 8; i++) {
+            buffer.putDouble(i * 8, i + 0.5);
+        }
+        // the view starts at the buffer position and reads the next 2x3 elements
+        buffer.position(16);
+        final ExternalArrayView view = new ExternalArrayView();
+        try (Sender expected = newHttpSender(); Sender actual = newHttpSender()) {
+            expected.table("t").doubleArray("a", new double[][]{{2.5, 3.5, 4.5}, {5.5, 6.5, 7.5}}).atNow();
+            actual.table("t").arrayColumn("a", view.of(buffer, ColumnType.DOUBLE, 2, 3)).atNow();
+            Assert.assertArrayEquals(toBytes(expected.bufferView()), toBytes(actual.bufferView()));
+            expected.reset();
+            actual.reset();
+        }
+        Assert.assertEquals(16, buffer.position());
+
+        try {
+            view.of(buffer, ColumnType.DOUBLE, 2, 4);
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), "buffer is too small for the array [required=64, remaining=48]");
+        }
+        try {
+            view.of(ByteBuffer.allocate(64), ColumnType.DOUBLE, 8);
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), "buffer must be direct");
+        }
+    }
+
+    @Test
+    public void testInvalidView() {
+        final ExternalArrayView view = new ExternalArrayView();
+        assertInvalid(() -> view.of(8, ColumnType.INT, 1), "unsupported array element type [type=INT]");
+        assertInvalid(() -> view.of(8, ColumnType.LONG), "Shape must have at least one dimension");
+        assertInvalid(() -> view.of(8, ColumnType.LONG, 2, -1), "dimension length must not be negative [dim=1, dimLen=-1]");
+        assertInvalid(() -> view.of(8, ColumnType.LONG, new int[]{2, 2}, new int[]{1}), "strides and shape do not match");
+        assertInvalid(() -> view.of(8, ColumnType.LONG, new int[]{2, 2}, new int[]{-2, 1}), "stride must not be negative [dim=0, stride=-2]");
+        assertInvalid(() -> view.of(8, ColumnType.LONG, new int[]{2, 1 << 27}, new int[]{1 << 27, 1}), "array is too large");
+        assertInvalid(() -> view.of(0, ColumnType.LONG, 2), "array address must not be zero");
+        // an empty array does not address any memory
+        Assert.assertTrue(view.of(0, ColumnType.LONG, 2, 0).isEmpty());
+    }
+
+    @Test
+    public void testRandomStrides() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final Rnd rnd = TestUtils.generateRandom(null);
+            final ExternalArrayView view = new ExternalArrayView();
+            try (Sender expected = newHttpSender(); Sender actual = newHttpSender()) {
+                for (int i = 0; i < 500; i++) {
+                    final boolean isDouble = rnd.nextBoolean();
+                    final int nDims = 1 + rnd.nextInt(4);
+                    final int[] shape = new int[nDims];
+                    final int[] strides = new int[nDims];
+                    int span = 1;
+                    for (int d = nDims - 1; d >= 0; d--) {
+                        shape[d] = rnd.nextInt(8) == 0 ? 1 : 1 + rnd.nextInt(5);
+                        // mix row-major, sliced, broadcast and transposed-looking layouts
+                        strides[d] = rnd.nextInt(3) == 0 ? span : rnd.nextInt(2 * span + 2);
+                        span += (shape[d] - 1) * strides[d];
+                    }
+                    final long size = (long) span * Long.BYTES;
+                    final long ptr = Unsafe.malloc(size, MemoryTag.NATIVE_DEFAULT);
+                    try {
+                        for (int j = 0; j < span; j++) {
+                            Unsafe.getUnsafe().putLong(ptr + (long) j * Long.BYTES, rnd.nextLong());
+                        }
+                        final Object nested = Array.newInstance(isDouble ? double.class : long.class, shape);
+                        fill(nested, ptr, shape, strides, 0, 0);
+                        putRow(expected, nested);
+                        actual.table("t").arrayColumn("a", view.of(ptr, isDouble ? ColumnType.DOUBLE : ColumnType.LONG, shape, strides)).atNow();
+                        Assert.assertArrayEquals(toBytes(expected.bufferView()), toBytes(actual.bufferView()));
+                    } finally {
+                        Unsafe.free(ptr, size, MemoryTag.NATIVE_DEFAULT);
+                        expected.reset();
+                        actual.reset();
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testUnsupportedProtocol() {
+        try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                .address("localhost:1")
+                .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                .disableAutoFlush()
+                .build()
+        ) {
+            sender.table("t");
+            try {
+                sender.arrayColumn("a", new ExternalArrayView().of(8, ColumnType.LONG, 0));
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "current protocol version does not support arrays");
+            }
+            sender.cancelRow();
+        }
+    }
+
+    private static void assertInvalid(Runnable code, String message) {
+        try {
+            code.run();
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), message);
+        }
+    }
+
+    private static void fill(Object nested, long ptr, int[] shape, int[] strides, int dim, long offset) {
+        for (int i = 0; i < shape[dim]; i++) {
+            final long elemOffset = offset + (long) i * strides[dim];
+            if (dim < shape.length - 1) {
+                fill(Array.get(nested, i), ptr, shape, strides, dim + 1, elemOffset);
+            } else if (nested instanceof double[]) {
+                ((double[]) nested)[i] = Unsafe.getUnsafe().getDouble(ptr + elemOffset * Double.BYTES);
+            } else {
+                ((long[]) nested)[i] = Unsafe.getUnsafe().getLong(ptr + elemOffset * Long.BYTES);
+            }
+        }
+    }
+
+    private static Sender newHttpSender() {
+        // the address is never connected to, the buffer is checked and discarded by reset()
+        return Sender.builder(Sender.Transport.HTTP)
+                .address("localhost:1")
+                .protocolVersion(Sender.PROTOCOL_VERSION_V2)
+                .disableAutoFlush()
+                .build();
+    }
+
+    private static void putRow(Sender sender, Object nested) {
+        sender.table("t");
+        if (nested instanceof double[]) {
+            sender.doubleArray("a", (double[]) nested);
+        } else if (nested instanceof long[]) {
+            sender.longArray("a", (long[]) nested);
+        } else if (nested.getClass().getName().endsWith("D")) {
+            sender.doubleArray("a", (Object[]) nested);
+        } else {
+            sender.longArray("a", (Object[]) nested);
+        }
+        sender.atNow();
+    }
+
+    private static byte[] toBytes(DirectByteSlice view) {
+        final byte[] bytes = new byte[view.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.array;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cairo.ColumnType;
+import io.questdb.client.cutlass.line.EntityTypes;
+import io.questdb.client.cutlass.line.LineChannel;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.LineTcpSenderV2;
+import io.questdb.client.cutlass.line.array.DoubleArray;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.bytes.DirectByteSlice;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Nested Java arrays of any dimensionality must encode to the same bytes as an
+ * element-by-element reference, however the bulk row copies get split across buffers.
+ */
+public class FlattenArrayUtilsTest {
+
+    @Test
+    public void testBufferBoundaries() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final CollectingChannel channel = new CollectingChannel();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        // a small buffer makes rows straddle its end, forcing the row copies to split
+        try (Sender sender = new LineTcpSenderV2(channel, 512, 127)) {
+            for (int i = 0; i < 500; i++) {
+                final Object array = randomArray(rnd, i % 2 == 0 ? double.class : long.class, 1 + rnd.nextInt(4), 48);
+                putRow(sender, array);
+                final byte[] row = encodeRow(array);
+                expected.write(row, 0, row.length);
+            }
+            sender.flush();
+        }
+        Assert.assertArrayEquals(expected.toByteArray(), channel.toByteArray());
+    }
+
+    @Test
+    public void testHttp() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        try (Sender sender = newHttpSender()) {
+            for (int i = 0; i < 300; i++) {
+                final Object array = randomArray(rnd, i % 2 == 0 ? double.class : long.class, dims(rnd, i), 256);
+                putRow(sender, array);
+                Assert.assertArrayEquals(encodeRow(array), toBytes(sender.bufferView()));
+                sender.reset();
+            }
+        }
+    }
+
+    @Test
+    public void testIrregularShape() {
+        try (Sender sender = newHttpSender()) {
+            // the outer dimensions agree, the innermost rows of the second block do not
+            assertIrregular(sender, new double[][][]{{{1, 2}}, {{3}}});
+            assertIrregular(sender, new long[][][]{{{1, 2}}, {{3}}});
+            assertIrregular(sender, new double[][][][]{{{{1}, {2}}}, {{{3}, {4, 5}}}});
+            assertIrregular(sender, new long[][][][]{{{{1}, {2}}}, {{{3}}}});
+            assertIrregular(sender, new double[][][][]{{{{1}}}, {null}});
+            sender.reset();
+        }
+    }
+
+    @Test
+    public void testMatchesDoubleArray() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final CollectingChannel expected = new CollectingChannel();
+        final CollectingChannel actual = new CollectingChannel();
+        try (
+                Sender reference = new LineTcpSenderV2(expected, 64 * 1024, 127);
+                Sender sender = new LineTcpSenderV2(actual, 64 * 1024, 127)
+        ) {
+            for (int i = 0; i < 100; i++) {
+                final Object array = randomArray(rnd, double.class, dims(rnd, i), 256);
+                final int[] shape = shapeOf(array);
+                try (DoubleArray doubleArray = new DoubleArray(shape)) {
+                    appendAll(array, doubleArray);
+                    reference.table("t").doubleArray("a", doubleArray).atNow();
+                }
+                putRow(sender, array);
+            }
+            reference.flush();
+            sender.flush();
+        }
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testMaxDimensions() {
+        try (Sender sender = newHttpSender()) {
+            final int[] shape = new int[ColumnType.ARRAY_NDIMS_LIMIT + 1];
+            Arrays.fill(shape, 1);
+            try {
+                sender.table("t").doubleArray("a", (Object[]) Array.newInstance(double.class, shape));
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "Maximum supported dimensionality is 32D, but got 33D");
+            }
+            sender.cancelRow();
+            try {
+                sender.table("t").longArray("a", new double[1][1][1][1]);
+                Assert.fail();
+            } catch (LineSenderException e) {
+                TestUtils.assertContains(e.getMessage(), "expected a nested array of long");
+            }
+            sender.cancelRow();
+            sender.reset();
+        }
+    }
+
+    @Test
+    public void testTcp() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        final CollectingChannel channel = new CollectingChannel();
+        try (Sender sender = new LineTcpSenderV2(channel, 64 * 1024, 127)) {
+            for (int i = 0; i < 300; i++) {
+                final Object array = randomArray(rnd, i % 2 == 0 ? double.class : long.class, dims(rnd, i), 256);
+                putRow(sender, array);
+                sender.flush();
+                Assert.assertArrayEquals(encodeRow(array), channel.toByteArray());
+                channel.reset();
+            }
+        }
+    }
+
+    private static void appendAll(Object array, DoubleArray target) {
+        if (array instanceof double[]) {
+            for (double v : (double[]) array) {
+                target.append(v);
+            }
+        } else {
+            for (Object child : (Object[]) array) {
+                appendAll(child, target);
+            }
+        }
+    }
+
+    private static void assertIrregular(Sender sender, Object[] array) {
+        try {
+            putRow(sender, array);
+            Assert.fail();
+        } catch (LineSenderException e) {
+            TestUtils.assertContains(e.getMessage(), "irregular array shape");
+        }
+        sender.cancelRow();
+    }
+
+    private static int dims(Rnd rnd, int i) {
+        // the first few rows cover the deepest supported nesting
+        return i < 8 ? ColumnType.ARRAY_NDIMS_LIMIT - i : 1 + rnd.nextInt(5);
+    }
+
+    private static byte[] encodeRow(Object array) {
+        final int[] shape = shapeOf(array);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte b : "t a==".getBytes()) {
+            out.write(b);
+        }
+        out.write(EntityTypes.ARRAY);
+        out.write(leafType(array) == double.class ? ColumnType.DOUBLE : ColumnType.LONG);
+        out.write(shape.length);
+        for (int dim : shape) {
+            writeLittleEndian(out, dim, Integer.BYTES);
+        }
+        writeData(out, array);
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    private static Class<?> leafType(Object array) {
+        Class<?> type = array.getClass();
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type;
+    }
+
+    private static Sender newHttpSender() {
+        // the address is never connected to, the buffer is checked and discarded by reset()
+        return Sender.builder(Sender.Transport.HTTP)
+                .address("localhost:1")
+                .protocolVersion(Sender.PROTOCOL_VERSION_V2)
+                .disableAutoFlush()
+                .build();
+    }
+
+    private static void putRow(Sender sender, Object array) {
+        sender.table("t");
+        if (array instanceof double[]) {
+            sender.doubleArray("a", (double[]) array);
+        } else if (array instanceof long[]) {
+            sender.longArray("a", (long[]) array);
+        } else if (array instanceof double[][]) {
+            sender.doubleArray("a", (double[][]) array);
+        } else if (array instanceof long[][]) {
+            sender.longArray("a", (long[][]) array);
+        } else if (array instanceof double[][][]) {
+            sender.doubleArray("a", (double[][][]) array);
+        } else if (array instanceof long[][][]) {
+            sender.longArray("a", (long[][][]) array);
+        } else if (leafType(array) == double.class) {
+            sender.doubleArray("a", (Object[]) array);
+        } else {
+            sender.longArray("a", (Object[]) array);
+        }
+        sender.atNow();
+    }
+
+    private static Object randomArray(Rnd rnd, Class<?> elementType, int nDims, int maxElements) {
+        final int[] shape = new int[nDims];
+        int total = 1;
+        for (int d = 0; d < nDims; d++) {
+            shape[d] = rnd.nextInt(total * 4 <= maxElements ? 5 : 2);
+            if (shape[d] == 0 && rnd.nextInt(4) != 0) {
+                // keep empty arrays rare
+                shape[d] = 1;
+            }
+            total *= Math.max(shape[d], 1);
+        }
+        final Object array = Array.newInstance(elementType, shape);
+        randomFill(rnd, array);
+        return array;
+    }
+
+    private static void randomFill(Rnd rnd, Object array) {
+        if (array instanceof double[]) {
+            final double[] row = (double[]) array;
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rnd.nextDouble() * rnd.nextLong();
+            }
+        } else if (array instanceof long[]) {
+            final long[] row = (long[]) array;
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rnd.nextLong();
+            }
+        } else {
+            for (Object child : (Object[]) array) {
+                randomFill(rnd, child);
+            }
+        }
+    }
+
+    private static int[] shapeOf(Object array) {
+        int nDims = 0;
+        for (Class<?> type = array.getClass(); type.isArray(); type = type.getComponentType()) {
+            nDims++;
+        }
+        final int[] shape = new int[nDims];
+        Object level = array;
+        for (int d = 0; d < nDims && level != null; d++) {
+            shape[d] = Array.getLength(level);
+            level = shape[d] > 0 && d < nDims - 1 ? Array.get(level, 0) : null;
+        }
+        return shape;
+    }
+
+    private static byte[] toBytes(DirectByteSlice view) {
+        final byte[] bytes = new byte[view.size()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = Unsafe.getUnsafe().getByte(view.ptr() + i);
+        }
+        return bytes;
+    }
+
+    private static void writeData(ByteArrayOutputStream out, Object array) {
+        if (array instanceof double[]) {
+            for (double v : (double[]) array) {
+                writeLittleEndian(out, Double.doubleToRawLongBits(v), Double.BYTES);
+            }
+        } else if (array instanceof long[]) {
+            for (long v : (long[]) array) {
+                writeLittleEndian(out, v, Long.BYTES);
+            }
+        } else {
+            for (Object child : (Object[]) array) {
+                writeData(out, child);
+            }
+        }
+    }
+
+    private static void writeLittleEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (i << 3)));
+        }
+    }
+
+    private static class CollectingChannel implements LineChannel {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public int errno() {
+            return 0;
+        }
+
+        @Override
+        public int receive(long ptr, int len) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(long ptr, int len) {
+            for (int i = 0; i < len; i++) {
+                out.write(Unsafe.getUnsafe().getByte(ptr + i));
+            }
+        }
+
+        void reset() {
+            out.reset();
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
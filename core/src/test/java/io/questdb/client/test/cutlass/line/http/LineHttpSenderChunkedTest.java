@@ -0,0 +1,225 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class LineHttpSenderChunkedTest {
+
+    @Test
+    public void testConnectionLostAfterChunkAbortsTransaction() throws Exception {
+        assertMemoryLeak(() -> {
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                CountDownLatch firstChunk = new CountDownLatch(1);
+                Thread server = new Thread(() -> {
+                    try (Socket socket = serverSocket.accept()) {
+                        InputStream in = socket.getInputStream();
+                        readHeader(in);
+                        readChunk(in, new ByteArrayOutputStream());
+                        firstChunk.countDown();
+                    } catch (IOException ignore) {
+                    }
+                });
+                server.start();
+
+                try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .disableAutoFlush()
+                        .requestChunkSize(1024)
+                        .build()
+                ) {
+                    try {
+                        for (int i = 0; i < 100_000; i++) {
+                            sender.table("tab").longColumn("x", i).atNow();
+                            if (i == 500) {
+                                Assert.assertTrue(firstChunk.await(10, TimeUnit.SECONDS));
+                                server.join();
+                            }
+                        }
+                        sender.flush();
+                        Assert.fail("connection was closed by the server");
+                    } catch (LineSenderException e) {
+                        TestUtils.assertContains(e.getMessage(), "transaction was aborted");
+                    }
+                    // the sender was reset and can be reused
+                    Assert.assertEquals(0, sender.bufferView().size());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testRowsAreKeptWhenFirstChunkFails() throws Exception {
+        assertMemoryLeak(() -> {
+            final int refusingPort;
+            try (ServerSocket closed = new ServerSocket(0)) {
+                refusingPort = closed.getLocalPort();
+            }
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread server = new Thread(() -> {
+                    try (Socket socket = serverSocket.accept()) {
+                        InputStream in = socket.getInputStream();
+                        readHeader(in);
+                        //noinspection StatementWithEmptyBody
+                        while (readChunk(in, content) > 0) {
+                        }
+                        OutputStream out = socket.getOutputStream();
+                        out.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    } catch (Throwable th) {
+                        error.set(th);
+                    }
+                });
+                server.start();
+
+                StringBuilder expected = new StringBuilder();
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + refusingPort
+                        + ";addr=localhost:" + serverSocket.getLocalPort()
+                        + ";protocol_version=1;auto_flush=off;request_chunk_size=1024;")
+                ) {
+                    // the first chunk fails to connect, the row that filled it is not failed
+                    for (int i = 0; i < 1000; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                        expected.append("tab x=").append(i).append("i\n");
+                        if (i == 500) {
+                            // let the chunk backoff expire, the following chunks go to the second address
+                            Thread.sleep(100);
+                        }
+                    }
+                    sender.flush();
+                    Assert.assertEquals(1, sender.metrics().getAddressRotationCount());
+                }
+                server.join();
+                Assert.assertNull(error.get());
+                Assert.assertEquals(expected.toString(), content.toString(StandardCharsets.UTF_8.name()));
+            }
+        });
+    }
+
+    @Test
+    public void testRowsAreStreamedBeforeFlush() throws Exception {
+        assertMemoryLeak(() -> {
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                final AtomicInteger chunkCount = new AtomicInteger();
+                final AtomicReference<String> header = new AtomicReference<>();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread server = new Thread(() -> {
+                    try (Socket socket = serverSocket.accept()) {
+                        InputStream in = socket.getInputStream();
+                        header.set(readHeader(in));
+                        while (readChunk(in, content) > 0) {
+                            chunkCount.incrementAndGet();
+                        }
+                        OutputStream out = socket.getOutputStream();
+                        out.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    } catch (Throwable th) {
+                        error.set(th);
+                    }
+                });
+                server.start();
+
+                StringBuilder expected = new StringBuilder();
+                try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .disableAutoFlush()
+                        .requestChunkSize(1024)
+                        .build()
+                ) {
+                    for (int i = 0; i < 1000; i++) {
+                        sender.table("tab").symbol("sym", "s" + (i % 7)).longColumn("x", i).atNow();
+                        expected.append("tab,sym=s").append(i % 7).append(" x=").append(i).append("i\n");
+                        Assert.assertTrue(sender.bufferView().size() < 1024);
+                    }
+                    sender.flush();
+                }
+                server.join();
+                Assert.assertNull(error.get());
+                TestUtils.assertContains(header.get(), "Transfer-Encoding: chunked");
+                Assert.assertTrue(chunkCount.get() > 1);
+                Assert.assertEquals(expected.toString(), content.toString(StandardCharsets.UTF_8.name()));
+            }
+        });
+    }
+
+    static int readChunk(InputStream in, ByteArrayOutputStream sink) throws IOException {
+        int size = Integer.parseInt(readLine(in), 16);
+        for (int i = 0; i < size; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("unexpected end of chunk");
+            }
+            sink.write(b);
+        }
+        Assert.assertEquals("", readLine(in));
+        return size;
+    }
+
+    static String readHeader(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            header.append(line).append('\n');
+        }
+        return header.toString();
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
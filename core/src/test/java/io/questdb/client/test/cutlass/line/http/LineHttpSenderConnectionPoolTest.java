@@ -0,0 +1,104 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.http.client.HttpConnectionPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readHeader;
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class LineHttpSenderConnectionPoolTest {
+
+    @Test
+    public void testSendersShareConnection() throws Exception {
+        assertMemoryLeak(() -> {
+            final HttpConnectionPool pool = HttpConnectionPool.getInstance();
+            final AtomicInteger connections = new AtomicInteger();
+            final ConcurrentLinkedQueue<String> bodies = new ConcurrentLinkedQueue<>();
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                Thread server = new Thread(() -> {
+                    while (true) {
+                        try (Socket socket = serverSocket.accept()) {
+                            connections.incrementAndGet();
+                            InputStream in = socket.getInputStream();
+                            OutputStream out = socket.getOutputStream();
+                            while (true) {
+                                String h = readHeader(in);
+                                int start = h.indexOf("Content-Length: ") + "Content-Length: ".length();
+                                int len = Integer.parseInt(h.substring(start, h.indexOf('\n', start)));
+                                byte[] body = new byte[len];
+                                for (int i = 0; i < len; i++) {
+                                    body[i] = (byte) in.read();
+                                }
+                                bodies.add(new String(body, StandardCharsets.UTF_8));
+                                out.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                                out.flush();
+                            }
+                        } catch (IOException e) {
+                            if (serverSocket.isClosed()) {
+                                return;
+                            }
+                        }
+                    }
+                });
+                server.start();
+
+                final String conf = "http::addr=localhost:" + serverSocket.getLocalPort() + ";protocol_version=1;connection_pool=on;";
+                for (int i = 0; i < 3; i++) {
+                    try (Sender sender = Sender.fromConfig(conf)) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                        sender.flush();
+                        sender.table("tab").longColumn("y", i).atNow();
+                    }
+                    Assert.assertEquals(1, pool.getIdleCount("localhost", serverSocket.getLocalPort()));
+                }
+                Assert.assertEquals(1, connections.get());
+                Assert.assertEquals(6, bodies.size());
+                Assert.assertEquals("tab x=2i\n", bodies.toArray()[4]);
+                Assert.assertEquals("tab y=2i\n", bodies.toArray()[5]);
+
+                // the server is waiting for the next request on the pooled connection
+                pool.close();
+                serverSocket.close();
+                server.join();
+            } finally {
+                pool.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,569 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.cutlass.http.client.HpackDecoder;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readHeader;
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+/**
+ * Runs the Sender against a minimal plaintext HTTP/2 server, which stands in for an HTTP/2 capable
+ * QuestDB or proxy.
+ */
+public class LineHttpSenderHttp2Test {
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FRAME_DATA = 0x0;
+    private static final int FRAME_GOAWAY = 0x7;
+    private static final int FRAME_HEADERS = 0x1;
+    private static final int FRAME_SETTINGS = 0x4;
+    private static final int FRAME_WINDOW_UPDATE = 0x8;
+    private static final char[] KEYSTORE_PASSWORD = "questdb".toCharArray();
+    private static final String KEYSTORE = "/keystore/server.keystore";
+    private static final String PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n";
+
+    @Test
+    public void testAutoDetectedProtocolVersion() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                server = new StandIn(serverSocket, 1, body -> "204", false);
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";http_version=2;auto_flush=off;retry_timeout=0;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    sender.table("tab").longColumn("x", 1).atNow();
+                    sender.flush();
+                    Assert.assertEquals(1, metrics.getFlushCount());
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(0, metrics.getAddressRotationCount());
+                }
+                server.stop();
+            }
+            // the probe is answered over HTTP/1.1, HTTP/2 starts on a connection of its own
+            Assert.assertEquals(1, server.probes.get());
+            Assert.assertEquals(0, server.reusedProbeConnections.get());
+            Assert.assertEquals(2, server.connections.get());
+            assertBodies(server.bodies, "tab x=1i\n");
+        });
+    }
+
+    @Test
+    public void testBatchesAreMultiplexed() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                // the server answers only once it has received three requests, and it answers them
+                // in reverse order
+                server = new StandIn(serverSocket, 3, body -> "204", false);
+                try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .httpVersion(2)
+                        .httpToken("secret")
+                        .autoFlushRows(1)
+                        .pipelineDepth(3)
+                        .httpTimeoutMillis(5_000)
+                        .retryTimeoutMillis(0)
+                        .build()
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 6; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    Assert.assertEquals(3, metrics.getFlushCount());
+                    sender.flush();
+                    Assert.assertEquals(6, metrics.getFlushCount());
+                    Assert.assertEquals(6, metrics.getRowsSent());
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(0, metrics.getReconnectCount());
+                }
+                server.stop();
+            }
+            Assert.assertEquals(1, server.connections.get());
+            assertBodies(server.bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n", "tab x=3i\n", "tab x=4i\n", "tab x=5i\n");
+
+            Assert.assertEquals(6, server.requests.size());
+            for (int i = 0; i < 6; i++) {
+                Map<String, String> request = server.requests.get(i);
+                Assert.assertEquals("POST", request.get(":method"));
+                Assert.assertEquals("/write?precision=n", request.get(":path"));
+                Assert.assertEquals("Bearer secret", request.get("authorization"));
+                Assert.assertEquals("9", request.get("content-length"));
+                Assert.assertTrue(request.get("user-agent").startsWith("QuestDB/java/"));
+            }
+            // repeated header fields are sent as references to the dynamic table
+            Assert.assertTrue(server.headerBlockSizes.get(0) > 40);
+            for (int i = 1; i < 6; i++) {
+                Assert.assertTrue(server.headerBlockSizes.get(i) < 12);
+            }
+        });
+    }
+
+    @Test
+    public void testLargeBatchIsFlowControlled() throws Exception {
+        assertMemoryLeak(() -> {
+            final StringBuilder value = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                value.append("abcdefghij");
+            }
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                server = new StandIn(serverSocket, 1, body -> "204", false);
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";protocol_version=1;http_version=2;auto_flush=off;retry_timeout=0;")
+                ) {
+                    // the batch is larger than the initial flow-control window of the connection
+                    for (int i = 0; i < 20; i++) {
+                        sender.table("tab").stringColumn("s", value).atNow();
+                    }
+                    sender.flush();
+                    Assert.assertEquals(1, sender.metrics().getFlushCount());
+                }
+                server.stop();
+            }
+            Assert.assertEquals(1, server.bodies.size());
+            final String body = server.bodies.peek();
+            Assert.assertEquals(20 * ("tab s=\"".length() + value.length() + "\"\n".length()), body.length());
+        });
+    }
+
+    @Test
+    public void testRefusedStreamsAreResent() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                // the first connection processes the first stream only, and then it goes away
+                server = new StandIn(serverSocket, 3, body -> "204", true);
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";protocol_version=1;http_version=2;auto_flush_rows=1;pipeline_depth=3;retry_timeout=10000;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 4; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    sender.flush();
+                    Assert.assertEquals(4, metrics.getFlushCount());
+                    Assert.assertEquals(4, metrics.getRowsSent());
+                    Assert.assertEquals(1, metrics.getReconnectCount());
+                    // going away is not a connection failure
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(0, metrics.getRetryCount());
+                    Assert.assertEquals(0, metrics.getAddressRotationCount());
+                }
+                server.stop();
+            }
+            Assert.assertEquals(2, server.connections.get());
+            assertBodies(server.bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n", "tab x=1i\n", "tab x=2i\n", "tab x=3i\n");
+        });
+    }
+
+    @Test
+    public void testRefusedStreamsAreResentOnClose() throws Exception {
+        assertMemoryLeak(() -> {
+            final int refusingPort;
+            try (ServerSocket closed = new ServerSocket(0)) {
+                refusingPort = closed.getLocalPort();
+            }
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                // the first connection processes the first stream only, and then it goes away
+                server = new StandIn(serverSocket, 3, body -> "204", true);
+                final SenderMetrics metrics;
+                // the streams are resent to the same address, the second one refuses connections
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";addr=localhost:" + refusingPort
+                        + ";protocol_version=1;http_version=2;auto_flush_rows=1;pipeline_depth=4;retry_timeout=10000;")
+                ) {
+                    metrics = sender.metrics();
+                    for (int i = 0; i < 4; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                }
+                server.stop();
+                Assert.assertEquals(4, metrics.getFlushCount());
+                Assert.assertEquals(0, metrics.getFailedFlushCount());
+                Assert.assertEquals(0, metrics.getAddressRotationCount());
+            }
+            Assert.assertEquals(2, server.connections.get());
+            assertBodies(server.bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n", "tab x=1i\n", "tab x=2i\n", "tab x=3i\n");
+        });
+    }
+
+    @Test
+    public void testRejectedBatchIsReported() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                server = new StandIn(serverSocket, 3, body -> body.contains("x=1i") ? "400" : "204", false);
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";protocol_version=1;http_version=2;auto_flush_rows=1;pipeline_depth=3;retry_timeout=0;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 3; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    try {
+                        sender.flush();
+                        Assert.fail();
+                    } catch (LineSenderException e) {
+                        TestUtils.assertContains(e.getMessage(), "cannot parse line");
+                    }
+                    // the batch behind the rejected one was acknowledged before the error was reported
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                    Assert.assertEquals(2, metrics.getRowsSent());
+                    sender.flush();
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                }
+                server.stop();
+            }
+            assertBodies(server.bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n");
+        });
+    }
+
+    @Test
+    public void testTlsNegotiatesHttp2() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            try (ServerSocket serverSocket = newTlsServerSocket("h2", "http/1.1")) {
+                server = new StandIn(serverSocket, 1, body -> "204", false);
+                try (Sender sender = Sender.fromConfig("https::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";tls_verify=unsafe_off;http_version=2;auto_flush=off;retry_timeout=0;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    sender.table("tab").longColumn("x", 1).atNow();
+                    sender.flush();
+                    sender.table("tab").longColumn("x", 2).atNow();
+                    sender.flush();
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(0, metrics.getAddressRotationCount());
+                }
+                server.stop();
+            }
+            // the protocol version probe does not offer ALPN, the HTTP/2 connection picks h2
+            Assert.assertEquals(1, server.probes.get());
+            Assert.assertEquals(0, server.reusedProbeConnections.get());
+            Assert.assertEquals(2, server.applicationProtocols.size());
+            Assert.assertEquals("", server.applicationProtocols.get(0));
+            Assert.assertEquals("h2", server.applicationProtocols.get(1));
+            Assert.assertEquals("https", server.requests.get(0).get(":scheme"));
+            assertBodies(server.bodies, "tab x=1i\n", "tab x=2i\n");
+        });
+    }
+
+    @Test
+    public void testTlsWithoutHttp2IsReported() throws Exception {
+        assertMemoryLeak(() -> {
+            final StandIn server;
+            // the server speaks HTTP/1.1 only, it does not take part in ALPN
+            try (ServerSocket serverSocket = newTlsServerSocket()) {
+                server = new StandIn(serverSocket, 1, body -> "204", false);
+                try (Sender sender = Sender.fromConfig("https::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";tls_verify=unsafe_off;protocol_version=1;http_version=2;auto_flush=off;retry_timeout=0;")
+                ) {
+                    sender.table("tab").longColumn("x", 1).atNow();
+                    try {
+                        sender.flush();
+                        Assert.fail();
+                    } catch (LineSenderException e) {
+                        TestUtils.assertContains(e.getMessage(), "server did not negotiate HTTP/2 via ALPN");
+                    }
+                    Assert.assertEquals(1, sender.metrics().getFailedFlushCount());
+                    sender.reset();
+                }
+                server.stop();
+            }
+            Assert.assertTrue(server.bodies.isEmpty());
+        });
+    }
+
+    private static void assertBodies(ConcurrentLinkedQueue<String> bodies, String... expected) {
+        Assert.assertArrayEquals(expected, bodies.toArray(new String[0]));
+    }
+
+    private static ServerSocket newTlsServerSocket(String... applicationProtocols) throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream in = LineHttpSenderHttp2Test.class.getResourceAsStream(KEYSTORE)) {
+            Assert.assertNotNull(in);
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+        final KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, KEYSTORE_PASSWORD);
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), null, new SecureRandom());
+        final SSLServerSocket serverSocket = (SSLServerSocket) sslContext.getServerSocketFactory().createServerSocket(0);
+        if (applicationProtocols.length > 0) {
+            final SSLParameters parameters = serverSocket.getSSLParameters();
+            parameters.setApplicationProtocols(applicationProtocols);
+            serverSocket.setSSLParameters(parameters);
+        }
+        return serverSocket;
+    }
+
+    /**
+     * HTTP/2 server that reads requests in groups of the given size and then responds to them in reverse
+     * order. Request bodies are acknowledged with WINDOW_UPDATE frame by frame. It answers the HTTP/1.1
+     * protocol version probe too, on a connection that must not be reused for HTTP/2.
+     */
+    private static final class StandIn {
+        private final List<String> applicationProtocols = Collections.synchronizedList(new ArrayList<>());
+        private final ConcurrentLinkedQueue<String> bodies = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final boolean goAwayOnFirstConnection;
+        private final int groupSize;
+        private final List<Integer> headerBlockSizes = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger probes = new AtomicInteger();
+        private final List<Map<String, String>> requests = Collections.synchronizedList(new ArrayList<>());
+        private final Function<String, String> responder;
+        private final AtomicInteger reusedProbeConnections = new AtomicInteger();
+        private final ServerSocket serverSocket;
+        private final Thread thread;
+
+        StandIn(ServerSocket serverSocket, int groupSize, Function<String, String> responder, boolean goAwayOnFirstConnection) {
+            this.serverSocket = serverSocket;
+            this.groupSize = groupSize;
+            this.responder = responder;
+            this.goAwayOnFirstConnection = goAwayOnFirstConnection;
+            this.thread = new Thread(this::run);
+            thread.start();
+        }
+
+        void stop() throws Exception {
+            serverSocket.close();
+            thread.join();
+        }
+
+        private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload) throws IOException {
+            out.write(payload.length >>> 16);
+            out.write(payload.length >>> 8);
+            out.write(payload.length);
+            out.write(type);
+            out.write(flags);
+            writeInt(out, streamId);
+            out.write(payload);
+        }
+
+        private static void writeInt(OutputStream out, int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        private static byte[] toBytes(int... values) {
+            final byte[] bytes = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                bytes[i] = (byte) values[i];
+            }
+            return bytes;
+        }
+
+        private Map<String, String> decode(HpackDecoder decoder, byte[] block) {
+            final Map<String, String> fields = new HashMap<>();
+            final long mem = Unsafe.malloc(Math.max(1, block.length), MemoryTag.NATIVE_DEFAULT);
+            try {
+                for (int i = 0; i < block.length; i++) {
+                    Unsafe.getUnsafe().putByte(mem + i, block[i]);
+                }
+                decoder.decode(mem, mem + block.length, (name, value) -> fields.put(name.toString(), value.toString()));
+            } finally {
+                Unsafe.free(mem, Math.max(1, block.length), MemoryTag.NATIVE_DEFAULT);
+            }
+            return fields;
+        }
+
+        private void answerProbe(InputStream in, OutputStream out) throws IOException {
+            probes.incrementAndGet();
+            readHeader(in);
+            final byte[] json = ("{\"config\":{\"line.proto.support.versions\":[1],\"ilp.proto.transports\":[\"tcp\",\"http\"],"
+                    + "\"cairo.max.file.name.length\":127},\"preferences.version\":0,\"preferences\":{}}").getBytes(StandardCharsets.UTF_8);
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + json.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(json);
+            out.flush();
+            // the connection is kept alive, the client must close it rather than start HTTP/2 on it
+            if (in.read() != -1) {
+                reusedProbeConnections.incrementAndGet();
+            }
+        }
+
+        private void respond(OutputStream out, int streamId, String body) throws IOException {
+            final String status = responder.apply(body);
+            if ("204".equals(status)) {
+                // indexed field of the static table
+                writeFrame(out, FRAME_HEADERS, FLAG_END_HEADERS | FLAG_END_STREAM, streamId, toBytes(0x89));
+                return;
+            }
+            final byte[] json = "{\"code\":\"invalid\",\"message\":\"cannot parse line\",\"line\":1,\"errorId\":\"a-1\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+            // literals without indexing, with names of the static table
+            block.write(0x08);
+            block.write(status.length());
+            block.write(status.getBytes(StandardCharsets.US_ASCII));
+            block.write(0x0f);
+            block.write(0x10);
+            block.write("application/json".length());
+            block.write("application/json".getBytes(StandardCharsets.US_ASCII));
+            writeFrame(out, FRAME_HEADERS, FLAG_END_HEADERS, streamId, block.toByteArray());
+            writeFrame(out, FRAME_DATA, FLAG_END_STREAM, streamId, json);
+        }
+
+        private void run() {
+            while (true) {
+                try (Socket socket = serverSocket.accept(); HpackDecoder decoder = new HpackDecoder(4096)) {
+                    serve(socket, decoder, connections.incrementAndGet());
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) {
+                        return;
+                    }
+                    // the client dropped the connection, wait for the next one
+                }
+            }
+        }
+
+        private void serve(Socket socket, HpackDecoder decoder, int connection) throws IOException {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final OutputStream out = socket.getOutputStream();
+            in.mark(4);
+            final byte[] method = new byte[4];
+            in.readFully(method);
+            if (socket instanceof SSLSocket) {
+                applicationProtocols.add(((SSLSocket) socket).getApplicationProtocol());
+            }
+            if ("GET ".equals(new String(method, StandardCharsets.US_ASCII))) {
+                answerProbe(in, out);
+                return;
+            }
+            in.reset();
+            final byte[] preface = new byte[PREFACE.length()];
+            in.readFully(preface);
+            Assert.assertEquals(PREFACE, new String(preface, StandardCharsets.US_ASCII));
+            writeFrame(out, FRAME_SETTINGS, 0, 0, toBytes(0, 3, 0, 0, 0, 100));
+            out.flush();
+
+            final Map<Integer, ByteArrayOutputStream> streams = new HashMap<>();
+            final List<Integer> completed = new ArrayList<>();
+            final List<String> completedBodies = new ArrayList<>();
+            while (true) {
+                final int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                final int type = in.readUnsignedByte();
+                final int flags = in.readUnsignedByte();
+                final int streamId = in.readInt() & Integer.MAX_VALUE;
+                final byte[] payload = new byte[length];
+                in.readFully(payload);
+                switch (type) {
+                    case FRAME_SETTINGS:
+                        if ((flags & FLAG_ACK) == 0) {
+                            writeFrame(out, FRAME_SETTINGS, FLAG_ACK, 0, new byte[0]);
+                        }
+                        break;
+                    case FRAME_HEADERS:
+                        Assert.assertTrue((flags & FLAG_END_HEADERS) != 0);
+                        headerBlockSizes.add(length);
+                        requests.add(decode(decoder, payload));
+                        streams.put(streamId, new ByteArrayOutputStream());
+                        break;
+                    case FRAME_DATA:
+                        streams.get(streamId).write(payload);
+                        if (length > 0) {
+                            final ByteArrayOutputStream increment = new ByteArrayOutputStream();
+                            writeInt(increment, length);
+                            writeFrame(out, FRAME_WINDOW_UPDATE, 0, 0, increment.toByteArray());
+                            writeFrame(out, FRAME_WINDOW_UPDATE, 0, streamId, increment.toByteArray());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                if ((type == FRAME_HEADERS || type == FRAME_DATA) && (flags & FLAG_END_STREAM) != 0) {
+                    final String body = new String(streams.remove(streamId).toByteArray(), StandardCharsets.UTF_8);
+                    bodies.add(body);
+                    completed.add(streamId);
+                    completedBodies.add(body);
+                }
+                if (completed.size() == groupSize) {
+                    if (goAwayOnFirstConnection && connection == 1) {
+                        respond(out, completed.get(0), completedBodies.get(0));
+                        final ByteArrayOutputStream goAway = new ByteArrayOutputStream();
+                        writeInt(goAway, completed.get(0));
+                        writeInt(goAway, 0);
+                        writeFrame(out, FRAME_GOAWAY, 0, 0, goAway.toByteArray());
+                        out.flush();
+                        // close gracefully, unread request frames would make the close reset the connection
+                        socket.shutdownOutput();
+                        //noinspection StatementWithEmptyBody
+                        while (in.read() != -1) {
+                        }
+                        return;
+                    }
+                    for (int i = completed.size() - 1; i > -1; i--) {
+                        respond(out, completed.get(i), completedBodies.get(i));
+                    }
+                    completed.clear();
+                    completedBodies.clear();
+                }
+                out.flush();
+            }
+        }
+    }
+}
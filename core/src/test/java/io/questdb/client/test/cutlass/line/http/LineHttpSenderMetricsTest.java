@@ -0,0 +1,172 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.SenderMetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readHeader;
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class LineHttpSenderMetricsTest {
+
+    @Test
+    public void testFlushAndRetryAreRecorded() throws Exception {
+        assertMemoryLeak(() -> {
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                Thread server = startServer(serverSocket, "503 Service Unavailable", "204 No Content", "204 No Content");
+
+                try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .disableAutoFlush()
+                        .retryTimeoutMillis(10_000)
+                        .build()
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    sender.table("tab").longColumn("x", 1).atNow();
+                    sender.table("tab").longColumn("x", 2).atNow();
+                    Assert.assertEquals(2, metrics.getRowsBuffered());
+                    final long bufferedBytes = metrics.getBytesBuffered();
+                    Assert.assertEquals(sender.bufferView().size(), bufferedBytes);
+                    Assert.assertEquals(bufferedBytes, metrics.getBufferHighWaterMark());
+
+                    sender.flush();
+                    Assert.assertEquals(1, metrics.getFlushCount());
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(1, metrics.getRetryCount());
+                    Assert.assertEquals(2, metrics.getRowsSent());
+                    Assert.assertEquals(bufferedBytes, metrics.getBytesSent());
+                    Assert.assertEquals(0, metrics.getRowsBuffered());
+                    Assert.assertEquals(0, metrics.getBytesBuffered());
+                    Assert.assertEquals(0, metrics.getTlsHandshakeCount());
+                    Assert.assertTrue(metrics.getFlushTotalNanos() >= metrics.getSendTotalNanos() + metrics.getWaitTotalNanos());
+                    Assert.assertTrue(metrics.getFlushMaxNanos() > 0);
+
+                    sender.table("tab").longColumn("x", 3).atNow();
+                    sender.flush();
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                    Assert.assertEquals(3, metrics.getRowsSent());
+                    Assert.assertEquals(1, metrics.getRetryCount());
+                    Assert.assertEquals(bufferedBytes, metrics.getBufferHighWaterMark());
+                    Assert.assertEquals(1, metrics.getReconnectCount());
+                }
+                server.join();
+            }
+        });
+    }
+
+    @Test
+    public void testMBeanRegistration() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server = startServer(serverSocket, "204 No Content");
+            try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                    .address("localhost:" + serverSocket.getLocalPort())
+                    .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                    .disableAutoFlush()
+                    .build()
+            ) {
+                ObjectName name = SenderMetricsRegistry.register(sender.metrics(), "metrics-test");
+                try {
+                    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                    Assert.assertEquals("io.questdb.client:type=Sender,name=\"metrics-test\"", name.toString());
+                    sender.table("tab").longColumn("x", 1).atNow();
+                    Assert.assertEquals(1L, mBeanServer.getAttribute(name, "RowsBuffered"));
+                    sender.flush();
+                    Assert.assertEquals(1L, mBeanServer.getAttribute(name, "RowsSent"));
+                    Assert.assertEquals(1L, mBeanServer.getAttribute(name, "FlushCount"));
+                } finally {
+                    SenderMetricsRegistry.unregister(name);
+                }
+                Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+            }
+            server.join();
+        }
+    }
+
+    private static int contentLength(String header) {
+        for (String line : header.split("\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                return Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return 0;
+    }
+
+    private static Thread startServer(ServerSocket serverSocket, String... statuses) {
+        Thread server = new Thread(() -> {
+            Socket socket = null;
+            try {
+                for (String status : statuses) {
+                    if (socket == null) {
+                        socket = serverSocket.accept();
+                    }
+                    InputStream in = socket.getInputStream();
+                    int len = contentLength(readHeader(in));
+                    for (int i = 0; i < len; i++) {
+                        if (in.read() < 0) {
+                            return;
+                        }
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    if (status.startsWith("2")) {
+                        out.write(("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    } else {
+                        // error responses are chunked, the sender reconnects before retrying
+                        out.write(("HTTP/1.1 " + status + "\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                        socket.close();
+                        socket = null;
+                    }
+                }
+            } catch (IOException ignore) {
+            } finally {
+                if (socket != null) {
+                    try {
+                        socket.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.http.client.HttpClientException;
+import io.questdb.client.std.NativePagePool;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readChunk;
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readHeader;
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class LineHttpSenderPagedTest {
+    private static final int PAGE_SIZE = 4096;
+
+    @Test
+    public void testChunkedContentSpansPages() throws Exception {
+        assertPagedRequest(true);
+    }
+
+    @Test
+    public void testContentSpansPages() throws Exception {
+        assertPagedRequest(false);
+    }
+
+    @Test
+    public void testTransactionTooLarge() throws Exception {
+        assertMemoryLeak(() -> {
+            try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                    .address("localhost:1")
+                    .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                    .disableAutoFlush()
+                    .bufferCapacity(1024)
+                    .maxBufferCapacity(64 * 1024)
+                    .requestPageSize(PAGE_SIZE)
+                    .build()
+            ) {
+                try {
+                    for (int i = 0; i < 100_000; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    Assert.fail();
+                } catch (HttpClientException e) {
+                    TestUtils.assertContains(e.getMessage(), "transaction is too large");
+                }
+                sender.reset();
+            } finally {
+                NativePagePool.getInstance(PAGE_SIZE).close();
+            }
+        });
+    }
+
+    private static void assertPagedRequest(boolean chunked) throws Exception {
+        assertMemoryLeak(() -> {
+            final NativePagePool pool = NativePagePool.getInstance(PAGE_SIZE);
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                final AtomicReference<String> header = new AtomicReference<>();
+                final AtomicReference<String> content = new AtomicReference<>();
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread server = new Thread(() -> {
+                    try (Socket socket = serverSocket.accept()) {
+                        InputStream in = socket.getInputStream();
+                        String h = readHeader(in);
+                        header.set(h);
+                        ByteArrayOutputStream body = new ByteArrayOutputStream();
+                        if (chunked) {
+                            //noinspection StatementWithEmptyBody
+                            while (readChunk(in, body) > 0) {
+                            }
+                        } else {
+                            int start = h.indexOf("Content-Length: ") + "Content-Length: ".length();
+                            int len = Integer.parseInt(h.substring(start, h.indexOf('\n', start)));
+                            for (int i = 0; i < len; i++) {
+                                body.write(in.read());
+                            }
+                        }
+                        content.set(body.toString(StandardCharsets.UTF_8.name()));
+                        OutputStream out = socket.getOutputStream();
+                        out.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    } catch (Throwable th) {
+                        error.set(th);
+                    }
+                });
+                server.start();
+
+                StringBuilder longValue = new StringBuilder();
+                for (int i = 0; i < 3 * PAGE_SIZE; i++) {
+                    longValue.append((char) ('a' + i % 26));
+                }
+                StringBuilder expected = new StringBuilder();
+                Sender.LineSenderBuilder builder = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .disableAutoFlush()
+                        .bufferCapacity(1024)
+                        .requestPageSize(PAGE_SIZE);
+                if (chunked) {
+                    builder.requestChunkSize(5 * PAGE_SIZE);
+                }
+                try (Sender sender = builder.build()) {
+                    for (int i = 0; i < 2000; i++) {
+                        sender.table("tab").symbol("sym", "s" + (i % 7)).longColumn("x", i).atNow();
+                        expected.append("tab,sym=s").append(i % 7).append(" x=").append(i).append("i\n");
+                        if (i % 500 == 0) {
+                            // value spans pages
+                            sender.table("tab").stringColumn("s", longValue).atNow();
+                            expected.append("tab s=\"").append(longValue).append("\"\n");
+                        }
+                        if (i % 300 == 0) {
+                            // cancelled row spans pages, the pages it took must be given back
+                            sender.table("tab").stringColumn("s", longValue).longColumn("x", i);
+                            sender.cancelRow();
+                        }
+                    }
+                    Assert.assertTrue(pool.getAcquiredPageCount() > 0);
+                    sender.flush();
+                    Assert.assertEquals(0, pool.getAcquiredPageCount());
+                }
+                server.join();
+                Assert.assertNull(error.get());
+                if (chunked) {
+                    TestUtils.assertContains(header.get(), "Transfer-Encoding: chunked");
+                }
+                Assert.assertEquals(expected.toString(), content.get());
+            } finally {
+                pool.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.http;
+
+import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.questdb.client.test.cutlass.line.http.LineHttpSenderChunkedTest.readHeader;
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class LineHttpSenderPipeliningTest {
+    private static final String MISDIRECTED = "HTTP/1.1 421 Misdirected Request\r\nTransfer-Encoding: chunked\r\n\r\n" +
+            "9\r\nnot here!\r\n0\r\n\r\n";
+    private static final String NO_CONTENT = "HTTP/1.1 204 No Content\r\n\r\n";
+    private static final String OK = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nok\r\n0\r\n\r\n";
+
+    @Test
+    public void testBatchesArePipelined() throws Exception {
+        assertMemoryLeak(() -> {
+            final ConcurrentLinkedQueue<String> bodies = new ConcurrentLinkedQueue<>();
+            final AtomicInteger connections = new AtomicInteger();
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                // the server answers only once it has received three requests, a client that waited
+                // for each response would time out; all three responses are written at once
+                Thread server = startServer(serverSocket, 3, bodies, connections, body -> body.contains("x=2i") ? OK : NO_CONTENT);
+
+                try (Sender sender = Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:" + serverSocket.getLocalPort())
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .autoFlushRows(1)
+                        .pipelineDepth(3)
+                        .httpTimeoutMillis(5_000)
+                        .retryTimeoutMillis(0)
+                        .build()
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 6; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    // the first three batches have been acknowledged to make room for the last three
+                    Assert.assertEquals(3, metrics.getFlushCount());
+                    sender.flush();
+                    Assert.assertEquals(6, metrics.getFlushCount());
+                    Assert.assertEquals(6, metrics.getRowsSent());
+                    Assert.assertEquals(0, metrics.getFailedFlushCount());
+                    Assert.assertEquals(0, metrics.getReconnectCount());
+                }
+                serverSocket.close();
+                server.join();
+            }
+            Assert.assertEquals(1, connections.get());
+            assertBodies(bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n", "tab x=3i\n", "tab x=4i\n", "tab x=5i\n");
+        });
+    }
+
+    @Test
+    public void testFailedBatchesAreResentInOrder() throws Exception {
+        assertMemoryLeak(() -> {
+            final ConcurrentLinkedQueue<String> bodiesA = new ConcurrentLinkedQueue<>();
+            final ConcurrentLinkedQueue<String> bodiesB = new ConcurrentLinkedQueue<>();
+            final AtomicInteger connections = new AtomicInteger();
+            try (ServerSocket serverSocketA = new ServerSocket(0); ServerSocket serverSocketB = new ServerSocket(0)) {
+                // A is not the primary for two of the batches, the batch in between is written by A
+                Thread serverA = startServer(serverSocketA, 1, bodiesA, connections, body -> body.contains("x=1i") ? NO_CONTENT : MISDIRECTED);
+                Thread serverB = startServer(serverSocketB, 1, bodiesB, connections, body -> NO_CONTENT);
+
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocketA.getLocalPort()
+                        + ";addr=localhost:" + serverSocketB.getLocalPort()
+                        + ";protocol_version=1;auto_flush_rows=1;pipeline_depth=4;retry_timeout=10000;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 3; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    sender.flush();
+                    Assert.assertEquals(3, metrics.getFlushCount());
+                    Assert.assertEquals(3, metrics.getRowsSent());
+                    Assert.assertEquals(1, metrics.getAddressRotationCount());
+                    Assert.assertEquals(1, metrics.getRetryCount());
+                    Assert.assertEquals(1, metrics.getReconnectCount());
+                }
+                serverSocketA.close();
+                serverSocketB.close();
+                serverA.join();
+                serverB.join();
+            }
+            assertBodies(bodiesA, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n");
+            assertBodies(bodiesB, "tab x=0i\n", "tab x=2i\n");
+        });
+    }
+
+    @Test
+    public void testRejectedBatchIsReported() throws Exception {
+        assertMemoryLeak(() -> {
+            final ConcurrentLinkedQueue<String> bodies = new ConcurrentLinkedQueue<>();
+            final AtomicInteger connections = new AtomicInteger();
+            final String json = "{\"code\":\"invalid\",\"message\":\"cannot parse line\",\"line\":1,\"errorId\":\"a-1\"}";
+            final String badRequest = "HTTP/1.1 400 Bad Request\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + Integer.toHexString(json.length()) + "\r\n" + json + "\r\n0\r\n\r\n";
+            try (ServerSocket serverSocket = new ServerSocket(0)) {
+                Thread server = startServer(serverSocket, 1, bodies, connections, body -> body.contains("x=1i") ? badRequest : NO_CONTENT);
+
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + serverSocket.getLocalPort()
+                        + ";protocol_version=1;auto_flush_rows=1;pipeline_depth=3;retry_timeout=0;")
+                ) {
+                    SenderMetrics metrics = sender.metrics();
+                    for (int i = 0; i < 3; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    try {
+                        sender.flush();
+                        Assert.fail();
+                    } catch (LineSenderException e) {
+                        TestUtils.assertContains(e.getMessage(), "cannot parse line");
+                    }
+                    // the batch behind the rejected one was acknowledged before the error was reported
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                    Assert.assertEquals(2, metrics.getRowsSent());
+                    sender.flush();
+                    Assert.assertEquals(2, metrics.getFlushCount());
+                }
+                serverSocket.close();
+                server.join();
+            }
+            assertBodies(bodies, "tab x=0i\n", "tab x=1i\n", "tab x=2i\n");
+        });
+    }
+
+    private static void assertBodies(ConcurrentLinkedQueue<String> bodies, String... expected) {
+        Assert.assertArrayEquals(expected, bodies.toArray(new String[0]));
+    }
+
+    /**
+     * Starts a server that reads requests in groups of the given size and then writes their responses
+     * in a single write, in order.
+     */
+    private static Thread startServer(
+            ServerSocket serverSocket,
+            int groupSize,
+            ConcurrentLinkedQueue<String> bodies,
+            AtomicInteger connections,
+            Function<String, String> responder
+    ) {
+        Thread server = new Thread(() -> {
+            while (true) {
+                try (Socket socket = serverSocket.accept()) {
+                    connections.incrementAndGet();
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    final List<String> responses = new ArrayList<>();
+                    while (true) {
+                        String header = readHeader(in);
+                        int start = header.indexOf("Content-Length: ") + "Content-Length: ".length();
+                        int len = Integer.parseInt(header.substring(start, header.indexOf('\n', start)).trim());
+                        byte[] body = new byte[len];
+                        for (int i = 0; i < len; i++) {
+                            body[i] = (byte) in.read();
+                        }
+                        String bodyStr = new String(body, StandardCharsets.UTF_8);
+                        bodies.add(bodyStr);
+                        responses.add(responder.apply(bodyStr));
+                        if (responses.size() == groupSize) {
+                            out.write(String.join("", responses).getBytes(StandardCharsets.US_ASCII));
+                            out.flush();
+                            responses.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    if (serverSocket.isClosed()) {
+                        return;
+                    }
+                    // the client dropped the connection, wait for the next one
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+}
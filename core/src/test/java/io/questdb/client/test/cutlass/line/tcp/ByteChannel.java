@@ -110,4 +110,10 @@ public class ByteChannel implements LineChannel {
         }
         pos += len;
     }
+
+    public byte[] toByteArray() {
+        byte[] data = new byte[pos];
+        System.arraycopy(buffer, 0, data, 0, pos);
+        return data;
+    }
 }
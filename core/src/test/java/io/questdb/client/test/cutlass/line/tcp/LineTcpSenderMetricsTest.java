@@ -0,0 +1,114 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.tcp;
+
+import io.questdb.client.Sender;
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.cutlass.line.LineTcpSenderV2;
+import io.questdb.client.std.Unsafe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.spec.ECGenParameterSpec;
+
+public class LineTcpSenderMetricsTest {
+
+    @Test
+    public void testAuthHandshakeIsNotRecorded() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        PrivateKey privateKey = generator.generateKeyPair().getPrivate();
+        ByteChannel channel = new ByteChannel() {
+            @Override
+            public int receive(long ptr, int len) {
+                byte[] challenge = "challenge\n".getBytes(StandardCharsets.US_ASCII);
+                for (int i = 0; i < challenge.length; i++) {
+                    Unsafe.getUnsafe().putByte(ptr + i, challenge[i]);
+                }
+                return challenge.length;
+            }
+        };
+        try (LineTcpSenderV2 sender = new LineTcpSenderV2(channel, 1000, 127)) {
+            sender.authenticate("testUser", privateKey);
+            SenderMetrics metrics = sender.metrics();
+            Assert.assertEquals(0, metrics.getFlushCount());
+            Assert.assertEquals(0, metrics.getBytesSent());
+
+            sender.table("tab").longColumn("x", 1).atNow();
+            final long bufferedBytes = metrics.getBytesBuffered();
+            sender.flush();
+            Assert.assertEquals(1, metrics.getFlushCount());
+            Assert.assertEquals(1, metrics.getRowsSent());
+            Assert.assertEquals(bufferedBytes, metrics.getBytesSent());
+        }
+    }
+
+    @Test
+    public void testFlushIsRecorded() {
+        ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV2(channel, 1000, 127)) {
+            SenderMetrics metrics = sender.metrics();
+            sender.table("tab").longColumn("x", 1).atNow();
+            sender.table("tab").longColumn("x", 2).atNow();
+            Assert.assertEquals(2, metrics.getRowsBuffered());
+            final long bufferedBytes = metrics.getBytesBuffered();
+            Assert.assertEquals(sender.bufferView().size(), bufferedBytes);
+
+            sender.flush();
+            Assert.assertEquals(1, metrics.getFlushCount());
+            Assert.assertEquals(2, metrics.getRowsSent());
+            Assert.assertEquals(bufferedBytes, metrics.getBytesSent());
+            Assert.assertEquals(0, metrics.getRowsBuffered());
+            Assert.assertEquals(0, metrics.getBytesBuffered());
+            Assert.assertEquals(bufferedBytes, metrics.getBufferHighWaterMark());
+            Assert.assertEquals(0, metrics.getWaitTotalNanos());
+            Assert.assertEquals(0, metrics.getReconnectCount());
+            Assert.assertEquals(0, metrics.getTlsHandshakeCount());
+
+            // flushing an empty buffer is not recorded
+            sender.flush();
+            Assert.assertEquals(1, metrics.getFlushCount());
+        }
+    }
+
+    @Test
+    public void testOverflowSendIsRecorded() {
+        ByteChannel channel = new ByteChannel();
+        try (Sender sender = new LineTcpSenderV2(channel, 64, 127)) {
+            SenderMetrics metrics = sender.metrics();
+            for (int i = 0; i < 10; i++) {
+                sender.table("tab").longColumn("x", i).atNow();
+            }
+            Assert.assertTrue(metrics.getFlushCount() > 0);
+            sender.flush();
+            Assert.assertEquals(10, metrics.getRowsSent());
+            Assert.assertEquals(0, metrics.getFailedFlushCount());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.cutlass.line.udp;
+
+import io.questdb.client.SenderMetrics;
+import io.questdb.client.cutlass.line.LineUdpSender;
+import io.questdb.client.std.Numbers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineUdpSenderMetricsTest {
+
+    @Test
+    public void testRowInProgressStaysBuffered() throws Exception {
+        final int localhost = Numbers.parseIPv4("127.0.0.1");
+        try (LineUdpSender sender = new LineUdpSender(localhost, localhost, 9009, 64, 1)) {
+            SenderMetrics metrics = sender.metrics();
+            for (int i = 0; metrics.getFlushCount() == 0; i++) {
+                sender.table("tab").longColumn("x", i);
+                if (metrics.getFlushCount() > 0) {
+                    // the completed rows are sent, the row in progress is kept
+                    Assert.assertEquals(0, metrics.getRowsBuffered());
+                    Assert.assertTrue(metrics.getBytesBuffered() > 0);
+                    Assert.assertTrue(metrics.getBytesBuffered() <= sender.bufferView().size());
+                }
+                sender.atNow();
+            }
+            Assert.assertEquals(1, metrics.getRowsBuffered());
+            Assert.assertEquals(sender.bufferView().size(), metrics.getBytesBuffered());
+        }
+    }
+}
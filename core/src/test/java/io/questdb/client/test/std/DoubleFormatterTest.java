@@ -0,0 +1,186 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.std;
+
+import io.questdb.client.std.DoubleFormatter;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Numbers;
+import io.questdb.client.std.NumericException;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.fastdouble.FastDoubleParser;
+import io.questdb.client.std.str.StringSink;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+public class DoubleFormatterTest {
+    private final StringSink sink = new StringSink();
+    private long mem;
+
+    @Before
+    public void setUp() {
+        mem = Unsafe.malloc(DoubleFormatter.MAX_CHARS, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    @After
+    public void tearDown() {
+        Unsafe.free(mem, DoubleFormatter.MAX_CHARS, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    @Test
+    public void testHandPicked() {
+        assertFormat("0.0", 0.0);
+        assertFormat("-0.0", -0.0);
+        assertFormat("NaN", Double.NaN);
+        assertFormat("Infinity", Double.POSITIVE_INFINITY);
+        assertFormat("-Infinity", Double.NEGATIVE_INFINITY);
+        assertFormat("1.0", 1.0);
+        assertFormat("-1.5", -1.5);
+        assertFormat("100.0", 100.0);
+        assertFormat("1234567.0", 1234567.0);
+        assertFormat("1.0E7", 1.0E7);
+        assertFormat("1.2345678E7", 12345678.0);
+        assertFormat("0.1", 0.1);
+        assertFormat("0.30000000000000004", 0.1 + 0.2);
+        assertFormat("0.001", 0.001);
+        assertFormat("0.00123", 0.00123);
+        assertFormat("1.0E-4", 1.0E-4);
+        assertFormat("1.2345E-5", 1.2345E-5);
+        assertFormat("3.141592653589793", Math.PI);
+        assertFormat("123.456", 123.456);
+        assertFormat("9.007199254740992E15", 9007199254740992.0);
+        assertFormat("1.0E23", 1.0E23);
+        assertFormat("0.002", 2.0E-3);
+        assertFormat("2.82879384806159E17", 2.82879384806159E17);
+        assertFormat("4.9E-324", Double.MIN_VALUE);
+        assertFormat("9.9E-324", 2 * Double.MIN_VALUE);
+        assertFormat("2.2250738585072014E-308", Double.MIN_NORMAL);
+        assertFormat("1.7976931348623157E308", Double.MAX_VALUE);
+        assertFormat("-2.2250738585072014E-308", -Double.MIN_NORMAL);
+    }
+
+    @Test
+    public void testMatchesNumbersAppendLayout() {
+        // where the existing formatter already produces shortest digits, both must agree byte for byte
+        final Rnd rnd = TestUtils.generateRandom(null);
+        for (int i = 0; i < 100_000; i++) {
+            double value = (rnd.nextLong() % 1_000_000_000L) / Math.pow(10, rnd.nextInt(12));
+            sink.clear();
+            Numbers.append(sink, value);
+            String formatted = format(value);
+            Assert.assertTrue(formatted.length() <= sink.length());
+            if (formatted.length() == sink.length()) {
+                TestUtils.assertEquals(sink, formatted);
+            }
+        }
+    }
+
+    @Test
+    public void testPowersOfTwoAndTen() throws NumericException {
+        for (int e = -1074; e <= 1023; e++) {
+            assertRoundTripAndShortest(Math.scalb(1.0, e));
+        }
+        for (int e = -323; e <= 308; e++) {
+            assertRoundTripAndShortest(Double.parseDouble("1e" + e));
+        }
+    }
+
+    @Test
+    public void testRandomBitsRoundTrip() throws NumericException {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        for (int i = 0; i < 1_000_000; i++) {
+            double value = Double.longBitsToDouble(rnd.nextLong());
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            String formatted = format(value);
+            Assert.assertEquals(formatted, value, FastDoubleParser.parseDouble(formatted, false), 0.0);
+            Assert.assertEquals(formatted, Double.doubleToRawLongBits(value), Double.doubleToRawLongBits(Double.parseDouble(formatted)));
+        }
+    }
+
+    @Test
+    public void testRandomShortest() throws NumericException {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        for (int i = 0; i < 50_000; i++) {
+            double value = Double.longBitsToDouble(rnd.nextLong());
+            if (Double.isFinite(value)) {
+                assertRoundTripAndShortest(value);
+            }
+            // short decimals, the common case for sensor data and prices
+            assertRoundTripAndShortest(rnd.nextInt(1_000_000) / 1000.0);
+        }
+    }
+
+    @Test
+    public void testSubnormals() throws NumericException {
+        for (long bits = 1; bits < 10_000; bits++) {
+            assertRoundTripAndShortest(Double.longBitsToDouble(bits));
+        }
+        for (long bits = 0x000fffffffffffffL; bits > 0x000fffffffffffffL - 10_000; bits--) {
+            assertRoundTripAndShortest(Double.longBitsToDouble(bits));
+        }
+    }
+
+    private void assertFormat(String expected, double value) {
+        Assert.assertEquals(expected, format(value));
+    }
+
+    private void assertRoundTripAndShortest(double value) throws NumericException {
+        final String formatted = format(value);
+        Assert.assertEquals(formatted, value, FastDoubleParser.parseDouble(formatted, false), 0.0);
+        Assert.assertEquals(formatted, value, Double.parseDouble(formatted), 0.0);
+
+        final BigDecimal exact = new BigDecimal(value);
+        final int digits = new BigDecimal(formatted).stripTrailingZeros().precision();
+        if (digits > 2) {
+            // no decimal with fewer significant digits may round to the same double, as with
+            // Double.toString() two digits count as the shortest, e.g. 4.9E-324 rather than 5.0E-324
+            final MathContext mc = new MathContext(digits - 1, RoundingMode.FLOOR);
+            final BigDecimal down = exact.round(mc);
+            final BigDecimal up = exact.round(new MathContext(digits - 1, RoundingMode.CEILING));
+            Assert.assertNotEquals(formatted, value, down.doubleValue(), 0.0);
+            Assert.assertNotEquals(formatted, value, up.doubleValue(), 0.0);
+        }
+    }
+
+    private String format(double value) {
+        final long hi = DoubleFormatter.append(mem, value);
+        Assert.assertTrue(hi - mem <= DoubleFormatter.MAX_CHARS);
+        final StringBuilder b = new StringBuilder();
+        for (long p = mem; p < hi; p++) {
+            b.append((char) Unsafe.getUnsafe().getByte(p));
+        }
+        return b.toString();
+    }
+}
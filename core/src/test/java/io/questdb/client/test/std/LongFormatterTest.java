@@ -0,0 +1,129 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.std;
+
+import io.questdb.client.std.LongFormatter;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LongFormatterTest {
+    private long mem;
+
+    @Before
+    public void setUp() {
+        mem = Unsafe.malloc(LongFormatter.MAX_CHARS, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    @After
+    public void tearDown() {
+        Unsafe.free(mem, LongFormatter.MAX_CHARS, MemoryTag.NATIVE_DEFAULT);
+    }
+
+    @Test
+    public void testDigitCount() {
+        Assert.assertEquals(1, LongFormatter.digitCount(0));
+        long pow = 1;
+        for (int digits = 1; digits < 19; digits++) {
+            Assert.assertEquals(digits, LongFormatter.digitCount(pow));
+            Assert.assertEquals(digits, LongFormatter.digitCount(pow * 10 - 1));
+            pow *= 10;
+        }
+        Assert.assertEquals(19, LongFormatter.digitCount(pow));
+        Assert.assertEquals(19, LongFormatter.digitCount(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testEdgeValues() {
+        assertFormat(0);
+        assertFormat(-1);
+        assertFormat(Long.MAX_VALUE);
+        assertFormat(Long.MIN_VALUE);
+        assertFormat(Long.MIN_VALUE + 1);
+        assertFormat(Integer.MAX_VALUE);
+        assertFormat(Integer.MAX_VALUE + 1L);
+        assertFormat(Integer.MIN_VALUE);
+        long pow = 1;
+        for (int i = 0; i < 19; i++) {
+            assertFormat(pow);
+            assertFormat(pow - 1);
+            assertFormat(-pow);
+            pow *= 10;
+        }
+    }
+
+    @Test
+    public void testPutDigitsDropsHighOrderDigits() {
+        LongFormatter.putDigits(mem, 4_294_967_306L, 1);
+        Assert.assertEquals("6", read(mem + 1));
+        LongFormatter.putDigits(mem, 4_294_967_306L, 2);
+        Assert.assertEquals("06", read(mem + 2));
+        LongFormatter.putDigits(mem, 4_294_967_306L, 3);
+        Assert.assertEquals("306", read(mem + 3));
+        LongFormatter.putDigits(mem, Long.MAX_VALUE, 1);
+        Assert.assertEquals("7", read(mem + 1));
+        LongFormatter.putDigits(mem, Long.MAX_VALUE, 4);
+        Assert.assertEquals("5807", read(mem + 4));
+        LongFormatter.putDigits(mem, 123, 0);
+    }
+
+    @Test
+    public void testPutDigitsPadsWithZeros() {
+        LongFormatter.putDigits(mem, 42, 5);
+        Assert.assertEquals("00042", read(mem + 5));
+        LongFormatter.putDigits(mem, 0, 3);
+        Assert.assertEquals("000", read(mem + 3));
+        LongFormatter.putDigits(mem, 123456789012L, 12);
+        Assert.assertEquals("123456789012", read(mem + 12));
+    }
+
+    @Test
+    public void testRandom() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        for (int i = 0; i < 1_000_000; i++) {
+            assertFormat(rnd.nextLong() >> rnd.nextInt(64));
+        }
+    }
+
+    private void assertFormat(long value) {
+        final long hi = LongFormatter.append(mem, value);
+        Assert.assertTrue(hi - mem <= LongFormatter.MAX_CHARS);
+        Assert.assertEquals(Long.toString(value), read(hi));
+    }
+
+    private String read(long hi) {
+        final StringBuilder b = new StringBuilder();
+        for (long p = mem; p < hi; p++) {
+            b.append((char) Unsafe.getUnsafe().getByte(p));
+        }
+        return b.toString();
+    }
+}
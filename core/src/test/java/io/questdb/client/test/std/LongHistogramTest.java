@@ -0,0 +1,212 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.std;
+
+import io.questdb.client.cairo.CairoException;
+import io.questdb.client.std.LongHistogram;
+import io.questdb.client.std.Rnd;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+
+public class LongHistogramTest {
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LongHistogram histogram = new LongHistogram();
+        final LongHistogram drained = new LongHistogram();
+        final LongHistogram snapshot = new LongHistogram();
+        final int threadCount = 4;
+        final int valuesPerThread = 100_000;
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+        final Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int i = 1; i <= valuesPerThread; i++) {
+                        histogram.record(i);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[t].start();
+        }
+        barrier.await();
+        // drain concurrently with recording, no value may be lost
+        for (int i = 0; i < 100; i++) {
+            histogram.snapshotAndReset(snapshot);
+            drained.add(snapshot);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        histogram.snapshotAndReset(snapshot);
+        drained.add(snapshot);
+
+        Assert.assertEquals((long) threadCount * valuesPerThread, drained.getCount());
+        Assert.assertEquals(threadCount * ((long) valuesPerThread * (valuesPerThread + 1) / 2), drained.getSum());
+        Assert.assertEquals(1, drained.getMin());
+        Assert.assertEquals(valuesPerThread, drained.getMax());
+        Assert.assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void testEmpty() {
+        LongHistogram histogram = new LongHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getMean(), 0);
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testExactBelowPrecision() {
+        LongHistogram histogram = new LongHistogram(5);
+        for (int i = 0; i < 32; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(32, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(0));
+        Assert.assertEquals(15, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(31, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testExtremeValues() {
+        LongHistogram histogram = new LongHistogram();
+        histogram.record(-10);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getMax());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new LongHistogram(0);
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), "histogram precision is out of range");
+        }
+        try {
+            new LongHistogram(3).add(new LongHistogram(4));
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), "histogram precision mismatch [expected=3, actual=4]");
+        }
+        try {
+            new LongHistogram().getValueAtPercentile(100.5);
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getFlyweightMessage(), "percentile is out of range");
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        LongHistogram a = new LongHistogram();
+        LongHistogram b = new LongHistogram();
+        for (int i = 1; i <= 500; i++) {
+            a.record(i * 1000L);
+            b.record((i + 500) * 1000L);
+        }
+        a.add(b);
+        Assert.assertEquals(1000, a.getCount());
+        Assert.assertEquals(1000, a.getMin());
+        Assert.assertEquals(1_000_000, a.getMax());
+        assertWithinPrecision(500_000, a.getValueAtPercentile(50), 5);
+        Assert.assertEquals(500, b.getCount());
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        final Rnd rnd = TestUtils.generateRandom(null);
+        for (int precisionBits = 1; precisionBits <= 10; precisionBits++) {
+            LongHistogram histogram = new LongHistogram(precisionBits);
+            final int n = 10_000;
+            final long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = rnd.nextPositiveLong() >>> rnd.nextInt(60);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9, 100}) {
+                long expected = values[(int) Math.ceil(percentile / 100 * n) - 1];
+                assertWithinPrecision(expected, histogram.getValueAtPercentile(percentile), precisionBits);
+            }
+            Assert.assertEquals(values[0], histogram.getMin());
+            Assert.assertEquals(values[n - 1], histogram.getMax());
+        }
+    }
+
+    @Test
+    public void testRecordTimes() {
+        LongHistogram histogram = new LongHistogram();
+        histogram.record(100, 9);
+        histogram.record(10_000, 1);
+        histogram.record(5, 0);
+        Assert.assertEquals(10, histogram.getCount());
+        Assert.assertEquals(10_900, histogram.getSum());
+        Assert.assertEquals(1090, histogram.getMean(), 0.0001);
+        assertWithinPrecision(100, histogram.getValueAtPercentile(90), 5);
+        Assert.assertEquals(10_000, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSnapshotAndClear() {
+        LongHistogram histogram = new LongHistogram();
+        LongHistogram snapshot = new LongHistogram();
+        histogram.record(42);
+        histogram.record(4200);
+        histogram.snapshot(snapshot);
+        Assert.assertEquals(2, snapshot.getCount());
+        Assert.assertEquals(42, snapshot.getMin());
+        Assert.assertEquals(4200, snapshot.getMax());
+        Assert.assertEquals(2, histogram.getCount());
+
+        histogram.clear();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(100));
+        Assert.assertEquals(2, snapshot.getCount());
+        histogram.snapshotAndReset(snapshot);
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMax());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual, int precisionBits) {
+        // reported values may only round up, to the top of the bucket
+        Assert.assertTrue("expected=" + expected + ", actual=" + actual, actual >= expected);
+        Assert.assertTrue("expected=" + expected + ", actual=" + actual, actual - expected <= expected >> precisionBits);
+    }
+}
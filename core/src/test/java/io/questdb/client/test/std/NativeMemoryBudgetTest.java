@@ -0,0 +1,183 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.test.std;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cairo.CairoException;
+import io.questdb.client.cutlass.line.LineTcpSenderV2;
+import io.questdb.client.std.NativeMemoryBudget;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.cutlass.line.tcp.ByteChannel;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class NativeMemoryBudgetTest {
+
+    @Test
+    public void testAcquireBlocksUntilReleased() throws Exception {
+        final NativeMemoryBudget budget = new NativeMemoryBudget();
+        budget.setLimit(100);
+        budget.acquire(80);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                started.countDown();
+                budget.acquire(50);
+            } catch (Throwable th) {
+                error.set(th);
+            }
+        });
+        thread.start();
+        started.await();
+        while (budget.getWaitingThreads() == 0) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(80, budget.getUsed());
+
+        budget.release(80);
+        thread.join();
+        Assert.assertNull(error.get());
+        Assert.assertEquals(50, budget.getUsed());
+        Assert.assertEquals(1, budget.getWaitCount());
+        Assert.assertEquals(0, budget.getTimeoutCount());
+        Assert.assertTrue(budget.getTotalWaitNanos() > 0);
+        Assert.assertEquals(budget.getTotalWaitNanos(), budget.getMaxWaitNanos());
+
+        budget.release(50);
+        Assert.assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void testAcquireTimesOut() {
+        final NativeMemoryBudget budget = new NativeMemoryBudget();
+        budget.setLimit(100);
+        budget.setWaitTimeoutMillis(10);
+        budget.acquire(60);
+        try {
+            budget.acquire(60);
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getMessage(), "timed out waiting for native memory budget [size=60, used=60, limit=100, timeoutMillis=10]");
+        }
+        Assert.assertEquals(60, budget.getUsed());
+        Assert.assertEquals(1, budget.getWaitCount());
+        Assert.assertEquals(1, budget.getTimeoutCount());
+
+        budget.resetStats();
+        Assert.assertEquals(0, budget.getWaitCount());
+        Assert.assertEquals(0, budget.getTimeoutCount());
+        Assert.assertEquals(0, budget.getTotalWaitNanos());
+    }
+
+    @Test
+    public void testAllocationLargerThanLimit() {
+        final NativeMemoryBudget budget = new NativeMemoryBudget();
+        budget.setLimit(100);
+        try {
+            budget.acquire(101);
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getMessage(), "allocation exceeds native memory budget [size=101, limit=100]");
+        }
+        // does not wait
+        Assert.assertEquals(0, budget.getWaitCount());
+    }
+
+    @Test
+    public void testLineSenderReleasesBudgetWhenAllocationFails() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final NativeMemoryBudget budget = NativeMemoryBudget.INSTANCE;
+            final long usedBefore = budget.getUsed();
+            final int capacity = 64 * 1024;
+            // the first buffer fits, the second one does not
+            Unsafe.setRssMemLimit(Unsafe.getRssMemUsed() + capacity + capacity / 2);
+            try {
+                new LineTcpSenderV2(new ByteChannel(), capacity, 127).close();
+                Assert.fail();
+            } catch (CairoException e) {
+                TestUtils.assertContains(e.getMessage(), "global RSS memory limit exceeded");
+            } finally {
+                Unsafe.setRssMemLimit(0);
+            }
+            Assert.assertEquals(usedBefore, budget.getUsed());
+        });
+    }
+
+    @Test
+    public void testRaisingLimitWakesUpWaiters() throws Exception {
+        final NativeMemoryBudget budget = new NativeMemoryBudget();
+        budget.setLimit(100);
+        budget.acquire(100);
+        Thread thread = new Thread(() -> budget.acquire(100));
+        thread.start();
+        while (budget.getWaitingThreads() == 0) {
+            Thread.sleep(1);
+        }
+        budget.setLimit(0);
+        thread.join();
+        Assert.assertEquals(200, budget.getUsed());
+    }
+
+    @Test
+    public void testSenderBuffersAreBudgeted() throws Exception {
+        TestUtils.assertMemoryLeak(() -> {
+            final NativeMemoryBudget budget = NativeMemoryBudget.INSTANCE;
+            final long usedBefore = budget.getUsed();
+            try (Sender ignore = Sender.builder(Sender.Transport.HTTP)
+                    .address("localhost:1")
+                    .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                    .bufferCapacity(128 * 1024)
+                    .build()
+            ) {
+                Assert.assertTrue(budget.getUsed() >= usedBefore + 128 * 1024);
+            }
+            Assert.assertEquals(usedBefore, budget.getUsed());
+
+            budget.setLimit(usedBefore + 64 * 1024);
+            budget.setWaitTimeoutMillis(10);
+            try {
+                Sender.builder(Sender.Transport.HTTP)
+                        .address("localhost:1")
+                        .protocolVersion(Sender.PROTOCOL_VERSION_V1)
+                        .bufferCapacity(128 * 1024)
+                        .build()
+                        .close();
+                Assert.fail();
+            } catch (CairoException e) {
+                TestUtils.assertContains(e.getMessage(), "native memory budget");
+            } finally {
+                budget.setLimit(0);
+                budget.setWaitTimeoutMillis(NativeMemoryBudget.DEFAULT_WAIT_TIMEOUT_MILLIS);
+            }
+            Assert.assertEquals(usedBefore, budget.getUsed());
+        });
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+package io.questdb.client.test.std;
+
+import io.questdb.client.cairo.CairoException;
+import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.NativeMemoryBudget;
+import io.questdb.client.std.NativePagePool;
+import io.questdb.client.std.Unsafe;
+import io.questdb.client.test.tools.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.questdb.client.test.tools.TestUtils.assertMemoryLeak;
+
+public class NativePagePoolTest {
+
+    @Test
+    public void testIdlePagesAreBudgeted() throws Exception {
+        assertMemoryLeak(() -> {
+            final NativeMemoryBudget budget = new NativeMemoryBudget();
+            budget.setLimit(2 * 4096);
+            budget.setWaitTimeoutMillis(10_000);
+            try (NativePagePool pool = new NativePagePool(4096, 2, MemoryTag.NATIVE_DEFAULT, budget)) {
+                long p1 = pool.acquire();
+                long p2 = pool.acquire();
+                Assert.assertEquals(2 * 4096, budget.getUsed());
+
+                // idle pages are still allocated, so they remain charged
+                pool.release(p1);
+                Assert.assertEquals(1, pool.getIdlePageCount());
+                Assert.assertEquals(2 * 4096, budget.getUsed());
+                Assert.assertEquals(p1, pool.acquire());
+
+                // a page released while another thread waits for the budget is freed
+                final AtomicReference<Throwable> error = new AtomicReference<>();
+                Thread thread = new Thread(() -> {
+                    try {
+                        budget.acquire(4096);
+                    } catch (Throwable th) {
+                        error.set(th);
+                    }
+                });
+                thread.start();
+                while (budget.getWaitingThreads() == 0) {
+                    Thread.sleep(1);
+                }
+                pool.release(p2);
+                thread.join();
+                Assert.assertNull(error.get());
+                Assert.assertEquals(0, pool.getIdlePageCount());
+                budget.release(4096);
+
+                pool.release(p1);
+                Assert.assertEquals(4096, budget.getUsed());
+            }
+            Assert.assertEquals(0, budget.getUsed());
+        });
+    }
+
+    @Test
+    public void testIdlePagesAreBounded() throws Exception {
+        assertMemoryLeak(() -> {
+            try (NativePagePool pool = new NativePagePool(4096, 2, MemoryTag.NATIVE_DEFAULT)) {
+                long memBefore = Unsafe.getMemUsedByTag(MemoryTag.NATIVE_DEFAULT);
+                long p1 = pool.acquire();
+                long p2 = pool.acquire();
+                long p3 = pool.acquire();
+                Assert.assertEquals(3, pool.getAcquiredPageCount());
+                Assert.assertEquals(memBefore + 3 * 4096, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_DEFAULT));
+
+                pool.release(p1);
+                pool.release(p2);
+                pool.release(p3);
+                Assert.assertEquals(0, pool.getAcquiredPageCount());
+                Assert.assertEquals(2, pool.getIdlePageCount());
+                // the page over the idle limit is freed straight away
+                Assert.assertEquals(memBefore + 2 * 4096, Unsafe.getMemUsedByTag(MemoryTag.NATIVE_DEFAULT));
+            }
+        });
+    }
+
+    @Test
+    public void testInvalidPageSize() {
+        assertInvalidPageSize(0);
+        assertInvalidPageSize(1024);
+        assertInvalidPageSize(4097);
+        assertInvalidPageSize(32 * 1024 * 1024);
+    }
+
+    @Test
+    public void testPagesAreReused() throws Exception {
+        assertMemoryLeak(() -> {
+            try (NativePagePool pool = new NativePagePool(8192, 16, MemoryTag.NATIVE_DEFAULT)) {
+                Assert.assertEquals(8192, pool.getPageSize());
+                long p1 = pool.acquire();
+                long p2 = pool.acquire();
+                Assert.assertNotEquals(p1, p2);
+                // pages are writable end to end
+                Unsafe.getUnsafe().setMemory(p1, 8192, (byte) 1);
+                Unsafe.getUnsafe().setMemory(p2, 8192, (byte) 2);
+
+                pool.release(p2);
+                Assert.assertEquals(1, pool.getIdlePageCount());
+                Assert.assertEquals(p2, pool.acquire());
+                Assert.assertEquals(0, pool.getIdlePageCount());
+
+                pool.release(p1);
+                pool.release(p2);
+                Assert.assertEquals(2, pool.getIdlePageCount());
+            }
+        });
+    }
+
+    @Test
+    public void testSharedInstance() {
+        NativePagePool pool = NativePagePool.getInstance(64 * 1024);
+        Assert.assertSame(pool, NativePagePool.getInstance(64 * 1024));
+        Assert.assertNotSame(pool, NativePagePool.getInstance(128 * 1024));
+        Assert.assertEquals(64 * 1024, pool.getPageSize());
+    }
+
+    private static void assertInvalidPageSize(int pageSize) {
+        try {
+            new NativePagePool(pageSize, 1, MemoryTag.NATIVE_DEFAULT);
+            Assert.fail();
+        } catch (CairoException e) {
+            TestUtils.assertContains(e.getMessage(), "invalid page size [pageSize=" + pageSize);
+        }
+    }
+}
@@ -27,7 +27,9 @@ package io.questdb.client.test.std.str;
 import io.questdb.client.cairo.CairoException;
 import io.questdb.client.std.Files;
 import io.questdb.client.std.MemoryTag;
+import io.questdb.client.std.Rnd;
 import io.questdb.client.std.Unsafe;
+import io.questdb.client.std.str.ByteArrayUtf8String;
 import io.questdb.client.std.str.DirectUtf8String;
 import io.questdb.client.std.str.StringSink;
 import io.questdb.client.std.str.Utf16Sink;
@@ -250,6 +252,80 @@ public class Utf8sTest {
         Assert.assertEquals(text, query.toString());
     }
 
+    @Test
+    public void testStrCpyAsciiUnescaped() {
+        final long escapeMask = 1L << ' ' | 1L << ',' | 1L << '\n';
+        final long mem = Unsafe.malloc(64, MemoryTag.NATIVE_DEFAULT);
+        try {
+            final Rnd rnd = TestUtils.generateRandom(null);
+            final String alphabet = "abcXYZ0189@[]^_~?!\"\t";
+            final String specials = " ,\n\\é";
+            for (int i = 0; i < 100_000; i++) {
+                final StringBuilder b = new StringBuilder();
+                final int len = rnd.nextInt(40);
+                for (int j = 0; j < len; j++) {
+                    b.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+                }
+                final int special = rnd.nextInt(len + 1);
+                if (special < len) {
+                    b.setCharAt(special, specials.charAt(rnd.nextInt(specials.length())));
+                }
+                final String s = b.toString();
+                final int lo = rnd.nextInt(len + 1);
+                final int stop = Utf8s.strCpyAsciiUnescaped(s, lo, len, mem, escapeMask);
+                final int expectedStop = special >= lo && special < len ? special : len;
+                Assert.assertEquals(s, expectedStop, stop);
+                for (int j = lo; j < stop; j++) {
+                    Assert.assertEquals(s.charAt(j), (char) Unsafe.getUnsafe().getByte(mem + j - lo));
+                }
+            }
+        } finally {
+            Unsafe.free(mem, 64, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    @Test
+    public void testStrCpyUnescaped() {
+        final long escapeMask = 1L << ' ' | 1L << ',' | 1L << '\n';
+        final long mem = Unsafe.malloc(128, MemoryTag.NATIVE_DEFAULT);
+        final ByteArrayUtf8String flyweight = new ByteArrayUtf8String();
+        try {
+            final Rnd rnd = TestUtils.generateRandom(null);
+            final String alphabet = "abcXYZ0189@[]^_~?!\"\té中";
+            final String specials = " ,\n\\";
+            for (int i = 0; i < 100_000; i++) {
+                final StringBuilder b = new StringBuilder();
+                final int len = rnd.nextInt(40);
+                for (int j = 0; j < len; j++) {
+                    b.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+                }
+                final int special = rnd.nextInt(len + 1);
+                if (special < len) {
+                    b.setCharAt(special, specials.charAt(rnd.nextInt(specials.length())));
+                }
+                final byte[] bytes = b.toString().getBytes(StandardCharsets.UTF_8);
+                final int size = bytes.length;
+                final int expectedStop = special < len ? b.substring(0, special).getBytes(StandardCharsets.UTF_8).length : size;
+                final int lo = rnd.nextInt(expectedStop + 1);
+                final int stop = Utf8s.strCpyUnescaped(flyweight.of(bytes), lo, size, mem, escapeMask);
+                Assert.assertEquals(b.toString(), expectedStop, stop);
+                for (int j = lo; j < stop; j++) {
+                    Assert.assertEquals(bytes[j], Unsafe.getUnsafe().getByte(mem + j - lo));
+                }
+            }
+        } finally {
+            Unsafe.free(mem, 128, MemoryTag.NATIVE_DEFAULT);
+        }
+    }
+
+    @Test
+    public void testUtf16Length() {
+        final String[] values = {"", "abc", "é", "中文", "😀", "a😀b中", "﻿"};
+        for (String value : values) {
+            Assert.assertEquals(value, value.length(), Utf8s.utf16Length(new Utf8String(value)));
+        }
+    }
+
     @Test
     public void testUtf8Support() {
         StringBuilder expected = new StringBuilder();
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.tools;
+
+import io.questdb.client.Sender;
+import io.questdb.client.cutlass.line.LineSenderException;
+import io.questdb.client.cutlass.line.LineUdpSender;
+import io.questdb.client.cutlass.line.http.LineHttpSenderV3;
+import io.questdb.client.cutlass.line.http.LineHttpSenderV4;
+import io.questdb.client.std.Decimal64;
+import io.questdb.client.std.Numbers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+public class IlpSinkServerTest {
+    // self-signed certificate for localhost and 127.0.0.1, valid for 100 years, generated with keytool
+    private static final String KEYSTORE = "/keystore/server.keystore";
+    private static final char[] KEYSTORE_PASSWORD = "questdb".toCharArray();
+
+    @Test
+    public void testBinaryV2() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";protocol_version=2;auto_flush=off;request_chunk_size=1024;")) {
+                double[][] matrix = {{1.0, 10.0}, {2.5, 13.0}, {Double.NaN, 2.0}};
+                for (int i = 0; i < 1000; i++) {
+                    sender.table("tab")
+                            .symbol("sym", "a\\nb")
+                            .doubleColumn("d", Double.longBitsToDouble(0x0a0a0a0a0a0a0a0aL + i))
+                            .stringColumn("s", "multi\nline \"quoted\"")
+                            .doubleArray("arr", matrix)
+                            .atNow();
+                }
+                sender.flush();
+            }
+            assertRowCountEventually(sink, 1000);
+            Assert.assertEquals(0, sink.getErrorCount());
+        }
+    }
+
+    @Test
+    public void testBinaryV3() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().http(false, 0).start()) {
+            try (Sender sender = Sender.fromConfig("tcp::addr=localhost:" + sink.getTcpPort() + ";protocol_version=3;")) {
+                for (int i = 0; i < 1000; i++) {
+                    sender.table("tab")
+                            .decimalColumn("dec", new Decimal64(0x0a0a + i, 2))
+                            .longArray("arr", new long[]{10, 10, i})
+                            .doubleColumn("d", 10.0)
+                            .atNow();
+                }
+            }
+            assertRowCountEventually(sink, 1000);
+            Assert.assertEquals(0, sink.getErrorCount());
+        }
+    }
+
+    @Test
+    public void testBinaryV4Negotiated() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().protocolVersions(1, 2, 3, 4).start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;")) {
+                Assert.assertTrue(sender instanceof LineHttpSenderV4);
+                for (int i = 0; i < 1000; i++) {
+                    // line terminators and spaces in binary values must not frame rows
+                    sender.table("tab")
+                            .longColumn("l", 0x0a0a0a0a20202020L + i)
+                            .timestampColumn("ts", 0x0a0a0a0a0a0a0a0aL + i, ChronoUnit.NANOS)
+                            .intColumn("i", 0x0a0a0a0a)
+                            .floatColumn("f", Float.intBitsToFloat(0x20202020))
+                            .uuidColumn("u", 0x0a0a0a0a0a0a0a0aL, i)
+                            .long256Column("l", i, 0x0a0a0a0a0a0a0a0aL, 0x2020202020202020L, i)
+                            .ipv4Column("ip", 0x0a200a20)
+                            .geoHashColumn("g", 15, 0x0a0a)
+                            .at(0x0a0a0a0a0a0a0a0aL + i, ChronoUnit.MICROS);
+                }
+                sender.flush();
+            }
+            assertRowCountEventually(sink, 1000);
+            Assert.assertEquals(0, sink.getErrorCount());
+        }
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;")) {
+                Assert.assertTrue(sender instanceof LineHttpSenderV3);
+            }
+        }
+    }
+
+    @Test
+    public void testDecoderFragments() {
+        byte[] payload = ("t,s=a\\ b x=1i,y=\"a\\\"\nb\" 100\n" +
+                "t x=\"\n\"\n" +
+                "\n" +
+                "t 100\n" +
+                "t y=2.0\n").getBytes(StandardCharsets.UTF_8);
+        IlpStreamDecoder decoder = new IlpStreamDecoder();
+        for (int i = 0; i < payload.length; i++) {
+            decoder.update(payload, i, i + 1);
+        }
+        Assert.assertEquals(3, decoder.getPendingRows());
+        Assert.assertEquals(1, decoder.getErrorCount());
+        Assert.assertEquals(1, decoder.drainErrorCount());
+        Assert.assertEquals(0, decoder.drainErrorCount());
+        Assert.assertEquals(3, decoder.commit());
+        Assert.assertEquals(0, decoder.getPendingRows());
+        Assert.assertEquals(3, decoder.getCommittedRows());
+
+        // binary double whose bytes contain a line terminator, followed by an unknown binary type
+        byte[] binary = {'t', ' ', 'd', '=', '=', 16, '\n', '\n', '\n', '\n', '\n', '\n', '\n', '\n', '\n', 't', ' ', 'x', '=', '=', 99, '\n', 't', ' ', 'x', '=', '1', '\n'};
+        decoder.update(binary, 0, binary.length);
+        Assert.assertEquals(2, decoder.getPendingRows());
+        Assert.assertEquals(2, decoder.getErrorCount());
+        decoder.rollback();
+        Assert.assertEquals(0, decoder.getPendingRows());
+    }
+
+    @Test
+    public void testDisconnectedRequestIsRetried() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;retry_timeout=10000;")) {
+                sink.disconnectRequests(1);
+                sender.table("tab").longColumn("x", 1).atNow();
+                sender.flush();
+            }
+            assertRowCountEventually(sink, 1);
+            Assert.assertEquals(1, sink.getRejectedRequestCount());
+            Assert.assertEquals(1, sink.getRequestCount());
+            Assert.assertEquals(2, sink.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void testHttpChunkedRequests() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";protocol_version=1;auto_flush=off;request_chunk_size=4096;")) {
+                for (int i = 0; i < 10_000; i++) {
+                    sender.table("tab").symbol("sym", "s" + (i % 10)).longColumn("x", i).atNow();
+                }
+                sender.flush();
+            }
+            assertRowCountEventually(sink, 10_000);
+            Assert.assertEquals(1, sink.getRequestCount());
+        }
+    }
+
+    @Test
+    public void testHttpKeepAlive() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;")) {
+                for (int i = 0; i < 5; i++) {
+                    sender.table("tab").stringColumn("s", "x").longColumn("x", i).atNow();
+                    sender.flush();
+                }
+            }
+            // /settings is requested over the same connection as the writes
+            Assert.assertEquals(1, sink.getConnectionCount());
+            Assert.assertEquals(5, sink.getRequestCount());
+            assertRowCountEventually(sink, 5);
+        }
+    }
+
+    @Test
+    public void testNonRetryableError() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;")) {
+                sink.failRequests(1, 400);
+                sender.table("tab").longColumn("x", 1).atNow();
+                try {
+                    sender.flush();
+                    Assert.fail();
+                } catch (LineSenderException e) {
+                    Assert.assertTrue(e.getMessage(), e.getMessage().contains("injected failure"));
+                }
+                sender.table("tab").longColumn("x", 2).atNow();
+                sender.flush();
+            }
+            Assert.assertEquals(1, sink.getRejectedRequestCount());
+            // rows of the failed flush stay buffered and go out with the next one
+            assertRowCountEventually(sink, 2);
+        }
+    }
+
+    @Test
+    public void testResponseDelay() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().start()) {
+            try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;")) {
+                sink.setResponseDelayMillis(200);
+                sender.table("tab").longColumn("x", 1).atNow();
+                long start = System.nanoTime();
+                sender.flush();
+                Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            }
+            assertRowCountEventually(sink, 1);
+        }
+    }
+
+    @Test
+    public void testRetryableErrors() throws Exception {
+        for (int status : new int[]{421, 500, 503}) {
+            try (IlpSinkServer sink = new IlpSinkServer().start()) {
+                try (Sender sender = Sender.fromConfig("http::addr=localhost:" + sink.getHttpPort() + ";auto_flush=off;retry_timeout=10000;")) {
+                    sink.failRequests(2, status);
+                    for (int i = 0; i < 10; i++) {
+                        sender.table("tab").longColumn("x", i).atNow();
+                    }
+                    sender.flush();
+                }
+                Assert.assertEquals(2, sink.getRejectedRequestCount());
+                Assert.assertEquals(1, sink.getRequestCount());
+                assertRowCountEventually(sink, 10);
+            }
+        }
+    }
+
+    @Test
+    public void testTcp() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().http(false, 0).start()) {
+            try (Sender sender = Sender.fromConfig("tcp::addr=localhost:" + sink.getTcpPort() + ";")) {
+                for (int i = 0; i < 1000; i++) {
+                    sender.table("tab").longColumn("x", i).atNow();
+                }
+            }
+            assertRowCountEventually(sink, 1000);
+            Assert.assertEquals(0, sink.getHttpPort());
+        }
+    }
+
+    @Test
+    public void testTls() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().tls(KEYSTORE, KEYSTORE_PASSWORD).start()) {
+            try (Sender sender = Sender.fromConfig("https::addr=localhost:" + sink.getHttpPort() + ";tls_verify=unsafe_off;auto_flush=off;")) {
+                for (int i = 0; i < 100; i++) {
+                    sender.table("tab").longColumn("x", i).atNow();
+                }
+                sender.flush();
+            }
+            try (Sender sender = Sender.fromConfig("tcps::addr=localhost:" + sink.getTcpPort() + ";tls_verify=unsafe_off;")) {
+                for (int i = 0; i < 100; i++) {
+                    sender.table("tab").longColumn("x", i).atNow();
+                }
+            }
+            assertRowCountEventually(sink, 200);
+        }
+    }
+
+    @Test
+    public void testUdp() throws Exception {
+        try (IlpSinkServer sink = new IlpSinkServer().http(false, 0).tcp(false, 0).udp(true, 0).start()) {
+            int localhost = Numbers.parseIPv4("127.0.0.1");
+            try (LineUdpSender sender = new LineUdpSender(localhost, localhost, sink.getUdpPort(), 1024, 1)) {
+                for (int i = 0; i < 100; i++) {
+                    sender.table("tab").longColumn("x", i).atNow();
+                    // stay within the socket receive buffer
+                    sender.flush();
+                }
+            }
+            assertRowCountEventually(sink, 100);
+        }
+    }
+
+    private static void assertRowCountEventually(IlpSinkServer sink, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sink.getRowCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, sink.getRowCount());
+    }
+}
@@ -0,0 +1,542 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.tools;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process ILP receiver for tests and benchmarks. It accepts ILP over HTTP ({@code /write} and
+ * {@code /settings}, with keep-alive and chunked request bodies), TCP and UDP on localhost, optionally with TLS,
+ * and counts received rows and bytes without storing them, so a client can be exercised without a QuestDB server.
+ * Payloads are decoded by {@link IlpStreamDecoder}, which understands text and binary (V2/V3) encodings.
+ * <p>
+ * Faults can be injected at runtime to exercise client retries: error responses ({@link #failRequests(int, int)}),
+ * response latency ({@link #setResponseDelayMillis(long)}) and dropped connections ({@link #disconnectRequests(int)},
+ * {@link #disconnectConnections()}).
+ * <p>
+ * Connections are served by a thread each, using blocking sockets. Ports default to 0, which binds
+ * an ephemeral port, use {@link #getHttpPort()}, {@link #getTcpPort()} and {@link #getUdpPort()} to find them
+ * after {@link #start()}.
+ */
+public class IlpSinkServer implements Closeable {
+    private final AtomicLong byteCount = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final Set<Socket> connections = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicInteger disconnectsRemaining = new AtomicInteger();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+    private final AtomicLong rejectedRequestCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rowCount = new AtomicLong();
+    private volatile int failureStatus;
+    private boolean httpEnabled = true;
+    private int httpPort;
+    private ServerSocket httpServerSocket;
+    private char[] keystorePassword;
+    private String keystoreResource;
+    private String protocolVersions = "1,2,3";
+    private volatile long responseDelayMillis;
+    private volatile boolean running;
+    private boolean tcpEnabled = true;
+    private int tcpPort;
+    private ServerSocket tcpServerSocket;
+    private boolean udpEnabled;
+    private int udpPort;
+    private DatagramSocket udpSocket;
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(httpServerSocket);
+        closeQuietly(tcpServerSocket);
+        if (udpSocket != null) {
+            udpSocket.close();
+        }
+        disconnectConnections();
+    }
+
+    /**
+     * Closes all currently open HTTP and TCP connections. The server keeps accepting new ones.
+     */
+    public void disconnectConnections() {
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        connections.clear();
+    }
+
+    /**
+     * Makes the next {@code count} {@code /write} requests close the connection after the request body
+     * is read, without sending a response. Rows of these requests are not counted.
+     */
+    public IlpSinkServer disconnectRequests(int count) {
+        disconnectsRemaining.set(count);
+        return this;
+    }
+
+    /**
+     * Makes the next {@code count} {@code /write} requests fail with the given HTTP status, e.g. 400, 421,
+     * 500 or 503. The response carries a JSON error body, as QuestDB sends. Rows of failed requests are not counted.
+     */
+    public IlpSinkServer failRequests(int count, int status) {
+        failureStatus = status;
+        failuresRemaining.set(count);
+        return this;
+    }
+
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return number of malformed rows, e.g. rows without fields or with unknown binary value types
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public int getHttpPort() {
+        return httpServerSocket != null ? httpServerSocket.getLocalPort() : httpPort;
+    }
+
+    /**
+     * @return number of {@code /write} requests that were failed or disconnected by fault injection
+     */
+    public long getRejectedRequestCount() {
+        return rejectedRequestCount.get();
+    }
+
+    /**
+     * @return number of completed HTTP requests to {@code /write}
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return number of well-formed rows received, excluding rows of rejected HTTP requests
+     */
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public int getTcpPort() {
+        return tcpServerSocket != null ? tcpServerSocket.getLocalPort() : tcpPort;
+    }
+
+    public int getUdpPort() {
+        return udpSocket != null ? udpSocket.getLocalPort() : udpPort;
+    }
+
+    public IlpSinkServer http(boolean enabled, int port) {
+        this.httpEnabled = enabled;
+        this.httpPort = port;
+        return this;
+    }
+
+    /**
+     * Sets the line protocol versions advertised by {@code /settings}, 1 to 3 by default.
+     */
+    public IlpSinkServer protocolVersions(int... versions) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < versions.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(versions[i]);
+        }
+        this.protocolVersions = sb.toString();
+        return this;
+    }
+
+    /**
+     * Delays every HTTP response by the given number of milliseconds, 0 disables the delay.
+     */
+    public IlpSinkServer setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+        return this;
+    }
+
+    public IlpSinkServer start() {
+        try {
+            running = true;
+            final SSLServerSocketFactory tlsFactory = keystoreResource != null ? createTlsFactory() : null;
+            if (httpEnabled) {
+                httpServerSocket = createServerSocket(tlsFactory, httpPort);
+                startAcceptor(httpServerSocket, "ilp-sink-http", this::serveHttp);
+            }
+            if (tcpEnabled) {
+                tcpServerSocket = createServerSocket(tlsFactory, tcpPort);
+                startAcceptor(tcpServerSocket, "ilp-sink-tcp", this::serveTcp);
+            }
+            if (udpEnabled) {
+                udpSocket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), udpPort));
+                Thread receiver = new Thread(this::serveUdp, "ilp-sink-udp");
+                receiver.setDaemon(true);
+                receiver.start();
+            }
+            return this;
+        } catch (IOException | GeneralSecurityException e) {
+            close();
+            throw new RuntimeException("could not start ILP sink", e);
+        }
+    }
+
+    public IlpSinkServer tcp(boolean enabled, int port) {
+        this.tcpEnabled = enabled;
+        this.tcpPort = port;
+        return this;
+    }
+
+    /**
+     * Enables TLS on the HTTP and TCP listeners, using a keystore loaded from the classpath.
+     */
+    public IlpSinkServer tls(String keystoreResource, char[] keystorePassword) {
+        this.keystoreResource = keystoreResource;
+        this.keystorePassword = keystorePassword;
+        return this;
+    }
+
+    public IlpSinkServer udp(boolean enabled, int port) {
+        this.udpEnabled = enabled;
+        this.udpPort = port;
+        return this;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static ServerSocket createServerSocket(SSLServerSocketFactory tlsFactory, int port) throws IOException {
+        if (tlsFactory != null) {
+            return tlsFactory.createServerSocket(port, 64, InetAddress.getLoopbackAddress());
+        }
+        return new ServerSocket(port, 64, InetAddress.getLoopbackAddress());
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                throw new IOException("unexpected end of stream");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 400:
+                return "Bad request";
+            case 421:
+                return "Misdirected Request";
+            case 500:
+                return "Internal Server Error";
+            case 503:
+                return "Service Unavailable";
+            default:
+                return "Error";
+        }
+    }
+
+    private static void writeErrorResponse(OutputStream out, int status) throws IOException {
+        // the client expects error responses to be chunked
+        byte[] body = ("{\"code\":\"sink\",\"message\":\"injected failure\",\"line\":1,\"errorId\":\"sink-" + status + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 " + status + ' ' + reasonPhrase(status) + "\r\n" +
+                "Content-Type: application/json; charset=utf-8\r\n" +
+                "Transfer-Encoding: chunked\r\n\r\n" +
+                Integer.toHexString(body.length) + "\r\n";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void writeResponse(OutputStream out, String status, String contentType, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder header = new StringBuilder();
+        header.append("HTTP/1.1 ").append(status).append("\r\n");
+        if (contentType != null) {
+            header.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        header.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+        out.write(header.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+    }
+
+    private void commit(IlpStreamDecoder decoder) {
+        rowCount.addAndGet(decoder.commit());
+        errorCount.addAndGet(decoder.drainErrorCount());
+    }
+
+    private void consume(InputStream in, long len, byte[] buf, IlpStreamDecoder decoder) throws IOException {
+        while (len > 0) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, len));
+            if (n < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            byteCount.addAndGet(n);
+            decoder.update(buf, 0, n);
+            len -= n;
+        }
+    }
+
+    private SSLServerSocketFactory createTlsFactory() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream in = IlpSinkServer.class.getResourceAsStream(keystoreResource)) {
+            if (in == null) {
+                throw new IOException("keystore not found: " + keystoreResource);
+            }
+            keyStore.load(in, keystorePassword);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, keystorePassword);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), null, new SecureRandom());
+        return sslContext.getServerSocketFactory();
+    }
+
+    private void delayResponse() {
+        long delay = responseDelayMillis;
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void readChunkedBody(InputStream in, byte[] buf, IlpStreamDecoder decoder) throws IOException {
+        while (true) {
+            String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new IOException("unexpected end of stream");
+            }
+            int ext = sizeLine.indexOf(';');
+            long size = Long.parseLong((ext < 0 ? sizeLine : sizeLine.substring(0, ext)).trim(), 16);
+            if (size == 0) {
+                // trailers, if any, end with an empty line
+                String trailer;
+                while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                    // ignore
+                }
+                return;
+            }
+            consume(in, size, buf, decoder);
+            readLine(in);
+        }
+    }
+
+    private void serveHttp(Socket socket) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        OutputStream out = socket.getOutputStream();
+        byte[] buf = new byte[64 * 1024];
+        IlpStreamDecoder decoder = new IlpStreamDecoder();
+        while (running) {
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return;
+            }
+            long contentLength = 0;
+            boolean chunked = false;
+            boolean keepAlive = true;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    contentLength = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = !value.equalsIgnoreCase("close");
+                }
+            }
+
+            String[] parts = requestLine.split(" ");
+            String path = parts.length > 1 ? parts[1] : "";
+            int query = path.indexOf('?');
+            if (query > -1) {
+                path = path.substring(0, query);
+            }
+
+            if (path.equals("/write") || path.equals("/api/v2/write")) {
+                if (chunked) {
+                    readChunkedBody(in, buf, decoder);
+                } else {
+                    consume(in, contentLength, buf, decoder);
+                }
+                delayResponse();
+                if (takeFault(disconnectsRemaining)) {
+                    rejectedRequestCount.incrementAndGet();
+                    decoder.rollback();
+                    return;
+                }
+                if (takeFault(failuresRemaining)) {
+                    rejectedRequestCount.incrementAndGet();
+                    decoder.rollback();
+                    writeErrorResponse(out, failureStatus);
+                } else {
+                    commit(decoder);
+                    requestCount.incrementAndGet();
+                    out.write("HTTP/1.1 204 No Content\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            } else if (path.equals("/settings")) {
+                delayResponse();
+                writeResponse(out, "200 OK", "application/json", "{\"config\":{\"release.type\":\"OSS\",\"release.version\":\"sink\"," +
+                        "\"line.proto.support.versions\":[" + protocolVersions + "],\"ilp.proto.transports\":[\"tcp\",\"http\"]," +
+                        "\"cairo.max.file.name.length\":127},\"preferences.version\":0,\"preferences\":{}}");
+            } else {
+                writeResponse(out, "404 Not Found", "text/plain", "not found");
+            }
+            if (!keepAlive) {
+                return;
+            }
+        }
+    }
+
+    private void serveTcp(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        byte[] buf = new byte[64 * 1024];
+        IlpStreamDecoder decoder = new IlpStreamDecoder();
+        int n;
+        while (running && (n = in.read(buf)) > -1) {
+            byteCount.addAndGet(n);
+            decoder.update(buf, 0, n);
+            commit(decoder);
+        }
+    }
+
+    private void serveUdp() {
+        byte[] buf = new byte[64 * 1024];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        IlpStreamDecoder decoder = new IlpStreamDecoder();
+        while (running) {
+            try {
+                udpSocket.receive(packet);
+            } catch (IOException e) {
+                // closed
+                return;
+            }
+            byteCount.addAndGet(packet.getLength());
+            decoder.update(buf, 0, packet.getLength());
+            commit(decoder);
+        }
+    }
+
+    private void startAcceptor(ServerSocket serverSocket, String name, ConnectionHandler handler) {
+        Thread acceptor = new Thread(() -> {
+            while (running) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    // closed
+                    return;
+                }
+                connectionCount.incrementAndGet();
+                connections.add(socket);
+                Thread worker = new Thread(() -> {
+                    try {
+                        socket.setTcpNoDelay(true);
+                        handler.serve(socket);
+                    } catch (IOException ignore) {
+                        // peer disconnected
+                    } finally {
+                        connections.remove(socket);
+                        closeQuietly(socket);
+                    }
+                }, name + "-conn");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }, name);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private boolean takeFault(AtomicInteger remaining) {
+        int n;
+        do {
+            n = remaining.get();
+            if (n <= 0) {
+                return false;
+            }
+        } while (!remaining.compareAndSet(n, n - 1));
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionHandler {
+        void serve(Socket socket) throws IOException;
+    }
+}
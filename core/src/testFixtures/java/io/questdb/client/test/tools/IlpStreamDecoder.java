@@ -0,0 +1,337 @@
+/*******************************************************************************
+ *     ___                  _   ____  ____
+ *    / _ \ _   _  ___  ___| |_|  _ \| __ )
+ *   | | | | | | |/ _ \/ __| __| | | |  _ \
+ *   | |_| | |_| |  __/\__ \ |_| |_| | |_) |
+ *    \__\_\\__,_|\___||___/\__|____/|____/
+ *
+ *  Copyright (c) 2014-2019 Appsicle
+ *  Copyright (c) 2019-2026 QuestDB
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package io.questdb.client.test.tools;
+
+/**
+ * Incremental ILP row counter for text and binary (protocol V2 to V4) payloads. Bytes can be fed in arbitrary
+ * fragments, the decoder keeps enough state to resume mid-token: backslash escapes, quoted strings and
+ * binary field values are skipped, so only real line terminators count as rows.
+ * <p>
+ * Decoded rows are pending until {@link #commit()}, which lets HTTP callers count rows only for requests
+ * that were accepted. Not thread-safe, use one instance per connection.
+ */
+public class IlpStreamDecoder {
+    // binary field value types, see EntityTypes
+    private static final int BINARY_ARRAY = 14;
+    private static final int BINARY_DECIMAL = 23;
+    private static final int BINARY_DOUBLE = 16;
+    private static final int BINARY_FLOAT = 2;
+    private static final int BINARY_GEOBYTE = 9;
+    private static final int BINARY_GEOINT = 11;
+    private static final int BINARY_GEOLONG = 12;
+    private static final int BINARY_GEOSHORT = 10;
+    private static final int BINARY_INTEGER = 3;
+    private static final int BINARY_IPV4 = 24;
+    private static final int BINARY_LONG = 15;
+    private static final int BINARY_LONG256 = 7;
+    private static final int BINARY_TIMESTAMP = 13;
+    private static final int BINARY_UUID = 21;
+    // array element types, see ColumnType
+    private static final int ELEM_DOUBLE = 10;
+    private static final int ELEM_LONG = 6;
+    private static final int SECTION_FIELDS = 1;
+    private static final int SECTION_TABLE = 0;
+    private static final int SECTION_TIMESTAMP = 2;
+    private static final int STATE_AFTER_EQUALS = 2;
+    private static final int STATE_ARRAY_DIMS = 7;
+    private static final int STATE_ARRAY_ELEM_TYPE = 6;
+    private static final int STATE_ARRAY_SHAPE = 8;
+    private static final int STATE_BINARY_TYPE = 5;
+    private static final int STATE_DECIMAL_LENGTH = 10;
+    private static final int STATE_DECIMAL_SCALE = 9;
+    private static final int STATE_DESIGNATED_TYPE = 13;
+    private static final int STATE_ESCAPE = 1;
+    private static final int STATE_GEOHASH_BITS = 15;
+    private static final int STATE_SKIP = 11;
+    private static final int STATE_SKIP_LINE = 12;
+    private static final int STATE_STRING = 3;
+    private static final int STATE_STRING_ESCAPE = 4;
+    private static final int STATE_TEXT = 0;
+    private static final int STATE_TIMESTAMP_UNIT = 14;
+    private long arrayElements;
+    private int arrayShapeBytes;
+    private int arrayShapeValue;
+    private int geoHashSize;
+    private long committedRows;
+    private long drainedErrorCount;
+    private long errorCount;
+    private boolean hasFields;
+    private boolean lineEmpty = true;
+    private long pendingRows;
+    private int section;
+    private long skip;
+    private int state;
+
+    /**
+     * Moves pending rows to the committed count.
+     *
+     * @return number of rows committed by this call
+     */
+    public long commit() {
+        long rows = pendingRows;
+        committedRows += rows;
+        pendingRows = 0;
+        return rows;
+    }
+
+    /**
+     * @return number of malformed rows seen since the previous call
+     */
+    public long drainErrorCount() {
+        long errors = errorCount - drainedErrorCount;
+        drainedErrorCount = errorCount;
+        return errors;
+    }
+
+    public long getCommittedRows() {
+        return committedRows;
+    }
+
+    /**
+     * @return number of malformed rows seen so far, e.g. rows with no fields or with unknown binary types
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getPendingRows() {
+        return pendingRows;
+    }
+
+    /**
+     * Drops pending rows and resets the parser to the start of a line, e.g. after a rejected request.
+     */
+    public void rollback() {
+        pendingRows = 0;
+        resetLine();
+    }
+
+    public void update(byte[] buf, int lo, int hi) {
+        int i = lo;
+        while (i < hi) {
+            final int b = buf[i] & 0xff;
+            switch (state) {
+                case STATE_SKIP: {
+                    long n = Math.min(skip, hi - i);
+                    skip -= n;
+                    i += (int) n;
+                    if (skip == 0) {
+                        state = STATE_TEXT;
+                    }
+                    continue;
+                }
+                case STATE_TEXT:
+                    text(b);
+                    break;
+                case STATE_ESCAPE:
+                    state = STATE_TEXT;
+                    break;
+                case STATE_AFTER_EQUALS:
+                    if (b == '=') {
+                        state = STATE_BINARY_TYPE;
+                    } else if (b == '"') {
+                        state = STATE_STRING;
+                    } else {
+                        state = STATE_TEXT;
+                        text(b);
+                    }
+                    break;
+                case STATE_STRING:
+                    if (b == '\\') {
+                        state = STATE_STRING_ESCAPE;
+                    } else if (b == '"') {
+                        state = STATE_TEXT;
+                    }
+                    break;
+                case STATE_STRING_ESCAPE:
+                    state = STATE_STRING;
+                    break;
+                case STATE_BINARY_TYPE:
+                    binaryType(b);
+                    break;
+                case STATE_ARRAY_ELEM_TYPE:
+                    if (b == ELEM_DOUBLE || b == ELEM_LONG) {
+                        state = STATE_ARRAY_DIMS;
+                    } else {
+                        malformed(b);
+                    }
+                    break;
+                case STATE_ARRAY_DIMS:
+                    arrayElements = 1;
+                    arrayShapeBytes = 0;
+                    arrayShapeValue = 0;
+                    if (b == 0) {
+                        state = STATE_TEXT;
+                    } else {
+                        arrayShapeBytes = b * Integer.BYTES;
+                        state = STATE_ARRAY_SHAPE;
+                    }
+                    break;
+                case STATE_ARRAY_SHAPE:
+                    // little-endian int per dimension
+                    arrayShapeValue |= b << (8 * ((Integer.BYTES - arrayShapeBytes % Integer.BYTES) % Integer.BYTES));
+                    if (--arrayShapeBytes % Integer.BYTES == 0) {
+                        arrayElements *= arrayShapeValue;
+                        arrayShapeValue = 0;
+                        if (arrayShapeBytes == 0) {
+                            skip(arrayElements * Long.BYTES);
+                        }
+                    }
+                    break;
+                case STATE_DECIMAL_SCALE:
+                    state = STATE_DECIMAL_LENGTH;
+                    break;
+                case STATE_DECIMAL_LENGTH:
+                    skip(b);
+                    break;
+                case STATE_DESIGNATED_TYPE:
+                    if (b == BINARY_TIMESTAMP) {
+                        state = STATE_TIMESTAMP_UNIT;
+                    } else {
+                        malformed(b);
+                    }
+                    break;
+                case STATE_GEOHASH_BITS:
+                    skip(geoHashSize);
+                    break;
+                case STATE_TIMESTAMP_UNIT:
+                    if (b == 'n' || b == 't') {
+                        skip(Long.BYTES);
+                    } else {
+                        malformed(b);
+                    }
+                    break;
+                case STATE_SKIP_LINE:
+                    if (b == '\n') {
+                        resetLine();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unexpected state: " + state);
+            }
+            i++;
+        }
+    }
+
+    private void binaryType(int b) {
+        switch (b) {
+            case BINARY_DOUBLE:
+                skip(Double.BYTES);
+                break;
+            case BINARY_ARRAY:
+                state = STATE_ARRAY_ELEM_TYPE;
+                break;
+            case BINARY_DECIMAL:
+                state = STATE_DECIMAL_SCALE;
+                break;
+            case BINARY_LONG:
+                skip(Long.BYTES);
+                break;
+            case BINARY_INTEGER:
+            case BINARY_FLOAT:
+            case BINARY_IPV4:
+                skip(Integer.BYTES);
+                break;
+            case BINARY_UUID:
+                skip(2 * Long.BYTES);
+                break;
+            case BINARY_LONG256:
+                skip(4 * Long.BYTES);
+                break;
+            case BINARY_GEOBYTE:
+            case BINARY_GEOSHORT:
+            case BINARY_GEOINT:
+            case BINARY_GEOLONG:
+                geoHashSize = 1 << (b - BINARY_GEOBYTE);
+                state = STATE_GEOHASH_BITS;
+                break;
+            case BINARY_TIMESTAMP:
+                state = STATE_TIMESTAMP_UNIT;
+                break;
+            default:
+                malformed(b);
+        }
+    }
+
+    private void malformed(int b) {
+        errorCount++;
+        if (b == '\n') {
+            resetLine();
+        } else {
+            // the rest of the line cannot be framed reliably
+            state = STATE_SKIP_LINE;
+        }
+    }
+
+    private void resetLine() {
+        state = STATE_TEXT;
+        section = SECTION_TABLE;
+        hasFields = false;
+        lineEmpty = true;
+    }
+
+    private void skip(long len) {
+        if (len > 0) {
+            skip = len;
+            state = STATE_SKIP;
+        } else {
+            state = STATE_TEXT;
+        }
+    }
+
+    private void text(int b) {
+        switch (b) {
+            case '\n':
+                if (!lineEmpty) {
+                    if (!hasFields) {
+                        errorCount++;
+                    } else {
+                        pendingRows++;
+                    }
+                }
+                resetLine();
+                return;
+            case '\\':
+                state = STATE_ESCAPE;
+                break;
+            case ' ':
+                section++;
+                break;
+            case '=':
+                if (section == SECTION_FIELDS) {
+                    hasFields = true;
+                    state = STATE_AFTER_EQUALS;
+                } else if (section == SECTION_TIMESTAMP) {
+                    // binary designated timestamp, text ones never contain '='
+                    state = STATE_DESIGNATED_TYPE;
+                }
+                break;
+            default:
+                break;
+        }
+        lineEmpty = false;
+    }
+}